@@ -0,0 +1,196 @@
+package com.vlkan.hrrs.api;
+
+import com.google.common.base.MoreObjects;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Payload backed by a {@link ByteBuffer}, e.g., a slice of a larger buffer or
+ * a {@link #map(Path, long, int, int) mapped file region}, where the bytes are
+ * streamed without being copied onto the heap. {@link #getBytes()} materializes
+ * the bytes on first access for legacy callers.
+ */
+public class ByteBufferHttpRequestPayload implements HttpRequestPayload {
+
+    private final int missingByteCount;
+
+    private final ByteBuffer buffer;
+
+    // Racy, yet idempotent, materialization.
+    @Nullable
+    private byte[] bytes;
+
+    private ByteBufferHttpRequestPayload(int missingByteCount, ByteBuffer buffer) {
+        checkArgument(missingByteCount >= 0, "expecting: missingByteCount >= 0, found: %s", missingByteCount);
+        this.missingByteCount = missingByteCount;
+        this.buffer = checkNotNull(buffer, "buffer").slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Creates a payload of the remaining bytes of the given buffer. The buffer
+     * content is shared, hence it must not be modified afterwards.
+     */
+    public static ByteBufferHttpRequestPayload of(ByteBuffer buffer, int missingByteCount) {
+        return new ByteBufferHttpRequestPayload(missingByteCount, buffer);
+    }
+
+    /**
+     * Creates a payload of the given file region mapped into memory. The
+     * mapping stays valid until the payload is garbage collected, regardless
+     * of the file being closed.
+     */
+    public static ByteBufferHttpRequestPayload map(Path path, long position, int byteCount, int missingByteCount) throws IOException {
+        checkNotNull(path, "path");
+        checkArgument(position >= 0, "expecting: position >= 0, found: %s", position);
+        checkArgument(byteCount >= 0, "expecting: byteCount >= 0, found: %s", byteCount);
+        try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = fileChannel.map(FileChannel.MapMode.READ_ONLY, position, byteCount);
+            return new ByteBufferHttpRequestPayload(missingByteCount, buffer);
+        }
+    }
+
+    @Override
+    public int getMissingByteCount() {
+        return missingByteCount;
+    }
+
+    @Override
+    public byte[] getBytes() {
+        if (bytes == null) {
+            byte[] newBytes = new byte[buffer.capacity()];
+            buffer.duplicate().get(newBytes);
+            bytes = newBytes;
+        }
+        return bytes;
+    }
+
+    @Override
+    public int getByteCount() {
+        return buffer.capacity();
+    }
+
+    /**
+     * @return a read-only view of the bytes, sharing the content of the backing buffer
+     */
+    public ByteBuffer getBuffer() {
+        return buffer.duplicate();
+    }
+
+    @Override
+    public InputStream openStream() {
+        return new BufferInputStream(buffer.duplicate());
+    }
+
+    @Override
+    public ReadableByteChannel openChannel() {
+        return new BufferChannel(buffer.duplicate());
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects
+                .toStringHelper(this)
+                .add("missingByteCount", missingByteCount)
+                .add("byteCount", buffer.capacity())
+                .add("direct", buffer.isDirect())
+                .toString();
+    }
+
+    @Override
+    public ImmutableHttpRequestPayload.Builder toBuilder() {
+        return ImmutableHttpRequestPayload
+                .newBuilder()
+                .setMissingByteCount(missingByteCount)
+                .setBytes(getBytes());
+    }
+
+    private static final class BufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        private BufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int readByteCount = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, readByteCount);
+            return readByteCount;
+        }
+
+        @Override
+        public long skip(long byteCount) {
+            int skippedByteCount = (int) Math.max(0, Math.min(byteCount, buffer.remaining()));
+            buffer.position(buffer.position() + skippedByteCount);
+            return skippedByteCount;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+
+    }
+
+    private static final class BufferChannel implements ReadableByteChannel {
+
+        private final ByteBuffer buffer;
+
+        private boolean open = true;
+
+        private BufferChannel(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read(ByteBuffer targetBuffer) throws IOException {
+            if (!open) {
+                throw new ClosedChannelException();
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int readByteCount = Math.min(targetBuffer.remaining(), buffer.remaining());
+            ByteBuffer sourceBuffer = buffer.duplicate();
+            sourceBuffer.limit(sourceBuffer.position() + readByteCount);
+            targetBuffer.put(sourceBuffer);
+            buffer.position(buffer.position() + readByteCount);
+            return readByteCount;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void close() {
+            open = false;
+        }
+
+    }
+
+}
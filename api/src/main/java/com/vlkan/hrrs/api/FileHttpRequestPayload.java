@@ -0,0 +1,169 @@
+package com.vlkan.hrrs.api;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.io.ByteStreams;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Payload backed by a region of a file, e.g., a spill file bodies exceeding
+ * an in-memory limit are written to. Each stream or channel opens the file
+ * anew and reads the region on demand, hence the file must outlive the
+ * payload. {@link #getBytes()} materializes the bytes on first access for
+ * legacy callers.
+ */
+public class FileHttpRequestPayload implements HttpRequestPayload {
+
+    private final int missingByteCount;
+
+    private final Path path;
+
+    private final long position;
+
+    private final int byteCount;
+
+    // Racy, yet idempotent, materialization.
+    @Nullable
+    private byte[] bytes;
+
+    public FileHttpRequestPayload(Path path, long position, int byteCount, int missingByteCount) {
+        checkArgument(position >= 0, "expecting: position >= 0, found: %s", position);
+        checkArgument(byteCount >= 0, "expecting: byteCount >= 0, found: %s", byteCount);
+        checkArgument(missingByteCount >= 0, "expecting: missingByteCount >= 0, found: %s", missingByteCount);
+        this.missingByteCount = missingByteCount;
+        this.path = checkNotNull(path, "path");
+        this.position = position;
+        this.byteCount = byteCount;
+    }
+
+    @Override
+    public int getMissingByteCount() {
+        return missingByteCount;
+    }
+
+    @Override
+    public byte[] getBytes() {
+        if (bytes == null) {
+            byte[] newBytes = new byte[byteCount];
+            try (InputStream inputStream = openStream()) {
+                ByteStreams.readFully(inputStream, newBytes);
+            } catch (IOException error) {
+                String message = String.format(
+                        "failed reading payload (path=%s, position=%d, byteCount=%d)",
+                        path, position, byteCount);
+                throw new RuntimeException(message, error);
+            }
+            bytes = newBytes;
+        }
+        return bytes;
+    }
+
+    @Override
+    public int getByteCount() {
+        return byteCount;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public long getPosition() {
+        return position;
+    }
+
+    @Override
+    public InputStream openStream() throws IOException {
+        return ByteStreams.limit(Channels.newInputStream(openFileChannel()), byteCount);
+    }
+
+    @Override
+    public ReadableByteChannel openChannel() throws IOException {
+        return new RegionChannel(openFileChannel(), position + byteCount);
+    }
+
+    private FileChannel openFileChannel() throws IOException {
+        FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            fileChannel.position(position);
+        } catch (IOException error) {
+            fileChannel.close();
+            throw error;
+        }
+        return fileChannel;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects
+                .toStringHelper(this)
+                .add("missingByteCount", missingByteCount)
+                .add("path", path)
+                .add("position", position)
+                .add("byteCount", byteCount)
+                .toString();
+    }
+
+    @Override
+    public ImmutableHttpRequestPayload.Builder toBuilder() {
+        return ImmutableHttpRequestPayload
+                .newBuilder()
+                .setMissingByteCount(missingByteCount)
+                .setBytes(getBytes());
+    }
+
+    /**
+     * File channel bounded by the end of the region.
+     */
+    private static final class RegionChannel implements ReadableByteChannel {
+
+        private final FileChannel fileChannel;
+
+        private final long endPosition;
+
+        private RegionChannel(FileChannel fileChannel, long endPosition) {
+            this.fileChannel = fileChannel;
+            this.endPosition = endPosition;
+        }
+
+        @Override
+        public int read(ByteBuffer buffer) throws IOException {
+            long remainingByteCount = endPosition - fileChannel.position();
+            if (remainingByteCount <= 0) {
+                return -1;
+            }
+            if (buffer.remaining() <= remainingByteCount) {
+                return fileChannel.read(buffer);
+            }
+            ByteBuffer boundedBuffer = buffer.duplicate();
+            boundedBuffer.limit(boundedBuffer.position() + (int) remainingByteCount);
+            int readByteCount = fileChannel.read(boundedBuffer);
+            if (readByteCount > 0) {
+                buffer.position(buffer.position() + readByteCount);
+            }
+            return readByteCount;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return fileChannel.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            fileChannel.close();
+        }
+
+    }
+
+}
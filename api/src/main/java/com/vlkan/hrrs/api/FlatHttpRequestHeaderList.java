@@ -0,0 +1,185 @@
+package com.vlkan.hrrs.api;
+
+import com.google.common.collect.ImmutableMap;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.RandomAccess;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Immutable list of headers stored as parallel name and value arrays, where
+ * the names of common headers are interned. Hence a record carries three
+ * objects for its headers rather than one per header plus a list.
+ *
+ * {@link #get(int)} creates an {@link ImmutableHttpRequestHeader} per call
+ * for compatibility, whereas {@link #nameAt(List, int)} and
+ * {@link #valueAt(List, int)} access any header list without allocation.
+ */
+public final class FlatHttpRequestHeaderList extends AbstractList<HttpRequestHeader> implements RandomAccess {
+
+    private static final String[] COMMON_NAMES = {
+            "Accept",
+            "Accept-Charset",
+            "Accept-Encoding",
+            "Accept-Language",
+            "Authorization",
+            "Cache-Control",
+            "Connection",
+            "Content-Encoding",
+            "Content-Length",
+            "Content-Type",
+            "Cookie",
+            "Date",
+            "ETag",
+            "Expires",
+            "Host",
+            "If-Modified-Since",
+            "If-None-Match",
+            "Keep-Alive",
+            "Last-Modified",
+            "Location",
+            "Origin",
+            "Pragma",
+            "Referer",
+            "Server",
+            "Set-Cookie",
+            "Transfer-Encoding",
+            "Upgrade-Insecure-Requests",
+            "User-Agent",
+            "Vary",
+            "X-Forwarded-For",
+            "X-Forwarded-Host",
+            "X-Forwarded-Proto",
+            "X-Real-IP",
+            "X-Request-ID"
+    };
+
+    /**
+     * Canonical instances of {@link #COMMON_NAMES}, keyed by both their
+     * original and lower case spelling, since containers differ in either.
+     */
+    private static final ImmutableMap<String, String> INTERNED_NAMES = createInternedNames();
+
+    private static ImmutableMap<String, String> createInternedNames() {
+        ImmutableMap.Builder<String, String> builder = ImmutableMap.builder();
+        for (String name : COMMON_NAMES) {
+            builder.put(name, name);
+            String lowerCaseName = name.toLowerCase(Locale.ROOT);
+            builder.put(lowerCaseName, lowerCaseName);
+        }
+        return builder.build();
+    }
+
+    private final String[] names;
+
+    private final String[] values;
+
+    private final int size;
+
+    private FlatHttpRequestHeaderList(String[] names, String[] values, int size) {
+        this.names = names;
+        this.values = values;
+        this.size = size;
+    }
+
+    /**
+     * @return the canonical instance of the given name, if it is a common one, otherwise the name itself
+     */
+    public static String internName(String name) {
+        String internedName = INTERNED_NAMES.get(name);
+        return internedName != null ? internedName : name;
+    }
+
+    @Override
+    public HttpRequestHeader get(int index) {
+        checkElementIndex(index, size);
+        return ImmutableHttpRequestHeader
+                .builder()
+                .setName(names[index])
+                .setValue(values[index])
+                .build();
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    public String getName(int index) {
+        checkElementIndex(index, size);
+        return names[index];
+    }
+
+    public String getValue(int index) {
+        checkElementIndex(index, size);
+        return values[index];
+    }
+
+    /**
+     * @return the name of the header at the given index, without creating a header, if the list is flat
+     */
+    public static String nameAt(List<HttpRequestHeader> headers, int index) {
+        return headers instanceof FlatHttpRequestHeaderList
+                ? ((FlatHttpRequestHeaderList) headers).getName(index)
+                : headers.get(index).getName();
+    }
+
+    /**
+     * @return the value of the header at the given index, without creating a header, if the list is flat
+     */
+    public static String valueAt(List<HttpRequestHeader> headers, int index) {
+        return headers instanceof FlatHttpRequestHeaderList
+                ? ((FlatHttpRequestHeaderList) headers).getValue(index)
+                : headers.get(index).getValue();
+    }
+
+    public static Builder builder(int expectedSize) {
+        return new Builder(expectedSize);
+    }
+
+    @NotThreadSafe
+    public static final class Builder {
+
+        private String[] names;
+
+        private String[] values;
+
+        private int size = 0;
+
+        private Builder(int expectedSize) {
+            checkArgument(expectedSize >= 0, "expecting: expectedSize >= 0, found: %s", expectedSize);
+            this.names = new String[expectedSize];
+            this.values = new String[expectedSize];
+        }
+
+        public Builder add(String name, String value) {
+            checkNotNull(name, "name");
+            checkNotNull(value, "value");
+            if (size == names.length) {
+                int capacity = Math.max(4, 2 * size);
+                names = Arrays.copyOf(names, capacity);
+                values = Arrays.copyOf(values, capacity);
+            }
+            names[size] = internName(name);
+            values[size] = value;
+            size++;
+            return this;
+        }
+
+        /**
+         * The builder must not be used afterwards, since its arrays are handed over to the list.
+         */
+        public FlatHttpRequestHeaderList build() {
+            return new FlatHttpRequestHeaderList(names, values, size);
+        }
+
+    }
+
+}
@@ -1,11 +1,50 @@
 package com.vlkan.hrrs.api;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Recorded payload of a request or a response.
+ *
+ * Implementations need not hold the bytes on the heap, see
+ * {@link ByteBufferHttpRequestPayload} and {@link FileHttpRequestPayload}.
+ * Hence, callers are expected to prefer {@link #getByteCount()},
+ * {@link #openStream()}, and {@link #openChannel()} over {@link #getBytes()},
+ * which might materialize the entire payload.
+ */
 public interface HttpRequestPayload {
 
     int getMissingByteCount();
 
+    /**
+     * @return the recorded bytes, materialized on the heap, if they are not already
+     */
     byte[] getBytes();
 
+    /**
+     * @return the number of recorded bytes, excluding the missing ones
+     */
+    default int getByteCount() {
+        return getBytes().length;
+    }
+
+    /**
+     * @return a new stream over the recorded bytes, to be closed by the caller
+     */
+    default InputStream openStream() throws IOException {
+        return new ByteArrayInputStream(getBytes());
+    }
+
+    /**
+     * @return a new channel over the recorded bytes, to be closed by the caller
+     */
+    default ReadableByteChannel openChannel() throws IOException {
+        return Channels.newChannel(openStream());
+    }
+
     Builder toBuilder();
 
     interface Builder {
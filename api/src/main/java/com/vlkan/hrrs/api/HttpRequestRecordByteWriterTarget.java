@@ -0,0 +1,23 @@
+package com.vlkan.hrrs.api;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+
+/**
+ * Byte-oriented counterpart of {@link HttpRequestRecordWriterTarget}, which
+ * spares serializers the intermediate {@link String} and its charset
+ * encoding. Writers detect targets implementing this interface and pass
+ * them the encoded record bytes instead.
+ */
+public interface HttpRequestRecordByteWriterTarget extends Closeable {
+
+    /**
+     * Writes the remaining bytes of the given buffers in order, advancing
+     * their positions. Buffers of a single call make up whole records, hence
+     * targets can rely on records not being split across calls.
+     */
+    void write(ByteBuffer... buffers);
+
+    void flush();
+
+}
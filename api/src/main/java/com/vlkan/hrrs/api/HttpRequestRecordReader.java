@@ -1,9 +1,24 @@
 package com.vlkan.hrrs.api;
 
+import com.google.common.collect.Iterables;
+
+import java.util.function.Predicate;
+
 public interface HttpRequestRecordReader<T> {
 
     HttpRequestRecordReaderSource<T> getSource();
 
     Iterable<HttpRequestRecord> read();
 
+    /**
+     * Reads the records matching the given filter.
+     *
+     * Implementations are free to pass lazily decoded records to the filter,
+     * hence a filter accessing only the id, timestamp, group name, and method
+     * lets the reader skip decoding the rest of the rejected records.
+     */
+    default Iterable<HttpRequestRecord> read(Predicate<? super HttpRequestRecord> filter) {
+        return Iterables.filter(read(), filter::test);
+    }
+
 }
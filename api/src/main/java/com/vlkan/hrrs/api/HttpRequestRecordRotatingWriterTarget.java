@@ -0,0 +1,17 @@
+package com.vlkan.hrrs.api;
+
+/**
+ * Writer target splitting the records it is handed into files, e.g., by
+ * rotating them. Rotations only complete between records, that is, within
+ * a write or flush after the record being written, hence writers detecting
+ * targets implementing this interface can tell the first record of every
+ * file and make it readable on its own.
+ */
+public interface HttpRequestRecordRotatingWriterTarget {
+
+    /**
+     * @return the number of rotations completed so far
+     */
+    long getRotationCount();
+
+}
@@ -1,6 +1,8 @@
 package com.vlkan.hrrs.api;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
 
 public interface HttpRequestRecordWriter<T> {
 
@@ -8,6 +10,55 @@ public interface HttpRequestRecordWriter<T> {
 
     void write(HttpRequestRecord record) throws IOException;
 
+    /**
+     * Writes the given records in order. Writers override this to amortize
+     * per-record costs, e.g., locking, over the batch.
+     */
+    default void writeAll(Iterable<? extends HttpRequestRecord> records) throws IOException {
+        for (HttpRequestRecord record : records) {
+            write(record);
+        }
+    }
+
+    default void writeAll(HttpRequestRecord[] records) throws IOException {
+        writeAll(Arrays.asList(records));
+    }
+
+    /**
+     * Writes the given record without waiting for it to reach the target.
+     *
+     * The default implementation writes the record and flushes the target,
+     * which writers override to complete the handles of a number of records
+     * with a single flush.
+     *
+     * The handle tells the record is handed over to the target, rather than
+     * durable, since what a flush guarantees is up to the target, e.g., file
+     * targets write their buffers to the file, whereas socket targets only
+     * signal their sender thread, which might still drop the record.
+     *
+     * @return a handle completed once the record is written and the target
+     *         is flushed, or completed exceptionally, if the record is dropped
+     */
+    default CompletableFuture<Void> writeAsync(HttpRequestRecord record) {
+        CompletableFuture<Void> completion = new CompletableFuture<>();
+        try {
+            write(record);
+            getTarget().flush();
+            completion.complete(null);
+        } catch (IOException | RuntimeException error) {
+            completion.completeExceptionally(error);
+        }
+        return completion;
+    }
+
+    /**
+     * Flush barrier, i.e., returns once the records written so far are
+     * written to the target and the target is flushed.
+     */
+    default void flush() throws InterruptedException {
+        getTarget().flush();
+    }
+
     void close() throws InterruptedException;
 
     boolean isReady() throws InterruptedException;
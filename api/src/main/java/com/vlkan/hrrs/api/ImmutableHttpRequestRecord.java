@@ -129,6 +129,7 @@ public class ImmutableHttpRequestRecord implements HttpRequestRecord {
         builder.method = method;
         builder.headers = headers;
         builder.payload = payload;
+        builder.responseInfo = responseInfo;
         return builder;
     }
 
@@ -1,18 +1,56 @@
 package com.vlkan.hrrs.api;
 
-import javax.servlet.http.HttpServletResponse;
+import com.google.common.base.Objects;
 
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Response served to a recorded request, i.e., the status code and the
+ * response time in milliseconds, along with the headers and the body, if
+ * response capture is enabled. It is independent of the container, e.g.,
+ * the servlet API, the request is served by.
+ */
 public class ResponseInfo {
     int statusCode;
     long responseTime;
 
-    public ResponseInfo(HttpServletResponse response) {
-        if (response == null) {
-            statusCode = 200;
-            responseTime = 200;
-            return;
-        }
-        statusCode = response.getStatus();
+    /**
+     * Captured response headers, empty unless response capture is enabled.
+     */
+    private final List<HttpRequestHeader> headers;
+
+    /**
+     * Captured response body, truncated to the recordable byte count, or
+     * null, if response capture is disabled.
+     */
+    @Nullable
+    private final HttpRequestPayload body;
+
+    /**
+     * Hash of the entire response body, if it got truncated, otherwise null.
+     */
+    @Nullable
+    private final byte[] bodyHash;
+
+    public ResponseInfo(int statusCode, long responseTime) {
+        this(statusCode, responseTime, Collections.<HttpRequestHeader>emptyList(), null, null);
+    }
+
+    public ResponseInfo(int statusCode,
+                        long responseTime,
+                        List<HttpRequestHeader> headers,
+                        @Nullable HttpRequestPayload body,
+                        @Nullable byte[] bodyHash) {
+        this.statusCode = statusCode;
+        this.responseTime = responseTime;
+        this.headers = checkNotNull(headers, "headers");
+        this.body = body;
+        this.bodyHash = bodyHash;
     }
 
     public int getStatusCode() {
@@ -27,12 +65,52 @@ public class ResponseInfo {
         this.responseTime = responseTime;
     }
 
+    public List<HttpRequestHeader> getHeaders() {
+        return headers;
+    }
+
+    @Nullable
+    public HttpRequestPayload getBody() {
+        return body;
+    }
+
+    @Nullable
+    public byte[] getBodyHash() {
+        return bodyHash;
+    }
+
+    /**
+     * @return true, if the response headers or body are captured
+     */
+    public boolean isCaptured() {
+        return !headers.isEmpty() || body != null;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ResponseInfo that = (ResponseInfo) o;
+        return statusCode == that.statusCode &&
+                responseTime == that.responseTime &&
+                Objects.equal(headers, that.headers) &&
+                Objects.equal(body, that.body) &&
+                Arrays.equals(bodyHash, that.bodyHash);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(statusCode, responseTime, headers, body, Arrays.hashCode(bodyHash));
+    }
+
     @Override
     public String toString() {
         return "ResponseInfo{" +
                 "statusCode=" + statusCode +
                 ", time=" + responseTime +
-                " ms}";
+                " ms" +
+                (isCaptured() ? ", headerCount=" + headers.size() + ", body=" + body : "") +
+                "}";
     }
 
     public long getResponseTime() {
@@ -0,0 +1,24 @@
+package com.vlkan.hrrs.api.jfr;
+
+/**
+ * Emits HRRS events to an event recorder, e.g., JDK Flight Recorder.
+ *
+ * @see HrrsEvents
+ */
+public interface HrrsEventEmitter {
+
+    void emitFilterCapture(String recordId, String groupName, int byteCount, int missingByteCount, long selfTimeNanos);
+
+    void emitWriterBatchFlush(int recordCount, long byteCount, long durationNanos);
+
+    void emitQueueOverflow(String recordId, int queueCapacity);
+
+    void emitFileRotation(String policy, String file, String rotatedFile, long durationNanos, boolean succeeded);
+
+    void emitReplayDispatch(long startDelayNanos);
+
+    void emitReplayCompletion(String recordId, String groupName, int statusCode, long durationNanos);
+
+    void emitReaderDecodeStall(long lineIndex, int lineLength, long readNanos, long decodeNanos);
+
+}
@@ -0,0 +1,83 @@
+package com.vlkan.hrrs.api.jfr;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entry point to emit HRRS events to JDK Flight Recorder.
+ *
+ * JFR classes are only touched by the emitter of the optional
+ * {@code hrrs-jfr} module, which is loaded reflectively, hence this module
+ * neither compiles nor links against them. If that module is not in the
+ * class path, the JVM lacks JFR, or {@code hrrs.jfr.disabled} system property
+ * is set, events are routed to a no-op emitter. Emitters check whether the
+ * event is enabled before creating it, hence the cost is a single virtual
+ * call when there is no recording in progress.
+ */
+public enum HrrsEvents {;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HrrsEvents.class);
+
+    /**
+     * Reads taking longer than this threshold are reported as reader decode stalls.
+     * Can be overridden by {@code hrrs.jfr.readerStallThresholdMicros} system property.
+     */
+    public static final long READER_STALL_THRESHOLD_NANOS =
+            TimeUnit.MICROSECONDS.toNanos(Long.getLong("hrrs.jfr.readerStallThresholdMicros", 1000));
+
+    private static final String JFR_EMITTER_CLASS_NAME = "com.vlkan.hrrs.jfr.JfrHrrsEventEmitter";
+
+    private static final HrrsEventEmitter EMITTER = createEmitter();
+
+    private static HrrsEventEmitter createEmitter() {
+        if (System.getProperty("hrrs.jfr.disabled") != null) {
+            LOGGER.trace("JFR events are disabled");
+            return NoopHrrsEventEmitter.INSTANCE;
+        }
+        try {
+            Class.forName("jdk.jfr.Event");
+            Class<?> emitterClass = Class.forName(JFR_EMITTER_CLASS_NAME);
+            return (HrrsEventEmitter) emitterClass.getDeclaredConstructor().newInstance();
+        } catch (Throwable error) {
+            LOGGER.trace("JFR or hrrs-jfr is not available, falling back to no-op emitter", error);
+            return NoopHrrsEventEmitter.INSTANCE;
+        }
+    }
+
+    public static HrrsEventEmitter getEmitter() {
+        return EMITTER;
+    }
+
+    public static void emitFilterCapture(String recordId, String groupName, int byteCount, int missingByteCount, long selfTimeNanos) {
+        EMITTER.emitFilterCapture(recordId, groupName, byteCount, missingByteCount, selfTimeNanos);
+    }
+
+    public static void emitWriterBatchFlush(int recordCount, long byteCount, long durationNanos) {
+        EMITTER.emitWriterBatchFlush(recordCount, byteCount, durationNanos);
+    }
+
+    public static void emitQueueOverflow(String recordId, int queueCapacity) {
+        EMITTER.emitQueueOverflow(recordId, queueCapacity);
+    }
+
+    public static void emitFileRotation(String policy, String file, String rotatedFile, long durationNanos, boolean succeeded) {
+        EMITTER.emitFileRotation(policy, file, rotatedFile, durationNanos, succeeded);
+    }
+
+    public static void emitReplayDispatch(long startDelayNanos) {
+        EMITTER.emitReplayDispatch(startDelayNanos);
+    }
+
+    public static void emitReplayCompletion(String recordId, String groupName, int statusCode, long durationNanos) {
+        EMITTER.emitReplayCompletion(recordId, groupName, statusCode, durationNanos);
+    }
+
+    public static void emitReaderDecodeStall(long lineIndex, int lineLength, long readNanos, long decodeNanos) {
+        if (readNanos + decodeNanos >= READER_STALL_THRESHOLD_NANOS) {
+            EMITTER.emitReaderDecodeStall(lineIndex, lineLength, readNanos, decodeNanos);
+        }
+    }
+
+}
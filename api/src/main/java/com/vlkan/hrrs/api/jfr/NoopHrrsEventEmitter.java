@@ -0,0 +1,42 @@
+package com.vlkan.hrrs.api.jfr;
+
+enum NoopHrrsEventEmitter implements HrrsEventEmitter {
+
+    INSTANCE;
+
+    @Override
+    public void emitFilterCapture(String recordId, String groupName, int byteCount, int missingByteCount, long selfTimeNanos) {
+        // Do nothing.
+    }
+
+    @Override
+    public void emitWriterBatchFlush(int recordCount, long byteCount, long durationNanos) {
+        // Do nothing.
+    }
+
+    @Override
+    public void emitQueueOverflow(String recordId, int queueCapacity) {
+        // Do nothing.
+    }
+
+    @Override
+    public void emitFileRotation(String policy, String file, String rotatedFile, long durationNanos, boolean succeeded) {
+        // Do nothing.
+    }
+
+    @Override
+    public void emitReplayDispatch(long startDelayNanos) {
+        // Do nothing.
+    }
+
+    @Override
+    public void emitReplayCompletion(String recordId, String groupName, int statusCode, long durationNanos) {
+        // Do nothing.
+    }
+
+    @Override
+    public void emitReaderDecodeStall(long lineIndex, int lineLength, long readNanos, long decodeNanos) {
+        // Do nothing.
+    }
+
+}
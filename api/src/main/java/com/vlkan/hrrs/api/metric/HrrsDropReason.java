@@ -0,0 +1,46 @@
+package com.vlkan.hrrs.api.metric;
+
+/**
+ * Reasons for a captured record to not make it to the writer target.
+ */
+public enum HrrsDropReason {
+
+    /**
+     * Record is excluded by the filter.
+     */
+    FILTERED,
+
+    /**
+     * Writer queue is full.
+     */
+    QUEUE_OVERFLOW,
+
+    /**
+     * Record could not be serialized.
+     */
+    SERIALIZATION_FAILURE,
+
+    /**
+     * Writer target failed to persist the record.
+     */
+    WRITE_FAILURE,
+
+    /**
+     * Writer target cannot accept the record, e.g., the collector is not
+     * reachable or not keeping up.
+     */
+    TARGET_UNAVAILABLE,
+
+    /**
+     * Record exceeds the maximum size the writer target accepts, e.g., the
+     * buffer of a socket target.
+     */
+    RECORD_TOO_LARGE,
+
+    /**
+     * Free space of the file system the writer target writes to is below the
+     * watermark, hence capture is paused.
+     */
+    DISK_SPACE_LOW
+
+}
@@ -0,0 +1,84 @@
+package com.vlkan.hrrs.api.metric;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of non-negative values with power-of-two buckets.
+ *
+ * Updates cost a couple of uncontended atomic increments and never allocate.
+ * Percentiles are reported as the upper bound of the matching bucket, that
+ * is, with a relative error less than 2x, which is sufficient to spot
+ * latency outliers.
+ */
+@ThreadSafe
+public class HrrsHistogram {
+
+    private static final int BUCKET_COUNT = Long.SIZE;
+
+    private final AtomicLongArray bucketCounts = new AtomicLongArray(BUCKET_COUNT);
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder sum = new LongAdder();
+
+    private final AtomicLong max = new AtomicLong();
+
+    public void update(long value) {
+        long positiveValue = Math.max(0, value);
+        int bucketIndex = BUCKET_COUNT - Long.numberOfLeadingZeros(positiveValue);
+        bucketCounts.incrementAndGet(Math.min(bucketIndex, BUCKET_COUNT - 1));
+        count.increment();
+        sum.add(positiveValue);
+        long prevMax;
+        while (positiveValue > (prevMax = max.get()) && !max.compareAndSet(prevMax, positiveValue)) {
+            // Retry.
+        }
+    }
+
+    public void reset() {
+        for (int bucketIndex = 0; bucketIndex < BUCKET_COUNT; bucketIndex++) {
+            bucketCounts.set(bucketIndex, 0);
+        }
+        count.reset();
+        sum.reset();
+        max.set(0);
+    }
+
+    public HrrsHistogramSnapshot getSnapshot() {
+        long[] counts = new long[BUCKET_COUNT];
+        long totalCount = 0;
+        for (int bucketIndex = 0; bucketIndex < BUCKET_COUNT; bucketIndex++) {
+            counts[bucketIndex] = bucketCounts.get(bucketIndex);
+            totalCount += counts[bucketIndex];
+        }
+        long maxValue = max.get();
+        return new HrrsHistogramSnapshot(
+                totalCount,
+                sum.sum(),
+                maxValue,
+                percentile(counts, totalCount, maxValue, 0.50),
+                percentile(counts, totalCount, maxValue, 0.90),
+                percentile(counts, totalCount, maxValue, 0.99),
+                percentile(counts, totalCount, maxValue, 0.999));
+    }
+
+    private static long percentile(long[] counts, long totalCount, long maxValue, double quantile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * totalCount);
+        long cumulativeCount = 0;
+        for (int bucketIndex = 0; bucketIndex < BUCKET_COUNT; bucketIndex++) {
+            cumulativeCount += counts[bucketIndex];
+            if (cumulativeCount >= rank) {
+                long upperBound = bucketIndex == 0 ? 0 : (1L << bucketIndex) - 1;
+                return Math.min(upperBound, maxValue);
+            }
+        }
+        return maxValue;
+    }
+
+}
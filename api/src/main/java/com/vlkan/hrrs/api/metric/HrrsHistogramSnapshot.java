@@ -0,0 +1,87 @@
+package com.vlkan.hrrs.api.metric;
+
+import com.google.common.base.MoreObjects;
+
+import java.beans.ConstructorProperties;
+
+public class HrrsHistogramSnapshot {
+
+    private final long count;
+
+    private final long sum;
+
+    private final long max;
+
+    private final long p50;
+
+    private final long p90;
+
+    private final long p99;
+
+    private final long p999;
+
+    @ConstructorProperties({"count", "sum", "max", "p50", "p90", "p99", "p999"})
+    public HrrsHistogramSnapshot(long count, long sum, long max, long p50, long p90, long p99, long p999) {
+        this.count = count;
+        this.sum = sum;
+        this.max = max;
+        this.p50 = p50;
+        this.p90 = p90;
+        this.p99 = p99;
+        this.p999 = p999;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getSum() {
+        return sum;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public long getP50() {
+        return p50;
+    }
+
+    public long getP90() {
+        return p90;
+    }
+
+    public long getP99() {
+        return p99;
+    }
+
+    public long getP999() {
+        return p999;
+    }
+
+    void appendJson(StringBuilder builder) {
+        builder
+                .append("{\"count\": ").append(count)
+                .append(", \"sum\": ").append(sum)
+                .append(", \"max\": ").append(max)
+                .append(", \"p50\": ").append(p50)
+                .append(", \"p90\": ").append(p90)
+                .append(", \"p99\": ").append(p99)
+                .append(", \"p999\": ").append(p999)
+                .append('}');
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("count", count)
+                .add("sum", sum)
+                .add("max", max)
+                .add("p50", p50)
+                .add("p90", p90)
+                .add("p99", p99)
+                .add("p999", p999)
+                .toString();
+    }
+
+}
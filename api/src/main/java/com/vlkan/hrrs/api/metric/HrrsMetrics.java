@@ -0,0 +1,328 @@
+package com.vlkan.hrrs.api.metric;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.concurrent.ThreadSafe;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Instrumentation of the capture pipeline, i.e., the recorder filter, the
+ * writer queue, and the writer targets, along with the damaged records
+ * skipped by readers.
+ *
+ * Counters are backed by {@link LongAdder}s and histograms by
+ * {@link HrrsHistogram}s, hence updates neither block nor allocate.
+ * The metrics are exposed via JMX (see {@link #registerMBean(String)}) and
+ * as JSON (see {@link #toJson()}).
+ */
+@ThreadSafe
+public class HrrsMetrics implements HrrsMetricsMXBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HrrsMetrics.class);
+
+    private static final String OBJECT_NAME_PREFIX = "com.vlkan.hrrs:type=HrrsMetrics,name=";
+
+    private static final HrrsDropReason[] DROP_REASONS = HrrsDropReason.values();
+
+    private static final HrrsMetrics INSTANCE = new HrrsMetrics();
+
+    private final LongAdder recordedCount = new LongAdder();
+
+    private final LongAdder sampledOutCount = new LongAdder();
+
+    private final LongAdder[] droppedCounts = createLongAdders(DROP_REASONS.length);
+
+    private final LongAdder truncatedPayloadCount = new LongAdder();
+
+    private final LongAdder serializedByteCount = new LongAdder();
+
+    private final AtomicInteger queueWatermark = new AtomicInteger();
+
+    private final LongAdder throttledNanos = new LongAdder();
+
+    private final LongAdder capturePauseCount = new LongAdder();
+
+    private volatile boolean capturePaused = false;
+
+    private final LongAdder damagedRecordCount = new LongAdder();
+
+    private final HrrsHistogram filterSelfTimeNanos = new HrrsHistogram();
+
+    private final HrrsHistogram writerBatchLatencyNanos = new HrrsHistogram();
+
+    private volatile IntSupplier queueDepthSupplier = () -> 0;
+
+    private volatile int queueCapacity = 0;
+
+    public HrrsMetrics() {
+        // Do nothing.
+    }
+
+    public static HrrsMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    private static LongAdder[] createLongAdders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        for (int adderIndex = 0; adderIndex < count; adderIndex++) {
+            adders[adderIndex] = new LongAdder();
+        }
+        return adders;
+    }
+
+    public void incrementRecordedCount() {
+        recordedCount.increment();
+    }
+
+    public void addRecordedCount(long count) {
+        recordedCount.add(count);
+    }
+
+    public void incrementSampledOutCount() {
+        sampledOutCount.increment();
+    }
+
+    public void incrementDroppedCount(HrrsDropReason reason) {
+        droppedCounts[reason.ordinal()].increment();
+    }
+
+    public void addDroppedCount(HrrsDropReason reason, long count) {
+        droppedCounts[reason.ordinal()].add(count);
+    }
+
+    public void incrementTruncatedPayloadCount() {
+        truncatedPayloadCount.increment();
+    }
+
+    public void addSerializedByteCount(long byteCount) {
+        serializedByteCount.add(byteCount);
+    }
+
+    public void setQueue(IntSupplier depthSupplier, int capacity) {
+        this.queueDepthSupplier = checkNotNull(depthSupplier, "depthSupplier");
+        this.queueCapacity = capacity;
+    }
+
+    public void updateQueueWatermark(int depth) {
+        int prevWatermark;
+        while (depth > (prevWatermark = queueWatermark.get()) && !queueWatermark.compareAndSet(prevWatermark, depth)) {
+            // Retry.
+        }
+    }
+
+    public void addThrottledNanos(long nanos) {
+        throttledNanos.add(nanos);
+    }
+
+    public void setCapturePaused(boolean capturePaused) {
+        if (capturePaused && !this.capturePaused) {
+            capturePauseCount.increment();
+        }
+        this.capturePaused = capturePaused;
+    }
+
+    public void incrementDamagedRecordCount() {
+        damagedRecordCount.increment();
+    }
+
+    public void updateFilterSelfTimeNanos(long nanos) {
+        filterSelfTimeNanos.update(nanos);
+    }
+
+    public void updateWriterBatchLatencyNanos(long nanos) {
+        writerBatchLatencyNanos.update(nanos);
+    }
+
+    @Override
+    public long getRecordedCount() {
+        return recordedCount.sum();
+    }
+
+    @Override
+    public long getSampledOutCount() {
+        return sampledOutCount.sum();
+    }
+
+    @Override
+    public long getDroppedCount() {
+        long count = 0;
+        for (LongAdder droppedCount : droppedCounts) {
+            count += droppedCount.sum();
+        }
+        return count;
+    }
+
+    public long getDroppedCount(HrrsDropReason reason) {
+        return droppedCounts[reason.ordinal()].sum();
+    }
+
+    @Override
+    public Map<String, Long> getDroppedCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (HrrsDropReason reason : DROP_REASONS) {
+            counts.put(reason.name(), droppedCounts[reason.ordinal()].sum());
+        }
+        return Collections.unmodifiableMap(counts);
+    }
+
+    @Override
+    public long getTruncatedPayloadCount() {
+        return truncatedPayloadCount.sum();
+    }
+
+    @Override
+    public long getSerializedByteCount() {
+        return serializedByteCount.sum();
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return queueDepthSupplier.getAsInt();
+    }
+
+    @Override
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    @Override
+    public int getQueueWatermark() {
+        return queueWatermark.get();
+    }
+
+    @Override
+    public long getThrottledNanos() {
+        return throttledNanos.sum();
+    }
+
+    @Override
+    public boolean isCapturePaused() {
+        return capturePaused;
+    }
+
+    @Override
+    public long getCapturePauseCount() {
+        return capturePauseCount.sum();
+    }
+
+    @Override
+    public long getDamagedRecordCount() {
+        return damagedRecordCount.sum();
+    }
+
+    @Override
+    public HrrsHistogramSnapshot getFilterSelfTimeNanos() {
+        return filterSelfTimeNanos.getSnapshot();
+    }
+
+    @Override
+    public HrrsHistogramSnapshot getWriterBatchLatencyNanos() {
+        return writerBatchLatencyNanos.getSnapshot();
+    }
+
+    @Override
+    public void resetQueueWatermark() {
+        queueWatermark.set(0);
+    }
+
+    @Override
+    public void reset() {
+        recordedCount.reset();
+        sampledOutCount.reset();
+        for (LongAdder droppedCount : droppedCounts) {
+            droppedCount.reset();
+        }
+        truncatedPayloadCount.reset();
+        serializedByteCount.reset();
+        queueWatermark.set(0);
+        throttledNanos.reset();
+        capturePauseCount.reset();
+        damagedRecordCount.reset();
+        filterSelfTimeNanos.reset();
+        writerBatchLatencyNanos.reset();
+    }
+
+    public String toJson() {
+        StringBuilder builder = new StringBuilder(512);
+        builder
+                .append("{\"recordedCount\": ").append(getRecordedCount())
+                .append(", \"sampledOutCount\": ").append(getSampledOutCount())
+                .append(", \"droppedCount\": ").append(getDroppedCount())
+                .append(", \"droppedCounts\": {");
+        for (HrrsDropReason reason : DROP_REASONS) {
+            if (reason.ordinal() > 0) {
+                builder.append(", ");
+            }
+            builder.append('"').append(reason.name()).append("\": ").append(getDroppedCount(reason));
+        }
+        builder
+                .append("}, \"truncatedPayloadCount\": ").append(getTruncatedPayloadCount())
+                .append(", \"serializedByteCount\": ").append(getSerializedByteCount())
+                .append(", \"queueDepth\": ").append(getQueueDepth())
+                .append(", \"queueCapacity\": ").append(getQueueCapacity())
+                .append(", \"queueWatermark\": ").append(getQueueWatermark())
+                .append(", \"throttledNanos\": ").append(getThrottledNanos())
+                .append(", \"capturePaused\": ").append(isCapturePaused())
+                .append(", \"capturePauseCount\": ").append(getCapturePauseCount())
+                .append(", \"damagedRecordCount\": ").append(getDamagedRecordCount())
+                .append(", \"filterSelfTimeNanos\": ");
+        getFilterSelfTimeNanos().appendJson(builder);
+        builder.append(", \"writerBatchLatencyNanos\": ");
+        getWriterBatchLatencyNanos().appendJson(builder);
+        builder.append('}');
+        return builder.toString();
+    }
+
+    /**
+     * Registers the metrics to the platform MBean server, if not done already.
+     *
+     * @param name value of the {@code name} key of the MBean object name
+     */
+    public void registerMBean(String name) {
+        checkNotNull(name, "name");
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName objectName = createObjectName(name);
+            mBeanServer.registerMBean(this, objectName);
+            LOGGER.trace("registered MBean (objectName={})", objectName);
+        } catch (InstanceAlreadyExistsException ignored) {
+            LOGGER.trace("MBean is already registered (name={})", name);
+        } catch (Exception error) {
+            String message = String.format("failed registering MBean (name=%s)", name);
+            LOGGER.error(message, error);
+        }
+    }
+
+    public void unregisterMBean(String name) {
+        checkNotNull(name, "name");
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName objectName = createObjectName(name);
+            mBeanServer.unregisterMBean(objectName);
+            LOGGER.trace("unregistered MBean (objectName={})", objectName);
+        } catch (InstanceNotFoundException ignored) {
+            LOGGER.trace("MBean is not registered (name={})", name);
+        } catch (Exception error) {
+            String message = String.format("failed unregistering MBean (name=%s)", name);
+            LOGGER.error(message, error);
+        }
+    }
+
+    public static ObjectName createObjectName(String name) throws Exception {
+        return new ObjectName(OBJECT_NAME_PREFIX + ObjectName.quote(name));
+    }
+
+}
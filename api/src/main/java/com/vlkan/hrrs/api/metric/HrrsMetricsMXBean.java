@@ -0,0 +1,44 @@
+package com.vlkan.hrrs.api.metric;
+
+import java.util.Map;
+
+/**
+ * JMX view of {@link HrrsMetrics}.
+ */
+public interface HrrsMetricsMXBean {
+
+    long getRecordedCount();
+
+    long getSampledOutCount();
+
+    long getDroppedCount();
+
+    Map<String, Long> getDroppedCounts();
+
+    long getTruncatedPayloadCount();
+
+    long getSerializedByteCount();
+
+    int getQueueDepth();
+
+    int getQueueCapacity();
+
+    int getQueueWatermark();
+
+    long getThrottledNanos();
+
+    boolean isCapturePaused();
+
+    long getCapturePauseCount();
+
+    long getDamagedRecordCount();
+
+    HrrsHistogramSnapshot getFilterSelfTimeNanos();
+
+    HrrsHistogramSnapshot getWriterBatchLatencyNanos();
+
+    void resetQueueWatermark();
+
+    void reset();
+
+}
@@ -0,0 +1,11 @@
+package com.vlkan.hrrs.api.metric;
+
+/**
+ * Writer target that may drop the records it is handed, e.g., while its
+ * destination is unavailable, and hence counts the records it accepts as
+ * recorded itself. Writers detect targets implementing this interface and
+ * leave the {@link HrrsMetrics#getRecordedCount() recorded count} to them,
+ * so a dropped record is not counted as recorded as well.
+ */
+public interface HrrsRecordCountingTarget {
+}
@@ -0,0 +1,118 @@
+package com.vlkan.hrrs.benchmark;
+
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Minimal in-memory request exposing a fixed body and parameter set.
+ * Methods that are not overridden fail with {@link UnsupportedOperationException}.
+ */
+class BenchmarkHttpServletRequest extends HttpServletRequestWrapper {
+
+    private static final HttpServletRequest UNSUPPORTED_REQUEST = (HttpServletRequest) Proxy.newProxyInstance(
+            BenchmarkHttpServletRequest.class.getClassLoader(),
+            new Class<?>[]{HttpServletRequest.class},
+            (proxy, method, args) -> {
+                throw new UnsupportedOperationException(method.getName());
+            });
+
+    private final String queryString;
+
+    private final String characterEncoding;
+
+    private final byte[] body;
+
+    private final Map<String, String[]> parameters;
+
+    BenchmarkHttpServletRequest(String queryString, String characterEncoding, byte[] body, Map<String, String[]> parameters) {
+        super(UNSUPPORTED_REQUEST);
+        this.queryString = queryString;
+        this.characterEncoding = characterEncoding;
+        this.body = checkNotNull(body, "body");
+        this.parameters = checkNotNull(parameters, "parameters");
+    }
+
+    @Override
+    public String getQueryString() {
+        return queryString;
+    }
+
+    @Override
+    public String getCharacterEncoding() {
+        return characterEncoding;
+    }
+
+    @Override
+    public String getContentType() {
+        return "application/x-www-form-urlencoded";
+    }
+
+    @Override
+    public int getContentLength() {
+        return body.length;
+    }
+
+    @Override
+    public ServletInputStream getInputStream() {
+        return new ServletInputStream() {
+
+            private int position = 0;
+
+            @Override
+            public boolean isFinished() {
+                return position >= body.length;
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setReadListener(ReadListener readListener) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public int read() {
+                return position < body.length ? body[position++] & 0xFF : -1;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) {
+                if (position >= body.length) {
+                    return -1;
+                }
+                int readByteCount = Math.min(length, body.length - position);
+                System.arraycopy(body, position, buffer, offset, readByteCount);
+                position += readByteCount;
+                return readByteCount;
+            }
+
+        };
+    }
+
+    @Override
+    public Enumeration<String> getParameterNames() {
+        return Collections.enumeration(parameters.keySet());
+    }
+
+    @Override
+    public String[] getParameterValues(String name) {
+        return parameters.get(name);
+    }
+
+    @Override
+    public Map<String, String[]> getParameterMap() {
+        return parameters;
+    }
+
+}
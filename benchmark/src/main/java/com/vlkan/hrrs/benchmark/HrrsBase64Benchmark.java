@@ -0,0 +1,101 @@
+package com.vlkan.hrrs.benchmark;
+
+import com.vlkan.hrrs.serializer.base64.Base64Decoder;
+import com.vlkan.hrrs.serializer.base64.Base64Encoder;
+import com.vlkan.hrrs.serializer.base64.guava.GuavaBase64Decoder;
+import com.vlkan.hrrs.serializer.base64.guava.GuavaBase64Encoder;
+import com.vlkan.hrrs.serializer.base64.jdk.JdkBase64Decoder;
+import com.vlkan.hrrs.serializer.base64.jdk.JdkBase64Encoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the Base64 codecs across payload sizes.
+ *
+ * Run with {@code java -jar benchmark/target/benchmarks.jar HrrsBase64Benchmark -prof gc}
+ * to see the allocation rates as well.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HrrsBase64Benchmark {
+
+    public enum Codec {
+
+        GUAVA(GuavaBase64Encoder.getInstance(), GuavaBase64Decoder.getInstance()),
+
+        JDK(JdkBase64Encoder.getInstance(), JdkBase64Decoder.getInstance());
+
+        private final Base64Encoder encoder;
+
+        private final Base64Decoder decoder;
+
+        Codec(Base64Encoder encoder, Base64Decoder decoder) {
+            this.encoder = encoder;
+            this.decoder = decoder;
+        }
+
+    }
+
+    @Param({"GUAVA", "JDK"})
+    public Codec codec;
+
+    @Param({"64", "1024", "65536"})
+    public int byteCount;
+
+    private byte[] bytes;
+
+    private ByteBuffer byteBuffer;
+
+    private String encodedBytes;
+
+    private ByteBuffer decodeBuffer;
+
+    @Setup
+    public void setup() {
+        bytes = new byte[byteCount];
+        new Random(0).nextBytes(bytes);
+        byteBuffer = ByteBuffer.wrap(bytes);
+        encodedBytes = codec.encoder.encode(bytes);
+        decodeBuffer = ByteBuffer.allocate(Base64Decoder.getMaxDecodedByteCount(encodedBytes.length()));
+    }
+
+    @Benchmark
+    public String encode() {
+        return codec.encoder.encode(bytes);
+    }
+
+    @Benchmark
+    public ByteBuffer encodeBuffer() {
+        byteBuffer.clear();
+        return codec.encoder.encode(byteBuffer);
+    }
+
+    @Benchmark
+    public byte[] decode() {
+        return codec.decoder.decode(encodedBytes);
+    }
+
+    @Benchmark
+    public int decodeIntoBuffer() {
+        decodeBuffer.clear();
+        return codec.decoder.decode(encodedBytes, decodeBuffer);
+    }
+
+}
@@ -0,0 +1,113 @@
+package com.vlkan.hrrs.benchmark;
+
+import com.vlkan.hrrs.api.FlatHttpRequestHeaderList;
+import com.vlkan.hrrs.api.HttpRequestHeader;
+import com.vlkan.hrrs.api.ImmutableHttpRequestHeader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares building and visiting headers stored as a list of
+ * {@link ImmutableHttpRequestHeader}s against a {@link FlatHttpRequestHeaderList}.
+ *
+ * Run with {@code java -jar benchmark/target/benchmarks.jar HrrsHeaderBenchmark -prof gc}
+ * to see the allocation rates as well.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HrrsHeaderBenchmark {
+
+    private static final String[] COMMON_NAMES = {
+            "Accept", "Accept-Encoding", "Accept-Language", "Cache-Control", "Connection",
+            "Content-Length", "Content-Type", "Cookie", "Host", "Origin", "Referer", "User-Agent"
+    };
+
+    @Param({"20", "40"})
+    public int headerCount;
+
+    private String[] names;
+
+    private String[] values;
+
+    private List<HttpRequestHeader> immutableHeaders;
+
+    private List<HttpRequestHeader> flatHeaders;
+
+    @Setup
+    public void setup() {
+        names = new String[headerCount];
+        values = new String[headerCount];
+        for (int headerIndex = 0; headerIndex < headerCount; headerIndex++) {
+            // Copy the names, as decoders and containers do, to let interning kick in.
+            names[headerIndex] = headerIndex < COMMON_NAMES.length
+                    ? new String(COMMON_NAMES[headerIndex])
+                    : "X-Custom-" + headerIndex;
+            values[headerIndex] = "value-" + headerIndex;
+        }
+        immutableHeaders = buildImmutableHeaders();
+        flatHeaders = buildFlatHeaders();
+    }
+
+    @Benchmark
+    public List<HttpRequestHeader> buildImmutableHeaders() {
+        List<HttpRequestHeader> headers = new ArrayList<>(headerCount);
+        for (int headerIndex = 0; headerIndex < headerCount; headerIndex++) {
+            ImmutableHttpRequestHeader header = ImmutableHttpRequestHeader
+                    .builder()
+                    .setName(names[headerIndex])
+                    .setValue(values[headerIndex])
+                    .build();
+            headers.add(header);
+        }
+        return headers;
+    }
+
+    @Benchmark
+    public List<HttpRequestHeader> buildFlatHeaders() {
+        FlatHttpRequestHeaderList.Builder headers = FlatHttpRequestHeaderList.builder(headerCount);
+        for (int headerIndex = 0; headerIndex < headerCount; headerIndex++) {
+            headers.add(names[headerIndex], values[headerIndex]);
+        }
+        return headers.build();
+    }
+
+    @Benchmark
+    public int visitImmutableHeaders() {
+        return visit(immutableHeaders);
+    }
+
+    @Benchmark
+    public int visitFlatHeaders() {
+        return visit(flatHeaders);
+    }
+
+    /**
+     * Visits the headers the way writers and the replayer do.
+     */
+    private static int visit(List<HttpRequestHeader> headers) {
+        int length = 0;
+        for (int headerIndex = 0; headerIndex < headers.size(); headerIndex++) {
+            length += FlatHttpRequestHeaderList.nameAt(headers, headerIndex).length();
+            length += FlatHttpRequestHeaderList.valueAt(headers, headerIndex).length();
+        }
+        return length;
+    }
+
+}
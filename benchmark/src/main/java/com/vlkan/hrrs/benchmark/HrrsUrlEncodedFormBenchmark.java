@@ -0,0 +1,80 @@
+package com.vlkan.hrrs.benchmark;
+
+import com.vlkan.hrrs.api.HttpRequestPayload;
+import com.vlkan.hrrs.servlet.HrrsUrlEncodedFormHelper;
+import com.vlkan.hrrs.servlet.HrrsUrlEncodedFormHttpServletRequestWrapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the raw body capture and the parameter re-encoding paths of
+ * {@link HrrsUrlEncodedFormHelper}.
+ *
+ * Run with {@code java -jar benchmark/target/benchmarks.jar HrrsUrlEncodedFormBenchmark -prof gc}
+ * to see the allocation rates as well.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HrrsUrlEncodedFormBenchmark {
+
+    private static final String ENCODING = StandardCharsets.UTF_8.name();
+
+    @Param({"4", "32"})
+    public int parameterCount;
+
+    private final HrrsUrlEncodedFormHelper helper = new HrrsUrlEncodedFormHelper();
+
+    private BenchmarkHttpServletRequest request;
+
+    @Setup
+    public void setup() throws Exception {
+        Map<String, String[]> parameters = new LinkedHashMap<>();
+        StringBuilder bodyBuilder = new StringBuilder();
+        for (int parameterIndex = 0; parameterIndex < parameterCount; parameterIndex++) {
+            String name = "field" + parameterIndex;
+            String value = String.format("value #%d with spaces, ümlauts & symbols", parameterIndex);
+            parameters.put(name, new String[]{value});
+            if (bodyBuilder.length() > 0) {
+                bodyBuilder.append('&');
+            }
+            bodyBuilder
+                    .append(URLEncoder.encode(name, ENCODING))
+                    .append('=')
+                    .append(URLEncoder.encode(value, ENCODING));
+        }
+        byte[] body = bodyBuilder.toString().getBytes(StandardCharsets.US_ASCII);
+        request = new BenchmarkHttpServletRequest("page=1", ENCODING, body, parameters);
+    }
+
+    @Benchmark
+    public HttpRequestPayload reEncodeParameters() {
+        return helper.extractUrlEncodedFormPayload(request, ENCODING);
+    }
+
+    @Benchmark
+    public byte[] captureRawBody() {
+        HrrsUrlEncodedFormHttpServletRequestWrapper wrapper =
+                helper.captureRawForm(request, ENCODING, Integer.MAX_VALUE);
+        return wrapper.getBodyBytes();
+    }
+
+}
@@ -0,0 +1,42 @@
+package com.vlkan.hrrs.capture;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Timing state of a single request capture.
+ *
+ * @see HrrsCaptureEngine#startCapture()
+ */
+@NotThreadSafe
+public class HrrsCapture {
+
+    private final long startTimeNanos;
+
+    private long handlerStartTimeNanos;
+
+    private long handlerTimeNanos;
+
+    HrrsCapture(long startTimeNanos) {
+        this.startTimeNanos = startTimeNanos;
+    }
+
+    /**
+     * Marks the start of the actual request handler, i.e., the rest of the filter chain.
+     */
+    public void handlerStarted() {
+        handlerStartTimeNanos = System.nanoTime();
+    }
+
+    public void handlerCompleted() {
+        handlerTimeNanos = System.nanoTime() - handlerStartTimeNanos;
+    }
+
+    public long getHandlerTimeNanos() {
+        return handlerTimeNanos;
+    }
+
+    long getSelfTimeNanos(long stopTimeNanos) {
+        return stopTimeNanos - startTimeNanos - handlerTimeNanos;
+    }
+
+}
@@ -0,0 +1,171 @@
+package com.vlkan.hrrs.capture;
+
+import com.vlkan.hrrs.api.HttpRequestHeader;
+import com.vlkan.hrrs.api.HttpRequestMethod;
+import com.vlkan.hrrs.api.HttpRequestPayload;
+import com.vlkan.hrrs.api.HttpRequestRecord;
+import com.vlkan.hrrs.api.HttpRequestRecordWriter;
+import com.vlkan.hrrs.api.ImmutableHttpRequestRecord;
+import com.vlkan.hrrs.api.ResponseInfo;
+import com.vlkan.hrrs.api.jfr.HrrsEvents;
+import com.vlkan.hrrs.api.metric.HrrsDropReason;
+import com.vlkan.hrrs.api.metric.HrrsMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.util.Date;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Container-agnostic core of the request capture, that is, sampling, record
+ * building, and handing the record over to the writer along with the
+ * instrumentation. Container adapters (servlet filter, JDK HTTP server
+ * filter, etc.) only translate the container request model.
+ */
+@ThreadSafe
+public class HrrsCaptureEngine {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HrrsCaptureEngine.class);
+
+    public static final int DEFAULT_MAX_RECORDABLE_PAYLOAD_BYTE_COUNT = 10 * 1024 * 1024;
+
+    public static final int DEFAULT_MAX_RECORDABLE_RESPONSE_BYTE_COUNT = 64 * 1024;
+
+    private final HrrsIdGenerator idGenerator;
+
+    private final HrrsMetrics metrics;
+
+    private volatile boolean enabled = false;
+
+    public HrrsCaptureEngine() {
+        this(new HrrsIdGenerator(4));
+    }
+
+    public HrrsCaptureEngine(HrrsIdGenerator idGenerator) {
+        this(idGenerator, HrrsMetrics.getInstance());
+    }
+
+    public HrrsCaptureEngine(HrrsIdGenerator idGenerator, HrrsMetrics metrics) {
+        this.idGenerator = checkNotNull(idGenerator, "idGenerator");
+        this.metrics = checkNotNull(metrics, "metrics");
+    }
+
+    public HrrsMetrics getMetrics() {
+        return metrics;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        LOGGER.trace("switched state (enabled={})", enabled);
+    }
+
+    /**
+     * Decides whether a request should be captured. Requests rejected while
+     * the engine is enabled are counted as sampled out.
+     *
+     * @param recordable the verdict of the adapter for the request
+     */
+    public boolean sample(boolean recordable) {
+        if (!enabled) {
+            return false;
+        }
+        if (!recordable) {
+            metrics.incrementSampledOutCount();
+            return false;
+        }
+        return true;
+    }
+
+    public HrrsCapture startCapture() {
+        return new HrrsCapture(System.nanoTime());
+    }
+
+    public String createRequestId() {
+        return idGenerator.next();
+    }
+
+    /**
+     * Creates a response buffer recording the first {@code maxByteCount}
+     * bytes of the body and hashing the entire body, if it exceeds the limit.
+     */
+    public HrrsPayloadBuffer createResponseBuffer(int maxByteCount) {
+        return new HrrsPayloadBuffer(maxByteCount, true);
+    }
+
+    /**
+     * @param headers captured response headers
+     * @param bodyBuffer captured response body, or null, if the response is not captured
+     */
+    public ResponseInfo createResponseInfo(
+            int statusCode,
+            long responseTimeMillis,
+            List<HttpRequestHeader> headers,
+            @Nullable HrrsPayloadBuffer bodyBuffer) {
+        if (bodyBuffer == null) {
+            return new ResponseInfo(statusCode, responseTimeMillis, headers, null, null);
+        }
+        HttpRequestPayload body = bodyBuffer.toPayload();
+        return new ResponseInfo(statusCode, responseTimeMillis, headers, body, bodyBuffer.getOverflowHash());
+    }
+
+    public HttpRequestRecord createRecord(
+            String id,
+            String groupName,
+            String uri,
+            HttpRequestMethod method,
+            List<HttpRequestHeader> headers,
+            HttpRequestPayload payload,
+            ResponseInfo responseInfo) {
+        return ImmutableHttpRequestRecord
+                .newBuilder()
+                .setId(id)
+                .setTimestamp(new Date())
+                .setGroupName(groupName)
+                .setUri(uri)
+                .setMethod(method)
+                .setHeaders(headers)
+                .setPayload(payload)
+                .setResponseInfo(responseInfo)
+                .build();
+    }
+
+    /**
+     * Completes the capture by handing the record over to the writer.
+     *
+     * @param record the captured record
+     * @param filteredRecord the record to be written, or null if the record is filtered out
+     */
+    public void completeCapture(
+            HrrsCapture capture,
+            HttpRequestRecord record,
+            @Nullable HttpRequestRecord filteredRecord,
+            HttpRequestRecordWriter<?> writer) throws IOException {
+        HttpRequestPayload payload = record.getPayload();
+        if (payload.getMissingByteCount() > 0) {
+            metrics.incrementTruncatedPayloadCount();
+        }
+        if (filteredRecord != null) {
+            writer.write(filteredRecord);
+        } else {
+            metrics.incrementDroppedCount(HrrsDropReason.FILTERED);
+        }
+        long selfTimeNanos = capture.getSelfTimeNanos(System.nanoTime());
+        metrics.updateFilterSelfTimeNanos(selfTimeNanos);
+        HrrsEvents.emitFilterCapture(
+                record.getId(),
+                record.getGroupName(),
+                payload.getByteCount(),
+                payload.getMissingByteCount(),
+                selfTimeNanos);
+    }
+
+}
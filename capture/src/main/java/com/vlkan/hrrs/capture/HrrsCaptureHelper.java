@@ -0,0 +1,33 @@
+package com.vlkan.hrrs.capture;
+
+public enum HrrsCaptureHelper {;
+
+    public static boolean isBlank(String text) {
+        if (text == null || text.isEmpty()) {
+            return true;
+        }
+        for (int charIndex = 0; charIndex < text.length(); charIndex++) {
+            char c = text.charAt(charIndex);
+            if (!Character.isWhitespace(c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static String createRequestUri(String path, String queryString) {
+        return isBlank(queryString) ? path : String.format("%s?%s", path, queryString);
+    }
+
+    /**
+     * Creates a group name similar to Java package names from the given request URI,
+     * e.g., {@code /foo/bar?baz=1} becomes {@code foo.bar}.
+     */
+    public static String createRequestGroupName(String requestUri) {
+        return requestUri
+                .replaceFirst("\\?.*", "")      // Replace query parameters.
+                .replaceFirst("^/", "")         // Replace the initial slash.
+                .replaceAll("/", ".");          // Replace all slashes with dots.
+    }
+
+}
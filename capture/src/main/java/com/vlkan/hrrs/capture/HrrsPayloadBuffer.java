@@ -0,0 +1,118 @@
+package com.vlkan.hrrs.capture;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.vlkan.hrrs.api.HttpRequestPayload;
+import com.vlkan.hrrs.api.ImmutableHttpRequestPayload;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.ByteArrayOutputStream;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Buffer collecting the first {@code maxByteCount} bytes of a payload,
+ * while keeping track of the total amount of bytes seen.
+ *
+ * Buffers created with {@code overflowHashed} set additionally hash the
+ * entire payload once it exceeds the limit, e.g., to compare response
+ * bodies too large to be recorded. Payloads within the limit are not hashed.
+ */
+@NotThreadSafe
+public class HrrsPayloadBuffer {
+
+    public static final HashFunction OVERFLOW_HASH_FUNCTION = Hashing.murmur3_128();
+
+    private static final int INITIAL_CAPACITY = 512;
+
+    private final ByteArrayOutputStream outputStream;
+
+    private final int maxByteCount;
+
+    private final boolean overflowHashed;
+
+    private int byteCount = 0;
+
+    @Nullable
+    private Hasher overflowHasher;
+
+    @Nullable
+    private byte[] overflowHash;
+
+    public HrrsPayloadBuffer(int maxByteCount) {
+        this(maxByteCount, false);
+    }
+
+    public HrrsPayloadBuffer(int maxByteCount, boolean overflowHashed) {
+        checkArgument(maxByteCount >= 0, "expected: maxByteCount >= 0, found: %s", maxByteCount);
+        this.outputStream = new ByteArrayOutputStream(Math.min(INITIAL_CAPACITY, maxByteCount));
+        this.maxByteCount = maxByteCount;
+        this.overflowHashed = overflowHashed;
+    }
+
+    public void append(int value) {
+        if (byteCount < maxByteCount) {
+            outputStream.write(value);
+        } else if (overflowHashed) {
+            getOverflowHasher().putByte((byte) value);
+        }
+        byteCount++;
+    }
+
+    public void append(byte[] bytes, int offset, int length) {
+        int availByteCount = maxByteCount - outputStream.size();
+        int bufferedByteCount = Math.max(0, Math.min(availByteCount, length));
+        if (bufferedByteCount > 0) {
+            outputStream.write(bytes, offset, bufferedByteCount);
+        }
+        if (overflowHashed && bufferedByteCount < length) {
+            getOverflowHasher().putBytes(bytes, offset + bufferedByteCount, length - bufferedByteCount);
+        }
+        byteCount += length;
+    }
+
+    /**
+     * Creates the overflow hasher on first overflow, fed with the bytes buffered so far.
+     */
+    private Hasher getOverflowHasher() {
+        if (overflowHasher == null) {
+            overflowHasher = OVERFLOW_HASH_FUNCTION.newHasher();
+            overflowHasher.putBytes(outputStream.toByteArray());
+        }
+        return overflowHasher;
+    }
+
+    /**
+     * To be called once the payload is complete, since the hash is computed once.
+     *
+     * @return the {@link #OVERFLOW_HASH_FUNCTION hash} of the entire payload, if
+     *         it is overflow hashed and exceeds the limit, otherwise null
+     */
+    @Nullable
+    public byte[] getOverflowHash() {
+        if (overflowHash == null && overflowHasher != null) {
+            overflowHash = overflowHasher.hash().asBytes();
+        }
+        return overflowHash;
+    }
+
+    /**
+     * @return the total amount of appended bytes, including the ones exceeding the limit
+     */
+    public int getByteCount() {
+        return byteCount;
+    }
+
+    public HttpRequestPayload toPayload() {
+        byte[] recordedBytes = outputStream.toByteArray();
+        int missingByteCount = byteCount - recordedBytes.length;
+        return ImmutableHttpRequestPayload
+                .newBuilder()
+                .setMissingByteCount(missingByteCount)
+                .setBytes(recordedBytes)
+                .build();
+    }
+
+}
@@ -0,0 +1,76 @@
+package com.vlkan.hrrs.capture;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * {@link InputStream} copying the consumed bytes into a {@link HrrsPayloadBuffer}.
+ */
+@NotThreadSafe
+public class HrrsTeeInputStream extends FilterInputStream {
+
+    private final HrrsPayloadBuffer payloadBuffer;
+
+    public HrrsTeeInputStream(InputStream inputStream, HrrsPayloadBuffer payloadBuffer) {
+        super(checkNotNull(inputStream, "inputStream"));
+        this.payloadBuffer = checkNotNull(payloadBuffer, "payloadBuffer");
+    }
+
+    public HrrsPayloadBuffer getPayloadBuffer() {
+        return payloadBuffer;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int value = in.read();
+        if (value != -1) {
+            payloadBuffer.append(value);
+        }
+        return value;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        int readByteCount = in.read(bytes, offset, length);
+        if (readByteCount > 0) {
+            payloadBuffer.append(bytes, offset, readByteCount);
+        }
+        return readByteCount;
+    }
+
+    @Override
+    public long skip(long byteCount) throws IOException {
+        // Read through skipped bytes to record them as well.
+        byte[] buffer = new byte[(int) Math.min(byteCount, 4096)];
+        long skippedByteCount = 0;
+        while (skippedByteCount < byteCount) {
+            int length = (int) Math.min(buffer.length, byteCount - skippedByteCount);
+            int readByteCount = read(buffer, 0, length);
+            if (readByteCount < 0) {
+                break;
+            }
+            skippedByteCount += readByteCount;
+        }
+        return skippedByteCount;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(int readLimit) {
+        // Do nothing.
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+
+}
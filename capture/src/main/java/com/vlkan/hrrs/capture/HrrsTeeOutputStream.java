@@ -0,0 +1,39 @@
+package com.vlkan.hrrs.capture;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * {@link OutputStream} copying the written bytes into a {@link HrrsPayloadBuffer}.
+ */
+@NotThreadSafe
+public class HrrsTeeOutputStream extends FilterOutputStream {
+
+    private final HrrsPayloadBuffer payloadBuffer;
+
+    public HrrsTeeOutputStream(OutputStream outputStream, HrrsPayloadBuffer payloadBuffer) {
+        super(checkNotNull(outputStream, "outputStream"));
+        this.payloadBuffer = checkNotNull(payloadBuffer, "payloadBuffer");
+    }
+
+    public HrrsPayloadBuffer getPayloadBuffer() {
+        return payloadBuffer;
+    }
+
+    @Override
+    public void write(int value) throws IOException {
+        out.write(value);
+        payloadBuffer.append(value);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        out.write(bytes, offset, length);
+        payloadBuffer.append(bytes, offset, length);
+    }
+
+}
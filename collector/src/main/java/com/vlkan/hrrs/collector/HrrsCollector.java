@@ -0,0 +1,156 @@
+package com.vlkan.hrrs.collector;
+
+import com.vlkan.hrrs.api.HttpRequestRecordWriterTarget;
+import com.vlkan.hrrs.serializer.socket.HrrsSocketAddresses;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Receives length-framed records from {@code HttpRequestRecordWriterSocketTarget}s
+ * and writes them to the given target, which takes care of the batching,
+ * rotation, and compression.
+ */
+@ThreadSafe
+public class HrrsCollector implements Runnable, Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HrrsCollector.class);
+
+    private static final int MAX_FRAME_BYTE_COUNT = 64 * 1024 * 1024;
+
+    private final String address;
+
+    private final HttpRequestRecordWriterTarget<String> target;
+
+    private final Charset charset;
+
+    private final ServerSocketChannel serverChannel;
+
+    private final ScheduledExecutorService flusher;
+
+    private final Set<SocketChannel> channels = ConcurrentHashMap.newKeySet();
+
+    private final AtomicInteger connectionCounter = new AtomicInteger();
+
+    private volatile boolean closed = false;
+
+    public HrrsCollector(String address, HttpRequestRecordWriterTarget<String> target, Charset charset, long flushPeriodMillis) throws IOException {
+        this.address = checkNotNull(address, "address");
+        this.target = checkNotNull(target, "target");
+        this.charset = checkNotNull(charset, "charset");
+        checkArgument(flushPeriodMillis > 0, "expecting: flushPeriodMillis > 0, found: %s", flushPeriodMillis);
+        if (HrrsSocketAddresses.isUnixDomain(address)) {
+            // Remove the socket file left over by a previous run.
+            Files.deleteIfExists(Paths.get(address.substring("unix:".length())));
+        }
+        this.serverChannel = HrrsSocketAddresses.bind(address);
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "HRRS Collector Flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, flushPeriodMillis, flushPeriodMillis, TimeUnit.MILLISECONDS);
+        LOGGER.trace("instantiated (address={}, target={}, flushPeriodMillis={})", address, target, flushPeriodMillis);
+    }
+
+    public SocketAddress getLocalAddress() throws IOException {
+        return serverChannel.getLocalAddress();
+    }
+
+    @Override
+    public void run() {
+        LOGGER.info("accepting connections (address={})", address);
+        while (!closed) {
+            try {
+                SocketChannel channel = serverChannel.accept();
+                channels.add(channel);
+                String threadName = String.format("HRRS Collector Connection-%d", connectionCounter.getAndIncrement());
+                Thread thread = new Thread(() -> receive(channel), threadName);
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException error) {
+                if (!closed) {
+                    LOGGER.error("failed accepting connection (address={})", address, error);
+                }
+            }
+        }
+    }
+
+    private void receive(SocketChannel channel) {
+        LOGGER.debug("connection accepted (channel={})", channel);
+        try (DataInputStream inputStream = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 64 * 1024))) {
+            byte[] buffer = new byte[8 * 1024];
+            // noinspection InfiniteLoopStatement
+            while (true) {
+                int byteCount = inputStream.readInt();
+                checkArgument(
+                        byteCount >= 0 && byteCount <= MAX_FRAME_BYTE_COUNT,
+                        "invalid frame length (channel=%s, byteCount=%s)", channel, byteCount);
+                if (buffer.length < byteCount) {
+                    buffer = new byte[byteCount];
+                }
+                inputStream.readFully(buffer, 0, byteCount);
+                String record = new String(buffer, 0, byteCount, charset);
+                synchronized (target) {
+                    target.write(record);
+                }
+            }
+        } catch (EOFException ignored) {
+            LOGGER.debug("connection closed (channel={})", channel);
+        } catch (Exception error) {
+            if (!closed) {
+                LOGGER.error("connection failure (channel={})", channel, error);
+            }
+        } finally {
+            channels.remove(channel);
+        }
+    }
+
+    private void flush() {
+        try {
+            synchronized (target) {
+                target.flush();
+            }
+        } catch (Exception error) {
+            LOGGER.error("flush failure", error);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        LOGGER.trace("closing");
+        closed = true;
+        serverChannel.close();
+        for (SocketChannel channel : channels) {
+            channel.close();
+        }
+        flusher.shutdown();
+        synchronized (target) {
+            target.flush();
+            target.close();
+        }
+    }
+
+}
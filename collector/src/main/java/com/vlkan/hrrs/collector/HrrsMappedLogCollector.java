@@ -0,0 +1,110 @@
+package com.vlkan.hrrs.collector;
+
+import com.vlkan.hrrs.api.HttpRequestRecordWriterTarget;
+import com.vlkan.hrrs.serializer.mmap.HttpRequestRecordMappedLogTailer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Tails a memory-mapped log written by {@code HttpRequestRecordWriterMappedLogTarget}
+ * and writes the records to the given target. The tailer cursor is committed
+ * after every flush of the target, hence records are shipped at least once.
+ */
+@ThreadSafe
+public class HrrsMappedLogCollector implements Runnable, Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HrrsMappedLogCollector.class);
+
+    private static final int MAX_POLLED_RECORD_COUNT = 1024;
+
+    private static final long IDLE_PERIOD_MILLIS = 10;
+
+    private final HttpRequestRecordMappedLogTailer tailer;
+
+    private final HttpRequestRecordWriterTarget<String> target;
+
+    private final long flushPeriodMillis;
+
+    private final Object lock = new Object();
+
+    private volatile boolean closed = false;
+
+    public HrrsMappedLogCollector(File file,
+                                  String cursorName,
+                                  HttpRequestRecordWriterTarget<String> target,
+                                  Charset charset,
+                                  long flushPeriodMillis) {
+        checkArgument(flushPeriodMillis > 0, "expecting: flushPeriodMillis > 0, found: %s", flushPeriodMillis);
+        this.tailer = new HttpRequestRecordMappedLogTailer(file, cursorName, charset);
+        this.target = checkNotNull(target, "target");
+        this.flushPeriodMillis = flushPeriodMillis;
+        LOGGER.trace(
+                "instantiated (file={}, cursorName={}, target={}, flushPeriodMillis={})",
+                file, cursorName, target, flushPeriodMillis);
+    }
+
+    public HttpRequestRecordMappedLogTailer getTailer() {
+        return tailer;
+    }
+
+    @Override
+    public void run() {
+        LOGGER.info("tailing (file={}, cursorName={})", tailer.getFile(), tailer.getCursorName());
+        long lastFlushNanos = System.nanoTime();
+        while (!closed) {
+            int recordCount;
+            synchronized (lock) {
+                if (closed) {
+                    break;
+                }
+                recordCount = tailer.poll(target::write, MAX_POLLED_RECORD_COUNT);
+                if (System.nanoTime() - lastFlushNanos >= TimeUnit.MILLISECONDS.toNanos(flushPeriodMillis)) {
+                    flush();
+                    lastFlushNanos = System.nanoTime();
+                }
+            }
+            if (recordCount == 0) {
+                try {
+                    Thread.sleep(IDLE_PERIOD_MILLIS);
+                } catch (InterruptedException ignored) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+    }
+
+    private void flush() {
+        try {
+            target.flush();
+            tailer.commit();
+        } catch (Exception error) {
+            LOGGER.error("flush failure", error);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        LOGGER.trace("closing");
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            flush();
+            tailer.close();
+            target.close();
+        }
+    }
+
+}
@@ -0,0 +1,109 @@
+package com.vlkan.hrrs.collector.cli;
+
+import com.vlkan.hrrs.collector.HrrsCollector;
+import com.vlkan.hrrs.collector.HrrsMappedLogCollector;
+import com.vlkan.hrrs.commons.logger.Log4jLoggerLevelAccessor;
+import com.vlkan.hrrs.commons.logger.LoggerLevels;
+import com.vlkan.hrrs.serializer.base64.Base64HttpRequestRecord;
+import com.vlkan.hrrs.serializer.file.HttpRequestRecordHousekeeper;
+import com.vlkan.hrrs.serializer.file.HttpRequestRecordWriteLimiter;
+import com.vlkan.hrrs.serializer.file.HttpRequestRecordWriterChannelTarget;
+import com.vlkan.hrrs.serializer.file.HttpRequestRecordWriterRotatingFileTarget;
+import com.vlkan.rfos.RotationConfig;
+import com.vlkan.rfos.policy.SizeBasedRotationPolicy;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+
+public enum Collector {;
+
+    private static final long SIZE_CHECK_PERIOD_MILLIS = 1000;
+
+    public static void main(String[] args) throws IOException {
+        Config config = Config.of(args);
+        config.dump();
+        LoggerLevels.applyLoggerLevelSpecs(config.getLoggerLevelSpecs(), Log4jLoggerLevelAccessor.getInstance());
+        RotationConfig rotationConfig = createRotationConfig(config);
+        HttpRequestRecordWriterRotatingFileTarget target =
+                new HttpRequestRecordWriterRotatingFileTarget(
+                        rotationConfig,
+                        Base64HttpRequestRecord.CHARSET,
+                        config.isBlockCompress(),
+                        HttpRequestRecordWriterChannelTarget.DEFAULT_BUFFER_BYTE_COUNT,
+                        createHousekeeper(config),
+                        createLimiter(config));
+        if (config.getMappedLogFile() != null) {
+            run(new HrrsMappedLogCollector(
+                    new File(config.getMappedLogFile()),
+                    config.getCursorName(),
+                    target,
+                    Base64HttpRequestRecord.CHARSET,
+                    config.getFlushPeriodMillis()));
+        } else {
+            run(new HrrsCollector(
+                    config.getAddress(),
+                    target,
+                    Base64HttpRequestRecord.CHARSET,
+                    config.getFlushPeriodMillis()));
+        }
+    }
+
+    private static <C extends Runnable & Closeable> void run(C collector) throws IOException {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                collector.close();
+            } catch (IOException ignored) {
+                // Do nothing.
+            }
+        }));
+        try {
+            collector.run();
+        } finally {
+            collector.close();
+        }
+    }
+
+    private static RotationConfig createRotationConfig(Config config) {
+        long maxByteCount = config.getMaxFileSizeMegaBytes() * 1024L * 1024L;
+        return RotationConfig
+                .builder()
+                .file(config.getOutputFile())
+                .filePattern(config.getOutputFilePattern())
+                .policy(new SizeBasedRotationPolicy(SIZE_CHECK_PERIOD_MILLIS, maxByteCount))
+                .build();
+    }
+
+    private static HttpRequestRecordHousekeeper createHousekeeper(Config config) {
+        HttpRequestRecordHousekeeper.Builder builder = HttpRequestRecordHousekeeper
+                .newBuilder(Base64HttpRequestRecord.CHARSET)
+                .setCompress(config.isCompress())
+                .setIndex(config.isIndex())
+                .setIdIndex(config.isIdIndex())
+                .setManifest(config.isManifest());
+        if (config.getMaxTotalSizeMegaBytes() != null) {
+            builder.setMaxTotalByteCount(config.getMaxTotalSizeMegaBytes() * 1024L * 1024L);
+        }
+        if (config.getMaxAgeHours() != null) {
+            builder.setMaxAge(Duration.ofHours(config.getMaxAgeHours()));
+        }
+        return builder.build();
+    }
+
+    private static HttpRequestRecordWriteLimiter createLimiter(Config config) {
+        if (config.getMaxWriteMegaBytesPerSecond() == null && config.getMinFreeDiskMegaBytes() == null) {
+            return null;
+        }
+        File directory = new File(config.getOutputFile()).getAbsoluteFile().getParentFile();
+        HttpRequestRecordWriteLimiter.Builder builder = HttpRequestRecordWriteLimiter.newBuilder(directory);
+        if (config.getMaxWriteMegaBytesPerSecond() != null) {
+            builder.setMaxBytePerSecond(config.getMaxWriteMegaBytesPerSecond() * 1024L * 1024L);
+        }
+        if (config.getMinFreeDiskMegaBytes() != null) {
+            builder.setMinFreeByteCount(config.getMinFreeDiskMegaBytes() * 1024L * 1024L);
+        }
+        return builder.build();
+    }
+
+}
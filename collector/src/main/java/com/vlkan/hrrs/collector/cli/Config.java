@@ -0,0 +1,221 @@
+package com.vlkan.hrrs.collector.cli;
+
+import com.beust.jcommander.Parameter;
+import com.vlkan.hrrs.commons.jcommander.JCommanderConfig;
+import com.vlkan.hrrs.commons.jcommander.JCommanderConfigs;
+import com.vlkan.hrrs.commons.jcommander.validator.LoggerLevelSpecsValidator;
+import com.vlkan.hrrs.commons.jcommander.validator.NonZeroPositiveIntegerValidator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class Config implements JCommanderConfig {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Config.class);
+
+    @Parameter(
+            names = {"--address", "-a"},
+            description = "address to listen on (unix:/path/to/socket, tcp://host:port)")
+    private String address;
+
+    public String getAddress() {
+        return address;
+    }
+
+    @Parameter(
+            names = {"--mappedLogFile", "-m"},
+            description = "memory-mapped log file to tail, instead of listening on an address")
+    private String mappedLogFile;
+
+    public String getMappedLogFile() {
+        return mappedLogFile;
+    }
+
+    @Parameter(
+            names = {"--cursorName", "-c"},
+            description = "name of the persisted memory-mapped log cursor")
+    private String cursorName = "collector";
+
+    public String getCursorName() {
+        return cursorName;
+    }
+
+    @Parameter(
+            names = {"--outputFile", "-o"},
+            description = "output file for HTTP records",
+            required = true)
+    private String outputFile;
+
+    public String getOutputFile() {
+        return outputFile;
+    }
+
+    @Parameter(
+            names = {"--outputFilePattern", "-p"},
+            description = "rotated output file pattern (e.g., /tmp/records-%d{yyyyMMdd-HHmmss-SSS}.csv)",
+            required = true)
+    private String outputFilePattern;
+
+    public String getOutputFilePattern() {
+        return outputFilePattern;
+    }
+
+    @Parameter(
+            names = {"--maxFileSizeMegaBytes", "-s"},
+            validateWith = NonZeroPositiveIntegerValidator.class,
+            description = "output file size triggering a rotation")
+    private int maxFileSizeMegaBytes = 100;
+
+    public int getMaxFileSizeMegaBytes() {
+        return maxFileSizeMegaBytes;
+    }
+
+    @Parameter(
+            names = {"--compress", "-z"},
+            description = "block gzip compress rotated files in the background")
+    private boolean compress = false;
+
+    public boolean isCompress() {
+        return compress;
+    }
+
+    @Parameter(
+            names = {"--blockCompress", "-b"},
+            description = "write block gzip compressed files, compressing blocks in parallel")
+    private boolean blockCompress = false;
+
+    public boolean isBlockCompress() {
+        return blockCompress;
+    }
+
+    @Parameter(
+            names = {"--index", "-x"},
+            description = "write a sidecar index next to every rotated file")
+    private boolean index = false;
+
+    public boolean isIndex() {
+        return index;
+    }
+
+    @Parameter(
+            names = {"--idIndex", "-I"},
+            description = "write a sidecar id index next to every rotated file for lookups by record id")
+    private boolean idIndex = false;
+
+    public boolean isIdIndex() {
+        return idIndex;
+    }
+
+    @Parameter(
+            names = {"--manifest", "-M"},
+            description = "register every completed file in the manifest of the output directory")
+    private boolean manifest = false;
+
+    public boolean isManifest() {
+        return manifest;
+    }
+
+    @Parameter(
+            names = {"--maxTotalSizeMegaBytes", "-t"},
+            validateWith = NonZeroPositiveIntegerValidator.class,
+            description = "total size of the rotated files to retain, deleting the oldest ones beyond")
+    private Integer maxTotalSizeMegaBytes = null;
+
+    public Integer getMaxTotalSizeMegaBytes() {
+        return maxTotalSizeMegaBytes;
+    }
+
+    @Parameter(
+            names = {"--maxAgeHours", "-A"},
+            validateWith = NonZeroPositiveIntegerValidator.class,
+            description = "age of the rotated files to retain, deleting the older ones")
+    private Integer maxAgeHours = null;
+
+    public Integer getMaxAgeHours() {
+        return maxAgeHours;
+    }
+
+    @Parameter(
+            names = {"--maxWriteMegaBytesPerSecond", "-w"},
+            validateWith = NonZeroPositiveIntegerValidator.class,
+            description = "disk write rate limit")
+    private Integer maxWriteMegaBytesPerSecond = null;
+
+    public Integer getMaxWriteMegaBytesPerSecond() {
+        return maxWriteMegaBytesPerSecond;
+    }
+
+    @Parameter(
+            names = {"--minFreeDiskMegaBytes", "-d"},
+            validateWith = NonZeroPositiveIntegerValidator.class,
+            description = "free disk space of the output directory, below which records are dropped")
+    private Integer minFreeDiskMegaBytes = null;
+
+    public Integer getMinFreeDiskMegaBytes() {
+        return minFreeDiskMegaBytes;
+    }
+
+    @Parameter(
+            names = {"--flushPeriodMillis", "-f"},
+            validateWith = NonZeroPositiveIntegerValidator.class,
+            description = "period to flush the batched records to the output file")
+    private int flushPeriodMillis = 1000;
+
+    public int getFlushPeriodMillis() {
+        return flushPeriodMillis;
+    }
+
+    @Parameter(
+            names = {"--loggerLevelSpecs", "-L"},
+            validateWith = LoggerLevelSpecsValidator.class,
+            description = "comma-separated list of loggerName=loggerLevel pairs")
+    private String loggerLevelSpecs = "*=warn,com.vlkan.hrrs=info";
+
+    public String getLoggerLevelSpecs() {
+        return loggerLevelSpecs;
+    }
+
+    @Parameter(
+            names = {"--help", "-h"},
+            help = true,
+            description = "display this help and exit")
+    private boolean help;
+
+    @Override
+    public boolean isHelp() {
+        return help;
+    }
+
+    public void dump() {
+        LOGGER.debug("address = {}", address);
+        LOGGER.debug("mappedLogFile = {}", mappedLogFile);
+        LOGGER.debug("cursorName = {}", cursorName);
+        LOGGER.debug("outputFile = {}", outputFile);
+        LOGGER.debug("outputFilePattern = {}", outputFilePattern);
+        LOGGER.debug("maxFileSizeMegaBytes = {}", maxFileSizeMegaBytes);
+        LOGGER.debug("compress = {}", compress);
+        LOGGER.debug("blockCompress = {}", blockCompress);
+        LOGGER.debug("index = {}", index);
+        LOGGER.debug("idIndex = {}", idIndex);
+        LOGGER.debug("manifest = {}", manifest);
+        LOGGER.debug("maxTotalSizeMegaBytes = {}", maxTotalSizeMegaBytes);
+        LOGGER.debug("maxAgeHours = {}", maxAgeHours);
+        LOGGER.debug("maxWriteMegaBytesPerSecond = {}", maxWriteMegaBytesPerSecond);
+        LOGGER.debug("minFreeDiskMegaBytes = {}", minFreeDiskMegaBytes);
+        LOGGER.debug("flushPeriodMillis = {}", flushPeriodMillis);
+        LOGGER.debug("loggerLevelSpecs={}", loggerLevelSpecs);
+    }
+
+    public static Config of(String[] args) {
+        Config config = JCommanderConfigs.create(args, new Config());
+        if ((config.address == null) == (config.mappedLogFile == null)) {
+            System.err.println("Exactly one of --address and --mappedLogFile is required.");
+            System.exit(1);
+        }
+        if (config.compress && config.blockCompress) {
+            System.err.println("--compress cannot be combined with --blockCompress.");
+            System.exit(1);
+        }
+        return config;
+    }
+
+}
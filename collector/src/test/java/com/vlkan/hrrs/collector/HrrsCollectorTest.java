@@ -0,0 +1,112 @@
+package com.vlkan.hrrs.collector;
+
+import com.google.common.base.Strings;
+import com.vlkan.hrrs.api.HttpRequestRecordWriterTarget;
+import com.vlkan.hrrs.api.metric.HrrsDropReason;
+import com.vlkan.hrrs.api.metric.HrrsMetrics;
+import com.vlkan.hrrs.serializer.socket.HttpRequestRecordWriterSocketTarget;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class HrrsCollectorTest {
+
+    @Test
+    public void should_collect_over_tcp() throws Exception {
+        test_collect("tcp://127.0.0.1:0");
+    }
+
+    @Test
+    public void should_collect_over_unix_domain_socket() throws Exception {
+        boolean unixDomainSocketSupported;
+        try {
+            Class.forName("java.net.UnixDomainSocketAddress");
+            unixDomainSocketSupported = true;
+        } catch (ClassNotFoundException ignored) {
+            unixDomainSocketSupported = false;
+        }
+        if (unixDomainSocketSupported) {
+            File socketFile = File.createTempFile("hrrs-collector-", ".sock");
+            try {
+                test_collect("unix:" + socketFile.getAbsolutePath());
+            } finally {
+                // noinspection ResultOfMethodCallIgnored
+                socketFile.delete();
+            }
+        }
+    }
+
+    private static void test_collect(String collectorAddress) throws Exception {
+        ListTarget collectorTarget = new ListTarget();
+        try (HrrsCollector collector = new HrrsCollector(collectorAddress, collectorTarget, StandardCharsets.UTF_8, 10)) {
+            Thread collectorThread = new Thread(collector);
+            collectorThread.setDaemon(true);
+            collectorThread.start();
+            String targetAddress = collectorAddress.startsWith("tcp:")
+                    ? "tcp://127.0.0.1:" + ((InetSocketAddress) collector.getLocalAddress()).getPort()
+                    : collectorAddress;
+            HttpRequestRecordWriterSocketTarget socketTarget =
+                    new HttpRequestRecordWriterSocketTarget(targetAddress, StandardCharsets.UTF_8, 1024, 10);
+            HrrsMetrics metrics = HrrsMetrics.getInstance();
+            long startTooLargeCount = metrics.getDroppedCount(HrrsDropReason.RECORD_TOO_LARGE);
+            try {
+                await(socketTarget::isConnected);
+                socketTarget.write("foo\n");
+                socketTarget.write(Strings.repeat("x", 1024) + "\n");
+                socketTarget.write("bär\n");
+                socketTarget.flush();
+                await(() -> collectorTarget.values.size() == 2);
+                long tooLargeCount = metrics.getDroppedCount(HrrsDropReason.RECORD_TOO_LARGE) - startTooLargeCount;
+                assertThat(tooLargeCount, is(1L));
+            } finally {
+                socketTarget.close();
+            }
+        }
+        assertThat(collectorTarget.values.get(0), is("foo\n"));
+        assertThat(collectorTarget.values.get(1), is("bär\n"));
+    }
+
+    private interface Condition {
+        boolean test();
+    }
+
+    private static void await(Condition condition) throws InterruptedException {
+        long deadlineMillis = System.currentTimeMillis() + 10_000;
+        while (!condition.test()) {
+            if (System.currentTimeMillis() > deadlineMillis) {
+                throw new AssertionError("timeout");
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    private static final class ListTarget implements HttpRequestRecordWriterTarget<String> {
+
+        private final List<String> values = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void write(String value) {
+            values.add(value);
+        }
+
+        @Override
+        public void flush() {
+            // Do nothing.
+        }
+
+        @Override
+        public void close() throws IOException {
+            // Do nothing.
+        }
+
+    }
+
+}
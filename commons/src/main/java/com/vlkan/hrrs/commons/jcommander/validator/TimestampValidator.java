@@ -0,0 +1,27 @@
+package com.vlkan.hrrs.commons.jcommander.validator;
+
+import com.beust.jcommander.IParameterValidator;
+import com.beust.jcommander.ParameterException;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+
+public class TimestampValidator implements IParameterValidator {
+
+    public static final String PATTERN = "yyyyMMdd-HHmmss.SSSZ";
+
+    @Override
+    public void validate(String name, String value) throws ParameterException {
+        try {
+            parse(value);
+        } catch (ParseException error) {
+            String message = String.format("invalid timestamp (expecting %s): %s %s", PATTERN, name, value);
+            throw new ParameterException(message, error);
+        }
+    }
+
+    public static long parse(String value) throws ParseException {
+        return new SimpleDateFormat(PATTERN).parse(value).getTime();
+    }
+
+}
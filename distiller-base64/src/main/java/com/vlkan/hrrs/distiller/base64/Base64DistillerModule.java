@@ -7,13 +7,18 @@ import com.vlkan.hrrs.distiller.cli.DistillerModule;
 import com.vlkan.hrrs.serializer.base64.Base64HttpRequestRecord;
 import com.vlkan.hrrs.serializer.base64.Base64HttpRequestRecordReader;
 import com.vlkan.hrrs.serializer.base64.Base64HttpRequestRecordWriter;
-import com.vlkan.hrrs.serializer.base64.guava.GuavaBase64Decoder;
-import com.vlkan.hrrs.serializer.base64.guava.GuavaBase64Encoder;
+import com.vlkan.hrrs.serializer.base64.Base64HttpRequestRecordWriterOptions;
+import com.vlkan.hrrs.serializer.base64.jdk.JdkBase64Decoder;
+import com.vlkan.hrrs.serializer.base64.jdk.JdkBase64Encoder;
+import com.vlkan.hrrs.serializer.file.HttpRequestRecordReaderFileSetSource;
 import com.vlkan.hrrs.serializer.file.HttpRequestRecordReaderFileSource;
 import com.vlkan.hrrs.serializer.file.HttpRequestRecordWriterFileTarget;
+import com.vlkan.hrrs.serializer.manifest.HttpRequestRecordManifest;
+import com.vlkan.hrrs.serializer.payload.HttpRequestPayloadStore;
 
 import java.io.File;
 import java.net.URI;
+import java.util.List;
 
 public class Base64DistillerModule extends DistillerModule {
 
@@ -24,9 +29,16 @@ public class Base64DistillerModule extends DistillerModule {
     @Provides
     public Base64HttpRequestRecordReader provideReader(Config config) {
         URI inputUri = config.getInputUri();
-        File inputFile = new File(inputUri);
-        HttpRequestRecordReaderSource<String> readerSource = new HttpRequestRecordReaderFileSource(inputFile, Base64HttpRequestRecord.CHARSET);
-        return new Base64HttpRequestRecordReader(readerSource, GuavaBase64Decoder.getInstance());
+        List<File> inputFiles = HttpRequestRecordReaderFileSetSource.findFiles(new File(inputUri), Base64HttpRequestRecord.CHARSET);
+        if (inputFiles.size() > 1) {
+            // Skip the files without any records of the requested groups.
+            inputFiles = HttpRequestRecordManifest.prune(inputFiles, Long.MIN_VALUE, Long.MAX_VALUE, config.getGroupNames());
+        }
+        HttpRequestRecordReaderSource<String> readerSource = inputFiles.size() == 1
+                ? new HttpRequestRecordReaderFileSource(inputFiles.get(0), Base64HttpRequestRecord.CHARSET)
+                : new HttpRequestRecordReaderFileSetSource(inputFiles, Base64HttpRequestRecord.CHARSET);
+        HttpRequestPayloadStore payloadStore = createPayloadStore(config.getInputPayloadStoreUri());
+        return new Base64HttpRequestRecordReader(readerSource, JdkBase64Decoder.getInstance(), payloadStore);
     }
 
     @Provides
@@ -34,7 +46,18 @@ public class Base64DistillerModule extends DistillerModule {
         URI outputUri = config.getOutputUri();
         File outputFile = new File(outputUri);
         HttpRequestRecordWriterFileTarget writerTarget = new HttpRequestRecordWriterFileTarget(outputFile, Base64HttpRequestRecord.CHARSET);
-        return Base64HttpRequestRecordWriter.createBase64HttpRequestRecordWriter(writerTarget, GuavaBase64Encoder.getInstance());
+        Base64HttpRequestRecordWriterOptions writerOptions = Base64HttpRequestRecordWriterOptions
+                .newBuilder()
+                .setDictionaryEncoded(config.isDictionaryEncode())
+                .setPayloadStore(createPayloadStore(config.getOutputPayloadStoreUri()))
+                .setFramed(config.isChecksum())
+                .build();
+        return Base64HttpRequestRecordWriter.createBase64HttpRequestRecordWriter(
+                writerTarget, JdkBase64Encoder.getInstance(), writerOptions);
+    }
+
+    private static HttpRequestPayloadStore createPayloadStore(URI payloadStoreUri) {
+        return payloadStoreUri != null ? new HttpRequestPayloadStore(new File(payloadStoreUri)) : null;
     }
 
 }
@@ -1,6 +1,7 @@
 package com.vlkan.hrrs.distiller.cli;
 
 import com.beust.jcommander.Parameter;
+import com.vlkan.hrrs.api.HttpRequestMethod;
 import com.vlkan.hrrs.commons.jcommander.JCommanderConfig;
 import com.vlkan.hrrs.commons.jcommander.JCommanderConfigs;
 import com.vlkan.hrrs.commons.jcommander.validator.LoggerLevelSpecsValidator;
@@ -9,6 +10,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
 
 public class Config implements JCommanderConfig {
 
@@ -17,7 +22,7 @@ public class Config implements JCommanderConfig {
     @Parameter(
             names = {"--inputUri", "-i"},
             validateWith = UriValidator.class,
-            description = "input URI for HTTP records",
+            description = "input URI for HTTP records (a file, a directory, or a file name glob pattern)",
             required = true)
     private URI inputUri;
 
@@ -47,6 +52,66 @@ public class Config implements JCommanderConfig {
         return scriptUri;
     }
 
+    @Parameter(
+            names = {"--groupNames", "-g"},
+            description = "distill only the records having one of the given comma-separated group names")
+    private List<String> groupNames = new ArrayList<>();
+
+    public List<String> getGroupNames() {
+        return groupNames;
+    }
+
+    @Parameter(
+            names = {"--methods", "-m"},
+            description = "distill only the records having one of the given comma-separated HTTP methods")
+    private List<String> methods = new ArrayList<>();
+
+    public Set<HttpRequestMethod> getMethods() {
+        Set<HttpRequestMethod> parsedMethods = EnumSet.noneOf(HttpRequestMethod.class);
+        for (String method : methods) {
+            parsedMethods.add(HttpRequestMethod.valueOf(method.toUpperCase()));
+        }
+        return parsedMethods;
+    }
+
+    @Parameter(
+            names = {"--dictionaryEncode", "-d"},
+            description = "encode header names and frequent header values of the output using an adaptive dictionary")
+    private boolean dictionaryEncode = false;
+
+    public boolean isDictionaryEncode() {
+        return dictionaryEncode;
+    }
+
+    @Parameter(
+            names = {"--checksum", "-k"},
+            description = "prefix every output record with a sync marker and its CRC32C, allowing readers to skip damaged records")
+    private boolean checksum = false;
+
+    public boolean isChecksum() {
+        return checksum;
+    }
+
+    @Parameter(
+            names = {"--inputPayloadStoreUri", "-ip"},
+            validateWith = UriValidator.class,
+            description = "input URI for the payload store directory of records with deduplicated payloads")
+    private URI inputPayloadStoreUri;
+
+    public URI getInputPayloadStoreUri() {
+        return inputPayloadStoreUri;
+    }
+
+    @Parameter(
+            names = {"--outputPayloadStoreUri", "-op"},
+            validateWith = UriValidator.class,
+            description = "output URI for the payload store directory to deduplicate payloads of the output into")
+    private URI outputPayloadStoreUri;
+
+    public URI getOutputPayloadStoreUri() {
+        return outputPayloadStoreUri;
+    }
+
     @Parameter(
             names = {"--loggerLevelSpecs", "-L"},
             validateWith = LoggerLevelSpecsValidator.class,
@@ -72,11 +137,24 @@ public class Config implements JCommanderConfig {
         LOGGER.debug("inputUri = {}", inputUri);
         LOGGER.debug("outputUri = {}", outputUri);
         LOGGER.debug("scriptUri = {}", scriptUri);
+        LOGGER.debug("groupNames = {}", groupNames);
+        LOGGER.debug("methods = {}", methods);
+        LOGGER.debug("dictionaryEncode = {}", dictionaryEncode);
+        LOGGER.debug("checksum = {}", checksum);
+        LOGGER.debug("inputPayloadStoreUri = {}", inputPayloadStoreUri);
+        LOGGER.debug("outputPayloadStoreUri = {}", outputPayloadStoreUri);
         LOGGER.debug("loggerLevelSpecs={}", loggerLevelSpecs);
     }
 
     public static Config of(String[] args) {
-        return JCommanderConfigs.create(args, new Config());
+        Config config = JCommanderConfigs.create(args, new Config());
+        try {
+            config.getMethods();
+        } catch (IllegalArgumentException ignored) {
+            System.err.println("Invalid HTTP method in --methods: " + config.methods);
+            System.exit(1);
+        }
+        return config;
     }
 
 }
@@ -15,11 +15,25 @@ import javax.script.ScriptEngineManager;
 import javax.script.ScriptException;
 import java.io.*;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
 
 public class Distiller implements Runnable, Closeable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(Distiller.class);
 
+    /**
+     * Number of records written asynchronously before waiting for the
+     * previous batch, hence at most two batches are in flight.
+     */
+    private static final int WRITE_BATCH_SIZE = 256;
+
     private final Config config;
 
     private final HttpRequestRecordReader<?> reader;
@@ -52,9 +66,12 @@ public class Distiller implements Runnable, Closeable {
         long totalRecordCount = 0;
         long ignoredRecordCount = 0;
         long changedRecordCount = 0;
+        AtomicLong failedRecordCount = new AtomicLong();
 
-        // Perform distillation.
-        for (HttpRequestRecord input : reader.read()) {
+        // Perform distillation, where records are transformed while the preceding batch is being written.
+        List<CompletableFuture<Void>> batchCompletions = new ArrayList<>(WRITE_BATCH_SIZE);
+        CompletableFuture<Void> previousBatchCompletion = CompletableFuture.completedFuture(null);
+        for (HttpRequestRecord input : reader.read(createFilter())) {
             totalRecordCount++;
             LOGGER.trace("transforming (id={})", input.getId());
             HttpRequestRecord output = transformer.transform(input);
@@ -64,15 +81,25 @@ public class Distiller implements Runnable, Closeable {
                 if (input != output) {
                     changedRecordCount++;
                 }
-                try {
-                    writer.write(output);
-                } catch (IOException e) {
-                    LOGGER.error("Writer error", e);
-                    break;
+                String id = output.getId();
+                CompletableFuture<Void> completion = writer
+                        .writeAsync(output)
+                        .whenComplete((ignored, error) -> {
+                            if (error != null) {
+                                failedRecordCount.incrementAndGet();
+                                LOGGER.error("write failure (id={})", id, error);
+                            }
+                        });
+                batchCompletions.add(completion);
+                if (batchCompletions.size() == WRITE_BATCH_SIZE) {
+                    awaitQuietly(previousBatchCompletion);
+                    previousBatchCompletion = CompletableFuture.allOf(batchCompletions.toArray(new CompletableFuture<?>[0]));
+                    batchCompletions.clear();
                 }
             }
         }
         try {
+            writer.flush();
             writer.close();
         } catch (Exception e) {
             LOGGER.error("Writer error", e);
@@ -83,7 +110,33 @@ public class Distiller implements Runnable, Closeable {
         LOGGER.info("ignoredRecordCount = {} ({})", ignoredRecordCount, ignoredRecordPercentage);
         String changedRecordPercentage = String.format("%.1f%%", (100.0f * changedRecordCount / totalRecordCount));
         LOGGER.info("changedRecordCount = {} ({})", changedRecordCount, changedRecordPercentage);
+        LOGGER.info("failedRecordCount = {}", failedRecordCount.get());
+
+    }
+
+    /**
+     * Waits for the given completion, whose failures are already counted per record.
+     */
+    private static void awaitQuietly(CompletableFuture<Void> completion) {
+        try {
+            completion.join();
+        } catch (CompletionException ignored) {
+            // Do nothing.
+        }
+    }
 
+    /**
+     * Creates a filter accessing only the group name and method, which are
+     * available without decoding the rest of the record, hence excluded
+     * records neither get decoded nor passed to the script.
+     */
+    private Predicate<HttpRequestRecord> createFilter() {
+        List<String> groupNameList = config.getGroupNames();
+        Set<String> groupNames = new HashSet<>(groupNameList);
+        Set<HttpRequestMethod> methods = config.getMethods();
+        return record ->
+                (groupNames.isEmpty() || groupNames.contains(record.getGroupName())) &&
+                        (methods.isEmpty() || methods.contains(record.getMethod()));
     }
 
     private Transformer createTransformer() {
@@ -0,0 +1,55 @@
+package com.vlkan.hrrs.httpserver.base64;
+
+import com.vlkan.hrrs.api.HttpRequestRecordWriter;
+import com.vlkan.hrrs.api.HttpRequestRecordWriterTarget;
+import com.vlkan.hrrs.httpserver.HrrsHttpServerFilter;
+import com.vlkan.hrrs.serializer.base64.Base64HttpRequestRecordWriter;
+import com.vlkan.hrrs.serializer.base64.Base64HttpRequestRecordWriterOptions;
+import com.vlkan.hrrs.serializer.base64.jdk.JdkBase64Encoder;
+import com.vlkan.rfos.RotationConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+
+public class Base64HrrsHttpServerFilter extends HrrsHttpServerFilter implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Base64HrrsHttpServerFilter.class);
+
+    private final HttpRequestRecordWriterTarget<String> writerTarget;
+
+    private final HttpRequestRecordWriter<String> writer;
+
+    public Base64HrrsHttpServerFilter(RotationConfig rotationConfig) {
+        this(rotationConfig, Base64HttpRequestRecordWriterOptions.DEFAULT);
+    }
+
+    /**
+     * @param writerOptions options of the writer, e.g., to encode, deduplicate, frame, or stripe the records
+     */
+    public Base64HrrsHttpServerFilter(RotationConfig rotationConfig, Base64HttpRequestRecordWriterOptions writerOptions) {
+        this.writer = Base64HttpRequestRecordWriter.createRotatingFileBase64HttpRequestRecordWriter(
+                rotationConfig, JdkBase64Encoder.getInstance(), writerOptions);
+        this.writerTarget = writer.getTarget();
+    }
+
+    public HttpRequestRecordWriterTarget<String> getWriterTarget() {
+        return writerTarget;
+    }
+
+    @Override
+    protected HttpRequestRecordWriter<String> getWriter() {
+        return writer;
+    }
+
+    @Override
+    public void close() {
+        try {
+            writer.close();
+            writerTarget.close();
+        } catch (Exception error) {
+            LOGGER.error("failed closing writer", error);
+        }
+    }
+
+}
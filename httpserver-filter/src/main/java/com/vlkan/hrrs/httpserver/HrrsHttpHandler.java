@@ -0,0 +1,75 @@
+package com.vlkan.hrrs.httpserver;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.vlkan.hrrs.api.metric.HrrsMetrics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * {@link HttpHandler} counterpart of the {@code HrrsServlet} to query
+ * ({@code GET}), switch ({@code PUT} with {@code enabled} query parameter),
+ * and flush ({@code POST}) the {@link HrrsHttpServerFilter}.
+ */
+public class HrrsHttpHandler implements HttpHandler {
+
+    private final HrrsHttpServerFilter filter;
+
+    public HrrsHttpHandler(HrrsHttpServerFilter filter) {
+        this.filter = checkNotNull(filter, "filter");
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            switch (exchange.getRequestMethod()) {
+                case "GET":
+                    doGet(exchange);
+                    break;
+                case "PUT":
+                    doPut(exchange);
+                    break;
+                case "POST":
+                    filter.flush();
+                    exchange.sendResponseHeaders(200, -1);
+                    break;
+                default:
+                    exchange.sendResponseHeaders(405, -1);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void doGet(HttpExchange exchange) throws IOException {
+        String payload = String.format(
+                "{\"enabled\": %s, \"metrics\": %s}%n",
+                filter.isEnabled(),
+                HrrsMetrics.getInstance().toJson());
+        byte[] payloadBytes = payload.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, payloadBytes.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(payloadBytes);
+        }
+    }
+
+    private void doPut(HttpExchange exchange) throws IOException {
+        String query = exchange.getRequestURI().getQuery();
+        boolean enabled = false;
+        if (query != null) {
+            for (String parameter : query.split("&")) {
+                if (parameter.startsWith("enabled=")) {
+                    enabled = Boolean.parseBoolean(parameter.substring("enabled=".length()));
+                }
+            }
+        }
+        filter.setEnabled(enabled);
+        exchange.sendResponseHeaders(204, -1);
+    }
+
+}
@@ -0,0 +1,221 @@
+package com.vlkan.hrrs.httpserver;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.vlkan.hrrs.api.FlatHttpRequestHeaderList;
+import com.vlkan.hrrs.api.HttpRequestHeader;
+import com.vlkan.hrrs.api.HttpRequestMethod;
+import com.vlkan.hrrs.api.HttpRequestPayload;
+import com.vlkan.hrrs.api.HttpRequestRecord;
+import com.vlkan.hrrs.api.HttpRequestRecordWriter;
+import com.vlkan.hrrs.api.HttpRequestRecordWriterTarget;
+import com.vlkan.hrrs.api.ResponseInfo;
+import com.vlkan.hrrs.capture.HrrsCapture;
+import com.vlkan.hrrs.capture.HrrsCaptureEngine;
+import com.vlkan.hrrs.capture.HrrsCaptureHelper;
+import com.vlkan.hrrs.capture.HrrsIdGenerator;
+import com.vlkan.hrrs.capture.HrrsPayloadBuffer;
+import com.vlkan.hrrs.capture.HrrsTeeInputStream;
+import com.vlkan.hrrs.capture.HrrsTeeOutputStream;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * {@link Filter} recording the requests served by the JDK built-in
+ * {@link com.sun.net.httpserver.HttpServer HTTP server}.
+ *
+ * The request body is recorded as it gets consumed by the handler, and so
+ * is the response body, if {@link #isResponseCaptureEnabled() enabled}. Since the
+ * HTTP server does not parse form parameters, url-encoded forms are recorded
+ * as is.
+ */
+public abstract class HrrsHttpServerFilter extends Filter {
+
+    public static final int DEFAULT_MAX_RECORDABLE_PAYLOAD_BYTE_COUNT = HrrsCaptureEngine.DEFAULT_MAX_RECORDABLE_PAYLOAD_BYTE_COUNT;
+
+    public static final int DEFAULT_MAX_RECORDABLE_RESPONSE_BYTE_COUNT = HrrsCaptureEngine.DEFAULT_MAX_RECORDABLE_RESPONSE_BYTE_COUNT;
+
+    private final HrrsCaptureEngine engine;
+
+    public HrrsHttpServerFilter() {
+        this(new HrrsCaptureEngine(new HrrsIdGenerator(4)));
+    }
+
+    public HrrsHttpServerFilter(HrrsCaptureEngine engine) {
+        this.engine = checkNotNull(engine, "engine");
+    }
+
+    @Override
+    public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+        if (!engine.isEnabled() || !engine.sample(isRequestRecordable(exchange))) {
+            chain.doFilter(exchange);
+            return;
+        }
+        HrrsCapture capture = engine.startCapture();
+        HrrsPayloadBuffer payloadBuffer = new HrrsPayloadBuffer(getMaxRecordablePayloadByteCount());
+        HrrsTeeInputStream inputStream = new HrrsTeeInputStream(exchange.getRequestBody(), payloadBuffer);
+        HrrsPayloadBuffer responseBuffer = null;
+        HrrsTeeOutputStream outputStream = null;
+        if (isResponseCaptureEnabled()) {
+            responseBuffer = engine.createResponseBuffer(getMaxRecordableResponseByteCount());
+            outputStream = new HrrsTeeOutputStream(exchange.getResponseBody(), responseBuffer);
+        }
+        exchange.setStreams(inputStream, outputStream);
+        capture.handlerStarted();
+        chain.doFilter(exchange);
+        capture.handlerCompleted();
+        HttpRequestPayload payload = payloadBuffer.toPayload();
+        long responseTimeMillis = TimeUnit.NANOSECONDS.toMillis(capture.getHandlerTimeNanos());
+        ResponseInfo responseInfo = responseBuffer != null
+                ? engine.createResponseInfo(
+                        exchange.getResponseCode(),
+                        responseTimeMillis,
+                        createResponseHeaders(exchange.getResponseHeaders()),
+                        responseBuffer)
+                : new ResponseInfo(exchange.getResponseCode(), responseTimeMillis);
+        HttpRequestRecord record = createRecord(exchange, responseInfo, payload);
+        HttpRequestRecord filteredRecord = filterRecord(record);
+        engine.completeCapture(capture, record, filteredRecord, getWriter());
+    }
+
+    /**
+     * Checks if the given HTTP exchange is recordable.
+     */
+    protected boolean isRequestRecordable(HttpExchange ignored) {
+        return true;
+    }
+
+    public HrrsCaptureEngine getEngine() {
+        return engine;
+    }
+
+    public boolean isEnabled() {
+        return engine.isEnabled();
+    }
+
+    public void setEnabled(boolean enabled) {
+        engine.setEnabled(enabled);
+    }
+
+    private HttpRequestRecord createRecord(HttpExchange exchange, ResponseInfo responseInfo, HttpRequestPayload payload) {
+        String id = createRequestId(exchange);
+        String groupName = createRequestGroupName(exchange);
+        String uri = createRequestUri(exchange);
+        HttpRequestMethod method = HttpRequestMethod.valueOf(exchange.getRequestMethod());
+        List<HttpRequestHeader> headers = createHeaders(exchange.getRequestHeaders());
+        return engine.createRecord(id, groupName, uri, method, headers, payload, responseInfo);
+    }
+
+    protected String createRequestUri(HttpExchange exchange) {
+        URI requestUri = exchange.getRequestURI();
+        return HrrsCaptureHelper.createRequestUri(requestUri.getRawPath(), requestUri.getRawQuery());
+    }
+
+    private static List<HttpRequestHeader> createHeaders(Headers requestHeaders) {
+        if (requestHeaders.isEmpty()) {
+            return Collections.emptyList();
+        }
+        FlatHttpRequestHeaderList.Builder headers = FlatHttpRequestHeaderList.builder(requestHeaders.size());
+        for (Map.Entry<String, List<String>> entry : requestHeaders.entrySet()) {
+            List<String> values = entry.getValue();
+            if (values == null || values.isEmpty()) {
+                continue;
+            }
+            // Similar to HttpServletRequest#getHeader(), only the first value is recorded.
+            headers.add(entry.getKey(), values.get(0));
+        }
+        return headers.build();
+    }
+
+    /**
+     * @return the response headers, where every value of a repeated header is a separate entry
+     */
+    private static List<HttpRequestHeader> createResponseHeaders(Headers responseHeaders) {
+        if (responseHeaders.isEmpty()) {
+            return Collections.emptyList();
+        }
+        FlatHttpRequestHeaderList.Builder headers = FlatHttpRequestHeaderList.builder(responseHeaders.size());
+        for (Map.Entry<String, List<String>> entry : responseHeaders.entrySet()) {
+            List<String> values = entry.getValue();
+            if (values == null) {
+                continue;
+            }
+            for (String value : values) {
+                headers.add(entry.getKey(), value);
+            }
+        }
+        return headers.build();
+    }
+
+    /**
+     * Captures the response headers and body along with the status code.
+     * Defaults to false.
+     */
+    protected boolean isResponseCaptureEnabled() {
+        return false;
+    }
+
+    /**
+     * Maximum amount of response body bytes that can be recorded per request,
+     * where the hash of the entire body is recorded for larger ones.
+     * Defaults to {@link HrrsHttpServerFilter#DEFAULT_MAX_RECORDABLE_RESPONSE_BYTE_COUNT}.
+     */
+    protected int getMaxRecordableResponseByteCount() {
+        return DEFAULT_MAX_RECORDABLE_RESPONSE_BYTE_COUNT;
+    }
+
+    /**
+     * Maximum amount of bytes that can be recorded per request.
+     * Defaults to {@link HrrsHttpServerFilter#DEFAULT_MAX_RECORDABLE_PAYLOAD_BYTE_COUNT}.
+     */
+    protected int getMaxRecordablePayloadByteCount() {
+        return DEFAULT_MAX_RECORDABLE_PAYLOAD_BYTE_COUNT;
+    }
+
+    /**
+     * Create a group name for the given exchange.
+     *
+     * @see HrrsCaptureHelper#createRequestGroupName(String)
+     */
+    protected String createRequestGroupName(HttpExchange exchange) {
+        String requestUri = createRequestUri(exchange);
+        return HrrsCaptureHelper.createRequestGroupName(requestUri);
+    }
+
+    /**
+     * Creates a unique identifier for the given exchange.
+     */
+    protected String createRequestId(HttpExchange ignored) {
+        return engine.createRequestId();
+    }
+
+    /**
+     * Filter the given record prior to writing.
+     * @return the modified record or null to exclude the record
+     */
+    protected HttpRequestRecord filterRecord(HttpRequestRecord record) {
+        return record;
+    }
+
+    abstract protected HttpRequestRecordWriter<?> getWriter();
+
+    public void flush() {
+        HttpRequestRecordWriter<?> writer = getWriter();
+        HttpRequestRecordWriterTarget<?> target = writer.getTarget();
+        target.flush();
+    }
+
+    @Override
+    public String description() {
+        return "HRRS recorder";
+    }
+
+}
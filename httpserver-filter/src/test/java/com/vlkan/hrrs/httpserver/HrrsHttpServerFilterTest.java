@@ -0,0 +1,166 @@
+package com.vlkan.hrrs.httpserver;
+
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpServer;
+import com.vlkan.hrrs.api.HttpRequestHeader;
+import com.vlkan.hrrs.api.HttpRequestMethod;
+import com.vlkan.hrrs.api.HttpRequestRecord;
+import com.vlkan.hrrs.api.HttpRequestRecordWriter;
+import com.vlkan.hrrs.api.HttpRequestRecordWriterTarget;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class HrrsHttpServerFilterTest {
+
+    private final List<HttpRequestRecord> records = new CopyOnWriteArrayList<>();
+
+    private final HrrsHttpServerFilter filter = new HrrsHttpServerFilter() {
+
+        @Override
+        protected int getMaxRecordablePayloadByteCount() {
+            return 8;
+        }
+
+        @Override
+        protected HttpRequestRecordWriter<?> getWriter() {
+            return new ListHttpRequestRecordWriter(records);
+        }
+
+    };
+
+    private HttpServer server;
+
+    @Before
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        HttpContext context = server.createContext("/foo/bar", exchange -> {
+            byte[] requestBytes = readFully(exchange.getRequestBody());
+            exchange.sendResponseHeaders(201, requestBytes.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(requestBytes);
+            }
+        });
+        context.getFilters().add(filter);
+        server.start();
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    public void should_not_record_when_disabled() throws IOException {
+        filter.setEnabled(false);
+        post("/foo/bar", "payload");
+        assertThat(records.isEmpty(), is(true));
+    }
+
+    @Test
+    public void should_record_request() throws IOException, InterruptedException {
+        filter.setEnabled(true);
+        String responseText = post("/foo/bar?baz=1", "0123456789");
+        assertThat(responseText, is("0123456789"));
+        // Response is delivered before the filter completes the capture.
+        awaitRecordCount(1);
+        assertThat(records.size(), is(1));
+        HttpRequestRecord record = records.get(0);
+        assertThat(record.getGroupName(), is("foo.bar"));
+        assertThat(record.getUri(), is("/foo/bar?baz=1"));
+        assertThat(record.getMethod(), is(HttpRequestMethod.POST));
+        assertThat(new String(record.getPayload().getBytes(), StandardCharsets.US_ASCII), is("01234567"));
+        assertThat(record.getPayload().getMissingByteCount(), is(2));
+        assertThat(record.getResponseInfo().getStatusCode(), is(201));
+        assertThat(findHeaderValue(record, "X-foo"), is("bar"));
+    }
+
+    private void awaitRecordCount(int recordCount) throws InterruptedException {
+        long deadlineMillis = System.currentTimeMillis() + 10_000;
+        while (records.size() < recordCount && System.currentTimeMillis() < deadlineMillis) {
+            Thread.sleep(10);
+        }
+    }
+
+    private String post(String path, String payload) throws IOException {
+        URL url = new URL("http", "127.0.0.1", server.getAddress().getPort(), path);
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        try {
+            connection.setRequestMethod("POST");
+            connection.setRequestProperty("X-Foo", "bar");
+            connection.setDoOutput(true);
+            try (OutputStream outputStream = connection.getOutputStream()) {
+                outputStream.write(payload.getBytes(StandardCharsets.US_ASCII));
+            }
+            try (InputStream inputStream = connection.getInputStream()) {
+                return new String(readFully(inputStream), StandardCharsets.US_ASCII);
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static byte[] readFully(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        byte[] buffer = new byte[3];
+        int readByteCount;
+        while ((readByteCount = inputStream.read(buffer)) > 0) {
+            outputStream.write(buffer, 0, readByteCount);
+        }
+        return outputStream.toByteArray();
+    }
+
+    private static String findHeaderValue(HttpRequestRecord record, String name) {
+        for (HttpRequestHeader header : record.getHeaders()) {
+            if (header.getName().equals(name)) {
+                return header.getValue();
+            }
+        }
+        return null;
+    }
+
+    private static final class ListHttpRequestRecordWriter implements HttpRequestRecordWriter<HttpRequestRecord> {
+
+        private final List<HttpRequestRecord> records;
+
+        private ListHttpRequestRecordWriter(List<HttpRequestRecord> records) {
+            this.records = records;
+        }
+
+        @Override
+        public HttpRequestRecordWriterTarget<HttpRequestRecord> getTarget() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void write(HttpRequestRecord record) {
+            records.add(record);
+        }
+
+        @Override
+        public void close() {
+            // Do nothing.
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+    }
+
+}
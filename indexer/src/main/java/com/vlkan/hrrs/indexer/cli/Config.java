@@ -0,0 +1,189 @@
+package com.vlkan.hrrs.indexer.cli;
+
+import com.beust.jcommander.Parameter;
+import com.vlkan.hrrs.commons.jcommander.JCommanderConfig;
+import com.vlkan.hrrs.commons.jcommander.JCommanderConfigs;
+import com.vlkan.hrrs.commons.jcommander.validator.LoggerLevelSpecsValidator;
+import com.vlkan.hrrs.commons.jcommander.validator.NonZeroPositiveIntegerValidator;
+import com.vlkan.hrrs.commons.jcommander.validator.TimestampValidator;
+import com.vlkan.hrrs.commons.jcommander.validator.WritableFileValidator;
+import com.vlkan.hrrs.serializer.index.HttpRequestRecordIndexer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class Config implements JCommanderConfig {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Config.class);
+
+    @Parameter(
+            names = {"--inputFile", "-i"},
+            description = "capture file to be indexed (uncompressed or block gzip compressed), or, for lookups, a file, a directory, or a file name glob pattern",
+            required = true)
+    private File inputFile;
+
+    public File getInputFile() {
+        return inputFile;
+    }
+
+    @Parameter(
+            names = {"--checkpointRecordCount", "-c"},
+            validateWith = NonZeroPositiveIntegerValidator.class,
+            description = "number of records between consecutive checkpoints")
+    private int checkpointRecordCount = HttpRequestRecordIndexer.DEFAULT_CHECKPOINT_RECORD_COUNT;
+
+    public int getCheckpointRecordCount() {
+        return checkpointRecordCount;
+    }
+
+    @Parameter(
+            names = {"--idIndex", "-I"},
+            description = "write a sidecar id index as well")
+    private boolean idIndex = false;
+
+    public boolean isIdIndex() {
+        return idIndex;
+    }
+
+    @Parameter(
+            names = {"--lookupIds", "-l"},
+            description = "instead of indexing, fetch the records having the given comma-separated ids")
+    private List<String> lookupIds = new ArrayList<>();
+
+    @Parameter(
+            names = {"--lookupIdsFile", "-lf"},
+            description = "instead of indexing, fetch the records having the ids in the given file, one per line")
+    private File lookupIdsFile;
+
+    public boolean isLookupSpecified() {
+        return !lookupIds.isEmpty() || lookupIdsFile != null;
+    }
+
+    public List<String> getLookupIds() {
+        List<String> ids = new ArrayList<>(lookupIds);
+        if (lookupIdsFile != null) {
+            try {
+                for (String line : Files.readAllLines(lookupIdsFile.toPath(), StandardCharsets.UTF_8)) {
+                    String id = line.trim();
+                    if (!id.isEmpty()) {
+                        ids.add(id);
+                    }
+                }
+            } catch (IOException error) {
+                throw new IllegalArgumentException("failed reading ids: " + lookupIdsFile, error);
+            }
+        }
+        return ids;
+    }
+
+    @Parameter(
+            names = {"--outputFile", "-o"},
+            validateWith = WritableFileValidator.class,
+            description = "output file for the fetched records (defaults to standard output)")
+    private File outputFile;
+
+    public File getOutputFile() {
+        return outputFile;
+    }
+
+    @Parameter(
+            names = {"--splitCount", "-s"},
+            validateWith = NonZeroPositiveIntegerValidator.class,
+            description = "print the given number of ranges of roughly equal sizes to be read in parallel")
+    private int splitCount = 0;
+
+    public int getSplitCount() {
+        return splitCount;
+    }
+
+    @Parameter(
+            names = {"--fromTime", "-ft"},
+            validateWith = TimestampValidator.class,
+            description = "print the ranges of records recorded at or after the given time")
+    private String fromTime;
+
+    @Parameter(
+            names = {"--toTime", "-tt"},
+            validateWith = TimestampValidator.class,
+            description = "print the ranges of records recorded before the given time")
+    private String toTime;
+
+    @Parameter(
+            names = {"--groupNames", "-g"},
+            description = "print the ranges of records having one of the given comma-separated group names")
+    private List<String> groupNames = new ArrayList<>();
+
+    public List<String> getGroupNames() {
+        return groupNames;
+    }
+
+    public boolean isSearchSpecified() {
+        return fromTime != null || toTime != null || !groupNames.isEmpty();
+    }
+
+    public long getFromTimestampMillis() {
+        return parseTimestamp(fromTime, Long.MIN_VALUE);
+    }
+
+    public long getToTimestampMillis() {
+        return parseTimestamp(toTime, Long.MAX_VALUE);
+    }
+
+    private static long parseTimestamp(String timestamp, long defaultTimestampMillis) {
+        if (timestamp == null) {
+            return defaultTimestampMillis;
+        }
+        try {
+            return TimestampValidator.parse(timestamp);
+        } catch (ParseException error) {
+            throw new IllegalArgumentException("invalid timestamp: " + timestamp, error);
+        }
+    }
+
+    @Parameter(
+            names = {"--loggerLevelSpecs", "-L"},
+            validateWith = LoggerLevelSpecsValidator.class,
+            description = "comma-separated list of loggerName=loggerLevel pairs")
+    private String loggerLevelSpecs = "*=warn,com.vlkan.hrrs=info";
+
+    public String getLoggerLevelSpecs() {
+        return loggerLevelSpecs;
+    }
+
+    @Parameter(
+            names = {"--help", "-h"},
+            help = true,
+            description = "display this help and exit")
+    private boolean help;
+
+    @Override
+    public boolean isHelp() {
+        return help;
+    }
+
+    public void dump() {
+        LOGGER.debug("inputFile = {}", inputFile);
+        LOGGER.debug("checkpointRecordCount = {}", checkpointRecordCount);
+        LOGGER.debug("idIndex = {}", idIndex);
+        LOGGER.debug("lookupIds = {}", lookupIds);
+        LOGGER.debug("lookupIdsFile = {}", lookupIdsFile);
+        LOGGER.debug("outputFile = {}", outputFile);
+        LOGGER.debug("splitCount = {}", splitCount);
+        LOGGER.debug("fromTime = {}", fromTime);
+        LOGGER.debug("toTime = {}", toTime);
+        LOGGER.debug("groupNames = {}", groupNames);
+        LOGGER.debug("loggerLevelSpecs={}", loggerLevelSpecs);
+    }
+
+    public static Config of(String[] args) {
+        return JCommanderConfigs.create(args, new Config());
+    }
+
+}
@@ -0,0 +1,131 @@
+package com.vlkan.hrrs.indexer.cli;
+
+import com.vlkan.hrrs.api.HttpRequestRecord;
+import com.vlkan.hrrs.api.HttpRequestRecordWriter;
+import com.vlkan.hrrs.api.HttpRequestRecordWriterTarget;
+import com.vlkan.hrrs.commons.logger.Log4jLoggerLevelAccessor;
+import com.vlkan.hrrs.commons.logger.LoggerLevels;
+import com.vlkan.hrrs.serializer.base64.Base64HttpRequestRecord;
+import com.vlkan.hrrs.serializer.base64.Base64HttpRequestRecordWriter;
+import com.vlkan.hrrs.serializer.base64.jdk.JdkBase64Decoder;
+import com.vlkan.hrrs.serializer.base64.jdk.JdkBase64Encoder;
+import com.vlkan.hrrs.serializer.file.HttpRequestRecordReaderFileSetSource;
+import com.vlkan.hrrs.serializer.file.HttpRequestRecordWriterFileTarget;
+import com.vlkan.hrrs.serializer.index.HttpRequestRecordIdIndex;
+import com.vlkan.hrrs.serializer.index.HttpRequestRecordIdLookup;
+import com.vlkan.hrrs.serializer.index.HttpRequestRecordIndex;
+import com.vlkan.hrrs.serializer.index.HttpRequestRecordIndexRange;
+import com.vlkan.hrrs.serializer.index.HttpRequestRecordIndexer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * Builds the sidecar index of a capture file and optionally prints the
+ * ranges matching a search or splitting the file, one range per line:
+ * {@code <fileOffset> <blockOffset> <recordCount> <byteCount>}.
+ *
+ * If ids to look up are given, fetches the records having them via the
+ * sidecar id indices (which are built for the files missing an up-to-date
+ * one) and writes them to the output file, or to the standard output.
+ */
+public enum Indexer {;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Indexer.class);
+
+    public static void main(String[] args) throws Exception {
+        Config config = Config.of(args);
+        config.dump();
+        LoggerLevels.applyLoggerLevelSpecs(config.getLoggerLevelSpecs(), Log4jLoggerLevelAccessor.getInstance());
+        if (config.isLookupSpecified()) {
+            lookup(config);
+            return;
+        }
+        HttpRequestRecordIndex index = HttpRequestRecordIndexer.indexAndWrite(
+                config.getInputFile(), Base64HttpRequestRecord.CHARSET,
+                config.getCheckpointRecordCount(), config.isIdIndex());
+        if (config.isSearchSpecified()) {
+            printRanges(index.findRanges(
+                    config.getFromTimestampMillis(), config.getToTimestampMillis(), config.getGroupNames()));
+        }
+        if (config.getSplitCount() > 0) {
+            printRanges(index.split(config.getSplitCount()));
+        }
+    }
+
+    private static void printRanges(List<HttpRequestRecordIndexRange> ranges) {
+        for (HttpRequestRecordIndexRange range : ranges) {
+            System.out.format(
+                    "%d %d %d %d%n",
+                    range.getPosition().getFileOffset(),
+                    range.getPosition().getBlockOffset(),
+                    range.getRecordCount(),
+                    range.getByteCount());
+        }
+    }
+
+    private static void lookup(Config config) throws Exception {
+        List<File> files = HttpRequestRecordReaderFileSetSource.findFiles(config.getInputFile(), Base64HttpRequestRecord.CHARSET);
+        for (File file : files) {
+            if (!isIdIndexUpToDate(file)) {
+                long recordCount = HttpRequestRecordIndexer.indexIdsAndWrite(file, Base64HttpRequestRecord.CHARSET);
+                LOGGER.info("indexed ids (file={}, recordCount={})", file, recordCount);
+            }
+        }
+        List<String> ids = config.getLookupIds();
+        List<HttpRequestRecord> records;
+        try (HttpRequestRecordIdLookup lookup = new HttpRequestRecordIdLookup(
+                files, Base64HttpRequestRecord.CHARSET, JdkBase64Decoder.getInstance(), null)) {
+            records = lookup.findAll(ids);
+            HttpRequestRecordWriterTarget<String> target = config.getOutputFile() != null
+                    ? new HttpRequestRecordWriterFileTarget(config.getOutputFile(), Base64HttpRequestRecord.CHARSET)
+                    : new StandardOutputTarget();
+            HttpRequestRecordWriter<String> writer =
+                    Base64HttpRequestRecordWriter.createBase64HttpRequestRecordWriter(target, JdkBase64Encoder.getInstance());
+            try {
+                for (HttpRequestRecord record : records) {
+                    writer.write(record);
+                }
+            } finally {
+                writer.close();
+                target.close();
+            }
+        }
+        LOGGER.info("found {} record(s) out of {} id(s)", records.size(), ids.size());
+    }
+
+    private static boolean isIdIndexUpToDate(File file) {
+        File idIndexFile = HttpRequestRecordIdIndex.getIdIndexFile(file);
+        if (!idIndexFile.exists()) {
+            return false;
+        }
+        try (HttpRequestRecordIdIndex idIndex = HttpRequestRecordIdIndex.open(idIndexFile)) {
+            return idIndex.isUpToDate(file);
+        } catch (Exception error) {
+            LOGGER.warn("failed reading id index, rebuilding (idIndexFile={})", idIndexFile, error);
+            return false;
+        }
+    }
+
+    private static final class StandardOutputTarget implements HttpRequestRecordWriterTarget<String> {
+
+        @Override
+        public void write(String value) {
+            System.out.print(value);
+        }
+
+        @Override
+        public void flush() {
+            System.out.flush();
+        }
+
+        @Override
+        public void close() {
+            System.out.flush();
+        }
+
+    }
+
+}
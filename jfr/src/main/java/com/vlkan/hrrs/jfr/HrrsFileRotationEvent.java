@@ -0,0 +1,31 @@
+package com.vlkan.hrrs.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+@Name("com.vlkan.hrrs.FileRotation")
+@Label("HRRS File Rotation")
+@Description("Rotation of the record file.")
+@Category({"HRRS", "Writer"})
+public class HrrsFileRotationEvent extends jdk.jfr.Event {
+
+    @Label("Policy")
+    String policy;
+
+    @Label("File")
+    String file;
+
+    @Label("Rotated File")
+    String rotatedFile;
+
+    @Label("Rotation Duration")
+    @Timespan
+    long rotationDuration;
+
+    @Label("Succeeded")
+    boolean succeeded;
+
+}
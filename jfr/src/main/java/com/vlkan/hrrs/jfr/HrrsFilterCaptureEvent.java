@@ -0,0 +1,37 @@
+package com.vlkan.hrrs.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+@Name("com.vlkan.hrrs.FilterCapture")
+@Label("HRRS Filter Capture")
+@Description("Request captured by the recorder filter.")
+@Category({"HRRS", "Recorder"})
+@StackTrace(false)
+public class HrrsFilterCaptureEvent extends jdk.jfr.Event {
+
+    @Label("Record ID")
+    String recordId;
+
+    @Label("Group Name")
+    String groupName;
+
+    @Label("Payload Size")
+    @DataAmount
+    int byteCount;
+
+    @Label("Missing Payload Size")
+    @DataAmount
+    int missingByteCount;
+
+    @Label("Self Time")
+    @Description("Time spent in the filter excluding the rest of the filter chain.")
+    @Timespan
+    long selfTime;
+
+}
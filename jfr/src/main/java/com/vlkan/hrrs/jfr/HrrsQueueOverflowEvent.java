@@ -0,0 +1,22 @@
+package com.vlkan.hrrs.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.vlkan.hrrs.QueueOverflow")
+@Label("HRRS Queue Overflow")
+@Description("Record dropped due to a full writer queue.")
+@Category({"HRRS", "Writer"})
+@StackTrace(false)
+public class HrrsQueueOverflowEvent extends jdk.jfr.Event {
+
+    @Label("Record ID")
+    String recordId;
+
+    @Label("Queue Capacity")
+    int queueCapacity;
+
+}
@@ -0,0 +1,33 @@
+package com.vlkan.hrrs.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+@Name("com.vlkan.hrrs.ReaderDecodeStall")
+@Label("HRRS Reader Decode Stall")
+@Description("Record read and decode taking longer than the configured threshold.")
+@Category({"HRRS", "Reader"})
+@StackTrace(false)
+public class HrrsReaderDecodeStallEvent extends jdk.jfr.Event {
+
+    @Label("Line Index")
+    long lineIndex;
+
+    @Label("Line Length")
+    @DataAmount
+    int lineLength;
+
+    @Label("Read Duration")
+    @Timespan
+    long readDuration;
+
+    @Label("Decode Duration")
+    @Timespan
+    long decodeDuration;
+
+}
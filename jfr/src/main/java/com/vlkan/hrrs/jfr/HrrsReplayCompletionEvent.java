@@ -0,0 +1,30 @@
+package com.vlkan.hrrs.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+@Name("com.vlkan.hrrs.ReplayCompletion")
+@Label("HRRS Replay Completion")
+@Description("Replay of a record completed.")
+@Category({"HRRS", "Replayer"})
+@StackTrace(false)
+public class HrrsReplayCompletionEvent extends jdk.jfr.Event {
+
+    @Label("Record ID")
+    String recordId;
+
+    @Label("Group Name")
+    String groupName;
+
+    @Label("Status Code")
+    int statusCode;
+
+    @Label("Replay Duration")
+    @Timespan
+    long replayDuration;
+
+}
@@ -0,0 +1,22 @@
+package com.vlkan.hrrs.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+@Name("com.vlkan.hrrs.ReplayDispatch")
+@Label("HRRS Replay Dispatch")
+@Description("Replay of a record started by an executor thread.")
+@Category({"HRRS", "Replayer"})
+@StackTrace(false)
+public class HrrsReplayDispatchEvent extends jdk.jfr.Event {
+
+    @Label("Start Delay")
+    @Description("Time between the scheduled and the actual start of the replay.")
+    @Timespan
+    long startDelay;
+
+}
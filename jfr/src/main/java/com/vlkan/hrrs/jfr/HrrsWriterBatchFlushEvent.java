@@ -0,0 +1,29 @@
+package com.vlkan.hrrs.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+@Name("com.vlkan.hrrs.WriterBatchFlush")
+@Label("HRRS Writer Batch Flush")
+@Description("Batch of records drained from the writer queue and written to the target.")
+@Category({"HRRS", "Writer"})
+@StackTrace(false)
+public class HrrsWriterBatchFlushEvent extends jdk.jfr.Event {
+
+    @Label("Record Count")
+    int recordCount;
+
+    @Label("Written Size")
+    @DataAmount
+    long byteCount;
+
+    @Label("Batch Duration")
+    @Timespan
+    long batchDuration;
+
+}
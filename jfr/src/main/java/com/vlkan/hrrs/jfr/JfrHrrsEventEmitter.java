@@ -0,0 +1,115 @@
+package com.vlkan.hrrs.jfr;
+
+import com.vlkan.hrrs.api.jfr.HrrsEventEmitter;
+import com.vlkan.hrrs.api.jfr.HrrsEvents;
+import jdk.jfr.EventType;
+
+/**
+ * {@link HrrsEventEmitter} committing events to JDK Flight Recorder.
+ *
+ * Event types are checked to be enabled in the running recording before
+ * the events get created, hence nothing is allocated otherwise. This class
+ * must only be loaded reflectively via {@link HrrsEvents}, since JFR might
+ * be absent in the running JVM.
+ */
+public class JfrHrrsEventEmitter implements HrrsEventEmitter {
+
+    private final EventType filterCaptureEventType = EventType.getEventType(HrrsFilterCaptureEvent.class);
+
+    private final EventType writerBatchFlushEventType = EventType.getEventType(HrrsWriterBatchFlushEvent.class);
+
+    private final EventType queueOverflowEventType = EventType.getEventType(HrrsQueueOverflowEvent.class);
+
+    private final EventType fileRotationEventType = EventType.getEventType(HrrsFileRotationEvent.class);
+
+    private final EventType replayDispatchEventType = EventType.getEventType(HrrsReplayDispatchEvent.class);
+
+    private final EventType replayCompletionEventType = EventType.getEventType(HrrsReplayCompletionEvent.class);
+
+    private final EventType readerDecodeStallEventType = EventType.getEventType(HrrsReaderDecodeStallEvent.class);
+
+    public JfrHrrsEventEmitter() {
+        // Do nothing.
+    }
+
+    @Override
+    public void emitFilterCapture(String recordId, String groupName, int byteCount, int missingByteCount, long selfTimeNanos) {
+        if (filterCaptureEventType.isEnabled()) {
+            HrrsFilterCaptureEvent event = new HrrsFilterCaptureEvent();
+            event.recordId = recordId;
+            event.groupName = groupName;
+            event.byteCount = byteCount;
+            event.missingByteCount = missingByteCount;
+            event.selfTime = selfTimeNanos;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void emitWriterBatchFlush(int recordCount, long byteCount, long durationNanos) {
+        if (writerBatchFlushEventType.isEnabled()) {
+            HrrsWriterBatchFlushEvent event = new HrrsWriterBatchFlushEvent();
+            event.recordCount = recordCount;
+            event.byteCount = byteCount;
+            event.batchDuration = durationNanos;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void emitQueueOverflow(String recordId, int queueCapacity) {
+        if (queueOverflowEventType.isEnabled()) {
+            HrrsQueueOverflowEvent event = new HrrsQueueOverflowEvent();
+            event.recordId = recordId;
+            event.queueCapacity = queueCapacity;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void emitFileRotation(String policy, String file, String rotatedFile, long durationNanos, boolean succeeded) {
+        if (fileRotationEventType.isEnabled()) {
+            HrrsFileRotationEvent event = new HrrsFileRotationEvent();
+            event.policy = policy;
+            event.file = file;
+            event.rotatedFile = rotatedFile;
+            event.rotationDuration = durationNanos;
+            event.succeeded = succeeded;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void emitReplayDispatch(long startDelayNanos) {
+        if (replayDispatchEventType.isEnabled()) {
+            HrrsReplayDispatchEvent event = new HrrsReplayDispatchEvent();
+            event.startDelay = startDelayNanos;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void emitReplayCompletion(String recordId, String groupName, int statusCode, long durationNanos) {
+        if (replayCompletionEventType.isEnabled()) {
+            HrrsReplayCompletionEvent event = new HrrsReplayCompletionEvent();
+            event.recordId = recordId;
+            event.groupName = groupName;
+            event.statusCode = statusCode;
+            event.replayDuration = durationNanos;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void emitReaderDecodeStall(long lineIndex, int lineLength, long readNanos, long decodeNanos) {
+        if (readerDecodeStallEventType.isEnabled()) {
+            HrrsReaderDecodeStallEvent event = new HrrsReaderDecodeStallEvent();
+            event.lineIndex = lineIndex;
+            event.lineLength = lineLength;
+            event.readDuration = readNanos;
+            event.decodeDuration = decodeNanos;
+            event.commit();
+        }
+    }
+
+}
@@ -3,19 +3,30 @@ package com.vlkan.hrrs.replayer.base64;
 import com.vlkan.hrrs.api.HttpRequestRecord;
 import com.vlkan.hrrs.api.HttpRequestRecordReader;
 import com.vlkan.hrrs.api.HttpRequestRecordReaderSource;
+import com.vlkan.hrrs.replayer.cli.Config;
 import com.vlkan.hrrs.replayer.record.HttpRequestRecordStream;
 import com.vlkan.hrrs.replayer.record.HttpRequestRecordStreamConsumer;
 import com.vlkan.hrrs.serializer.base64.Base64HttpRequestRecord;
 import com.vlkan.hrrs.serializer.base64.Base64HttpRequestRecordReader;
-import com.vlkan.hrrs.serializer.base64.guava.GuavaBase64Decoder;
+import com.vlkan.hrrs.serializer.base64.jdk.JdkBase64Decoder;
+import com.vlkan.hrrs.serializer.file.HttpRequestRecordReaderFileSetSource;
 import com.vlkan.hrrs.serializer.file.HttpRequestRecordReaderFileSource;
+import com.vlkan.hrrs.serializer.index.HttpRequestRecordIndex;
+import com.vlkan.hrrs.serializer.index.HttpRequestRecordIndexRange;
+import com.vlkan.hrrs.serializer.manifest.HttpRequestRecordManifest;
+import com.vlkan.hrrs.serializer.payload.HttpRequestPayloadStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
+import javax.inject.Inject;
 import java.io.File;
 import java.io.IOException;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.concurrent.Callable;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -24,36 +35,156 @@ public class Base64HttpRequestRecordStream implements HttpRequestRecordStream {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(Base64HttpRequestRecordStream.class);
 
+    private final boolean timeRangeSpecified;
+
+    private final long fromTimestampMillis;
+
+    private final long toTimestampMillis;
+
+    @Nullable
+    private final HttpRequestPayloadStore payloadStore;
+
+    public Base64HttpRequestRecordStream() {
+        this.timeRangeSpecified = false;
+        this.fromTimestampMillis = Long.MIN_VALUE;
+        this.toTimestampMillis = Long.MAX_VALUE;
+        this.payloadStore = null;
+    }
+
+    @Inject
+    public Base64HttpRequestRecordStream(Config config) {
+        checkNotNull(config, "config");
+        this.timeRangeSpecified = config.isTimeRangeSpecified();
+        this.fromTimestampMillis = config.getFromTimestampMillis();
+        this.toTimestampMillis = config.getToTimestampMillis();
+        URI payloadStoreUri = config.getPayloadStoreUri();
+        this.payloadStore = payloadStoreUri != null ? new HttpRequestPayloadStore(new File(payloadStoreUri)) : null;
+    }
+
     @Override
     public void consumeWhile(URI inputUri, boolean replayOnce, Callable<Boolean> predicate, HttpRequestRecordStreamConsumer consumer) {
         checkNotNull(inputUri, "inputUri");
         checkNotNull(predicate, "predicate");
         checkNotNull(consumer, "consumer");
         LOGGER.debug("consuming (inputUri={})", inputUri);
+        List<File> inputFiles = HttpRequestRecordReaderFileSetSource.findFiles(new File(inputUri), Base64HttpRequestRecord.CHARSET);
+        if (inputFiles.size() == 1) {
+            consumeWhile(inputFiles.get(0), replayOnce, predicate, consumer);
+            return;
+        }
+        List<File> matchingInputFiles = pruneFiles(inputFiles);
+        if (matchingInputFiles.isEmpty()) {
+            LOGGER.warn("no records in the given time range (inputUri={})", inputUri);
+            return;
+        }
         boolean resuming;
         do {
-            File inputFile = new File(inputUri);
             HttpRequestRecordReaderSource<String> readerSource =
-                    new HttpRequestRecordReaderFileSource(inputFile, Base64HttpRequestRecord.CHARSET);
-            try {
-                HttpRequestRecordReader<String> reader =
-                        new Base64HttpRequestRecordReader(readerSource, GuavaBase64Decoder.getInstance());
-                Iterator<HttpRequestRecord> iterator = reader.read().iterator();
-                while ((resuming = predicate.call()) && iterator.hasNext()) {
-                    HttpRequestRecord record = iterator.next();
-                    consumer.consume(record);
-                }
-            } catch (Throwable error) {
-                String message = String.format("failed consuming from record reader (inputUri=%s)", inputUri);
-                throw new RuntimeException(message, error);
-            } finally {
-                try {
-                    readerSource.close();
-                } catch (IOException error) {
-                    LOGGER.error("failed closing reader source (inputUri={})", inputUri);
-                }
+                    new HttpRequestRecordReaderFileSetSource(matchingInputFiles, Base64HttpRequestRecord.CHARSET);
+            resuming = consumeWhile(readerSource, predicate, consumer);
+        } while (!replayOnce && resuming);
+    }
+
+    private void consumeWhile(File inputFile, boolean replayOnce, Callable<Boolean> predicate, HttpRequestRecordStreamConsumer consumer) {
+        List<HttpRequestRecordIndexRange> ranges = findRanges(inputFile);
+        if (ranges.isEmpty()) {
+            LOGGER.warn("no records in the given time range (inputFile={})", inputFile);
+            return;
+        }
+        boolean resuming = true;
+        do {
+            for (Iterator<HttpRequestRecordIndexRange> iterator = ranges.iterator(); resuming && iterator.hasNext(); ) {
+                HttpRequestRecordIndexRange range = iterator.next();
+                HttpRequestRecordReaderSource<String> readerSource =
+                        new HttpRequestRecordReaderFileSource(inputFile, Base64HttpRequestRecord.CHARSET, range);
+                resuming = consumeWhile(readerSource, predicate, consumer);
             }
         } while (!replayOnce && resuming);
     }
 
+    /**
+     * Finds the ranges to be read, where a null range denotes the entire file.
+     */
+    private List<HttpRequestRecordIndexRange> findRanges(File inputFile) {
+        if (!timeRangeSpecified) {
+            return Collections.singletonList(null);
+        }
+        File indexFile = HttpRequestRecordIndex.getIndexFile(inputFile);
+        if (!indexFile.exists()) {
+            LOGGER.info("no index found, scanning the entire file (inputFile={})", inputFile);
+            return Collections.singletonList(null);
+        }
+        HttpRequestRecordIndex index = HttpRequestRecordIndex.read(indexFile);
+        if (!index.isUpToDate(inputFile)) {
+            LOGGER.warn("index is out of date, scanning the entire file (inputFile={})", inputFile);
+            return Collections.singletonList(null);
+        }
+        List<HttpRequestRecordIndexRange> ranges = index.findRanges(fromTimestampMillis, toTimestampMillis, null);
+        LOGGER.info("found {} range(s) in the index (inputFile={})", ranges.size(), inputFile);
+        return ranges;
+    }
+
+    /**
+     * Excludes the files whose up-to-date manifest entries or indices indicate
+     * no records in the time range.
+     */
+    private List<File> pruneFiles(List<File> inputFiles) {
+        if (!timeRangeSpecified) {
+            return inputFiles;
+        }
+        List<File> manifestMatchingInputFiles =
+                HttpRequestRecordManifest.prune(inputFiles, fromTimestampMillis, toTimestampMillis, null);
+        List<File> matchingInputFiles = new ArrayList<>(manifestMatchingInputFiles.size());
+        for (File inputFile : manifestMatchingInputFiles) {
+            if (mightBeInTimeRange(inputFile)) {
+                matchingInputFiles.add(inputFile);
+            }
+        }
+        LOGGER.info("found {} file(s) in the time range out of {}", matchingInputFiles.size(), inputFiles.size());
+        return matchingInputFiles;
+    }
+
+    /**
+     * @return false, if the up-to-date index of the given file indicates no records in the time range
+     */
+    private boolean mightBeInTimeRange(File inputFile) {
+        File indexFile = HttpRequestRecordIndex.getIndexFile(inputFile);
+        if (!indexFile.exists()) {
+            return true;
+        }
+        HttpRequestRecordIndex index = HttpRequestRecordIndex.read(indexFile);
+        return !index.isUpToDate(inputFile)
+                || !index.findRanges(fromTimestampMillis, toTimestampMillis, null).isEmpty();
+    }
+
+    private boolean isInTimeRange(HttpRequestRecord record) {
+        long timestampMillis = record.getTimestamp().getTime();
+        return timestampMillis >= fromTimestampMillis && timestampMillis < toTimestampMillis;
+    }
+
+    private boolean consumeWhile(HttpRequestRecordReaderSource<String> readerSource,
+                                 Callable<Boolean> predicate,
+                                 HttpRequestRecordStreamConsumer consumer) {
+        try {
+            HttpRequestRecordReader<String> reader =
+                    new Base64HttpRequestRecordReader(readerSource, JdkBase64Decoder.getInstance(), payloadStore);
+            Iterator<HttpRequestRecord> iterator = reader.read(this::isInTimeRange).iterator();
+            boolean resuming;
+            while ((resuming = predicate.call()) && iterator.hasNext()) {
+                HttpRequestRecord record = iterator.next();
+                consumer.consume(record);
+            }
+            return resuming;
+        } catch (Throwable error) {
+            String message = String.format("failed consuming from record reader (readerSource=%s)", readerSource);
+            throw new RuntimeException(message, error);
+        } finally {
+            try {
+                readerSource.close();
+            } catch (IOException error) {
+                LOGGER.error("failed closing reader source (readerSource={})", readerSource);
+            }
+        }
+    }
+
 }
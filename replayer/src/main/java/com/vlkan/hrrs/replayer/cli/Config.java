@@ -9,6 +9,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.URI;
+import java.text.ParseException;
 
 public class Config implements JCommanderConfig {
 
@@ -106,7 +107,7 @@ public class Config implements JCommanderConfig {
     @Parameter(
             names = {"--inputUri", "-i"},
             validateWith = UriValidator.class,
-            description = "input URI for HTTP records",
+            description = "input URI for HTTP records (a file, a directory, or a file name glob pattern)",
             required = true)
     private URI inputUri;
 
@@ -114,6 +115,51 @@ public class Config implements JCommanderConfig {
         return inputUri;
     }
 
+    @Parameter(
+            names = {"--payloadStoreUri", "-ps"},
+            validateWith = UriValidator.class,
+            description = "input URI for the payload store directory of records with deduplicated payloads")
+    private URI payloadStoreUri;
+
+    public URI getPayloadStoreUri() {
+        return payloadStoreUri;
+    }
+
+    @Parameter(
+            names = {"--fromTime", "-ft"},
+            validateWith = TimestampValidator.class,
+            description = "replay records recorded at or after the given time (e.g., 20240131-100000.000+0000)")
+    private String fromTime;
+
+    public long getFromTimestampMillis() {
+        return parseTimestamp(fromTime, Long.MIN_VALUE);
+    }
+
+    @Parameter(
+            names = {"--toTime", "-tt"},
+            validateWith = TimestampValidator.class,
+            description = "replay records recorded before the given time (e.g., 20240131-101500.000+0000)")
+    private String toTime;
+
+    public long getToTimestampMillis() {
+        return parseTimestamp(toTime, Long.MAX_VALUE);
+    }
+
+    public boolean isTimeRangeSpecified() {
+        return fromTime != null || toTime != null;
+    }
+
+    private static long parseTimestamp(String timestamp, long defaultTimestampMillis) {
+        if (timestamp == null) {
+            return defaultTimestampMillis;
+        }
+        try {
+            return TimestampValidator.parse(timestamp);
+        } catch (ParseException error) {
+            throw new IllegalArgumentException("invalid timestamp: " + timestamp, error);
+        }
+    }
+
     @Parameter(
             names = {"--jtlOutputFile", "-oj"},
             validateWith = WritableFileValidator.class,
@@ -185,6 +231,9 @@ public class Config implements JCommanderConfig {
         LOGGER.debug("totalDurationSeconds={}", totalDurationSeconds);
         LOGGER.debug("replayOnce={}", replayOnce);
         LOGGER.debug("inputUri={}", inputUri);
+        LOGGER.debug("payloadStoreUri={}", payloadStoreUri);
+        LOGGER.debug("fromTime={}", fromTime);
+        LOGGER.debug("toTime={}", toTime);
         LOGGER.debug("jtlOutputFile={}", jtlOutputFile);
         LOGGER.debug("metricsOutputFile={}", metricsOutputFile);
         LOGGER.debug("metricsOutputPeriodSeconds={}", metricsOutputPeriodSeconds);
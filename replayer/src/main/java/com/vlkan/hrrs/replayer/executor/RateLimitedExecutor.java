@@ -1,6 +1,7 @@
 package com.vlkan.hrrs.replayer.executor;
 
 import com.google.common.util.concurrent.RateLimiter;
+import com.vlkan.hrrs.api.jfr.HrrsEvents;
 import com.vlkan.hrrs.replayer.cli.Config;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -56,7 +57,11 @@ public class RateLimitedExecutor implements CloseableExecutor {
     public void execute(Runnable runnable) {
         checkNotNull(runnable, "runnable");
         rateLimiter.acquire();
-        executorService.execute(runnable);
+        long scheduledTimeNanos = System.nanoTime();
+        executorService.execute(() -> {
+            HrrsEvents.emitReplayDispatch(System.nanoTime() - scheduledTimeNanos);
+            runnable.run();
+        });
     }
 
     @Override
@@ -1,9 +1,12 @@
 package com.vlkan.hrrs.replayer.http;
 
 import com.codahale.metrics.MetricRegistry;
+import com.vlkan.hrrs.api.FlatHttpRequestHeaderList;
 import com.vlkan.hrrs.api.HttpRequestHeader;
 import com.vlkan.hrrs.api.HttpRequestPayload;
 import com.vlkan.hrrs.api.HttpRequestRecord;
+import com.vlkan.hrrs.api.ResponseInfo;
+import com.vlkan.hrrs.api.jfr.HrrsEvents;
 import com.vlkan.hrrs.replayer.cli.Config;
 import com.vlkan.hrrs.replayer.jtl.JtlPrinter;
 import org.apache.http.Header;
@@ -12,7 +15,6 @@ import org.apache.http.HttpEntityEnclosingRequest;
 import org.apache.http.HttpHost;
 import org.apache.http.HttpStatus;
 import org.apache.http.client.methods.*;
-import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -21,6 +23,7 @@ import javax.inject.Inject;
 import javax.inject.Singleton;
 import java.io.IOException;
 import java.net.SocketTimeoutException;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -63,11 +66,12 @@ public class ApacheHttpRequestRecordReplayer implements HttpRequestRecordReplaye
     @Override
     public void replay(HttpRequestRecord record) {
         LOGGER.trace("replaying record (id={})", record.getId());
-        long startTimeMillis = System.currentTimeMillis();
+        long startTimeNanos = System.nanoTime();
         try {
             int statusCode = execute(record);
-            long stopTimeMillis = System.currentTimeMillis();
-            long durationMillis = stopTimeMillis - startTimeMillis;
+            long durationNanos = System.nanoTime() - startTimeNanos;
+            HrrsEvents.emitReplayCompletion(record.getId(), record.getGroupName(), statusCode, durationNanos);
+            long durationMillis = TimeUnit.NANOSECONDS.toMillis(durationNanos);
             report(record, statusCode, durationMillis);
         } catch (Throwable error) {
             String message = String.format("failed replaying record (id=%s)", record.getId());
@@ -102,6 +106,7 @@ public class ApacheHttpRequestRecordReplayer implements HttpRequestRecordReplaye
         metricRegistry.timer("__all__." + statusCode).update(durationMillis, TimeUnit.MILLISECONDS);
         metricRegistry.timer(record.getGroupName()).update(durationMillis, TimeUnit.MILLISECONDS);
         metricRegistry.timer(record.getGroupName() + "." + statusCode).update(durationMillis, TimeUnit.MILLISECONDS);
+        reportRecordedResponse(record, statusCode, durationMillis);
         LOGGER.trace(
                 "replayed record (id={}, method={}, groupName={}, statusCode={}, durationMillis={})",
                 record.getId(),
@@ -111,6 +116,32 @@ public class ApacheHttpRequestRecordReplayer implements HttpRequestRecordReplaye
                 durationMillis);
     }
 
+    /**
+     * Compares the replayed response against the recorded one, if any, i.e.,
+     * updates the {@code <groupName>.latencyDelta} histogram with the
+     * difference of the replayed and the recorded response times, and the
+     * {@code <groupName>.statusMismatch} counter, if the status codes differ.
+     */
+    private void reportRecordedResponse(HttpRequestRecord record, int statusCode, long durationMillis) {
+        ResponseInfo responseInfo = record.getResponseInfo();
+        if (responseInfo == null) {
+            return;
+        }
+        long latencyDeltaMillis = durationMillis - responseInfo.getResponseTime();
+        metricRegistry.histogram("__all__.latencyDelta").update(latencyDeltaMillis);
+        metricRegistry.histogram(record.getGroupName() + ".latencyDelta").update(latencyDeltaMillis);
+        if (statusCode != responseInfo.getStatusCode()) {
+            metricRegistry.counter("__all__.statusMismatch").inc();
+            metricRegistry.counter(record.getGroupName() + ".statusMismatch").inc();
+            LOGGER.trace(
+                    "status mismatch (id={}, groupName={}, recordedStatusCode={}, statusCode={})",
+                    record.getId(),
+                    record.getGroupName(),
+                    responseInfo.getStatusCode(),
+                    statusCode);
+        }
+    }
+
     private HttpUriRequest createHttpUriRequest(HttpRequestRecord record) {
         HttpUriRequest request;
         switch (record.getMethod()) {
@@ -163,20 +194,21 @@ public class ApacheHttpRequestRecordReplayer implements HttpRequestRecordReplaye
 
     private static void addHttpRequestPayload(HttpRequestRecord record, HttpEntityEnclosingRequest request) {
         HttpRequestPayload payload = record.getPayload();
-        byte[] payloadBytes = payload.getBytes();
-        if (payloadBytes.length > 0) {
-            ByteArrayEntity payloadEntity = new ByteArrayEntity(payloadBytes);
+        if (payload.getByteCount() > 0) {
+            HttpRequestPayloadEntity payloadEntity = new HttpRequestPayloadEntity(payload);
             request.setEntity(payloadEntity);
         }
     }
 
     private void addHttpUriRequestHeaders(HttpUriRequest request, HttpRequestRecord record) {
-        for (HttpRequestHeader header : record.getHeaders()) {
-            if (header.getName().equalsIgnoreCase("content-length")) {
+        List<HttpRequestHeader> headers = record.getHeaders();
+        for (int headerIndex = 0; headerIndex < headers.size(); headerIndex++) {
+            String name = FlatHttpRequestHeaderList.nameAt(headers, headerIndex);
+            if (name.equalsIgnoreCase("content-length")) {
                 //skipping
                 continue;
             }
-            request.setHeader(header.getName(), header.getValue());
+            request.setHeader(name, FlatHttpRequestHeaderList.valueAt(headers, headerIndex));
         }
     }
 
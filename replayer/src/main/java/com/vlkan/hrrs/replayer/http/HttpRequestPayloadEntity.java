@@ -0,0 +1,53 @@
+package com.vlkan.hrrs.replayer.http;
+
+import com.google.common.io.ByteStreams;
+import com.vlkan.hrrs.api.HttpRequestPayload;
+import org.apache.http.entity.AbstractHttpEntity;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Repeatable entity streaming the bytes of a {@link HttpRequestPayload},
+ * opening a new stream per access, rather than materializing them.
+ */
+class HttpRequestPayloadEntity extends AbstractHttpEntity {
+
+    private final HttpRequestPayload payload;
+
+    HttpRequestPayloadEntity(HttpRequestPayload payload) {
+        this.payload = checkNotNull(payload, "payload");
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    @Override
+    public long getContentLength() {
+        return payload.getByteCount();
+    }
+
+    @Override
+    public InputStream getContent() throws IOException {
+        return payload.openStream();
+    }
+
+    @Override
+    public void writeTo(OutputStream outputStream) throws IOException {
+        checkNotNull(outputStream, "outputStream");
+        try (InputStream inputStream = payload.openStream()) {
+            ByteStreams.copy(inputStream, outputStream);
+        }
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return false;
+    }
+
+}
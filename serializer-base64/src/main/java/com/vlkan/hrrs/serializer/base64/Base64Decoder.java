@@ -1,7 +1,27 @@
 package com.vlkan.hrrs.serializer.base64;
 
+import java.nio.ByteBuffer;
+
 public interface Base64Decoder {
 
     byte[] decode(String encodedBytes);
 
+    /**
+     * Decodes into the given buffer, advancing its position, which spares the
+     * array allocated by {@link #decode(String)} when the buffer is reused.
+     *
+     * @return the number of decoded bytes
+     * @throws java.nio.BufferOverflowException if the buffer lacks the space
+     *         for {@link #getMaxDecodedByteCount(int)} bytes
+     */
+    default int decode(String encodedBytes, ByteBuffer destination) {
+        byte[] bytes = decode(encodedBytes);
+        destination.put(bytes);
+        return bytes.length;
+    }
+
+    static int getMaxDecodedByteCount(int encodedByteCount) {
+        return (encodedByteCount + 3) / 4 * 3;
+    }
+
 }
@@ -1,7 +1,21 @@
 package com.vlkan.hrrs.serializer.base64;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
 public interface Base64Encoder {
 
     String encode(byte[] bytes);
 
+    /**
+     * Encodes the remaining bytes of the given buffer into a buffer of
+     * US-ASCII characters, advancing the position of the given buffer. Spares
+     * the {@link String} of {@link #encode(byte[])} for byte-oriented targets.
+     */
+    default ByteBuffer encode(ByteBuffer bytes) {
+        byte[] array = new byte[bytes.remaining()];
+        bytes.get(array);
+        return ByteBuffer.wrap(encode(array).getBytes(StandardCharsets.US_ASCII));
+    }
+
 }
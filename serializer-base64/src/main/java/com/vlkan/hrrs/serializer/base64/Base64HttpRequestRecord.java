@@ -11,4 +11,11 @@ public enum Base64HttpRequestRecord {;
 
     public static final String RECORD_SEPARATOR = "\n";
 
+    /**
+     * Payload byte count denoting that the payload is stored in a
+     * {@link com.vlkan.hrrs.serializer.payload.HttpRequestPayloadStore payload store}
+     * and the hash it is referenced by follows.
+     */
+    public static final int PAYLOAD_REFERENCE_BYTE_COUNT = -1;
+
 }
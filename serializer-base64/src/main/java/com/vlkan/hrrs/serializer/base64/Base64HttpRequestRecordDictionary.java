@@ -0,0 +1,90 @@
+package com.vlkan.hrrs.serializer.base64;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Dictionary encoding of the base64-encoded record field.
+ *
+ * A dictionary-encoded field reads as {@code <marker><header>*<body>}, where
+ * both header and body are base64-encoded, and the marker is either
+ * {@link #EPOCH_START_MARKER} or {@link #EPOCH_CONTINUATION_MARKER}, neither
+ * of which is in the base64 alphabet. Dictionaries are adaptive and loosely
+ * follow HPACK: header names, and header values seen more than once, are
+ * appended to the dictionary the first time they get written, and are
+ * referenced by their varint index afterwards. Dictionaries are reset at the
+ * start of every epoch, which spans a fixed number of records, hence a reader
+ * can start decoding at any epoch start. Writers start a new epoch with the
+ * first record of every file a
+ * {@link com.vlkan.hrrs.api.HttpRequestRecordRotatingWriterTarget rotating target}
+ * switches to as well, hence every file can be decoded on its own.
+ *
+ * The header carries the dictionary size prior to the record followed by the
+ * entries appended by the record, which makes it possible to detect gaps and
+ * to maintain the dictionary without decoding the body. The body contains the
+ * URI, the headers as dictionary references, and the payload, where the
+ * payload byte count is one-based and zero denotes a reference to a
+ * {@link com.vlkan.hrrs.serializer.payload.HttpRequestPayloadStore payload store}.
+ */
+public enum Base64HttpRequestRecordDictionary {;
+
+    public static final char EPOCH_START_MARKER = '!';
+
+    public static final char EPOCH_CONTINUATION_MARKER = '*';
+
+    static final char HEADER_SEPARATOR = '*';
+
+    static final int DEFAULT_EPOCH_RECORD_COUNT = 1024;
+
+    static final int MAX_ENTRY_COUNT = 4096;
+
+    static final int MAX_ENTRY_LENGTH = 256;
+
+    static boolean isDictionaryEncoded(String field) {
+        if (field.isEmpty()) {
+            return false;
+        }
+        char marker = field.charAt(0);
+        return marker == EPOCH_START_MARKER || marker == EPOCH_CONTINUATION_MARKER;
+    }
+
+    static void writeVarInt(DataOutput output, int value) throws IOException {
+        checkArgument(value >= 0, "expecting: value >= 0, found: %s", value);
+        while ((value & ~0x7F) != 0) {
+            output.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        output.writeByte(value);
+    }
+
+    static int readVarInt(DataInput input) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = input.readByte();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                checkArgument(value >= 0, "expecting: varint >= 0, found: %s", value);
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("malformed varint");
+    }
+
+    static void writeString(DataOutput output, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(output, bytes.length);
+        output.write(bytes);
+    }
+
+    static String readString(DataInput input) throws IOException {
+        int byteCount = readVarInt(input);
+        byte[] bytes = new byte[byteCount];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,98 @@
+package com.vlkan.hrrs.serializer.base64;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.vlkan.hrrs.serializer.base64.Base64HttpRequestRecordDictionary.*;
+
+/**
+ * Maintains the dictionary of {@link Base64HttpRequestRecordDictionary
+ * dictionary-encoded} records while they are read in order.
+ *
+ * Only record headers are decoded, bodies are left to the records. Entries
+ * are appended in place and a new array is allocated only when the capacity
+ * is exceeded or a new epoch starts, hence records can share the entries
+ * array and access the first {@link #getEntryCount()} entries at any later
+ * point in time.
+ */
+@NotThreadSafe
+class Base64HttpRequestRecordDictionaryDecoder {
+
+    private final Base64Decoder decoder;
+
+    @Nullable
+    private String[] entries = null;
+
+    private int entryCount = 0;
+
+    private String encodedBody;
+
+    Base64HttpRequestRecordDictionaryDecoder(Base64Decoder decoder) {
+        this.decoder = checkNotNull(decoder, "decoder");
+    }
+
+    /**
+     * Decodes the header of the given dictionary-encoded field.
+     *
+     * @return false, if the record cannot be decoded since the stream does not
+     *         start at an epoch start and no epoch start is encountered yet
+     */
+    boolean decode(String field) throws IOException {
+        char marker = field.charAt(0);
+        int separatorIndex = field.indexOf(HEADER_SEPARATOR, 1);
+        checkArgument(separatorIndex > 0, "missing dictionary header separator");
+        byte[] headerBytes = decoder.decode(field.substring(1, separatorIndex));
+        DataInputStream headerStream = new DataInputStream(new ByteArrayInputStream(headerBytes));
+        int dictionarySize = readVarInt(headerStream);
+        int appendedEntryCount = readVarInt(headerStream);
+        if (marker == EPOCH_START_MARKER) {
+            checkArgument(dictionarySize == 0, "expecting: dictionarySize == 0 at epoch start, found: %s", dictionarySize);
+            entries = new String[Math.max(16, appendedEntryCount)];
+            entryCount = 0;
+        } else if (entries == null) {
+            return false;
+        } else if (dictionarySize != entryCount) {
+            String message = String.format(
+                    "dictionary is out of sync (expectedEntryCount=%d, entryCount=%d)",
+                    dictionarySize, entryCount);
+            throw new IllegalStateException(message);
+        }
+        for (int entryIndex = 0; entryIndex < appendedEntryCount; entryIndex++) {
+            String entry = readString(headerStream);
+            if (entryCount == entries.length) {
+                entries = Arrays.copyOf(entries, 2 * entries.length);
+            }
+            entries[entryCount++] = entry;
+        }
+        encodedBody = field.substring(separatorIndex + 1);
+        return true;
+    }
+
+    /**
+     * Forgets the current epoch, e.g., after a damaged record, hence the
+     * records up to the next epoch start cannot be decoded.
+     */
+    void reset() {
+        entries = null;
+        entryCount = 0;
+    }
+
+    String[] getEntries() {
+        return entries;
+    }
+
+    int getEntryCount() {
+        return entryCount;
+    }
+
+    String getEncodedBody() {
+        return encodedBody;
+    }
+
+}
@@ -0,0 +1,180 @@
+package com.vlkan.hrrs.serializer.base64;
+
+import com.vlkan.hrrs.api.FlatHttpRequestHeaderList;
+import com.vlkan.hrrs.api.HttpRequestHeader;
+import com.vlkan.hrrs.api.HttpRequestPayload;
+import com.vlkan.hrrs.api.HttpRequestRecord;
+import com.vlkan.hrrs.serializer.payload.HttpRequestPayloadStore;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.vlkan.hrrs.serializer.base64.Base64HttpRequestRecordDictionary.*;
+
+/**
+ * Encodes records using {@link Base64HttpRequestRecordDictionary dictionary encoding}.
+ * Since the dictionary evolves with every record, records must be encoded in
+ * the order they are written.
+ */
+@NotThreadSafe
+class Base64HttpRequestRecordDictionaryEncoder {
+
+    private final Base64Encoder encoder;
+
+    private final int epochRecordCount;
+
+    @Nullable
+    private final HttpRequestPayloadStore payloadStore;
+
+    private final Map<String, Integer> indices = new HashMap<>();
+
+    private final Set<String> seenValues = new HashSet<>();
+
+    private final List<String> appendedEntries = new ArrayList<>();
+
+    private final ByteArrayOutputStream headerOutputStream = new ByteArrayOutputStream();
+
+    private final DataOutputStream headerStream = new DataOutputStream(headerOutputStream);
+
+    private final ByteArrayOutputStream bodyOutputStream = new ByteArrayOutputStream();
+
+    private final DataOutputStream bodyStream = new DataOutputStream(bodyOutputStream);
+
+    private int epochRecordIndex = 0;
+
+    Base64HttpRequestRecordDictionaryEncoder(Base64Encoder encoder) {
+        this(encoder, null);
+    }
+
+    Base64HttpRequestRecordDictionaryEncoder(Base64Encoder encoder, @Nullable HttpRequestPayloadStore payloadStore) {
+        this(encoder, DEFAULT_EPOCH_RECORD_COUNT, payloadStore);
+    }
+
+    Base64HttpRequestRecordDictionaryEncoder(
+            Base64Encoder encoder,
+            int epochRecordCount,
+            @Nullable HttpRequestPayloadStore payloadStore) {
+        this.encoder = checkNotNull(encoder, "encoder");
+        checkArgument(epochRecordCount > 0, "expecting: epochRecordCount > 0, found: %s", epochRecordCount);
+        this.epochRecordCount = epochRecordCount;
+        this.payloadStore = payloadStore;
+    }
+
+    /**
+     * Starts a new epoch with the next record. To be called when an encoded
+     * record cannot be written, since the dictionary entries appended by the
+     * record would otherwise be missing for the successors.
+     */
+    void reset() {
+        epochRecordIndex = 0;
+    }
+
+    String encode(HttpRequestRecord record) throws IOException {
+        if (epochRecordIndex == epochRecordCount) {
+            epochRecordIndex = 0;
+        }
+        boolean epochStart = epochRecordIndex++ == 0;
+        if (epochStart) {
+            indices.clear();
+            seenValues.clear();
+        }
+        int dictionarySize = indices.size();
+        appendedEntries.clear();
+        bodyOutputStream.reset();
+        try {
+            writeBody(record);
+        } catch (IOException | RuntimeException error) {
+            reset();
+            throw error;
+        }
+        headerOutputStream.reset();
+        writeVarInt(headerStream, dictionarySize);
+        writeVarInt(headerStream, appendedEntries.size());
+        for (String entry : appendedEntries) {
+            writeString(headerStream, entry);
+        }
+        return (epochStart ? EPOCH_START_MARKER : EPOCH_CONTINUATION_MARKER) +
+                encoder.encode(headerOutputStream.toByteArray()) +
+                HEADER_SEPARATOR +
+                encoder.encode(bodyOutputStream.toByteArray());
+    }
+
+    private void writeBody(HttpRequestRecord record) throws IOException {
+        writeString(bodyStream, record.getUri());
+        List<HttpRequestHeader> headers = record.getHeaders();
+        writeVarInt(bodyStream, headers.size());
+        for (int headerIndex = 0; headerIndex < headers.size(); headerIndex++) {
+            writeReference(FlatHttpRequestHeaderList.nameAt(headers, headerIndex), true);
+            writeReference(FlatHttpRequestHeaderList.valueAt(headers, headerIndex), false);
+        }
+        writePayload(record.getPayload());
+    }
+
+    /**
+     * Writes the missing byte count followed by either zero and the hash the
+     * payload is stored by, or the one-based byte count and the bytes.
+     */
+    private void writePayload(HttpRequestPayload payload) throws IOException {
+        writeVarInt(bodyStream, payload.getMissingByteCount());
+        int byteCount = payload.getByteCount();
+        if (payloadStore != null && payloadStore.isStorable(byteCount)) {
+            byte[] bytes = payload.getBytes();
+            byte[] hash = payloadStore.hash(bytes);
+            payloadStore.put(hash, bytes);
+            writeVarInt(bodyStream, 0);
+            bodyStream.write(hash);
+        } else {
+            writeVarInt(bodyStream, byteCount + 1);
+            Base64HttpRequestRecordWriter.writePayloadBytes(payload, bodyStream);
+        }
+    }
+
+    /**
+     * Writes either the one-based index of the given value in the dictionary,
+     * or zero followed by the value itself, if the value is not indexed.
+     */
+    private void writeReference(String value, boolean indexedAtFirstSight) throws IOException {
+        Integer index = indices.get(value);
+        if (index == null && isIndexable(value, indexedAtFirstSight)) {
+            index = indices.size();
+            indices.put(value, index);
+            appendedEntries.add(value);
+        }
+        if (index != null) {
+            writeVarInt(bodyStream, index + 1);
+        } else {
+            writeVarInt(bodyStream, 0);
+            writeString(bodyStream, value);
+        }
+    }
+
+    private boolean isIndexable(String value, boolean indexedAtFirstSight) {
+        if (indices.size() == MAX_ENTRY_COUNT || value.length() > MAX_ENTRY_LENGTH) {
+            return false;
+        }
+        if (indexedAtFirstSight) {
+            return true;
+        }
+        // Index values only at their second sight to keep one-off values, e.g., request ids, out.
+        if (seenValues.remove(value)) {
+            return true;
+        }
+        if (seenValues.size() == MAX_ENTRY_COUNT) {
+            seenValues.clear();
+        }
+        seenValues.add(value);
+        return false;
+    }
+
+}
@@ -0,0 +1,280 @@
+package com.vlkan.hrrs.serializer.base64;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import javax.annotation.Nullable;
+import java.lang.reflect.Constructor;
+import java.nio.ByteBuffer;
+import java.util.function.Supplier;
+import java.util.zip.Checksum;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.vlkan.hrrs.serializer.base64.Base64HttpRequestRecord.CHARSET;
+
+/**
+ * Optional framing of record lines, allowing readers to verify records and to
+ * resynchronize after damaged regions, e.g., a line truncated by a crash
+ * mid-write and followed by the records appended after a restart.
+ *
+ * A framed line is prefixed by the {@link #SYNC_MARKER}, the CRC32C of the
+ * rest of the line (excluding the record separator) in 8 hexadecimal digits,
+ * and a field separator. The marker (ASCII record separator) occurs in
+ * neither the base64-encoded fields nor the ids and group names, hence a
+ * reader can start at an arbitrary offset, skip to the next marker, and
+ * verify the frame before decoding the record. CRC32C is computed by the
+ * intrinsified {@code java.util.zip.CRC32C} on Java 9 and later, and by Guava
+ * otherwise, where both yield the same checksums.
+ */
+public enum Base64HttpRequestRecordFrame {;
+
+    public static final char SYNC_MARKER = '\u001E';
+
+    private static final int CHECKSUM_LENGTH = 8;
+
+    public static final int PREFIX_LENGTH = 1 + CHECKSUM_LENGTH + 1;
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private static final ThreadLocal<Checksum> CHECKSUM = ThreadLocal.withInitial(createChecksumSupplier());
+
+    private static final int CHUNK_LENGTH = 8 * 1024;
+
+    private static final ThreadLocal<byte[]> CHUNK = ThreadLocal.withInitial(() -> new byte[CHUNK_LENGTH]);
+
+    private static Supplier<Checksum> createChecksumSupplier() {
+        try {
+            Constructor<? extends Checksum> constructor = Class
+                    .forName("java.util.zip.CRC32C")
+                    .asSubclass(Checksum.class)
+                    .getConstructor();
+            constructor.newInstance();
+            return () -> {
+                try {
+                    return constructor.newInstance();
+                } catch (ReflectiveOperationException error) {
+                    throw new IllegalStateException("failed creating CRC32C", error);
+                }
+            };
+        } catch (ReflectiveOperationException ignored) {
+            return GuavaCrc32c::new;
+        }
+    }
+
+    /**
+     * @return the CRC32C of the given bytes
+     */
+    static long checksum(byte[] bytes, int offset, int length) {
+        Checksum checksum = CHECKSUM.get();
+        checksum.reset();
+        checksum.update(bytes, offset, length);
+        return checksum.getValue();
+    }
+
+    /**
+     * Computes the CRC32C of the given chars encoded in {@link Base64HttpRequestRecord#CHARSET},
+     * that is, US-ASCII, without encoding them into a new array.
+     *
+     * @return the CRC32C of the given chars
+     */
+    static long checksum(String chars, int offset, int length) {
+        Checksum checksum = CHECKSUM.get();
+        checksum.reset();
+        byte[] chunk = CHUNK.get();
+        int endIndex = offset + length;
+        for (int chunkIndex = offset; chunkIndex < endIndex; chunkIndex += CHUNK_LENGTH) {
+            int chunkLength = Math.min(CHUNK_LENGTH, endIndex - chunkIndex);
+            for (int byteIndex = 0; byteIndex < chunkLength; byteIndex++) {
+                char c = chars.charAt(chunkIndex + byteIndex);
+                // Replacing unmappable chars the same way the US-ASCII encoder does.
+                chunk[byteIndex] = c < 0x80 ? (byte) c : (byte) '?';
+            }
+            checksum.update(chunk, 0, chunkLength);
+        }
+        return checksum.getValue();
+    }
+
+    /**
+     * @param line record line including the record separator
+     * @return the framed line
+     */
+    static String frame(String line) {
+        checkArgument(line.indexOf(SYNC_MARKER) < 0, "records cannot contain the sync marker");
+        long checksum = checksum(line, 0, line.length() - 1);
+        return new StringBuilder(PREFIX_LENGTH + line.length())
+                .append(createPrefix(checksum))
+                .append(line)
+                .toString();
+    }
+
+    /**
+     * @param head fields preceding the encoded record bytes
+     * @param encodedRecordBytes encoded record bytes, which are not consumed
+     * @param tail fields succeeding the encoded record bytes, including the record separator
+     * @return the head prefixed by the frame of the record
+     */
+    static byte[] frame(byte[] head, ByteBuffer encodedRecordBytes, byte[] tail) {
+        checkNoSyncMarker(head, 0, head.length);
+        Checksum checksum = CHECKSUM.get();
+        checksum.reset();
+        checksum.update(head, 0, head.length);
+        if (encodedRecordBytes.hasArray()) {
+            checksum.update(
+                    encodedRecordBytes.array(),
+                    encodedRecordBytes.arrayOffset() + encodedRecordBytes.position(),
+                    encodedRecordBytes.remaining());
+        } else {
+            byte[] bytes = new byte[encodedRecordBytes.remaining()];
+            encodedRecordBytes.duplicate().get(bytes);
+            checksum.update(bytes, 0, bytes.length);
+        }
+        checksum.update(tail, 0, tail.length - 1);
+        byte[] prefix = createPrefix(checksum.getValue()).getBytes(CHARSET);
+        byte[] framedHead = new byte[prefix.length + head.length];
+        System.arraycopy(prefix, 0, framedHead, 0, prefix.length);
+        System.arraycopy(head, 0, framedHead, prefix.length, head.length);
+        return framedHead;
+    }
+
+    private static void checkNoSyncMarker(byte[] bytes, int offset, int length) {
+        checkArgument(
+                indexOfSyncMarker(bytes, offset, offset + length) < 0,
+                "records cannot contain the sync marker");
+    }
+
+    private static String createPrefix(long checksum) {
+        char[] prefix = new char[PREFIX_LENGTH];
+        prefix[0] = SYNC_MARKER;
+        for (int digitIndex = 0; digitIndex < CHECKSUM_LENGTH; digitIndex++) {
+            int shift = 4 * (CHECKSUM_LENGTH - 1 - digitIndex);
+            prefix[1 + digitIndex] = HEX_DIGITS[(int) (checksum >>> shift) & 0xF];
+        }
+        prefix[PREFIX_LENGTH - 1] = Base64HttpRequestRecord.FIELD_SEPARATOR.charAt(0);
+        return new String(prefix);
+    }
+
+    /**
+     * @return the index of the first sync marker in the given range, or -1, if there is none
+     */
+    public static int indexOfSyncMarker(byte[] bytes, int fromIndex, int toIndex) {
+        for (int index = fromIndex; index < toIndex; index++) {
+            if (bytes[index] == SYNC_MARKER) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the first valid frame of the given line (excluding the record
+     * separator), where a frame always spans up to the end of the line.
+     *
+     * @return the index of the sync marker of the valid frame, or -1, if there is none
+     */
+    public static int findFrame(byte[] bytes, int fromIndex, int toIndex) {
+        for (int markerIndex = indexOfSyncMarker(bytes, fromIndex, toIndex);
+             markerIndex >= 0;
+             markerIndex = indexOfSyncMarker(bytes, markerIndex + 1, toIndex)) {
+            if (isValidFrame(bytes, markerIndex, toIndex)) {
+                return markerIndex;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @see #findFrame(byte[], int, int)
+     */
+    public static int findFrame(String line, int fromIndex) {
+        for (int markerIndex = line.indexOf(SYNC_MARKER, fromIndex);
+             markerIndex >= 0;
+             markerIndex = line.indexOf(SYNC_MARKER, markerIndex + 1)) {
+            if (isValidFrame(line, markerIndex)) {
+                return markerIndex;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isValidFrame(byte[] bytes, int markerIndex, int toIndex) {
+        int contentIndex = markerIndex + PREFIX_LENGTH;
+        if (contentIndex > toIndex || bytes[contentIndex - 1] != '\t') {
+            return false;
+        }
+        long expectedChecksum = 0;
+        for (int digitIndex = 1; digitIndex <= CHECKSUM_LENGTH; digitIndex++) {
+            int digit = Character.digit(bytes[markerIndex + digitIndex], 16);
+            if (digit < 0) {
+                return false;
+            }
+            expectedChecksum = (expectedChecksum << 4) | digit;
+        }
+        return checksum(bytes, contentIndex, toIndex - contentIndex) == expectedChecksum;
+    }
+
+    private static boolean isValidFrame(String line, int markerIndex) {
+        int contentIndex = markerIndex + PREFIX_LENGTH;
+        if (contentIndex > line.length() || line.charAt(contentIndex - 1) != '\t') {
+            return false;
+        }
+        long expectedChecksum = 0;
+        for (int digitIndex = 1; digitIndex <= CHECKSUM_LENGTH; digitIndex++) {
+            int digit = Character.digit(line.charAt(markerIndex + digitIndex), 16);
+            if (digit < 0) {
+                return false;
+            }
+            expectedChecksum = (expectedChecksum << 4) | digit;
+        }
+        return checksum(line, contentIndex, line.length() - contentIndex) == expectedChecksum;
+    }
+
+    /**
+     * Strips the frame of the given line (excluding the record separator).
+     *
+     * @return the content of the first valid frame, the line itself, if it is
+     *         not framed, or null, if it is damaged beyond recovery
+     */
+    @Nullable
+    public static String unframe(String line) {
+        int markerIndex = line.indexOf(SYNC_MARKER);
+        if (markerIndex < 0) {
+            return line;
+        }
+        int frameIndex = findFrame(line, markerIndex);
+        return frameIndex < 0 ? null : line.substring(frameIndex + PREFIX_LENGTH);
+    }
+
+    /**
+     * {@link Checksum} view of the CRC32C of Guava for Java 8, where
+     * {@link #getValue()} can be called once per {@link #reset()}.
+     */
+    static final class GuavaCrc32c implements Checksum {
+
+        private static final HashFunction HASH_FUNCTION = Hashing.crc32c();
+
+        private Hasher hasher = HASH_FUNCTION.newHasher();
+
+        @Override
+        public void update(int b) {
+            hasher.putByte((byte) b);
+        }
+
+        @Override
+        public void update(byte[] bytes, int offset, int length) {
+            hasher.putBytes(bytes, offset, length);
+        }
+
+        @Override
+        public long getValue() {
+            return hasher.hash().asInt() & 0xFFFFFFFFL;
+        }
+
+        @Override
+        public void reset() {
+            hasher = HASH_FUNCTION.newHasher();
+        }
+
+    }
+
+}
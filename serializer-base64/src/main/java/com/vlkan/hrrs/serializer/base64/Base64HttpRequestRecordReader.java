@@ -3,6 +3,10 @@ package com.vlkan.hrrs.serializer.base64;
 import com.vlkan.hrrs.api.HttpRequestRecord;
 import com.vlkan.hrrs.api.HttpRequestRecordReader;
 import com.vlkan.hrrs.api.HttpRequestRecordReaderSource;
+import com.vlkan.hrrs.serializer.payload.HttpRequestPayloadStore;
+
+import javax.annotation.Nullable;
+import java.util.function.Predicate;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -12,9 +16,29 @@ public class Base64HttpRequestRecordReader implements HttpRequestRecordReader<St
 
     private final Base64Decoder decoder;
 
+    @Nullable
+    private final HttpRequestPayloadStore payloadStore;
+
     public Base64HttpRequestRecordReader(HttpRequestRecordReaderSource<String> source, Base64Decoder decoder) {
+        this(source, decoder, null);
+    }
+
+    /**
+     * @param payloadStore store to resolve payloads referenced by hash from,
+     *                     see {@link Base64HttpRequestRecordWriter#getPayloadStore()}
+     */
+    public Base64HttpRequestRecordReader(
+            HttpRequestRecordReaderSource<String> source,
+            Base64Decoder decoder,
+            @Nullable HttpRequestPayloadStore payloadStore) {
         this.source = checkNotNull(source, "source");
         this.decoder = checkNotNull(decoder, "decoder");
+        this.payloadStore = payloadStore;
+    }
+
+    @Nullable
+    public HttpRequestPayloadStore getPayloadStore() {
+        return payloadStore;
     }
 
     @Override
@@ -24,7 +48,19 @@ public class Base64HttpRequestRecordReader implements HttpRequestRecordReader<St
 
     @Override
     public Iterable<HttpRequestRecord> read() {
-        return new Base64HttpRequestRecordReaderIterable(source, decoder);
+        return new Base64HttpRequestRecordReaderIterable(source, decoder, payloadStore, null);
+    }
+
+    /**
+     * Reads the records matching the given filter. Only the id, timestamp,
+     * group name, and method of a record are parsed up front, the rest is
+     * decoded on first access. Hence the records rejected by a filter
+     * accessing only these fields are never decoded.
+     */
+    @Override
+    public Iterable<HttpRequestRecord> read(Predicate<? super HttpRequestRecord> filter) {
+        checkNotNull(filter, "filter");
+        return new Base64HttpRequestRecordReaderIterable(source, decoder, payloadStore, filter);
     }
 
 }
@@ -2,8 +2,11 @@ package com.vlkan.hrrs.serializer.base64;
 
 import com.vlkan.hrrs.api.HttpRequestRecord;
 import com.vlkan.hrrs.api.HttpRequestRecordReaderSource;
+import com.vlkan.hrrs.serializer.payload.HttpRequestPayloadStore;
 
+import javax.annotation.Nullable;
 import java.util.Iterator;
+import java.util.function.Predicate;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -13,14 +16,30 @@ public class Base64HttpRequestRecordReaderIterable implements Iterable<HttpReque
 
     private final Base64Decoder decoder;
 
+    @Nullable
+    private final HttpRequestPayloadStore payloadStore;
+
+    @Nullable
+    private final Predicate<? super HttpRequestRecord> filter;
+
     Base64HttpRequestRecordReaderIterable(HttpRequestRecordReaderSource<String> source, Base64Decoder decoder) {
+        this(source, decoder, null, null);
+    }
+
+    Base64HttpRequestRecordReaderIterable(
+            HttpRequestRecordReaderSource<String> source,
+            Base64Decoder decoder,
+            @Nullable HttpRequestPayloadStore payloadStore,
+            @Nullable Predicate<? super HttpRequestRecord> filter) {
         this.source = checkNotNull(source, "source");
         this.decoder = checkNotNull(decoder, "decoder");
+        this.payloadStore = payloadStore;
+        this.filter = filter;
     }
 
     @Override
     public Iterator<HttpRequestRecord> iterator() {
-        return new Base64HttpRequestRecordReaderIterator(source, decoder);
+        return new Base64HttpRequestRecordReaderIterator(source, decoder, payloadStore, filter);
     }
 
 }
@@ -1,14 +1,20 @@
 package com.vlkan.hrrs.serializer.base64;
 
 import com.vlkan.hrrs.api.*;
+import com.vlkan.hrrs.api.jfr.HrrsEvents;
+import com.vlkan.hrrs.api.metric.HrrsMetrics;
+import com.vlkan.hrrs.serializer.payload.HttpRequestPayloadStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.NotThreadSafe;
-import java.io.ByteArrayInputStream;
-import java.io.DataInputStream;
-import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
-import java.util.*;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.function.Predicate;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -17,20 +23,71 @@ import static com.vlkan.hrrs.serializer.base64.Base64HttpRequestRecord.FIELD_SEP
 @NotThreadSafe
 public class Base64HttpRequestRecordReaderIterator implements Iterator<HttpRequestRecord> {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(Base64HttpRequestRecordReaderIterator.class);
+
     private final HttpRequestRecordReaderSource<String> source;
     private final Base64Decoder decoder;
+    @Nullable
+    private final HttpRequestPayloadStore payloadStore;
+    @Nullable
+    private final Predicate<? super HttpRequestRecord> filter;
+    private final Base64HttpRequestRecordDictionaryDecoder dictionaryDecoder;
     private final DateFormat dateFormat = new SimpleDateFormat("yyyyMMdd-HHmmss.SSSZ");
     private long lineIndex = -1;
     private String line;
+    private long readTimeNanos;
+    private long parseTimeNanos;
+    private LazyBase64HttpRequestRecord nextRecord;
+    private long skippedRecordCount = 0;
+    private long damagedRecordCount = 0;
+    // Set once a framed line is encountered, where unframed lines failing to parse are deemed to be damaged rather than fatal.
+    private boolean framed = false;
+    // Reused for decoding records, unless a filter is set, where decoding is deferred to the caller.
+    private ByteBuffer decodeBuffer = ByteBuffer.allocate(0);
 
     Base64HttpRequestRecordReaderIterator(HttpRequestRecordReaderSource<String> source, Base64Decoder decoder) {
+        this(source, decoder, null, null);
+    }
+
+    /**
+     * Creates an iterator over the records matching the given filter. Passed
+     * to the filter and returned are {@link LazyBase64HttpRequestRecord}s,
+     * hence rejected records are never decoded unless the filter accesses
+     * their URI, headers, or payload.
+     */
+    Base64HttpRequestRecordReaderIterator(
+            HttpRequestRecordReaderSource<String> source,
+            Base64Decoder decoder,
+            @Nullable HttpRequestPayloadStore payloadStore,
+            @Nullable Predicate<? super HttpRequestRecord> filter) {
         this.source = checkNotNull(source, "source");
         this.decoder = checkNotNull(decoder, "decoder");
+        this.payloadStore = payloadStore;
+        this.filter = filter;
+        this.dictionaryDecoder = new Base64HttpRequestRecordDictionaryDecoder(decoder);
     }
 
     @Override
     public boolean hasNext() {
+        if (nextRecord != null) {
+            return true;
+        }
+        while (readLine()) {
+            long startTimeNanos = System.nanoTime();
+            LazyBase64HttpRequestRecord record = parseLine();
+            parseTimeNanos = System.nanoTime() - startTimeNanos;
+            if (record != null && matches(record)) {
+                nextRecord = record;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean readLine() {
+        long startTimeNanos = System.nanoTime();
         line = source.read();
+        readTimeNanos = System.nanoTime() - startTimeNanos;
         if (line != null) {
             lineIndex++;
             return true;
@@ -38,97 +95,127 @@ public class Base64HttpRequestRecordReaderIterator implements Iterator<HttpReque
         return false;
     }
 
+    private boolean matches(HttpRequestRecord record) {
+        if (filter == null) {
+            return true;
+        }
+        try {
+            return filter.test(record);
+        } catch (Exception error) {
+            String message = String.format("failed filtering record (lineIndex=%d)", lineIndex);
+            throw new RuntimeException(message, error);
+        }
+    }
+
     @Override
     public HttpRequestRecord next() {
-        checkArgument(lineIndex >= 0, "hasNext() should have been called first");
+        checkArgument(nextRecord != null, "hasNext() should have been called first");
+        LazyBase64HttpRequestRecord lazyRecord = nextRecord;
+        nextRecord = null;
+        if (filter != null) {
+            return lazyRecord;
+        }
+        long startTimeNanos = System.nanoTime();
+        try {
+            int maxDecodedByteCount = lazyRecord.getMaxDecodedByteCount();
+            if (decodeBuffer.capacity() < maxDecodedByteCount) {
+                decodeBuffer = ByteBuffer.allocate(Math.max(maxDecodedByteCount, 2 * decodeBuffer.capacity()));
+            }
+            HttpRequestRecord record = lazyRecord.decode(decodeBuffer);
+            long decodeTimeNanos = parseTimeNanos + System.nanoTime() - startTimeNanos;
+            HrrsEvents.emitReaderDecodeStall(lineIndex, line.length(), readTimeNanos, decodeTimeNanos);
+            return record;
+        } catch (Exception error) {
+            String message = String.format("failed parsing record (lineIndex=%d)", lineIndex);
+            throw new RuntimeException(message, error);
+        }
+    }
+
+    /**
+     * Parses the tab-separated fields preceding the base64-encoded bytes of the
+     * current line, after verifying its {@link Base64HttpRequestRecordFrame frame},
+     * if there is any. The succeeding response fields are parsed on demand.
+     * Damaged lines are skipped, where reading resumes at the first valid
+     * frame of the line, if any.
+     *
+     * @return the parsed record, or null, if the record is damaged, or it is
+     *         dictionary-encoded and the dictionary epoch it belongs to is not
+     *         read from its start
+     */
+    @Nullable
+    private LazyBase64HttpRequestRecord parseLine() {
+        String content = line;
+        int markerIndex = line.indexOf(Base64HttpRequestRecordFrame.SYNC_MARKER);
+        if (markerIndex >= 0) {
+            framed = true;
+            int frameIndex = Base64HttpRequestRecordFrame.findFrame(line, markerIndex);
+            if (frameIndex != 0) {
+                handleDamagedRecord();
+            }
+            if (frameIndex < 0) {
+                return null;
+            }
+            content = line.substring(frameIndex + Base64HttpRequestRecordFrame.PREFIX_LENGTH);
+        }
         try {
-            String[] fields = line.split(FIELD_SEPARATOR, 6);
+            String[] fields = content.split(FIELD_SEPARATOR, 6);
             checkArgument(fields.length >= 5, "insufficient field count (at least 5) but was %s", fields.length);
             String id = fields[0];
             Date timestamp = dateFormat.parse(fields[1]);
             String groupName = fields[2];
             HttpRequestMethod method = HttpRequestMethod.valueOf(fields[3]);
             String encodedRecordBytes = fields[4];
-            byte[] recordBytes = decoder.decode(encodedRecordBytes);
-            return readRecord(id, timestamp, groupName, method, recordBytes);
+            String responseFields = fields.length > 5 ? fields[5] : null;
+            if (!Base64HttpRequestRecordDictionary.isDictionaryEncoded(encodedRecordBytes)) {
+                return new LazyBase64HttpRequestRecord(
+                        lineIndex, id, timestamp, groupName, method,
+                        encodedRecordBytes, responseFields, decoder, payloadStore);
+            }
+            if (!dictionaryDecoder.decode(encodedRecordBytes)) {
+                if (skippedRecordCount++ == 0) {
+                    LOGGER.warn("skipping records preceding the first dictionary epoch start (lineIndex={})", lineIndex);
+                }
+                return null;
+            }
+            return new LazyBase64HttpRequestRecord(
+                    lineIndex, id, timestamp, groupName, method,
+                    dictionaryDecoder.getEncodedBody(), responseFields, decoder, payloadStore,
+                    dictionaryDecoder.getEntries(), dictionaryDecoder.getEntryCount());
         } catch (Exception error) {
+            if (framed && markerIndex < 0) {
+                handleDamagedRecord();
+                return null;
+            }
             String message = String.format("failed parsing record (lineIndex=%d)", lineIndex);
             throw new RuntimeException(message, error);
         }
     }
 
-    private static HttpRequestRecord readRecord(String id, Date timestamp, String groupName, HttpRequestMethod method, byte[] recordBytes) throws IOException {
-        ByteArrayInputStream inputStream = new ByteArrayInputStream(recordBytes);
-        DataInputStream dataInputStream = new DataInputStream(inputStream);
-        return readRecord(id, timestamp, groupName, method, dataInputStream);
+    /**
+     * Counts the damaged record of the current line and forgets the current
+     * dictionary epoch, since the record might have appended entries to it.
+     */
+    private void handleDamagedRecord() {
+        damagedRecordCount++;
+        HrrsMetrics.getInstance().incrementDamagedRecordCount();
+        LOGGER.warn("skipping damaged record (lineIndex={})", lineIndex);
+        dictionaryDecoder.reset();
     }
 
-    private static HttpRequestRecord readRecord(String id, Date timestamp, String groupName, HttpRequestMethod method, DataInputStream stream) throws IOException {
-
-        // Read fields.
-        String uri = stream.readUTF();
-        List<HttpRequestHeader> headers = readHeaders(stream);
-        HttpRequestPayload payload = readPayload(stream);
-
-        // Create record.
-        return ImmutableHttpRequestRecord
-                .newBuilder()
-                .setId(id)
-                .setGroupName(groupName)
-                .setTimestamp(timestamp)
-                .setUri(uri)
-                .setMethod(method)
-                .setHeaders(headers)
-                .setPayload(payload)
-                .setResponseInfo(null)
-                .build();
-
+    /**
+     * @return the number of dictionary-encoded records skipped, since their
+     *         dictionary epoch is not read from its start
+     */
+    public long getSkippedRecordCount() {
+        return skippedRecordCount;
     }
 
-    private static List<HttpRequestHeader> readHeaders(DataInputStream stream) throws IOException {
-
-        // See if there are any headers at all.
-        int headerCount = stream.readInt();
-        checkArgument(headerCount >= 0, "expected: headerCount >= 0, found: %s", headerCount);
-        if (headerCount == 0) {
-            return Collections.emptyList();
-        }
-
-        // Read headers.
-        List<HttpRequestHeader> headers = new ArrayList<>(headerCount);
-        for (int headerIndex = 0; headerIndex < headerCount; headerIndex++) {
-            String name = stream.readUTF();
-            String value = stream.readUTF();
-            ImmutableHttpRequestHeader header = ImmutableHttpRequestHeader
-                    .builder()
-                    .setName(name)
-                    .setValue(value)
-                    .build();
-            headers.add(header);
-        }
-        return headers;
-
-    }
-
-    private static HttpRequestPayload readPayload(DataInputStream stream) throws IOException {
-
-        // Read missing byte count.
-        int missingByteCount = stream.readInt();
-        checkArgument(missingByteCount >= 0, "expected: missingByteCount >= 0, found: %s", missingByteCount);
-
-        // Read bytes.
-        int byteCount = stream.readInt();
-        checkArgument(byteCount >= 0, "expected: byteCount >= 0, found: %s", byteCount);
-        byte[] bytes = new byte[byteCount];
-        int readByteCount = Math.max(0, stream.read(bytes));
-        checkArgument(byteCount == readByteCount, "expected: %s == readByteCount, found: %s", byteCount, readByteCount);
-
-        return ImmutableHttpRequestPayload
-                .newBuilder()
-                .setMissingByteCount(missingByteCount)
-                .setBytes(bytes)
-                .build();
-
+    /**
+     * @return the number of lines failing their {@link Base64HttpRequestRecordFrame frame} checksum,
+     *         or, once framed lines are encountered, failing to parse
+     */
+    public long getDamagedRecordCount() {
+        return damagedRecordCount;
     }
 
     @Override
@@ -0,0 +1,132 @@
+package com.vlkan.hrrs.serializer.base64;
+
+import com.vlkan.hrrs.api.FlatHttpRequestHeaderList;
+import com.vlkan.hrrs.api.HttpRequestHeader;
+import com.vlkan.hrrs.api.HttpRequestPayload;
+import com.vlkan.hrrs.api.ImmutableHttpRequestPayload;
+import com.vlkan.hrrs.api.ResponseInfo;
+
+import javax.annotation.Nullable;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Optional section of record lines carrying the captured response headers
+ * and body, if any, base64-encoded in a separate field succeeding the status
+ * code and the response time. Readers not interested in responses skip the
+ * field without decoding it, and lines without the field read as before.
+ *
+ * The section consists of the header count and the name-value pairs,
+ * followed by a flag denoting the presence of the body, the missing and
+ * recorded byte counts and the recorded bytes of the body, and the length
+ * of the hash of the entire body (zero, if it is not truncated) and the
+ * hash itself.
+ */
+public enum Base64HttpRequestRecordResponse {;
+
+    /**
+     * @return the encoded section, or null, if neither the headers nor the body are captured
+     */
+    @Nullable
+    static String encode(ResponseInfo responseInfo, Base64Encoder encoder) {
+        checkNotNull(responseInfo, "responseInfo");
+        if (!responseInfo.isCaptured()) {
+            return null;
+        }
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (DataOutputStream stream = new DataOutputStream(outputStream)) {
+            writeHeaders(responseInfo.getHeaders(), stream);
+            writeBody(responseInfo.getBody(), responseInfo.getBodyHash(), stream);
+        } catch (IOException error) {
+            throw new RuntimeException("failed encoding response", error);
+        }
+        return encoder.encode(outputStream.toByteArray());
+    }
+
+    private static void writeHeaders(List<HttpRequestHeader> headers, DataOutputStream stream) throws IOException {
+        stream.writeInt(headers.size());
+        for (int headerIndex = 0; headerIndex < headers.size(); headerIndex++) {
+            stream.writeUTF(FlatHttpRequestHeaderList.nameAt(headers, headerIndex));
+            stream.writeUTF(FlatHttpRequestHeaderList.valueAt(headers, headerIndex));
+        }
+    }
+
+    private static void writeBody(
+            @Nullable HttpRequestPayload body,
+            @Nullable byte[] bodyHash,
+            DataOutputStream stream) throws IOException {
+        stream.writeBoolean(body != null);
+        if (body != null) {
+            stream.writeInt(body.getMissingByteCount());
+            stream.writeInt(body.getByteCount());
+            Base64HttpRequestRecordWriter.writePayloadBytes(body, stream);
+        }
+        if (bodyHash != null) {
+            checkArgument(bodyHash.length <= Byte.MAX_VALUE, "expecting: bodyHash.length <= %s, found: %s", Byte.MAX_VALUE, bodyHash.length);
+            stream.writeByte(bodyHash.length);
+            stream.write(bodyHash);
+        } else {
+            stream.writeByte(0);
+        }
+    }
+
+    /**
+     * @param encodedSection the section succeeding the given status code and response time
+     */
+    public static ResponseInfo decode(int statusCode, long responseTime, String encodedSection, Base64Decoder decoder) {
+        checkNotNull(encodedSection, "encodedSection");
+        checkNotNull(decoder, "decoder");
+        byte[] sectionBytes = decoder.decode(encodedSection);
+        try (DataInputStream stream = new DataInputStream(new ByteArrayInputStream(sectionBytes))) {
+            List<HttpRequestHeader> headers = readHeaders(stream);
+            HttpRequestPayload body = stream.readBoolean() ? readBody(stream) : null;
+            int bodyHashByteCount = stream.readByte();
+            checkArgument(bodyHashByteCount >= 0, "expecting: bodyHashByteCount >= 0, found: %s", bodyHashByteCount);
+            byte[] bodyHash = null;
+            if (bodyHashByteCount > 0) {
+                bodyHash = new byte[bodyHashByteCount];
+                stream.readFully(bodyHash);
+            }
+            return new ResponseInfo(statusCode, responseTime, headers, body, bodyHash);
+        } catch (IOException error) {
+            throw new RuntimeException("failed decoding response", error);
+        }
+    }
+
+    private static List<HttpRequestHeader> readHeaders(DataInputStream stream) throws IOException {
+        int headerCount = stream.readInt();
+        checkArgument(headerCount >= 0, "expecting: headerCount >= 0, found: %s", headerCount);
+        if (headerCount == 0) {
+            return Collections.emptyList();
+        }
+        FlatHttpRequestHeaderList.Builder headers = FlatHttpRequestHeaderList.builder(headerCount);
+        for (int headerIndex = 0; headerIndex < headerCount; headerIndex++) {
+            String name = stream.readUTF();
+            String value = stream.readUTF();
+            headers.add(name, value);
+        }
+        return headers.build();
+    }
+
+    private static HttpRequestPayload readBody(DataInputStream stream) throws IOException {
+        int missingByteCount = stream.readInt();
+        int byteCount = stream.readInt();
+        checkArgument(byteCount >= 0, "expecting: byteCount >= 0, found: %s", byteCount);
+        byte[] bytes = new byte[byteCount];
+        stream.readFully(bytes);
+        return ImmutableHttpRequestPayload
+                .newBuilder()
+                .setMissingByteCount(missingByteCount)
+                .setBytes(bytes)
+                .build();
+    }
+
+}
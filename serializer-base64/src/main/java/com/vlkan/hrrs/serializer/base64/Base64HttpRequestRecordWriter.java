@@ -1,12 +1,27 @@
 package com.vlkan.hrrs.serializer.base64;
 
+import com.google.common.io.ByteStreams;
 import com.vlkan.hrrs.api.*;
+import com.vlkan.hrrs.api.metric.HrrsDropReason;
+import com.vlkan.hrrs.api.metric.HrrsMetrics;
+import com.vlkan.hrrs.api.metric.HrrsRecordCountingTarget;
+import com.vlkan.hrrs.serializer.file.HttpRequestRecordWriterRotatingFileTarget;
+import com.vlkan.hrrs.serializer.payload.HttpRequestPayloadStore;
+import com.vlkan.hrrs.serializer.stripe.HttpRequestRecordStripedWriter;
+import com.vlkan.hrrs.serializer.stripe.HttpRequestRecordStripes;
+import com.vlkan.rfos.RotationConfig;
 
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
 import java.io.ByteArrayOutputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.List;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -16,18 +31,134 @@ public class Base64HttpRequestRecordWriter implements HttpRequestRecordWriter<St
 
     protected final Base64Encoder encoder;
     protected final HttpRequestRecordWriterTarget<String> target;
+    @Nullable
+    @GuardedBy("this")
+    final Base64HttpRequestRecordDictionaryEncoder dictionaryEncoder;
+    @Nullable
+    final HttpRequestPayloadStore payloadStore;
+    /**
+     * The {@link #target}, if it accepts bytes, otherwise null.
+     */
+    @Nullable
+    final HttpRequestRecordByteWriterTarget byteTarget;
+    /**
+     * The {@link #target}, if it rotates files, otherwise null.
+     */
+    @Nullable
+    private final HttpRequestRecordRotatingWriterTarget rotatingTarget;
+    /**
+     * The {@link HttpRequestRecordRotatingWriterTarget#getRotationCount() rotation count}
+     * of the {@link #rotatingTarget} as of the last dictionary encoded record.
+     */
+    @GuardedBy("this")
+    private long rotationCount;
+    final boolean framed;
+    /**
+     * False, if the {@link #target} counts the records it accepts itself.
+     */
+    final boolean recordCounting;
     private final DateFormat dateFormat = new SimpleDateFormat("yyyyMMdd-HHmmss.SSSZ");
 
     protected Base64HttpRequestRecordWriter(HttpRequestRecordWriterTarget<String> target, Base64Encoder encoder) {
+        this(target, encoder, Base64HttpRequestRecordWriterOptions.DEFAULT);
+    }
+
+    protected Base64HttpRequestRecordWriter(
+            HttpRequestRecordWriterTarget<String> target,
+            Base64Encoder encoder,
+            Base64HttpRequestRecordWriterOptions options) {
         this.target = checkNotNull(target, "target");
         this.encoder = checkNotNull(encoder, "encoder");
+        checkNotNull(options, "options");
+        this.payloadStore = options.getPayloadStore();
+        this.byteTarget = target instanceof HttpRequestRecordByteWriterTarget
+                ? (HttpRequestRecordByteWriterTarget) target
+                : null;
+        this.rotatingTarget = target instanceof HttpRequestRecordRotatingWriterTarget
+                ? (HttpRequestRecordRotatingWriterTarget) target
+                : null;
+        this.rotationCount = rotatingTarget != null ? rotatingTarget.getRotationCount() : 0;
+        this.dictionaryEncoder = options.isDictionaryEncoded()
+                ? new Base64HttpRequestRecordDictionaryEncoder(encoder, payloadStore)
+                : null;
+        this.framed = options.isFramed();
+        this.recordCounting = !(target instanceof HrrsRecordCountingTarget);
     }
 
     public static Base64HttpRequestRecordWriter createBase64HttpRequestRecordWriter(HttpRequestRecordWriterTarget<String> target, Base64Encoder encoder) {
+        return createBase64HttpRequestRecordWriter(target, encoder, Base64HttpRequestRecordWriterOptions.DEFAULT);
+    }
+
+    /**
+     * Creates a queueing writer, unless the {@code use.hrrs.vanilla} system property is set.
+     * The {@link Base64HttpRequestRecordWriterOptions#getStripeCount() stripe count} is ignored.
+     */
+    public static Base64HttpRequestRecordWriter createBase64HttpRequestRecordWriter(
+            HttpRequestRecordWriterTarget<String> target,
+            Base64Encoder encoder,
+            Base64HttpRequestRecordWriterOptions options) {
         if (System.getProperty("use.hrrs.vanilla") != null) {
-            return new Base64HttpRequestRecordWriter(target, encoder);
+            return new Base64HttpRequestRecordWriter(target, encoder, options);
+        }
+        return new QueueBase64HttpRequestRecordWriter(target, encoder, options);
+    }
+
+    /**
+     * Creates a {@link HttpRequestRecordStripedWriter striped writer}, where each of the given
+     * targets is written by its own thread, e.g., to scale capture with the number of cores.
+     * The {@link Base64HttpRequestRecordWriterOptions#getStripeCount() stripe count} is ignored.
+     *
+     * @param targets segment targets of the stripes
+     */
+    public static HttpRequestRecordStripedWriter<String> createStripedBase64HttpRequestRecordWriter(
+            List<? extends HttpRequestRecordWriterTarget<String>> targets,
+            Base64Encoder encoder,
+            Base64HttpRequestRecordWriterOptions options) {
+        checkNotNull(targets, "targets");
+        List<Base64HttpRequestRecordWriter> writers = new ArrayList<>(targets.size());
+        for (HttpRequestRecordWriterTarget<String> target : targets) {
+            writers.add(new Base64HttpRequestRecordWriter(target, encoder, options));
+        }
+        return new HttpRequestRecordStripedWriter<>(writers);
+    }
+
+    /**
+     * Creates a writer of the given rotating file, which is
+     * {@link #createStripedBase64HttpRequestRecordWriter(List, Base64Encoder, Base64HttpRequestRecordWriterOptions) striped}
+     * into {@link HttpRequestRecordStripes#createStripeRotationConfig(RotationConfig, int) segments},
+     * if the {@link Base64HttpRequestRecordWriterOptions#getStripeCount() stripe count} is greater than 1.
+     * The writer and its {@link HttpRequestRecordWriter#getTarget() target} are to be closed by the caller.
+     */
+    public static HttpRequestRecordWriter<String> createRotatingFileBase64HttpRequestRecordWriter(
+            RotationConfig rotationConfig,
+            Base64Encoder encoder,
+            Base64HttpRequestRecordWriterOptions options) {
+        checkNotNull(rotationConfig, "rotationConfig");
+        checkNotNull(options, "options");
+        int stripeCount = options.getStripeCount();
+        if (stripeCount == 1) {
+            HttpRequestRecordWriterTarget<String> target = new HttpRequestRecordWriterRotatingFileTarget(rotationConfig, CHARSET);
+            return createBase64HttpRequestRecordWriter(target, encoder, options);
+        }
+        List<HttpRequestRecordWriterTarget<String>> targets = new ArrayList<>(stripeCount);
+        for (int stripeIndex = 0; stripeIndex < stripeCount; stripeIndex++) {
+            RotationConfig stripeRotationConfig = HttpRequestRecordStripes.createStripeRotationConfig(rotationConfig, stripeIndex);
+            targets.add(new HttpRequestRecordWriterRotatingFileTarget(stripeRotationConfig, CHARSET));
         }
-        return new QueueBase64HttpRequestRecordWriter(target, encoder);
+        return createStripedBase64HttpRequestRecordWriter(targets, encoder, options);
+    }
+
+    public boolean isDictionaryEncoded() {
+        return dictionaryEncoder != null;
+    }
+
+    public boolean isFramed() {
+        return framed;
+    }
+
+    @Nullable
+    public HttpRequestPayloadStore getPayloadStore() {
+        return payloadStore;
     }
 
     @Override
@@ -39,34 +170,150 @@ public class Base64HttpRequestRecordWriter implements HttpRequestRecordWriter<St
     public void write(HttpRequestRecord record) throws IOException {
         //get out of sync code
         try {
-            String formattedDate = dateFormat.format(record.getTimestamp());
-            StringBuilder toBeRecorded = new StringBuilder(512);
-            byte[] recordBytes = writeRecord(record);
-            String encodedRecordBytes = encoder.encode(recordBytes);
-            toBeRecorded
-                    .append(record.getId())
-                    .append(FIELD_SEPARATOR)
-                    .append(formattedDate)
-                    .append(FIELD_SEPARATOR)
-                    .append(record.getGroupName())
-                    .append(FIELD_SEPARATOR)
-                    .append(record.getMethod().toString())
-                    .append(FIELD_SEPARATOR)
-                    .append(encodedRecordBytes)
-                    .append(FIELD_SEPARATOR)
-                    .append(record.getResponseInfo().getStatusCode())
-                    .append(FIELD_SEPARATOR)
-                    .append(record.getResponseInfo().getResponseTime())
-                    .append(RECORD_SEPARATOR);
-            synchronized (this) {
-                target.write(toBeRecorded.toString());
+            int byteCount;
+            if (dictionaryEncoder == null) {
+                byte[] payloadHash = hashPayload(record.getPayload());
+                if (payloadHash != null) {
+                    payloadStore.put(payloadHash, record.getPayload().getBytes());
+                }
+                byte[] recordBytes = writeRecord(record, payloadHash);
+                if (byteTarget != null) {
+                    ByteBuffer encodedRecordBytes = encoder.encode(ByteBuffer.wrap(recordBytes));
+                    String head = formatHead(record);
+                    String tail = formatTail(record);
+                    synchronized (this) {
+                        byteCount = writeBytes(byteTarget, head, encodedRecordBytes, tail, framed);
+                    }
+                } else {
+                    String content = formatRecord(record, encoder.encode(recordBytes));
+                    synchronized (this) {
+                        target.write(content);
+                    }
+                    byteCount = content.length();
+                }
+            } else {
+                // Dictionary evolves per record, hence records need to be encoded in the order they are written.
+                synchronized (this) {
+                    String encodedRecordBytes = encodeDictionary(record);
+                    try {
+                        String content = formatRecord(record, encodedRecordBytes);
+                        target.write(content);
+                        byteCount = content.length();
+                    } catch (RuntimeException error) {
+                        dictionaryEncoder.reset();
+                        throw error;
+                    }
+                }
             }
+            HrrsMetrics metrics = HrrsMetrics.getInstance();
+            if (recordCounting) {
+                metrics.incrementRecordedCount();
+            }
+            metrics.addSerializedByteCount(byteCount);
         } catch (Exception error) {
+            HrrsMetrics.getInstance().incrementDroppedCount(HrrsDropReason.SERIALIZATION_FAILURE);
             String message = String.format("record serialization failure (id=%s)", record.getId());
             throw new RuntimeException(message, error);
         }
     }
 
+    /**
+     * Encodes the record using the dictionary, where a new epoch is started
+     * with the first record of every file the target rotates to, hence every
+     * file can be decoded on its own.
+     */
+    @GuardedBy("this")
+    String encodeDictionary(HttpRequestRecord record) throws IOException {
+        if (rotatingTarget != null) {
+            long lastRotationCount = rotationCount;
+            rotationCount = rotatingTarget.getRotationCount();
+            if (rotationCount != lastRotationCount) {
+                dictionaryEncoder.reset();
+            }
+        }
+        return dictionaryEncoder.encode(record);
+    }
+
+    private String formatRecord(HttpRequestRecord record, String encodedRecordBytes) {
+        String content = formatHead(record) + encodedRecordBytes + formatTail(record);
+        return framed ? Base64HttpRequestRecordFrame.frame(content) : content;
+    }
+
+    /**
+     * @return the fields preceding the encoded record bytes, including the trailing separator
+     */
+    String formatHead(HttpRequestRecord record) {
+        String formattedDate = dateFormat.format(record.getTimestamp());
+        return new StringBuilder(128)
+                .append(record.getId())
+                .append(FIELD_SEPARATOR)
+                .append(formattedDate)
+                .append(FIELD_SEPARATOR)
+                .append(record.getGroupName())
+                .append(FIELD_SEPARATOR)
+                .append(record.getMethod().toString())
+                .append(FIELD_SEPARATOR)
+                .toString();
+    }
+
+    /**
+     * @return the fields succeeding the encoded record bytes, including the
+     *         leading and record separators, where the captured response, if
+     *         any, is appended as a {@link Base64HttpRequestRecordResponse section},
+     *         or only the record separator, if the record has no response info
+     */
+    String formatTail(HttpRequestRecord record) {
+        ResponseInfo responseInfo = record.getResponseInfo();
+        if (responseInfo == null) {
+            return RECORD_SEPARATOR;
+        }
+        String encodedResponse = Base64HttpRequestRecordResponse.encode(responseInfo, encoder);
+        StringBuilder tailBuilder = new StringBuilder(encodedResponse != null ? 32 + encodedResponse.length() : 32)
+                .append(FIELD_SEPARATOR)
+                .append(responseInfo.getStatusCode())
+                .append(FIELD_SEPARATOR)
+                .append(responseInfo.getResponseTime());
+        if (encodedResponse != null) {
+            tailBuilder.append(FIELD_SEPARATOR).append(encodedResponse);
+        }
+        return tailBuilder.append(RECORD_SEPARATOR).toString();
+    }
+
+    /**
+     * Writes the record using a single gathering write, sparing the encoded
+     * record bytes the round trip through a {@link String}.
+     *
+     * @param framed prefix the record with its {@link Base64HttpRequestRecordFrame frame}
+     * @return the number of bytes written
+     */
+    static int writeBytes(
+            HttpRequestRecordByteWriterTarget byteTarget,
+            String head,
+            ByteBuffer encodedRecordBytes,
+            String tail,
+            boolean framed) {
+        byte[] headBytes = head.getBytes(CHARSET);
+        byte[] tailBytes = tail.getBytes(CHARSET);
+        if (framed) {
+            headBytes = Base64HttpRequestRecordFrame.frame(headBytes, encodedRecordBytes, tailBytes);
+        }
+        ByteBuffer headBuffer = ByteBuffer.wrap(headBytes);
+        ByteBuffer tailBuffer = ByteBuffer.wrap(tailBytes);
+        int byteCount = headBuffer.remaining() + encodedRecordBytes.remaining() + tailBuffer.remaining();
+        byteTarget.write(headBuffer, encodedRecordBytes, tailBuffer);
+        return byteCount;
+    }
+
+    /**
+     * Flushes the target while holding the lock records are written with.
+     */
+    @Override
+    public void flush() throws InterruptedException {
+        synchronized (this) {
+            target.flush();
+        }
+    }
+
     @Override
     public void close() throws InterruptedException {
 
@@ -77,33 +324,65 @@ public class Base64HttpRequestRecordWriter implements HttpRequestRecordWriter<St
         return true;
     }
 
-    private byte[] writeRecord(HttpRequestRecord record) throws IOException {
+    /**
+     * @return the hash of the given payload, if it is to be stored in the payload store, otherwise null
+     */
+    @Nullable
+    byte[] hashPayload(HttpRequestPayload payload) {
+        return payloadStore != null && payloadStore.isStorable(payload.getByteCount())
+                ? payloadStore.hash(payload.getBytes())
+                : null;
+    }
+
+    /**
+     * @param payloadHash if not null, the hash the payload is referenced by instead of its bytes
+     */
+    static byte[] writeRecord(HttpRequestRecord record, @Nullable byte[] payloadHash) throws IOException {
         ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
         DataOutputStream dataOutputStream = new DataOutputStream(outputStream);
-        writeRecord(record, dataOutputStream);
+        writeRecord(record, payloadHash, dataOutputStream);
         dataOutputStream.flush();
         return outputStream.toByteArray();
     }
 
-    private static void writeRecord(HttpRequestRecord record, DataOutputStream stream) throws IOException {
+    private static void writeRecord(HttpRequestRecord record, @Nullable byte[] payloadHash, DataOutputStream stream) throws IOException {
         stream.writeUTF(record.getUri());
         writeHeaders(record.getHeaders(), stream);
-        writePayload(record.getPayload(), stream);
+        writePayload(record.getPayload(), payloadHash, stream);
     }
 
     private static void writeHeaders(List<HttpRequestHeader> headers, DataOutputStream stream) throws IOException {
         int headerCount = headers.size();
         stream.writeInt(headerCount);
-        for (HttpRequestHeader header : headers) {
-            stream.writeUTF(header.getName());
-            stream.writeUTF(header.getValue());
+        for (int headerIndex = 0; headerIndex < headerCount; headerIndex++) {
+            stream.writeUTF(FlatHttpRequestHeaderList.nameAt(headers, headerIndex));
+            stream.writeUTF(FlatHttpRequestHeaderList.valueAt(headers, headerIndex));
         }
     }
 
-    private static void writePayload(HttpRequestPayload payload, DataOutputStream stream) throws IOException {
+    private static void writePayload(HttpRequestPayload payload, @Nullable byte[] payloadHash, DataOutputStream stream) throws IOException {
         stream.writeInt(payload.getMissingByteCount());
-        stream.writeInt(payload.getBytes().length);
-        stream.write(payload.getBytes());
+        if (payloadHash != null) {
+            stream.writeInt(PAYLOAD_REFERENCE_BYTE_COUNT);
+            stream.write(payloadHash);
+        } else {
+            stream.writeInt(payload.getByteCount());
+            writePayloadBytes(payload, stream);
+        }
+    }
+
+    /**
+     * Writes the bytes of the given payload, streaming them, unless they are
+     * already on the heap.
+     */
+    static void writePayloadBytes(HttpRequestPayload payload, OutputStream stream) throws IOException {
+        if (payload instanceof ImmutableHttpRequestPayload) {
+            stream.write(payload.getBytes());
+        } else {
+            try (InputStream inputStream = payload.openStream()) {
+                ByteStreams.copy(inputStream, stream);
+            }
+        }
     }
 
 }
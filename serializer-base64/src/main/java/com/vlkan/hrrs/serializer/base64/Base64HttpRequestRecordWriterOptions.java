@@ -0,0 +1,128 @@
+package com.vlkan.hrrs.serializer.base64;
+
+import com.google.common.base.MoreObjects;
+import com.vlkan.hrrs.serializer.payload.HttpRequestPayloadStore;
+import com.vlkan.hrrs.serializer.stripe.HttpRequestRecordStripedWriter;
+import com.vlkan.hrrs.serializer.stripe.HttpRequestRecordStripes;
+import com.vlkan.rfos.RotationConfig;
+
+import javax.annotation.Nullable;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Options of {@link Base64HttpRequestRecordWriter}s, where the defaults
+ * write plain records to a single file.
+ */
+public class Base64HttpRequestRecordWriterOptions {
+
+    public static final Base64HttpRequestRecordWriterOptions DEFAULT = newBuilder().build();
+
+    private final boolean dictionaryEncoded;
+
+    @Nullable
+    private final HttpRequestPayloadStore payloadStore;
+
+    private final boolean framed;
+
+    private final int stripeCount;
+
+    private Base64HttpRequestRecordWriterOptions(Builder builder) {
+        this.dictionaryEncoded = builder.dictionaryEncoded;
+        this.payloadStore = builder.payloadStore;
+        this.framed = builder.framed;
+        checkArgument(builder.stripeCount > 0, "expecting: stripeCount > 0, found: %s", builder.stripeCount);
+        this.stripeCount = builder.stripeCount;
+    }
+
+    public boolean isDictionaryEncoded() {
+        return dictionaryEncoded;
+    }
+
+    @Nullable
+    public HttpRequestPayloadStore getPayloadStore() {
+        return payloadStore;
+    }
+
+    public boolean isFramed() {
+        return framed;
+    }
+
+    public int getStripeCount() {
+        return stripeCount;
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+
+        private boolean dictionaryEncoded = false;
+
+        @Nullable
+        private HttpRequestPayloadStore payloadStore;
+
+        private boolean framed = false;
+
+        private int stripeCount = 1;
+
+        private Builder() {
+            // Do nothing.
+        }
+
+        /**
+         * @param dictionaryEncoded encode header names and frequent header values
+         *                          using an adaptive dictionary, see
+         *                          {@link Base64HttpRequestRecordDictionary}
+         */
+        public Builder setDictionaryEncoded(boolean dictionaryEncoded) {
+            this.dictionaryEncoded = dictionaryEncoded;
+            return this;
+        }
+
+        /**
+         * @param payloadStore if not null, payloads {@link HttpRequestPayloadStore#isStorable(int) worth a
+         *                     reference} are stored in the given store and referenced by their hashes
+         */
+        public Builder setPayloadStore(@Nullable HttpRequestPayloadStore payloadStore) {
+            this.payloadStore = payloadStore;
+            return this;
+        }
+
+        /**
+         * @param framed prefix every record with a sync marker and its CRC32C, allowing
+         *               readers to skip damaged records, see {@link Base64HttpRequestRecordFrame}
+         */
+        public Builder setFramed(boolean framed) {
+            this.framed = framed;
+            return this;
+        }
+
+        /**
+         * @param stripeCount if greater than 1, records written to a {@link RotationConfig rotating file}
+         *                    are written using a {@link HttpRequestRecordStripedWriter striped writer} to as many
+         *                    {@link HttpRequestRecordStripes#createStripeRotationConfig(RotationConfig, int) segments}
+         */
+        public Builder setStripeCount(int stripeCount) {
+            this.stripeCount = stripeCount;
+            return this;
+        }
+
+        public Base64HttpRequestRecordWriterOptions build() {
+            return new Base64HttpRequestRecordWriterOptions(this);
+        }
+
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("dictionaryEncoded", dictionaryEncoded)
+                .add("payloadStore", payloadStore)
+                .add("framed", framed)
+                .add("stripeCount", stripeCount)
+                .toString();
+    }
+
+}
@@ -0,0 +1,416 @@
+package com.vlkan.hrrs.serializer.base64;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Objects;
+import com.vlkan.hrrs.api.FlatHttpRequestHeaderList;
+import com.vlkan.hrrs.api.HttpRequestHeader;
+import com.vlkan.hrrs.api.HttpRequestMethod;
+import com.vlkan.hrrs.api.HttpRequestPayload;
+import com.vlkan.hrrs.api.HttpRequestRecord;
+import com.vlkan.hrrs.api.ImmutableHttpRequestPayload;
+import com.vlkan.hrrs.api.ImmutableHttpRequestRecord;
+import com.vlkan.hrrs.api.ResponseInfo;
+import com.vlkan.hrrs.serializer.payload.HttpRequestPayloadStore;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Record whose id, timestamp, group name, and method are parsed eagerly,
+ * whereas the base64-encoded URI, headers, and payload are decoded on first
+ * access, in the order they are serialized. The response fields succeeding
+ * the encoded bytes are parsed on first access as well, where the
+ * {@link Base64HttpRequestRecordResponse response section}, if any, is decoded.
+ *
+ * Records {@link Base64HttpRequestRecordDictionary dictionary-encoded} are
+ * passed the dictionary entries they reference, where header names and
+ * values get resolved via array lookups. Payloads referenced by hash are
+ * resolved from the {@link HttpRequestPayloadStore payload store} passed.
+ */
+@NotThreadSafe
+class LazyBase64HttpRequestRecord implements HttpRequestRecord {
+
+    private final long lineIndex;
+
+    private final String id;
+
+    private final Date timestamp;
+
+    private final String groupName;
+
+    private final HttpRequestMethod method;
+
+    private String encodedRecordBytes;
+
+    /**
+     * Fields succeeding the encoded record bytes, i.e., the status code, the
+     * response time, and the response section, if any, or null, if either
+     * there are none or they are already parsed.
+     */
+    @Nullable
+    private String responseFields;
+
+    private final Base64Decoder decoder;
+
+    @Nullable
+    private HttpRequestPayloadStore payloadStore;
+
+    @Nullable
+    private String[] dictionaryEntries;
+
+    private final int dictionaryEntryCount;
+
+    private DataInputStream stream;
+
+    private String uri;
+
+    private List<HttpRequestHeader> headers;
+
+    private HttpRequestPayload payload;
+
+    @Nullable
+    private ResponseInfo responseInfo;
+
+    LazyBase64HttpRequestRecord(long lineIndex,
+                                String id,
+                                Date timestamp,
+                                String groupName,
+                                HttpRequestMethod method,
+                                String encodedRecordBytes,
+                                @Nullable String responseFields,
+                                Base64Decoder decoder,
+                                @Nullable HttpRequestPayloadStore payloadStore) {
+        this(lineIndex, id, timestamp, groupName, method, encodedRecordBytes, responseFields, decoder, payloadStore, null, 0);
+    }
+
+    /**
+     * @param encodedRecordBytes either the entire encoded field, or the
+     *                           encoded body of a dictionary-encoded field
+     * @param responseFields the tab-separated fields succeeding the encoded
+     *                       field, or null, if there are none
+     * @param dictionaryEntries entries of the dictionary the record is
+     *                          encoded with, or null, if it is not
+     *                          dictionary-encoded
+     */
+    LazyBase64HttpRequestRecord(long lineIndex,
+                                String id,
+                                Date timestamp,
+                                String groupName,
+                                HttpRequestMethod method,
+                                String encodedRecordBytes,
+                                @Nullable String responseFields,
+                                Base64Decoder decoder,
+                                @Nullable HttpRequestPayloadStore payloadStore,
+                                @Nullable String[] dictionaryEntries,
+                                int dictionaryEntryCount) {
+        this.lineIndex = lineIndex;
+        this.id = checkNotNull(id, "id");
+        this.timestamp = checkNotNull(timestamp, "timestamp");
+        this.groupName = checkNotNull(groupName, "groupName");
+        this.method = checkNotNull(method, "method");
+        this.encodedRecordBytes = checkNotNull(encodedRecordBytes, "encodedRecordBytes");
+        this.responseFields = responseFields;
+        this.decoder = checkNotNull(decoder, "decoder");
+        this.payloadStore = payloadStore;
+        this.dictionaryEntries = dictionaryEntries;
+        this.dictionaryEntryCount = dictionaryEntryCount;
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public Date getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public String getGroupName() {
+        return groupName;
+    }
+
+    @Override
+    public HttpRequestMethod getMethod() {
+        return method;
+    }
+
+    @Override
+    public String getUri() {
+        if (uri == null) {
+            try {
+                if (stream == null) {
+                    openStream();
+                }
+                uri = dictionaryEntries != null
+                        ? Base64HttpRequestRecordDictionary.readString(stream)
+                        : stream.readUTF();
+            } catch (Exception error) {
+                throw createDecodeFailure("uri", error);
+            }
+        }
+        return uri;
+    }
+
+    @Override
+    public List<HttpRequestHeader> getHeaders() {
+        if (headers == null) {
+            getUri();
+            try {
+                headers = dictionaryEntries != null
+                        ? readDictionaryEncodedHeaders(stream)
+                        : readHeaders(stream);
+            } catch (Exception error) {
+                throw createDecodeFailure("headers", error);
+            }
+        }
+        return headers;
+    }
+
+    @Override
+    public HttpRequestPayload getPayload() {
+        if (payload == null) {
+            getHeaders();
+            try {
+                payload = dictionaryEntries != null
+                        ? readDictionaryEncodedPayload(stream)
+                        : readPayload(stream);
+            } catch (Exception error) {
+                throw createDecodeFailure("payload", error);
+            }
+            // Release the encoded and decoded bytes, they are not needed anymore.
+            stream = null;
+            encodedRecordBytes = null;
+            payloadStore = null;
+            dictionaryEntries = null;
+        }
+        return payload;
+    }
+
+    @Nullable
+    @Override
+    public ResponseInfo getResponseInfo() {
+        if (responseFields != null) {
+            try {
+                responseInfo = parseResponseInfo(responseFields, decoder);
+            } catch (Exception error) {
+                throw createDecodeFailure("response", error);
+            }
+            responseFields = null;
+        }
+        return responseInfo;
+    }
+
+    /**
+     * @return the response info of the given status code, response time, and
+     *         response section (if any) fields, or null, if there are none
+     */
+    @Nullable
+    private static ResponseInfo parseResponseInfo(String responseFields, Base64Decoder decoder) {
+        if (responseFields.isEmpty()) {
+            return null;
+        }
+        String[] fields = responseFields.split(Base64HttpRequestRecord.FIELD_SEPARATOR, 3);
+        checkArgument(fields.length >= 2, "insufficient response field count (at least 2) but was %s", fields.length);
+        int statusCode = Integer.parseInt(fields[0]);
+        long responseTime = Long.parseLong(fields[1]);
+        return fields.length > 2
+                ? Base64HttpRequestRecordResponse.decode(statusCode, responseTime, fields[2], decoder)
+                : new ResponseInfo(statusCode, responseTime);
+    }
+
+    boolean isDecoded() {
+        return stream != null || payload != null;
+    }
+
+    int getMaxDecodedByteCount() {
+        checkState(encodedRecordBytes != null, "record is already decoded");
+        return Base64Decoder.getMaxDecodedByteCount(encodedRecordBytes.length());
+    }
+
+    /**
+     * Decodes the entire record into an immutable one, where the record bytes
+     * are decoded into the given array-backed buffer of at least
+     * {@link #getMaxDecodedByteCount()} bytes, which can be reused once this
+     * method returns.
+     */
+    HttpRequestRecord decode(ByteBuffer buffer) {
+        checkState(!isDecoded(), "record is already decoded");
+        buffer.clear();
+        int byteCount;
+        try {
+            byteCount = decoder.decode(encodedRecordBytes, buffer);
+        } catch (Exception error) {
+            throw createDecodeFailure("record", error);
+        }
+        ByteArrayInputStream inputStream = new ByteArrayInputStream(buffer.array(), buffer.arrayOffset(), byteCount);
+        stream = new DataInputStream(inputStream);
+        return toBuilder().build();
+    }
+
+    private void openStream() {
+        byte[] recordBytes = decoder.decode(encodedRecordBytes);
+        ByteArrayInputStream inputStream = new ByteArrayInputStream(recordBytes);
+        stream = new DataInputStream(inputStream);
+    }
+
+    private RuntimeException createDecodeFailure(String fieldName, Exception error) {
+        String message = String.format("failed decoding %s (lineIndex=%d, id=%s)", fieldName, lineIndex, id);
+        return new RuntimeException(message, error);
+    }
+
+    private static List<HttpRequestHeader> readHeaders(DataInputStream stream) throws IOException {
+
+        // See if there are any headers at all.
+        int headerCount = stream.readInt();
+        checkArgument(headerCount >= 0, "expected: headerCount >= 0, found: %s", headerCount);
+        if (headerCount == 0) {
+            return Collections.emptyList();
+        }
+
+        // Read headers.
+        FlatHttpRequestHeaderList.Builder headers = FlatHttpRequestHeaderList.builder(headerCount);
+        for (int headerIndex = 0; headerIndex < headerCount; headerIndex++) {
+            String name = stream.readUTF();
+            String value = stream.readUTF();
+            headers.add(name, value);
+        }
+        return headers.build();
+
+    }
+
+    private List<HttpRequestHeader> readDictionaryEncodedHeaders(DataInputStream stream) throws IOException {
+        int headerCount = Base64HttpRequestRecordDictionary.readVarInt(stream);
+        if (headerCount == 0) {
+            return Collections.emptyList();
+        }
+        FlatHttpRequestHeaderList.Builder headers = FlatHttpRequestHeaderList.builder(headerCount);
+        for (int headerIndex = 0; headerIndex < headerCount; headerIndex++) {
+            String name = readDictionaryReference(stream);
+            String value = readDictionaryReference(stream);
+            headers.add(name, value);
+        }
+        return headers.build();
+    }
+
+    private String readDictionaryReference(DataInputStream stream) throws IOException {
+        int reference = Base64HttpRequestRecordDictionary.readVarInt(stream);
+        if (reference == 0) {
+            return Base64HttpRequestRecordDictionary.readString(stream);
+        }
+        checkArgument(
+                reference <= dictionaryEntryCount,
+                "expecting: reference <= %s, found: %s", dictionaryEntryCount, reference);
+        return dictionaryEntries[reference - 1];
+    }
+
+    private HttpRequestPayload readDictionaryEncodedPayload(DataInputStream stream) throws IOException {
+        int missingByteCount = Base64HttpRequestRecordDictionary.readVarInt(stream);
+        int byteCount = Base64HttpRequestRecordDictionary.readVarInt(stream) - 1;
+        byte[] bytes;
+        if (byteCount < 0) {
+            bytes = readPayloadReference(stream);
+        } else {
+            bytes = new byte[byteCount];
+            stream.readFully(bytes);
+        }
+        return ImmutableHttpRequestPayload
+                .newBuilder()
+                .setMissingByteCount(missingByteCount)
+                .setBytes(bytes)
+                .build();
+    }
+
+    private byte[] readPayloadReference(DataInputStream stream) throws IOException {
+        checkState(payloadStore != null, "payload is referenced by hash, but no payload store is provided");
+        byte[] hash = new byte[HttpRequestPayloadStore.HASH_BYTE_COUNT];
+        stream.readFully(hash);
+        return payloadStore.get(hash);
+    }
+
+    private HttpRequestPayload readPayload(DataInputStream stream) throws IOException {
+
+        // Read missing byte count.
+        int missingByteCount = stream.readInt();
+        checkArgument(missingByteCount >= 0, "expected: missingByteCount >= 0, found: %s", missingByteCount);
+
+        // Read bytes, either referenced or inline.
+        int byteCount = stream.readInt();
+        if (byteCount == Base64HttpRequestRecord.PAYLOAD_REFERENCE_BYTE_COUNT) {
+            return ImmutableHttpRequestPayload
+                    .newBuilder()
+                    .setMissingByteCount(missingByteCount)
+                    .setBytes(readPayloadReference(stream))
+                    .build();
+        }
+        checkArgument(byteCount >= 0, "expected: byteCount >= 0, found: %s", byteCount);
+        byte[] bytes = new byte[byteCount];
+        int readByteCount = Math.max(0, stream.read(bytes));
+        checkArgument(byteCount == readByteCount, "expected: %s == readByteCount, found: %s", byteCount, readByteCount);
+
+        return ImmutableHttpRequestPayload
+                .newBuilder()
+                .setMissingByteCount(missingByteCount)
+                .setBytes(bytes)
+                .build();
+
+    }
+
+    @Override
+    public ImmutableHttpRequestRecord.Builder toBuilder() {
+        return ImmutableHttpRequestRecord
+                .newBuilder()
+                .setId(id)
+                .setTimestamp(timestamp)
+                .setGroupName(groupName)
+                .setUri(getUri())
+                .setMethod(method)
+                .setHeaders(getHeaders())
+                .setPayload(getPayload())
+                .setResponseInfo(getResponseInfo());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        LazyBase64HttpRequestRecord that = (LazyBase64HttpRequestRecord) o;
+        return Objects.equal(id, that.id) &&
+                Objects.equal(timestamp, that.timestamp) &&
+                Objects.equal(groupName, that.groupName) &&
+                method == that.method &&
+                Objects.equal(getUri(), that.getUri()) &&
+                Objects.equal(getHeaders(), that.getHeaders()) &&
+                Objects.equal(getPayload(), that.getPayload());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(id, timestamp, groupName, getUri(), method, getHeaders(), getPayload());
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects
+                .toStringHelper(this)
+                .add("id", id)
+                .add("timestamp", timestamp)
+                .add("groupName", groupName)
+                .add("method", method)
+                .add("decoded", payload != null)
+                .toString();
+    }
+
+}
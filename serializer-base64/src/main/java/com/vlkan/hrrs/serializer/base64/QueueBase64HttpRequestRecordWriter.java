@@ -1,76 +1,193 @@
 package com.vlkan.hrrs.serializer.base64;
 
 import com.vlkan.hrrs.api.*;
+import com.vlkan.hrrs.api.jfr.HrrsEvents;
+import com.vlkan.hrrs.api.metric.HrrsDropReason;
+import com.vlkan.hrrs.api.metric.HrrsMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.ByteArrayOutputStream;
-import java.io.DataOutputStream;
+import javax.annotation.Nullable;
 import java.io.IOException;
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
 import static com.vlkan.hrrs.serializer.base64.Base64HttpRequestRecord.*;
 
 public class QueueBase64HttpRequestRecordWriter extends Base64HttpRequestRecordWriter implements HttpRequestRecordWriter<String> {
     private static final Logger LOGGER = LoggerFactory.getLogger(QueueBase64HttpRequestRecordWriter.class);
-    private static final String ENCODED_DATA_PLACEHOLDER = "<!--ENCODED_DATA-->";
-    private final DateFormat dateFormat = new SimpleDateFormat("yyyyMMdd-HHmmss.SSSZ");
     private static volatile boolean stop = false;
     private static CountDownLatch stopped = new CountDownLatch(1);
     private static CountDownLatch started = new CountDownLatch(1);
     private long lastFlush = System.currentTimeMillis();
-    private static volatile DoWithRecord doWithRecord = null;
+    // Handles of the records written asynchronously since the last flush, accessed by the writer thread only.
+    private final List<CompletableFuture<Void>> unflushedCompletions = new ArrayList<>();
+    private final DoWithRecord doWithRecord;
     private static final int CAPACITY = 1000;
     private static BlockingQueue<ToBeRecorded> queue = new ArrayBlockingQueue<>(CAPACITY);
+    private static final HrrsMetrics METRICS = HrrsMetrics.getInstance();
+    // Writers of the records of the current batch, accessed by the writer thread only.
+    private static final List<QueueBase64HttpRequestRecordWriter> batchWriters = new ArrayList<>();
 
     private static class ToBeRecorded {
-        String content;
+        // Writer the record (or the flush barrier) belongs to, which is null for the stop signal.
+        QueueBase64HttpRequestRecordWriter owner;
+        String id;
+        // Fields preceding and succeeding the encoded record bytes, where an empty head denotes the stop signal.
+        String head;
+        String tail;
         byte[] binaryData;
+        // Set instead of binaryData for dictionary encoding, which needs to take place in write order.
+        HttpRequestRecord record;
+        // Set for payloads referenced by hash, which get stored by the writer thread rather than the caller.
+        byte[] payloadHash;
+        byte[] payloadBytes;
+        // Set for asynchronous writes and flush barriers, to be completed once the target is flushed.
+        CompletableFuture<Void> completion;
+        // Set for flush barriers, which carry no record.
+        boolean barrier;
 
-        public ToBeRecorded(String content) {
-            this.content = content;
+        public ToBeRecorded(String head, String tail) {
+            this.head = head;
+            this.tail = tail;
         }
     }
 
     private interface DoWithRecord {
-        void apply(ToBeRecorded record) throws Exception;
+        /**
+         * @return the length of the written record
+         */
+        int apply(ToBeRecorded record) throws Exception;
     }
 
+    // Keeps on writing the enqueued entries after the stop signal, until the queue is drained.
+    // Entries enqueued once the writer is stopped are taken back and rejected by their callers.
     private static Thread writer = new Thread(() -> {
         started.countDown();
+        List<ToBeRecorded> batch = new ArrayList<>(CAPACITY);
         while (!stop || !queue.isEmpty()) {
             try {
                 ToBeRecorded toBeRecorded = queue.poll(50, TimeUnit.MILLISECONDS);
                 if (toBeRecorded == null) {
                     continue;
                 }
-                if (toBeRecorded.content.isEmpty()) {
-                    //stop signal detected
-                    LOGGER.info("Stop signal detected");
-                    break;
-                }
-                try {
-                    doWithRecord.apply(toBeRecorded);
-                } catch (Exception error) {
-                    String message = String.format("record serialization failure (id=%s)", toBeRecorded);
-                    throw new RuntimeException(message, error);
-                }
+                batch.add(toBeRecorded);
+                queue.drainTo(batch, CAPACITY - 1);
+                writeBatch(batch);
+                batch.clear();
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
                 LOGGER.info("Interruption detected");
+                stop = true;
+                rejectQueued();
                 break;
             }
         }
         LOGGER.info("Writer is stopped");
         stopped.countDown();
     });
+
+    /**
+     * Writes the given batch of records, each using the writer it belongs to,
+     * and flushes the targets of these writers, if due. Failures are logged
+     * and counted rather than killing the writer thread.
+     */
+    private static void writeBatch(List<ToBeRecorded> batch) {
+        long startTimeNanos = System.nanoTime();
+        long byteCount = 0;
+        int recordCount = 0;
+        for (ToBeRecorded toBeRecorded : batch) {
+            if (toBeRecorded.head.isEmpty()) {
+                LOGGER.info("Stop signal detected");
+                continue;
+            }
+            recordCount++;
+            QueueBase64HttpRequestRecordWriter owner = toBeRecorded.owner;
+            if (!batchWriters.contains(owner)) {
+                batchWriters.add(owner);
+            }
+            try {
+                int recordLength = owner.doWithRecord.apply(toBeRecorded);
+                if (!toBeRecorded.barrier) {
+                    if (owner.recordCounting) {
+                        METRICS.incrementRecordedCount();
+                    }
+                    METRICS.addSerializedByteCount(recordLength);
+                    byteCount += recordLength;
+                }
+            } catch (Exception error) {
+                if (toBeRecorded.completion != null) {
+                    toBeRecorded.completion.completeExceptionally(error);
+                }
+                if (toBeRecorded.barrier) {
+                    LOGGER.error("flush failure", error);
+                    continue;
+                }
+                METRICS.incrementDroppedCount(HrrsDropReason.WRITE_FAILURE);
+                LOGGER.error("record write failure (id={})", toBeRecorded.id, error);
+            }
+        }
+        for (QueueBase64HttpRequestRecordWriter batchWriter : batchWriters) {
+            try {
+                batchWriter.flushTargetIfDue();
+            } catch (RuntimeException error) {
+                LOGGER.error("flush failure", error);
+            }
+        }
+        batchWriters.clear();
+        if (recordCount > 0) {
+            long durationNanos = System.nanoTime() - startTimeNanos;
+            METRICS.updateWriterBatchLatencyNanos(durationNanos);
+            HrrsEvents.emitWriterBatchFlush(recordCount, byteCount, durationNanos);
+        }
+    }
+
+    /**
+     * Takes the given entry back from the queue, if the writer is stopped and
+     * the entry is not taken by the writer thread, and completes it exceptionally.
+     *
+     * @return true, if the entry is rejected
+     */
+    private static boolean rejectIfStopped(ToBeRecorded toBeRecorded) {
+        if (!stop || !queue.remove(toBeRecorded)) {
+            return false;
+        }
+        reject(toBeRecorded);
+        return true;
+    }
+
+    /**
+     * Completes the entries left in the queue exceptionally.
+     */
+    private static void rejectQueued() {
+        List<ToBeRecorded> entries = new ArrayList<>();
+        queue.drainTo(entries);
+        for (ToBeRecorded toBeRecorded : entries) {
+            if (!toBeRecorded.head.isEmpty()) {
+                reject(toBeRecorded);
+            }
+        }
+    }
+
+    private static void reject(ToBeRecorded toBeRecorded) {
+        if (!toBeRecorded.barrier) {
+            METRICS.incrementDroppedCount(HrrsDropReason.TARGET_UNAVAILABLE);
+            LOGGER.warn("Writer is stopped. Skipping writing to file... (id={})", toBeRecorded.id);
+        }
+        if (toBeRecorded.completion != null) {
+            toBeRecorded.completion.completeExceptionally(new IOException("writer is closed"));
+        }
+    }
+
     static {
+        METRICS.setQueue(queue::size, CAPACITY);
         writer.setName("HRRS Writer");
         if (!stop) {
             LOGGER.info("Writer is ready");
@@ -79,19 +196,85 @@ public class QueueBase64HttpRequestRecordWriter extends Base64HttpRequestRecordW
     }
 
     public QueueBase64HttpRequestRecordWriter(HttpRequestRecordWriterTarget<String> target, Base64Encoder encoder) {
-        super(target, encoder);
-        //stop signal detected
-        QueueBase64HttpRequestRecordWriter.doWithRecord = record -> {
-            String content = record.content;
-            String encodedRecordBytes = encoder.encode(record.binaryData);
-            content = content.replace(ENCODED_DATA_PLACEHOLDER, encodedRecordBytes);
-            target.write(content);
-            if (queue.isEmpty() || (System.currentTimeMillis() - lastFlush > 10000)) {
-                target.flush();
+        this(target, encoder, Base64HttpRequestRecordWriterOptions.DEFAULT);
+    }
+
+    public QueueBase64HttpRequestRecordWriter(
+            HttpRequestRecordWriterTarget<String> target,
+            Base64Encoder encoder,
+            Base64HttpRequestRecordWriterOptions options) {
+        super(target, encoder, options);
+        this.doWithRecord = record -> {
+            if (record.barrier) {
+                flushTarget();
+                record.completion.complete(null);
+                return 0;
+            }
+            if (record.payloadHash != null) {
+                payloadStore.put(record.payloadHash, record.payloadBytes);
+            }
+            int byteCount;
+            if (record.record == null && byteTarget != null) {
+                ByteBuffer encodedRecordBytes = encoder.encode(ByteBuffer.wrap(record.binaryData));
+                byteCount = writeBytes(byteTarget, record.head, encodedRecordBytes, record.tail, framed);
+            } else {
+                String encodedRecordBytes = record.record != null
+                        ? encodeDictionary(record.record)
+                        : encoder.encode(record.binaryData);
+                String content = record.head + encodedRecordBytes + record.tail;
+                try {
+                    if (framed) {
+                        content = Base64HttpRequestRecordFrame.frame(content);
+                    }
+                    target.write(content);
+                } catch (RuntimeException error) {
+                    if (record.record != null) {
+                        dictionaryEncoder.reset();
+                    }
+                    throw error;
+                }
+                byteCount = content.length();
+            }
+            if (record.completion != null) {
+                unflushedCompletions.add(record.completion);
             }
+            return byteCount;
         };
     }
 
+    /**
+     * Flushes the target, if the queue is drained, there are records written
+     * asynchronously, or the last flush is old enough. Called by the writer
+     * thread at the end of every batch this writer has records in.
+     */
+    private void flushTargetIfDue() {
+        if (queue.isEmpty() || !unflushedCompletions.isEmpty() || (System.currentTimeMillis() - lastFlush > 10000)) {
+            flushTarget();
+        }
+    }
+
+    /**
+     * Flushes the target and completes the handles of the records written
+     * asynchronously so far, exceptionally, if the flush fails. Called by
+     * the writer thread, or once it is stopped.
+     */
+    private void flushTarget() {
+        try {
+            target.flush();
+        } catch (RuntimeException error) {
+            for (CompletableFuture<Void> completion : unflushedCompletions) {
+                completion.completeExceptionally(error);
+            }
+            unflushedCompletions.clear();
+            throw error;
+        }
+        lastFlush = System.currentTimeMillis();
+        for (CompletableFuture<Void> completion : unflushedCompletions) {
+            completion.complete(null);
+        }
+        unflushedCompletions.clear();
+    }
+
     @Override
     public HttpRequestRecordWriterTarget<String> getTarget() {
         return target;
@@ -99,6 +282,33 @@ public class QueueBase64HttpRequestRecordWriter extends Base64HttpRequestRecordW
 
     @Override
     public void write(HttpRequestRecord record) throws IOException {
+        enqueue(record, null);
+    }
+
+    /**
+     * Enqueues the record, where the returned handle is completed by the
+     * writer thread once the target is flushed, or exceptionally, if the
+     * record is dropped.
+     */
+    @Override
+    public CompletableFuture<Void> writeAsync(HttpRequestRecord record) {
+        CompletableFuture<Void> completion = new CompletableFuture<>();
+        try {
+            if (!enqueue(record, completion)) {
+                String message = String.format("queue overflow (id=%s, capacity=%d)", record.getId(), CAPACITY);
+                completion.completeExceptionally(new IOException(message));
+            }
+        } catch (IOException | RuntimeException error) {
+            completion.completeExceptionally(error);
+        }
+        return completion;
+    }
+
+    /**
+     * @return false, if the record is dropped due to queue overflow
+     * @throws IOException if the writer is closed, where the record is dropped
+     */
+    private boolean enqueue(HttpRequestRecord record, @Nullable CompletableFuture<Void> completion) throws IOException {
         try {
             started.await();
         } catch (InterruptedException e) {
@@ -106,60 +316,75 @@ public class QueueBase64HttpRequestRecordWriter extends Base64HttpRequestRecordW
             LOGGER.error("Cannot wait till Writer is started");
             throw new IllegalStateException();
         }
+        if (stop) {
+            METRICS.incrementDroppedCount(HrrsDropReason.TARGET_UNAVAILABLE);
+            throw new IOException("writer is closed");
+        }
         //get out of sync code
-        String formattedDate = dateFormat.format(record.getTimestamp());
-        StringBuilder toBeRecorded = new StringBuilder(512);
-        byte[] recordBytes = writeRecord(record);
-
-        toBeRecorded
-                .append(record.getId())
-                .append(FIELD_SEPARATOR)
-                .append(formattedDate)
-                .append(FIELD_SEPARATOR)
-                .append(record.getGroupName())
-                .append(FIELD_SEPARATOR)
-                .append(record.getMethod().toString())
-                .append(FIELD_SEPARATOR)
-                .append(ENCODED_DATA_PLACEHOLDER)
-                .append(FIELD_SEPARATOR)
-                .append(record.getResponseInfo().getStatusCode())
-                .append(FIELD_SEPARATOR)
-                .append(record.getResponseInfo().getResponseTime())
-                .append(RECORD_SEPARATOR);
-        ToBeRecorded toRecord = new ToBeRecorded(toBeRecorded.toString());
+        byte[] recordBytes = null;
+        byte[] payloadHash = null;
+        try {
+            if (dictionaryEncoder == null) {
+                payloadHash = hashPayload(record.getPayload());
+                recordBytes = writeRecord(record, payloadHash);
+            }
+        } catch (IOException | RuntimeException error) {
+            METRICS.incrementDroppedCount(HrrsDropReason.SERIALIZATION_FAILURE);
+            throw error;
+        }
+
+        ToBeRecorded toRecord = new ToBeRecorded(formatHead(record), formatTail(record));
+        toRecord.owner = this;
+        toRecord.id = record.getId();
         toRecord.binaryData = recordBytes;
+        if (payloadHash != null) {
+            toRecord.payloadHash = payloadHash;
+            toRecord.payloadBytes = record.getPayload().getBytes();
+        }
+        if (dictionaryEncoder != null) {
+            toRecord.record = record;
+        }
+        toRecord.completion = completion;
         if (!queue.offer(toRecord)) {
+            METRICS.incrementDroppedCount(HrrsDropReason.QUEUE_OVERFLOW);
+            HrrsEvents.emitQueueOverflow(record.getId(), CAPACITY);
             LOGGER.warn("Queue is overflowed. Skipping writing to file...");
+            return false;
         }
-    }
-
-    private byte[] writeRecord(HttpRequestRecord record) throws IOException {
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        DataOutputStream dataOutputStream = new DataOutputStream(outputStream);
-        writeRecord(record, dataOutputStream);
-        dataOutputStream.flush();
-        return outputStream.toByteArray();
-    }
-
-    private static void writeRecord(HttpRequestRecord record, DataOutputStream stream) throws IOException {
-        stream.writeUTF(record.getUri());
-        writeHeaders(record.getHeaders(), stream);
-        writePayload(record.getPayload(), stream);
-    }
-
-    private static void writeHeaders(List<HttpRequestHeader> headers, DataOutputStream stream) throws IOException {
-        int headerCount = headers.size();
-        stream.writeInt(headerCount);
-        for (HttpRequestHeader header : headers) {
-            stream.writeUTF(header.getName());
-            stream.writeUTF(header.getValue());
+        if (rejectIfStopped(toRecord)) {
+            throw new IOException("writer is closed");
         }
+        METRICS.updateQueueWatermark(queue.size());
+        return true;
     }
 
-    private static void writePayload(HttpRequestPayload payload, DataOutputStream stream) throws IOException {
-        stream.writeInt(payload.getMissingByteCount());
-        stream.writeInt(payload.getBytes().length);
-        stream.write(payload.getBytes());
+    /**
+     * Enqueues a barrier, blocking while the queue is full, and waits for
+     * the writer thread to write the records preceding it and flush the target.
+     */
+    @Override
+    public void flush() throws InterruptedException {
+        started.await();
+        if (stop) {
+            stopped.await();
+            flushTarget();
+            return;
+        }
+        ToBeRecorded barrier = new ToBeRecorded("barrier", "");
+        barrier.owner = this;
+        barrier.barrier = true;
+        barrier.completion = new CompletableFuture<>();
+        queue.put(barrier);
+        if (rejectIfStopped(barrier)) {
+            stopped.await();
+            flushTarget();
+            return;
+        }
+        try {
+            barrier.completion.get();
+        } catch (ExecutionException error) {
+            throw new RuntimeException("flush failure", error.getCause());
+        }
     }
 
     public boolean isReady() throws InterruptedException {
@@ -167,12 +392,21 @@ public class QueueBase64HttpRequestRecordWriter extends Base64HttpRequestRecordW
         return queue.isEmpty();
     }
 
+    /**
+     * Stops the writer thread shared by all writers once the entries enqueued
+     * so far are written. Records written afterwards are dropped.
+     */
     @Override
     public void close() throws InterruptedException {
         LOGGER.info("Stopping...");
         stop = true;
-        queue.put(new ToBeRecorded(""));
+        // Wakes the writer thread up, if the queue is not full.
+        queue.offer(new ToBeRecorded("", ""));
         stopped.await();
+        // The writer thread is gone, hence the handles of the records written since the last flush are completed here.
+        if (!unflushedCompletions.isEmpty()) {
+            flushTarget();
+        }
     }
 
     public static String getStat() {
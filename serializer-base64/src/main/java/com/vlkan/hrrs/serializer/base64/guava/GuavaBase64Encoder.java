@@ -2,6 +2,9 @@ package com.vlkan.hrrs.serializer.base64.guava;
 
 import com.vlkan.hrrs.serializer.base64.Base64Encoder;
 
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
 import static com.google.common.base.Preconditions.checkNotNull;
 
 public class GuavaBase64Encoder implements Base64Encoder {
@@ -22,4 +25,14 @@ public class GuavaBase64Encoder implements Base64Encoder {
         return GuavaBase64.BASE_ENCODING.encode(bytes);
     }
 
+    /**
+     * Encodes using {@link Base64#getEncoder()}, which shares the alphabet and
+     * padding of {@link GuavaBase64#BASE_ENCODING}, yet encodes buffers directly.
+     */
+    @Override
+    public ByteBuffer encode(ByteBuffer bytes) {
+        checkNotNull(bytes, "bytes");
+        return Base64.getEncoder().encode(bytes);
+    }
+
 }
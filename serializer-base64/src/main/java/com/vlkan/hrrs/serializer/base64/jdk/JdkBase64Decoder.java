@@ -0,0 +1,133 @@
+package com.vlkan.hrrs.serializer.base64.jdk;
+
+import com.vlkan.hrrs.serializer.base64.Base64Decoder;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Decoder backed by {@link Base64#getDecoder()}, which HotSpot compiles to
+ * SIMD instructions on platforms supporting them.
+ *
+ * {@link #decode(String, ByteBuffer)} passes buffers backed by an array
+ * starting at their position to {@link Base64.Decoder#decode(byte[], byte[])},
+ * which spares the decoded array. Since the latter cannot decode into a slice
+ * of an array, the rest of the buffers are served by a table-driven loop
+ * reading the characters of the string straight into the buffer.
+ */
+public class JdkBase64Decoder implements Base64Decoder {
+
+    private static final JdkBase64Decoder INSTANCE = new JdkBase64Decoder();
+
+    private static final Base64.Decoder DECODER = Base64.getDecoder();
+
+    private static final char PADDING = '=';
+
+    private static final int[] DECODING_TABLE = createDecodingTable();
+
+    private static int[] createDecodingTable() {
+        int[] table = new int[128];
+        Arrays.fill(table, -1);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        for (int index = 0; index < alphabet.length(); index++) {
+            table[alphabet.charAt(index)] = index;
+        }
+        return table;
+    }
+
+    private JdkBase64Decoder() {
+        // Do nothing.
+    }
+
+    public static JdkBase64Decoder getInstance() {
+        return INSTANCE;
+    }
+
+    @Override
+    public byte[] decode(String encodedBytes) {
+        checkNotNull(encodedBytes, "encodedBytes");
+        return DECODER.decode(encodedBytes);
+    }
+
+    @Override
+    public int decode(String encodedBytes, ByteBuffer destination) {
+        checkNotNull(encodedBytes, "encodedBytes");
+        checkNotNull(destination, "destination");
+
+        // Strip the padding and determine the decoded length.
+        int charCount = encodedBytes.length();
+        int paddingCount = 0;
+        while (paddingCount < 2 && charCount > 0 && encodedBytes.charAt(charCount - 1) == PADDING) {
+            charCount--;
+            paddingCount++;
+        }
+        int remainderCharCount = charCount % 4;
+        if (remainderCharCount == 1 || (paddingCount > 0 && (charCount + paddingCount) % 4 != 0)) {
+            String message = String.format("invalid base64 length (length=%d)", encodedBytes.length());
+            throw new IllegalArgumentException(message);
+        }
+        int byteCount = charCount / 4 * 3 + (remainderCharCount == 0 ? 0 : remainderCharCount - 1);
+        if (destination.remaining() < byteCount) {
+            throw new BufferOverflowException();
+        }
+        if (destination.hasArray() && destination.arrayOffset() + destination.position() == 0) {
+            byte[] encodedByteArray = encodedBytes.getBytes(StandardCharsets.ISO_8859_1);
+            int decodedByteCount = DECODER.decode(encodedByteArray, destination.array());
+            destination.position(decodedByteCount);
+            return decodedByteCount;
+        }
+
+        // Decode the full quantums.
+        int fullCharCount = charCount - remainderCharCount;
+        boolean arrayBacked = destination.hasArray();
+        byte[] array = arrayBacked ? destination.array() : null;
+        int offset = arrayBacked ? destination.arrayOffset() + destination.position() : 0;
+        for (int charIndex = 0; charIndex < fullCharCount; charIndex += 4) {
+            int bits = (decodeChar(encodedBytes, charIndex) << 18)
+                    | (decodeChar(encodedBytes, charIndex + 1) << 12)
+                    | (decodeChar(encodedBytes, charIndex + 2) << 6)
+                    | decodeChar(encodedBytes, charIndex + 3);
+            if (arrayBacked) {
+                array[offset++] = (byte) (bits >> 16);
+                array[offset++] = (byte) (bits >> 8);
+                array[offset++] = (byte) bits;
+            } else {
+                destination.put((byte) (bits >> 16));
+                destination.put((byte) (bits >> 8));
+                destination.put((byte) bits);
+            }
+        }
+        if (arrayBacked) {
+            destination.position(offset - destination.arrayOffset());
+        }
+
+        // Decode the trailing partial quantum.
+        if (remainderCharCount > 0) {
+            int bits = (decodeChar(encodedBytes, fullCharCount) << 18)
+                    | (decodeChar(encodedBytes, fullCharCount + 1) << 12);
+            destination.put((byte) (bits >> 16));
+            if (remainderCharCount == 3) {
+                bits |= decodeChar(encodedBytes, fullCharCount + 2) << 6;
+                destination.put((byte) (bits >> 8));
+            }
+        }
+
+        return byteCount;
+    }
+
+    private static int decodeChar(String encodedBytes, int charIndex) {
+        char c = encodedBytes.charAt(charIndex);
+        int value = c < DECODING_TABLE.length ? DECODING_TABLE[c] : -1;
+        if (value < 0) {
+            String message = String.format("invalid base64 character (index=%d, character=%s)", charIndex, c);
+            throw new IllegalArgumentException(message);
+        }
+        return value;
+    }
+
+}
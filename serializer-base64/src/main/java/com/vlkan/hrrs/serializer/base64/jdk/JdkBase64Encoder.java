@@ -0,0 +1,40 @@
+package com.vlkan.hrrs.serializer.base64.jdk;
+
+import com.vlkan.hrrs.serializer.base64.Base64Encoder;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Encoder backed by {@link Base64#getEncoder()}, which HotSpot compiles to
+ * SIMD instructions on platforms supporting them.
+ */
+public class JdkBase64Encoder implements Base64Encoder {
+
+    private static final JdkBase64Encoder INSTANCE = new JdkBase64Encoder();
+
+    private static final Base64.Encoder ENCODER = Base64.getEncoder();
+
+    private JdkBase64Encoder() {
+        // Do nothing.
+    }
+
+    public static JdkBase64Encoder getInstance() {
+        return INSTANCE;
+    }
+
+    @Override
+    public String encode(byte[] bytes) {
+        checkNotNull(bytes, "bytes");
+        return ENCODER.encodeToString(bytes);
+    }
+
+    @Override
+    public ByteBuffer encode(ByteBuffer bytes) {
+        checkNotNull(bytes, "bytes");
+        return ENCODER.encode(bytes);
+    }
+
+}
@@ -0,0 +1,511 @@
+package com.vlkan.hrrs.serializer.file;
+
+import com.google.common.base.MoreObjects;
+import com.vlkan.hrrs.serializer.gzip.HrrsBlockGzipOutputStream;
+import com.vlkan.hrrs.serializer.index.HttpRequestRecordIdIndex;
+import com.vlkan.hrrs.serializer.index.HttpRequestRecordIndex;
+import com.vlkan.hrrs.serializer.index.HttpRequestRecordIndexer;
+import com.vlkan.hrrs.serializer.manifest.HttpRequestRecordManifest;
+import com.vlkan.rfos.RotationConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Takes care of the files rotated by {@link HttpRequestRecordWriterRotatingFileTarget}
+ * in a background thread, hence rotations only close, rename, and reopen the
+ * file on the writer thread. For every rotated file, the housekeeper
+ *
+ * <ol>
+ * <li>block gzip compresses it into {@code <file>.gz}, if enabled and the file
+ * is not compressed already,</li>
+ * <li>writes its {@link HttpRequestRecordIndex index} and
+ * {@link HttpRequestRecordIdIndex id index}, if enabled,</li>
+ * <li>registers it in the {@link HttpRequestRecordManifest manifest} of its
+ * directory, if enabled, and</li>
+ * <li>deletes the oldest rotated files (along with their indices and manifest
+ * entries) exceeding the configured total byte count or age.</li>
+ * </ol>
+ *
+ * Retention only considers the files in the directory of the rotated file
+ * pattern whose names fully match the pattern (optionally followed by
+ * {@code .gz}), hence the file name of the pattern must start with a static
+ * prefix, i.e., a text preceding the first {@code %}.
+ *
+ * Rotated files are housekept in a single background thread, which is
+ * drained on {@link #close()}. Files rotated afterwards are housekept in the
+ * calling thread.
+ */
+@ThreadSafe
+public class HttpRequestRecordHousekeeper implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HttpRequestRecordHousekeeper.class);
+
+    static final String COMPRESSED_FILE_SUFFIX = ".gz";
+
+    private static final String TEMPORARY_FILE_SUFFIX = ".tmp";
+
+    private static final int COPY_BUFFER_BYTE_COUNT = 64 * 1024;
+
+    private final Charset charset;
+
+    private final boolean compress;
+
+    private final boolean index;
+
+    private final int checkpointRecordCount;
+
+    private final boolean idIndex;
+
+    private final boolean manifest;
+
+    private final long maxTotalByteCount;
+
+    @Nullable
+    private final Duration maxAge;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "HRRS Housekeeper");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private HttpRequestRecordHousekeeper(Builder builder) {
+        this.charset = checkNotNull(builder.charset, "charset");
+        this.compress = builder.compress;
+        this.index = builder.index;
+        checkArgument(
+                builder.checkpointRecordCount > 0,
+                "expecting: checkpointRecordCount > 0, found: %s", builder.checkpointRecordCount);
+        this.checkpointRecordCount = builder.checkpointRecordCount;
+        this.idIndex = builder.idIndex;
+        this.manifest = builder.manifest;
+        checkArgument(
+                builder.maxTotalByteCount > 0,
+                "expecting: maxTotalByteCount > 0, found: %s", builder.maxTotalByteCount);
+        this.maxTotalByteCount = builder.maxTotalByteCount;
+        checkArgument(
+                builder.maxAge == null || !builder.maxAge.isNegative(),
+                "expecting: maxAge >= 0, found: %s", builder.maxAge);
+        this.maxAge = builder.maxAge;
+        LOGGER.trace(
+                "instantiated (charset={}, compress={}, index={}, checkpointRecordCount={}, idIndex={}, manifest={}, maxTotalByteCount={}, maxAge={})",
+                charset, compress, index, checkpointRecordCount, idIndex, manifest, maxTotalByteCount, maxAge);
+    }
+
+    public Charset getCharset() {
+        return charset;
+    }
+
+    public boolean isCompress() {
+        return compress;
+    }
+
+    public boolean isIndex() {
+        return index;
+    }
+
+    public int getCheckpointRecordCount() {
+        return checkpointRecordCount;
+    }
+
+    public boolean isIdIndex() {
+        return idIndex;
+    }
+
+    public boolean isManifest() {
+        return manifest;
+    }
+
+    public long getMaxTotalByteCount() {
+        return maxTotalByteCount;
+    }
+
+    @Nullable
+    public Duration getMaxAge() {
+        return maxAge;
+    }
+
+    /**
+     * Schedules the housekeeping of the given rotated file.
+     *
+     * @param completionCallback passed the housekept file (i.e., the compressed one, if
+     *                           compression is enabled) on success
+     */
+    void submit(RotationConfig rotationConfig, File rotatedFile, Consumer<File> completionCallback) {
+        checkNotNull(rotationConfig, "rotationConfig");
+        checkNotNull(rotatedFile, "rotatedFile");
+        checkNotNull(completionCallback, "completionCallback");
+        Runnable task = () -> {
+            File housekeptFile;
+            try {
+                housekeptFile = housekeep(rotationConfig, rotatedFile);
+            } catch (Exception error) {
+                LOGGER.error("failed housekeeping rotated file (file={})", rotatedFile, error);
+                return;
+            }
+            completionCallback.accept(housekeptFile);
+        };
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException ignored) {
+            // Closed, e.g., by another target sharing the housekeeper.
+            task.run();
+        }
+    }
+
+    /**
+     * Checks if the retention can tell the files rotated using the given config apart.
+     */
+    static void checkRotationConfig(RotationConfig rotationConfig) {
+        checkNotNull(rotationConfig, "rotationConfig");
+        String patternFileName = new File(rotationConfig.getFilePattern().getPattern()).getName();
+        checkArgument(
+                !getStaticPrefix(patternFileName).isEmpty(),
+                "expecting: a file pattern starting with a static prefix, found: %s", patternFileName);
+    }
+
+    File housekeep(RotationConfig rotationConfig, File rotatedFile) throws IOException {
+        long startTimeMillis = System.currentTimeMillis();
+        File housekeptFile = compress && !HttpRequestRecordReaderFileSource.isGzipped(rotatedFile)
+                ? compress(rotatedFile)
+                : rotatedFile;
+        if (index) {
+            HttpRequestRecordIndexer.indexAndWrite(housekeptFile, charset, checkpointRecordCount, idIndex);
+        } else if (idIndex) {
+            HttpRequestRecordIndexer.indexIdsAndWrite(housekeptFile, charset);
+        }
+        if (manifest) {
+            HttpRequestRecordManifest.register(housekeptFile, charset);
+        }
+        applyRetention(rotationConfig);
+        LOGGER.debug(
+                "housekept (file={}, durationMillis={})",
+                housekeptFile, System.currentTimeMillis() - startTimeMillis);
+        return housekeptFile;
+    }
+
+    /**
+     * Registers the given file, e.g., the active file of a closed writer, in the
+     * manifest of its directory, if enabled. Failures are logged and swallowed.
+     */
+    void register(File file) {
+        if (!manifest || !file.isFile()) {
+            return;
+        }
+        try {
+            HttpRequestRecordManifest.register(file, charset);
+        } catch (Exception error) {
+            LOGGER.error("failed registering file (file={})", file, error);
+        }
+    }
+
+    private static File compress(File file) throws IOException {
+        File compressedFile = new File(file.getPath() + COMPRESSED_FILE_SUFFIX);
+        File temporaryFile = new File(compressedFile.getPath() + TEMPORARY_FILE_SUFFIX);
+        try (InputStream inputStream = new FileInputStream(file);
+             OutputStream outputStream = new HrrsBlockGzipOutputStream(new FileOutputStream(temporaryFile))) {
+            byte[] buffer = new byte[COPY_BUFFER_BYTE_COUNT];
+            int readByteCount;
+            while ((readByteCount = inputStream.read(buffer)) > 0) {
+                outputStream.write(buffer, 0, readByteCount);
+            }
+        } catch (IOException | RuntimeException error) {
+            Files.deleteIfExists(temporaryFile.toPath());
+            throw error;
+        }
+        Files.move(temporaryFile.toPath(), compressedFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        Files.delete(file.toPath());
+        return compressedFile;
+    }
+
+    private void applyRetention(RotationConfig rotationConfig) {
+        List<RetainedFile> retainedFiles = findRetainedFiles(rotationConfig);
+        long totalByteCount = 0;
+        for (RetainedFile retainedFile : retainedFiles) {
+            totalByteCount += retainedFile.byteCount;
+        }
+        long minLastModifiedMillis = maxAge != null
+                ? System.currentTimeMillis() - maxAge.toMillis()
+                : Long.MIN_VALUE;
+        // Files are sorted by age, hence the oldest ones are deleted first.
+        List<File> deletedFiles = new ArrayList<>();
+        for (RetainedFile retainedFile : retainedFiles) {
+            boolean expired = retainedFile.lastModifiedMillis < minLastModifiedMillis;
+            if (!expired && totalByteCount <= maxTotalByteCount) {
+                break;
+            }
+            if (retainedFile.delete()) {
+                totalByteCount -= retainedFile.byteCount;
+                deletedFiles.add(retainedFile.file);
+            }
+        }
+        if (!deletedFiles.isEmpty()) {
+            HttpRequestRecordManifest.unregister(deletedFiles);
+        }
+    }
+
+    private static List<RetainedFile> findRetainedFiles(RotationConfig rotationConfig) {
+        File patternFile = new File(rotationConfig.getFilePattern().getPattern());
+        File directory = patternFile.getAbsoluteFile().getParentFile();
+        String patternFileName = patternFile.getName();
+        if (getStaticPrefix(patternFileName).isEmpty()) {
+            LOGGER.warn("skipping retention of a file pattern without a static prefix (pattern={})", patternFileName);
+            return Collections.emptyList();
+        }
+        Pattern fileNamePattern = createFileNamePattern(patternFileName);
+        File activeFile = rotationConfig.getFile().getAbsoluteFile();
+        File[] files = directory.listFiles(file -> file.isFile()
+                && fileNamePattern.matcher(file.getName()).matches()
+                && !file.getAbsoluteFile().equals(activeFile));
+        List<RetainedFile> retainedFiles = new ArrayList<>();
+        if (files != null) {
+            for (File file : files) {
+                retainedFiles.add(new RetainedFile(file));
+            }
+        }
+        retainedFiles.sort(Comparator.comparingLong(retainedFile -> retainedFile.lastModifiedMillis));
+        return retainedFiles;
+    }
+
+    private static String getStaticPrefix(String patternFileName) {
+        int directiveIndex = patternFileName.indexOf('%');
+        return directiveIndex < 0 ? patternFileName : patternFileName.substring(0, directiveIndex);
+    }
+
+    /**
+     * Creates a regex matching the names of the files {@link com.vlkan.rfos.RotatingFilePattern#create(java.time.Instant)
+     * created} by the given pattern, where {@code %%} stands for {@code %} and {@code %d{<format>}} for a
+     * date time, along with the ones compressed by the housekeeper.
+     */
+    static Pattern createFileNamePattern(String patternFileName) {
+        StringBuilder regex = new StringBuilder();
+        int charIndex = 0;
+        while (charIndex < patternFileName.length()) {
+            char c = patternFileName.charAt(charIndex);
+            int formatEndIndex;
+            if (c == '%' && patternFileName.startsWith("%%", charIndex)) {
+                regex.append(Pattern.quote("%"));
+                charIndex += 2;
+            } else if (c == '%'
+                    && patternFileName.startsWith("%d{", charIndex)
+                    && (formatEndIndex = patternFileName.indexOf('}', charIndex)) > 0) {
+                appendDateTimeRegex(regex, patternFileName.substring(charIndex + 3, formatEndIndex));
+                charIndex = formatEndIndex + 1;
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+                charIndex++;
+            }
+        }
+        regex.append("(").append(Pattern.quote(COMPRESSED_FILE_SUFFIX)).append(")?");
+        return Pattern.compile(regex.toString());
+    }
+
+    /**
+     * Appends a regex matching the text formatted by the given {@link java.time.format.DateTimeFormatter date
+     * time format}, where every run of pattern letters stands for alphanumerics (and zone offset signs) and
+     * the rest stands for itself.
+     */
+    private static void appendDateTimeRegex(StringBuilder regex, String format) {
+        int charIndex = 0;
+        while (charIndex < format.length()) {
+            char c = format.charAt(charIndex);
+            if (Character.isLetter(c)) {
+                int letterEndIndex = charIndex;
+                while (letterEndIndex < format.length() && format.charAt(letterEndIndex) == c) {
+                    letterEndIndex++;
+                }
+                regex.append("XxZOVz".indexOf(c) < 0 ? "\\p{Alnum}+" : "[\\p{Alnum}+\\-:]+");
+                charIndex = letterEndIndex;
+            } else if (c == '\'') {
+                int quoteEndIndex = format.indexOf('\'', charIndex + 1);
+                if (quoteEndIndex < 0) {
+                    quoteEndIndex = format.length();
+                }
+                String text = format.substring(charIndex + 1, quoteEndIndex);
+                regex.append(Pattern.quote(text.isEmpty() ? "'" : text));
+                charIndex = quoteEndIndex + 1;
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+                charIndex++;
+            }
+        }
+    }
+
+    /**
+     * Waits for the scheduled housekeeping to complete.
+     */
+    @Override
+    public void close() throws IOException {
+        LOGGER.trace("closing");
+        executor.shutdown();
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException error) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("housekeeping drain is interrupted");
+        }
+    }
+
+    private static final class RetainedFile {
+
+        private final File file;
+
+        private final File indexFile;
+
+        private final File idIndexFile;
+
+        private final long lastModifiedMillis;
+
+        private final long byteCount;
+
+        private RetainedFile(File file) {
+            this.file = file;
+            this.indexFile = HttpRequestRecordIndex.getIndexFile(file);
+            this.idIndexFile = HttpRequestRecordIdIndex.getIdIndexFile(file);
+            this.lastModifiedMillis = file.lastModified();
+            this.byteCount = file.length() + indexFile.length() + idIndexFile.length();
+        }
+
+        private boolean delete() {
+            try {
+                Files.deleteIfExists(indexFile.toPath());
+                Files.deleteIfExists(idIndexFile.toPath());
+                Files.deleteIfExists(file.toPath());
+                LOGGER.debug("deleted retained file (file={}, byteCount={})", file, byteCount);
+                return true;
+            } catch (IOException error) {
+                LOGGER.error("failed deleting retained file (file={})", file, error);
+                return false;
+            }
+        }
+
+    }
+
+    public static Builder newBuilder(Charset charset) {
+        return new Builder(charset);
+    }
+
+    public static class Builder {
+
+        private final Charset charset;
+
+        private boolean compress;
+
+        private boolean index;
+
+        private int checkpointRecordCount = HttpRequestRecordIndexer.DEFAULT_CHECKPOINT_RECORD_COUNT;
+
+        private boolean idIndex;
+
+        private boolean manifest;
+
+        private long maxTotalByteCount = Long.MAX_VALUE;
+
+        @Nullable
+        private Duration maxAge;
+
+        private Builder(Charset charset) {
+            this.charset = charset;
+        }
+
+        /**
+         * @param compress block gzip compress rotated files, which are deleted afterwards
+         */
+        public Builder setCompress(boolean compress) {
+            this.compress = compress;
+            return this;
+        }
+
+        /**
+         * @param index write an {@link HttpRequestRecordIndex index} next to every rotated file
+         */
+        public Builder setIndex(boolean index) {
+            this.index = index;
+            return this;
+        }
+
+        public Builder setCheckpointRecordCount(int checkpointRecordCount) {
+            this.checkpointRecordCount = checkpointRecordCount;
+            return this;
+        }
+
+        /**
+         * @param idIndex write an {@link HttpRequestRecordIdIndex id index} next to every rotated file
+         */
+        public Builder setIdIndex(boolean idIndex) {
+            this.idIndex = idIndex;
+            return this;
+        }
+
+        /**
+         * @param manifest register every rotated file (and the active file on close) in
+         *                 the {@link HttpRequestRecordManifest manifest} of its directory
+         */
+        public Builder setManifest(boolean manifest) {
+            this.manifest = manifest;
+            return this;
+        }
+
+        /**
+         * @param maxTotalByteCount total size of the rotated files (and their indices) to retain
+         */
+        public Builder setMaxTotalByteCount(long maxTotalByteCount) {
+            this.maxTotalByteCount = maxTotalByteCount;
+            return this;
+        }
+
+        /**
+         * @param maxAge age of the rotated files to retain, or null for no limit
+         */
+        public Builder setMaxAge(@Nullable Duration maxAge) {
+            this.maxAge = maxAge;
+            return this;
+        }
+
+        public HttpRequestRecordHousekeeper build() {
+            return new HttpRequestRecordHousekeeper(this);
+        }
+
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("compress", compress)
+                .add("index", index)
+                .add("idIndex", idIndex)
+                .add("manifest", manifest)
+                .add("maxTotalByteCount", maxTotalByteCount)
+                .add("maxAge", maxAge)
+                .toString();
+    }
+
+}
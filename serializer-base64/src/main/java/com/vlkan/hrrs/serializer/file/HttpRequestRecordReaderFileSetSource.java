@@ -0,0 +1,399 @@
+package com.vlkan.hrrs.serializer.file;
+
+import com.google.common.base.MoreObjects;
+import com.vlkan.hrrs.api.HttpRequestRecordReaderSource;
+import com.vlkan.hrrs.serializer.base64.Base64HttpRequestRecordFrame;
+import com.vlkan.hrrs.serializer.index.HttpRequestRecordIndex;
+import com.vlkan.hrrs.serializer.manifest.HttpRequestRecordManifest;
+import com.vlkan.hrrs.serializer.manifest.HttpRequestRecordManifestEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.FileSystems;
+import java.nio.file.PathMatcher;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Predicate;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Source reading the given record files one after the other as a single
+ * logical source, where plain, gzip, and block gzip compressed files can be
+ * mixed. Reading rotated files of a writer in order retains the state
+ * spanning files, e.g., dictionary epochs.
+ *
+ * If prefetching is enabled, files are read and decompressed by a background
+ * thread, which hands the lines over in chunks, hence the next file is opened
+ * and decompressed while the current one is still being consumed.
+ *
+ * See {@link #findFiles(File, Charset)} for collecting the files of a
+ * directory, a glob pattern, or a manifest in timestamp order.
+ */
+@NotThreadSafe
+public class HttpRequestRecordReaderFileSetSource implements HttpRequestRecordReaderSource<String> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HttpRequestRecordReaderFileSetSource.class);
+
+    private static final int CHUNK_LINE_COUNT = 1024;
+
+    private static final int PREFETCHED_CHUNK_COUNT = 16;
+
+    private static final String GLOB_CHARS = "*?[{";
+
+    private final List<File> files;
+
+    private final Charset charset;
+
+    private final FileIterator fileIterator;
+
+    @Nullable
+    private final Prefetcher prefetcher;
+
+    private List<String> chunk = Collections.emptyList();
+
+    private int chunkLineIndex = 0;
+
+    private boolean exhausted = false;
+
+    public HttpRequestRecordReaderFileSetSource(List<File> files, Charset charset) {
+        this(files, charset, true);
+    }
+
+    /**
+     * @param files files to be read in the given order
+     * @param prefetch read and decompress the files in a background thread
+     */
+    public HttpRequestRecordReaderFileSetSource(List<File> files, Charset charset, boolean prefetch) {
+        checkNotNull(files, "files");
+        this.files = Collections.unmodifiableList(new ArrayList<>(files));
+        this.charset = checkNotNull(charset, "charset");
+        this.fileIterator = new FileIterator(this.files, charset);
+        this.prefetcher = prefetch ? new Prefetcher(fileIterator) : null;
+        LOGGER.trace("instantiated (fileCount={}, charset={}, prefetch={})", files.size(), charset, prefetch);
+    }
+
+    /**
+     * Collects the record files denoted by the given input, which is either a
+     * directory, a file name glob pattern (e.g., {@code /tmp/records-*.csv.gz}),
+     * a {@link HttpRequestRecordManifest manifest} (i.e., the files registered
+     * in it), or a single file. Hidden, index, and temporary files are skipped.
+     * Files are ordered by the timestamp of their first record, hence rotated
+     * files are read in the order they are written. Timestamps are taken from
+     * the manifest of the directory, if there is an up-to-date entry, without
+     * opening the file.
+     */
+    public static List<File> findFiles(File input, Charset charset) {
+        checkNotNull(input, "input");
+        checkNotNull(charset, "charset");
+        List<File> files;
+        if (input.isDirectory()) {
+            files = listFiles(input, file -> true);
+        } else if (HttpRequestRecordManifest.FILE_NAME.equals(input.getName())) {
+            File directory = input.getAbsoluteFile().getParentFile();
+            Set<String> fileNames = new HashSet<>();
+            for (HttpRequestRecordManifestEntry entry : HttpRequestRecordManifest.read(directory).getEntries()) {
+                fileNames.add(entry.getFileName());
+            }
+            files = listFiles(directory, file -> fileNames.contains(file.getName()));
+        } else if (isGlob(input.getName())) {
+            File directory = input.getAbsoluteFile().getParentFile();
+            PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + input.getName());
+            files = listFiles(directory, file -> matcher.matches(file.toPath().getFileName()));
+        } else {
+            checkArgument(input.isFile(), "no such file (file=%s)", input);
+            return Collections.singletonList(input);
+        }
+        sortByFirstTimestamp(files, charset);
+        LOGGER.debug("found {} file(s) (input={})", files.size(), input);
+        return files;
+    }
+
+    private static boolean isGlob(String name) {
+        for (int charIndex = 0; charIndex < name.length(); charIndex++) {
+            if (GLOB_CHARS.indexOf(name.charAt(charIndex)) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<File> listFiles(File directory, Predicate<File> filter) {
+        File[] directoryFiles = directory.listFiles();
+        checkArgument(directoryFiles != null, "failed listing directory (directory=%s)", directory);
+        List<File> files = new ArrayList<>(directoryFiles.length);
+        for (File file : directoryFiles) {
+            String name = file.getName();
+            if (file.isFile()
+                    && !name.startsWith(".")
+                    && !name.endsWith(HttpRequestRecordIndex.FILE_SUFFIX)
+                    && !name.endsWith(".tmp")
+                    && filter.test(file)) {
+                files.add(file);
+            }
+        }
+        return files;
+    }
+
+    private static void sortByFirstTimestamp(List<File> files, Charset charset) {
+        DateFormat dateFormat = new SimpleDateFormat("yyyyMMdd-HHmmss.SSSZ");
+        Map<File, HttpRequestRecordManifest> manifestByDirectory = new HashMap<>();
+        List<TimestampedFile> timestampedFiles = new ArrayList<>(files.size());
+        for (File file : files) {
+            HttpRequestRecordManifest manifest = manifestByDirectory.computeIfAbsent(
+                    file.getAbsoluteFile().getParentFile(), HttpRequestRecordManifest::read);
+            HttpRequestRecordManifestEntry entry = manifest.findUpToDateEntry(file);
+            long timestampMillis = entry == null
+                    ? readFirstTimestampMillis(file, charset, dateFormat)
+                    : entry.getRecordCount() > 0 ? entry.getMinTimestampMillis() : Long.MAX_VALUE;
+            timestampedFiles.add(new TimestampedFile(file, timestampMillis));
+        }
+        timestampedFiles.sort(Comparator
+                .comparingLong((TimestampedFile timestampedFile) -> timestampedFile.timestampMillis)
+                .thenComparing(timestampedFile -> timestampedFile.file.getName()));
+        files.clear();
+        for (TimestampedFile timestampedFile : timestampedFiles) {
+            files.add(timestampedFile.file);
+        }
+    }
+
+    /**
+     * @return the timestamp of the first record of the given file, or {@link Long#MAX_VALUE}, if there is none
+     */
+    private static long readFirstTimestampMillis(File file, Charset charset, DateFormat dateFormat) {
+        try (HttpRequestRecordReaderFileSource source = new HttpRequestRecordReaderFileSource(file, charset)) {
+            String line;
+            do {
+                line = source.read();
+                if (line == null) {
+                    return Long.MAX_VALUE;
+                }
+                line = Base64HttpRequestRecordFrame.unframe(line);
+            } while (line == null);
+            String[] fields = line.split("\t", 3);
+            checkArgument(fields.length == 3, "insufficient field count");
+            return dateFormat.parse(fields[1]).getTime();
+        } catch (Exception error) {
+            LOGGER.warn("failed reading the first timestamp, ordering by name (file={})", file, error);
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private static final class TimestampedFile {
+
+        private final File file;
+
+        private final long timestampMillis;
+
+        private TimestampedFile(File file, long timestampMillis) {
+            this.file = file;
+            this.timestampMillis = timestampMillis;
+        }
+
+    }
+
+    /**
+     * Iterates over the lines of the files, opening each file once the previous one is exhausted.
+     */
+    private static final class FileIterator {
+
+        private final List<File> files;
+
+        private final Charset charset;
+
+        private int fileIndex = -1;
+
+        @Nullable
+        private HttpRequestRecordReaderFileSource source;
+
+        private FileIterator(List<File> files, Charset charset) {
+            this.files = files;
+            this.charset = charset;
+        }
+
+        @Nullable
+        private String readLine() throws IOException {
+            while (true) {
+                if (source != null) {
+                    String line = source.read();
+                    if (line != null) {
+                        return line;
+                    }
+                    source.close();
+                    source = null;
+                }
+                if (++fileIndex >= files.size()) {
+                    return null;
+                }
+                File file = files.get(fileIndex);
+                LOGGER.debug("reading file (file={}, fileIndex={}, fileCount={})", file, fileIndex, files.size());
+                source = new HttpRequestRecordReaderFileSource(file, charset);
+            }
+        }
+
+        private void close() throws IOException {
+            if (source != null) {
+                source.close();
+                source = null;
+            }
+            fileIndex = files.size();
+        }
+
+    }
+
+    private static final class Chunk {
+
+        private static final Chunk LAST = new Chunk(Collections.emptyList(), null);
+
+        private final List<String> lines;
+
+        @Nullable
+        private final RuntimeException error;
+
+        private Chunk(List<String> lines, @Nullable RuntimeException error) {
+            this.lines = lines;
+            this.error = error;
+        }
+
+    }
+
+    /**
+     * Reads the lines of the files in a background thread and hands them over in chunks.
+     */
+    private static final class Prefetcher {
+
+        private final FileIterator fileIterator;
+
+        private final BlockingQueue<Chunk> chunks = new ArrayBlockingQueue<>(PREFETCHED_CHUNK_COUNT);
+
+        private final Thread thread;
+
+        private volatile boolean closed = false;
+
+        private Prefetcher(FileIterator fileIterator) {
+            this.fileIterator = fileIterator;
+            this.thread = new Thread(this::run, "HRRS Prefetcher");
+            this.thread.setDaemon(true);
+            this.thread.start();
+        }
+
+        private void run() {
+            try {
+                List<String> lines = new ArrayList<>(CHUNK_LINE_COUNT);
+                String line;
+                while (!closed && (line = fileIterator.readLine()) != null) {
+                    lines.add(line);
+                    if (lines.size() == CHUNK_LINE_COUNT) {
+                        chunks.put(new Chunk(lines, null));
+                        lines = new ArrayList<>(CHUNK_LINE_COUNT);
+                    }
+                }
+                if (!lines.isEmpty()) {
+                    chunks.put(new Chunk(lines, null));
+                }
+                chunks.put(Chunk.LAST);
+            } catch (InterruptedException ignored) {
+                Thread.currentThread().interrupt();
+            } catch (Exception error) {
+                RuntimeException wrappedError = new RuntimeException("failed prefetching lines", error);
+                if (!chunks.offer(new Chunk(Collections.emptyList(), wrappedError))) {
+                    LOGGER.error("failed prefetching lines", error);
+                }
+            } finally {
+                try {
+                    fileIterator.close();
+                } catch (IOException error) {
+                    LOGGER.error("failed closing file", error);
+                }
+            }
+        }
+
+        private Chunk take() {
+            try {
+                return chunks.take();
+            } catch (InterruptedException ignored) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("interrupted while waiting for prefetched lines");
+            }
+        }
+
+        private void close() {
+            closed = true;
+            thread.interrupt();
+        }
+
+    }
+
+    public List<File> getFiles() {
+        return files;
+    }
+
+    public Charset getCharset() {
+        return charset;
+    }
+
+    @Nullable
+    @Override
+    public String read() {
+        if (prefetcher == null) {
+            try {
+                return fileIterator.readLine();
+            } catch (IOException error) {
+                throw new RuntimeException("failed reading line", error);
+            }
+        }
+        if (chunkLineIndex == chunk.size()) {
+            if (exhausted) {
+                return null;
+            }
+            Chunk nextChunk = prefetcher.take();
+            if (nextChunk.error != null) {
+                exhausted = true;
+                throw nextChunk.error;
+            }
+            if (nextChunk == Chunk.LAST) {
+                exhausted = true;
+                return null;
+            }
+            chunk = nextChunk.lines;
+            chunkLineIndex = 0;
+        }
+        return chunk.get(chunkLineIndex++);
+    }
+
+    @Override
+    public void close() throws IOException {
+        LOGGER.trace("closing");
+        if (prefetcher != null) {
+            prefetcher.close();
+        } else {
+            fileIterator.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("fileCount", files.size())
+                .add("charset", charset)
+                .add("prefetch", prefetcher != null)
+                .toString();
+    }
+
+}
@@ -1,16 +1,26 @@
 package com.vlkan.hrrs.serializer.file;
 
 import com.google.common.base.MoreObjects;
+import com.google.common.io.ByteStreams;
 import com.vlkan.hrrs.api.HttpRequestRecordReaderSource;
+import com.vlkan.hrrs.serializer.base64.Base64HttpRequestRecordDictionary;
+import com.vlkan.hrrs.serializer.base64.Base64HttpRequestRecordFrame;
+import com.vlkan.hrrs.serializer.gzip.HrrsBlockGzip;
+import com.vlkan.hrrs.serializer.gzip.HrrsBlockGzipInputStream;
+import com.vlkan.hrrs.serializer.index.HttpRequestRecordIndexPosition;
+import com.vlkan.hrrs.serializer.index.HttpRequestRecordIndexRange;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.NotThreadSafe;
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.util.zip.GZIPInputStream;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 @NotThreadSafe
@@ -18,26 +28,58 @@ public class HttpRequestRecordReaderFileSource implements HttpRequestRecordReade
 
     private static final Logger LOGGER = LoggerFactory.getLogger(HttpRequestRecordReaderFileSource.class);
 
+    private static final int GZIP_BUFFER_BYTE_COUNT = 64 * 1024;
+
+    private static final int SKIP_BUFFER_BYTE_COUNT = 8 * 1024;
+
     private final File file;
 
     private final Charset charset;
 
+    @Nullable
+    private final HttpRequestRecordIndexRange range;
+
     private final BufferedReader reader;
 
+    private long remainingRecordCount;
+
+    /**
+     * Number of bytes up to the end of the byte range, if any, where lines
+     * starting beyond it are read only while they continue a dictionary epoch.
+     */
+    private long remainingByteCount;
+
     public HttpRequestRecordReaderFileSource(File file, Charset charset) {
+        this(file, charset, null);
+    }
+
+    /**
+     * Creates a source reading only the records in the given range, if provided.
+     *
+     * @see com.vlkan.hrrs.serializer.index.HttpRequestRecordIndex
+     */
+    public HttpRequestRecordReaderFileSource(File file, Charset charset, @Nullable HttpRequestRecordIndexRange range) {
         this.file = checkNotNull(file, "file");
         this.charset = checkNotNull(charset, "charset");
-        this.reader = createReader(file, charset);
-        LOGGER.trace("instantiated (file={}, charset={})", file, charset);
+        this.range = range;
+        this.reader = createReader(file, charset, range);
+        this.remainingRecordCount = range != null ? range.getRecordCount() : Long.MAX_VALUE;
+        this.remainingByteCount = Long.MAX_VALUE;
+        LOGGER.trace("instantiated (file={}, charset={}, range={})", file, charset, range);
     }
 
-    private static BufferedReader createReader(File file, Charset charset) {
+    private static BufferedReader createReader(File file, Charset charset, @Nullable HttpRequestRecordIndexRange range) {
         try {
             FileInputStream fileInputStream = new FileInputStream(file);
             try {
-                InputStream readerInputStream = isGzipped(file)
-                        ? new GZIPInputStream(fileInputStream)
-                        : fileInputStream;
+                InputStream readerInputStream;
+                if (range != null) {
+                    readerInputStream = createRangeInputStream(file, fileInputStream, range.getPosition());
+                } else if (isGzipped(file)) {
+                    readerInputStream = createGzipInputStream(fileInputStream);
+                } else {
+                    readerInputStream = fileInputStream;
+                }
                 InputStreamReader inputStreamReader = new InputStreamReader(readerInputStream, charset);
                 return new BufferedReader(inputStreamReader);
             } catch (IOException error) {
@@ -50,7 +92,110 @@ public class HttpRequestRecordReaderFileSource implements HttpRequestRecordReade
         }
     }
 
-    private static boolean isGzipped(File file) {
+    private HttpRequestRecordReaderFileSource(File file, Charset charset, long fromOffset, long toOffset) {
+        this.file = checkNotNull(file, "file");
+        this.charset = checkNotNull(charset, "charset");
+        checkArgument(!isGzipped(file), "expecting an uncompressed file (file=%s)", file);
+        checkArgument(
+                0 <= fromOffset && fromOffset <= toOffset,
+                "expecting: 0 <= fromOffset <= toOffset, found: fromOffset=%s, toOffset=%s", fromOffset, toOffset);
+        checkArgument(
+                charset.newEncoder().maxBytesPerChar() == 1,
+                "expecting a single byte charset, found: %s", charset);
+        this.range = null;
+        this.remainingRecordCount = Long.MAX_VALUE;
+        try {
+            FileInputStream fileInputStream = new FileInputStream(file);
+            try {
+                long skippedByteCount = skipPartialLine(fileInputStream, fromOffset);
+                this.remainingByteCount = toOffset - fromOffset - skippedByteCount;
+                InputStreamReader inputStreamReader = new InputStreamReader(fileInputStream, charset);
+                this.reader = new BufferedReader(inputStreamReader);
+            } catch (IOException error) {
+                fileInputStream.close();
+                throw error;
+            }
+        } catch (IOException error) {
+            String message = String.format("failed opening file (file=%s, charset=%s)", file, charset);
+            throw new RuntimeException(message, error);
+        }
+        LOGGER.trace("instantiated (file={}, charset={}, fromOffset={}, toOffset={})", file, charset, fromOffset, toOffset);
+    }
+
+    /**
+     * Creates a source reading the lines starting in the given byte range
+     * {@code [fromOffset, toOffset)} of an uncompressed file, where the
+     * offsets need not be aligned to lines, e.g., to read a file in parallel
+     * without an index. The line {@code fromOffset} falls into is skipped,
+     * unless it starts there, since it belongs to the preceding range.
+     * Lines succeeding the range are read as long as they continue a
+     * {@link Base64HttpRequestRecordDictionary dictionary epoch} started in
+     * the range, whereas the readers of the succeeding range skip them, since
+     * they do not encounter the start of their epoch.
+     */
+    public static HttpRequestRecordReaderFileSource createByteRangeSource(
+            File file,
+            Charset charset,
+            long fromOffset,
+            long toOffset) {
+        return new HttpRequestRecordReaderFileSource(file, charset, fromOffset, toOffset);
+    }
+
+    /**
+     * Positions the given stream at the first line starting at or after the given offset.
+     *
+     * @return the number of bytes skipped beyond the given offset
+     */
+    private static long skipPartialLine(FileInputStream fileInputStream, long offset) throws IOException {
+        if (offset == 0) {
+            return 0;
+        }
+        // Start from the preceding byte to find out whether a line starts at the offset.
+        FileChannel channel = fileInputStream.getChannel();
+        ByteBuffer buffer = ByteBuffer.allocate(SKIP_BUFFER_BYTE_COUNT);
+        long position = offset - 1;
+        for (;;) {
+            buffer.clear();
+            int readByteCount = channel.read(buffer, position);
+            if (readByteCount < 0) {
+                channel.position(position);
+                return Math.max(0, position - offset);
+            }
+            for (int byteIndex = 0; byteIndex < readByteCount; byteIndex++) {
+                if (buffer.get(byteIndex) == '\n') {
+                    long lineStartPosition = position + byteIndex + 1;
+                    channel.position(lineStartPosition);
+                    return lineStartPosition - offset;
+                }
+            }
+            position += readByteCount;
+        }
+    }
+
+    private static InputStream createGzipInputStream(InputStream inputStream) throws IOException {
+        BufferedInputStream bufferedInputStream = new BufferedInputStream(inputStream, GZIP_BUFFER_BYTE_COUNT);
+        return HrrsBlockGzip.isBlockGzipped(bufferedInputStream)
+                ? new HrrsBlockGzipInputStream(bufferedInputStream)
+                : new GZIPInputStream(bufferedInputStream, GZIP_BUFFER_BYTE_COUNT);
+    }
+
+    private static InputStream createRangeInputStream(File file,
+                                                      FileInputStream fileInputStream,
+                                                      HttpRequestRecordIndexPosition position) throws IOException {
+        fileInputStream.getChannel().position(position.getFileOffset());
+        if (!isGzipped(file)) {
+            return fileInputStream;
+        }
+        BufferedInputStream bufferedInputStream = new BufferedInputStream(fileInputStream, GZIP_BUFFER_BYTE_COUNT);
+        checkArgument(
+                HrrsBlockGzip.isBlockGzipped(bufferedInputStream),
+                "expecting a block gzip member (file=%s, position=%s)", file, position);
+        InputStream inputStream = new HrrsBlockGzipInputStream(bufferedInputStream, position.getFileOffset());
+        ByteStreams.skipFully(inputStream, position.getBlockOffset());
+        return inputStream;
+    }
+
+    public static boolean isGzipped(File file) {
         return file.getAbsolutePath().matches(".*\\.[gG][zZ]$");
     }
 
@@ -62,17 +207,52 @@ public class HttpRequestRecordReaderFileSource implements HttpRequestRecordReade
         return charset;
     }
 
+    @Nullable
+    public HttpRequestRecordIndexRange getRange() {
+        return range;
+    }
+
     @Nullable
     @Override
     public String read() {
+        if (remainingRecordCount == 0) {
+            return null;
+        }
         try {
-            return reader.readLine();
+            String line = reader.readLine();
+            if (line == null) {
+                return null;
+            }
+            if (remainingByteCount <= 0 && !isEpochContinuation(line)) {
+                remainingRecordCount = 0;
+                return null;
+            }
+            remainingRecordCount--;
+            remainingByteCount -= line.length() + 1;
+            return line;
         } catch (IOException error) {
             String message = String.format("failed reading line (file=%s)", file);
             throw new RuntimeException(message, error);
         }
     }
 
+    /**
+     * @return true, if the encoded field of the given (possibly framed) line
+     *         continues a {@link Base64HttpRequestRecordDictionary dictionary epoch}
+     */
+    private static boolean isEpochContinuation(String line) {
+        int index = line.indexOf(Base64HttpRequestRecordFrame.SYNC_MARKER) == 0
+                ? Base64HttpRequestRecordFrame.PREFIX_LENGTH
+                : 0;
+        for (int separatorCount = 0; separatorCount < 4; separatorCount++) {
+            index = line.indexOf('\t', index) + 1;
+            if (index == 0) {
+                return false;
+            }
+        }
+        return index < line.length() && line.charAt(index) == Base64HttpRequestRecordDictionary.EPOCH_CONTINUATION_MARKER;
+    }
+
     @Override
     public void close() throws IOException {
         LOGGER.trace("closing");
@@ -84,6 +264,7 @@ public class HttpRequestRecordReaderFileSource implements HttpRequestRecordReade
         return MoreObjects.toStringHelper(this)
                 .add("file", file)
                 .add("charset", charset)
+                .add("range", range)
                 .toString();
     }
 
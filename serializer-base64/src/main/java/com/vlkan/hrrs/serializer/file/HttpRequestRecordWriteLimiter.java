@@ -0,0 +1,229 @@
+package com.vlkan.hrrs.serializer.file;
+
+import com.google.common.base.MoreObjects;
+import com.vlkan.hrrs.api.metric.HrrsDropReason;
+import com.vlkan.hrrs.api.metric.HrrsMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Bounds the disk I/O of {@link HttpRequestRecordWriterChannelTarget}s.
+ *
+ * Writes are throttled by a token bucket of {@link Builder#setMaxBytePerSecond(long)
+ * bytes per second}, where the writer thread sleeps until enough tokens are
+ * accumulated. A bucket holds at most a second worth of tokens, hence idle
+ * periods allow bursts of that size. Writes exceeding the available tokens are
+ * let through and paid back by the subsequent ones, hence records are never
+ * split. Blocking the writer thread makes the writer queue fill up and, once
+ * full, drop records (counted as {@link HrrsDropReason#QUEUE_OVERFLOW}), hence
+ * the application itself never blocks.
+ *
+ * Further, capture is paused while the free space of the given directory is
+ * below the {@link Builder#setMinFreeByteCount(long) watermark}, and resumed
+ * automatically once it is not. Records written while paused are dropped and
+ * counted as {@link HrrsDropReason#DISK_SPACE_LOW}. The free space is checked
+ * at most once per {@link Builder#setFreeSpaceCheckPeriodMillis(long) period}.
+ *
+ * A limiter can be shared by multiple targets writing to the same disk.
+ */
+@ThreadSafe
+public class HttpRequestRecordWriteLimiter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HttpRequestRecordWriteLimiter.class);
+
+    public static final long DEFAULT_FREE_SPACE_CHECK_PERIOD_MILLIS = 1000;
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final HrrsMetrics metrics = HrrsMetrics.getInstance();
+
+    private final File directory;
+
+    private final long maxBytePerSecond;
+
+    private final long minFreeByteCount;
+
+    private final long freeSpaceCheckPeriodNanos;
+
+    private final LongSupplier freeByteCountSupplier;
+
+    @GuardedBy("this")
+    private double availableByteCount;
+
+    @GuardedBy("this")
+    private long lastRefillNanos;
+
+    private volatile boolean paused = false;
+
+    private volatile long nextFreeSpaceCheckNanos;
+
+    private HttpRequestRecordWriteLimiter(Builder builder) {
+        this.directory = checkNotNull(builder.directory, "directory");
+        checkArgument(
+                builder.maxBytePerSecond > 0,
+                "expecting: maxBytePerSecond > 0, found: %s", builder.maxBytePerSecond);
+        this.maxBytePerSecond = builder.maxBytePerSecond;
+        checkArgument(
+                builder.minFreeByteCount >= 0,
+                "expecting: minFreeByteCount >= 0, found: %s", builder.minFreeByteCount);
+        this.minFreeByteCount = builder.minFreeByteCount;
+        checkArgument(
+                builder.freeSpaceCheckPeriodMillis >= 0,
+                "expecting: freeSpaceCheckPeriodMillis >= 0, found: %s", builder.freeSpaceCheckPeriodMillis);
+        this.freeSpaceCheckPeriodNanos = TimeUnit.MILLISECONDS.toNanos(builder.freeSpaceCheckPeriodMillis);
+        this.freeByteCountSupplier = builder.freeByteCountSupplier != null
+                ? builder.freeByteCountSupplier
+                : directory::getUsableSpace;
+        this.availableByteCount = maxBytePerSecond;
+        this.lastRefillNanos = System.nanoTime();
+        this.nextFreeSpaceCheckNanos = lastRefillNanos;
+        LOGGER.trace(
+                "instantiated (directory={}, maxBytePerSecond={}, minFreeByteCount={}, freeSpaceCheckPeriodMillis={})",
+                directory, maxBytePerSecond, minFreeByteCount, builder.freeSpaceCheckPeriodMillis);
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    public long getMaxBytePerSecond() {
+        return maxBytePerSecond;
+    }
+
+    public long getMinFreeByteCount() {
+        return minFreeByteCount;
+    }
+
+    /**
+     * @return true, if the free space is below the watermark, where the record
+     * is expected to be dropped
+     */
+    public boolean isPaused() {
+        if (minFreeByteCount > 0) {
+            long nowNanos = System.nanoTime();
+            if (nowNanos - nextFreeSpaceCheckNanos >= 0) {
+                nextFreeSpaceCheckNanos = nowNanos + freeSpaceCheckPeriodNanos;
+                updatePaused();
+            }
+        }
+        return paused;
+    }
+
+    private synchronized void updatePaused() {
+        long freeByteCount = freeByteCountSupplier.getAsLong();
+        boolean paused = freeByteCount < minFreeByteCount;
+        if (paused != this.paused) {
+            this.paused = paused;
+            metrics.setCapturePaused(paused);
+            if (paused) {
+                LOGGER.warn(
+                        "pausing capture due to low disk space (directory={}, freeByteCount={}, minFreeByteCount={})",
+                        directory, freeByteCount, minFreeByteCount);
+            } else {
+                LOGGER.info(
+                        "resuming capture (directory={}, freeByteCount={}, minFreeByteCount={})",
+                        directory, freeByteCount, minFreeByteCount);
+            }
+        }
+    }
+
+    /**
+     * Takes the given number of bytes from the bucket, blocking until they
+     * are paid back, if the bucket runs short of them.
+     */
+    public void acquire(long byteCount) {
+        long waitNanos = reserve(byteCount);
+        if (waitNanos > 0) {
+            long deadlineNanos = System.nanoTime() + waitNanos;
+            long remainingNanos = waitNanos;
+            while (remainingNanos > 0) {
+                LockSupport.parkNanos(remainingNanos);
+                remainingNanos = deadlineNanos - System.nanoTime();
+            }
+            metrics.addThrottledNanos(waitNanos);
+        }
+    }
+
+    private synchronized long reserve(long byteCount) {
+        if (maxBytePerSecond == Long.MAX_VALUE) {
+            return 0;
+        }
+        long nowNanos = System.nanoTime();
+        double refillByteCount = (double) (nowNanos - lastRefillNanos) * maxBytePerSecond / NANOS_PER_SECOND;
+        availableByteCount = Math.min(maxBytePerSecond, availableByteCount + refillByteCount);
+        lastRefillNanos = nowNanos;
+        availableByteCount -= byteCount;
+        return availableByteCount < 0
+                ? (long) (-availableByteCount * NANOS_PER_SECOND / maxBytePerSecond)
+                : 0;
+    }
+
+    public static Builder newBuilder(File directory) {
+        return new Builder(directory);
+    }
+
+    public static class Builder {
+
+        private final File directory;
+
+        private long maxBytePerSecond = Long.MAX_VALUE;
+
+        private long minFreeByteCount = 0;
+
+        private long freeSpaceCheckPeriodMillis = DEFAULT_FREE_SPACE_CHECK_PERIOD_MILLIS;
+
+        private LongSupplier freeByteCountSupplier;
+
+        private Builder(File directory) {
+            this.directory = directory;
+        }
+
+        public Builder setMaxBytePerSecond(long maxBytePerSecond) {
+            this.maxBytePerSecond = maxBytePerSecond;
+            return this;
+        }
+
+        /**
+         * @param minFreeByteCount free space watermark of the directory, below which capture is paused
+         */
+        public Builder setMinFreeByteCount(long minFreeByteCount) {
+            this.minFreeByteCount = minFreeByteCount;
+            return this;
+        }
+
+        public Builder setFreeSpaceCheckPeriodMillis(long freeSpaceCheckPeriodMillis) {
+            this.freeSpaceCheckPeriodMillis = freeSpaceCheckPeriodMillis;
+            return this;
+        }
+
+        Builder setFreeByteCountSupplier(LongSupplier freeByteCountSupplier) {
+            this.freeByteCountSupplier = freeByteCountSupplier;
+            return this;
+        }
+
+        public HttpRequestRecordWriteLimiter build() {
+            return new HttpRequestRecordWriteLimiter(this);
+        }
+
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("directory", directory)
+                .add("maxBytePerSecond", maxBytePerSecond)
+                .add("minFreeByteCount", minFreeByteCount)
+                .toString();
+    }
+
+}
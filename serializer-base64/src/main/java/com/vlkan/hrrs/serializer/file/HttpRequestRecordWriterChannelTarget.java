@@ -0,0 +1,244 @@
+package com.vlkan.hrrs.serializer.file;
+
+import com.vlkan.hrrs.api.HttpRequestRecordByteWriterTarget;
+import com.vlkan.hrrs.api.HttpRequestRecordWriterTarget;
+import com.vlkan.hrrs.api.metric.HrrsDropReason;
+import com.vlkan.hrrs.api.metric.HrrsMetrics;
+import com.vlkan.hrrs.api.metric.HrrsRecordCountingTarget;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Target buffering records in a reusable buffer, which gets drained to a
+ * channel when full or flushed. Records passed as bytes are copied into the
+ * buffer as is, whereas the ones passed as strings are encoded straight into
+ * it. Records exceeding the free space of the buffer are written along with
+ * the buffered ones using a single gathering write.
+ *
+ * Since the buffer is drained only at record boundaries, every channel write
+ * consists of whole records.
+ *
+ * If given a {@link HttpRequestRecordWriteLimiter limiter}, channel writes are
+ * throttled by it, and records are dropped while it is paused. Hence the
+ * target counts the records it accepts as recorded itself.
+ */
+@NotThreadSafe
+public abstract class HttpRequestRecordWriterChannelTarget
+        implements HttpRequestRecordWriterTarget<String>, HttpRequestRecordByteWriterTarget, HrrsRecordCountingTarget {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HttpRequestRecordWriterChannelTarget.class);
+
+    public static final int DEFAULT_BUFFER_BYTE_COUNT = 64 * 1024;
+
+    private final Charset charset;
+
+    private final CharsetEncoder charsetEncoder;
+
+    private final ByteBuffer buffer;
+
+    private ByteBuffer[] gatheringBuffers = new ByteBuffer[2];
+
+    private final GatheringByteChannel channel;
+
+    @Nullable
+    private final HttpRequestRecordWriteLimiter limiter;
+
+    private final HrrsMetrics metrics = HrrsMetrics.getInstance();
+
+    /**
+     * @param channel either a {@link FileChannel}, or a {@link #createChannel(OutputStream) stream-backed} one
+     */
+    protected HttpRequestRecordWriterChannelTarget(GatheringByteChannel channel, Charset charset, int bufferByteCount) {
+        this(channel, charset, bufferByteCount, null);
+    }
+
+    /**
+     * @param limiter if not null, throttles channel writes and pauses capture on low disk space
+     */
+    protected HttpRequestRecordWriterChannelTarget(
+            GatheringByteChannel channel,
+            Charset charset,
+            int bufferByteCount,
+            @Nullable HttpRequestRecordWriteLimiter limiter) {
+        this.channel = checkNotNull(channel, "channel");
+        this.limiter = limiter;
+        this.charset = checkNotNull(charset, "charset");
+        checkArgument(bufferByteCount > 0, "expecting: bufferByteCount > 0, found: %s", bufferByteCount);
+        this.charsetEncoder = charset
+                .newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        // Streams are passed byte arrays, hence a direct buffer would incur an extra copy.
+        this.buffer = channel instanceof FileChannel
+                ? ByteBuffer.allocateDirect(bufferByteCount)
+                : ByteBuffer.allocate(bufferByteCount);
+    }
+
+    protected static GatheringByteChannel createChannel(OutputStream outputStream) {
+        return new OutputStreamByteChannel(outputStream);
+    }
+
+    public Charset getCharset() {
+        return charset;
+    }
+
+    public int getBufferByteCount() {
+        return buffer.capacity();
+    }
+
+    @Nullable
+    public HttpRequestRecordWriteLimiter getLimiter() {
+        return limiter;
+    }
+
+    private boolean isPaused() {
+        if (limiter != null && limiter.isPaused()) {
+            metrics.incrementDroppedCount(HrrsDropReason.DISK_SPACE_LOW);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void write(String value) {
+        if (isPaused()) {
+            return;
+        }
+        try {
+            int startPosition = buffer.position();
+            if (!encode(value)) {
+                // Drain the preceding records and retry with the entire buffer.
+                buffer.position(startPosition);
+                drain();
+                if (!encode(value)) {
+                    buffer.clear();
+                    gatheringWrite(charset.encode(value));
+                }
+            }
+        } catch (IOException error) {
+            String message = String.format("write failure (valueLength=%d)", value.length());
+            throw new RuntimeException(message, error);
+        }
+        metrics.incrementRecordedCount();
+    }
+
+    /**
+     * @return false, if the buffer overflows, where the buffer contains an incomplete value
+     */
+    private boolean encode(String value) {
+        charsetEncoder.reset();
+        CoderResult result = charsetEncoder.encode(CharBuffer.wrap(value), buffer, true);
+        if (result.isUnderflow()) {
+            result = charsetEncoder.flush(buffer);
+        }
+        return !result.isOverflow();
+    }
+
+    @Override
+    public void write(ByteBuffer... buffers) {
+        if (isPaused()) {
+            return;
+        }
+        long byteCount = 0;
+        for (ByteBuffer buffer : buffers) {
+            byteCount += buffer.remaining();
+        }
+        try {
+            if (byteCount <= buffer.remaining()) {
+                for (ByteBuffer buffer : buffers) {
+                    this.buffer.put(buffer);
+                }
+            } else {
+                gatheringWrite(buffers);
+            }
+        } catch (IOException error) {
+            String message = String.format("write failure (byteCount=%d)", byteCount);
+            throw new RuntimeException(message, error);
+        }
+        metrics.incrementRecordedCount();
+    }
+
+    private void gatheringWrite(ByteBuffer... buffers) throws IOException {
+        if (gatheringBuffers.length != buffers.length + 1) {
+            gatheringBuffers = new ByteBuffer[buffers.length + 1];
+        }
+        ByteBuffer[] allBuffers = gatheringBuffers;
+        buffer.flip();
+        allBuffers[0] = buffer;
+        System.arraycopy(buffers, 0, allBuffers, 1, buffers.length);
+        try {
+            writeFully(allBuffers);
+        } finally {
+            buffer.clear();
+            for (int bufferIndex = 0; bufferIndex < allBuffers.length; bufferIndex++) {
+                allBuffers[bufferIndex] = null;
+            }
+        }
+    }
+
+    private void writeFully(ByteBuffer[] buffers) throws IOException {
+        long byteCount = 0;
+        for (ByteBuffer buffer : buffers) {
+            byteCount += buffer.remaining();
+        }
+        if (limiter != null) {
+            limiter.acquire(byteCount);
+        }
+        while (byteCount > 0) {
+            byteCount -= channel.write(buffers);
+        }
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        try {
+            if (limiter != null && buffer.hasRemaining()) {
+                limiter.acquire(buffer.remaining());
+            }
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    @Override
+    public void flush() {
+        try {
+            drain();
+            if (channel instanceof OutputStreamByteChannel) {
+                ((OutputStreamByteChannel) channel).getOutputStream().flush();
+            }
+        } catch (IOException error) {
+            throw new RuntimeException("flush failure", error);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        LOGGER.trace("closing");
+        try {
+            drain();
+        } finally {
+            channel.close();
+        }
+    }
+
+}
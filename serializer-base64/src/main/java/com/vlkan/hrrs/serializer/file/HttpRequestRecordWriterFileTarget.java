@@ -1,83 +1,97 @@
 package com.vlkan.hrrs.serializer.file;
 
 import com.google.common.base.MoreObjects;
-import com.vlkan.hrrs.api.HttpRequestRecordWriterTarget;
+import com.vlkan.hrrs.serializer.gzip.HrrsBlockGzip;
+import com.vlkan.hrrs.serializer.gzip.HrrsBlockGzipOutputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.NotThreadSafe;
-import java.io.*;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
 import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
 @NotThreadSafe
-public class HttpRequestRecordWriterFileTarget implements HttpRequestRecordWriterTarget<String> {
+public class HttpRequestRecordWriterFileTarget extends HttpRequestRecordWriterChannelTarget {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(HttpRequestRecordWriterFileTarget.class);
 
     private final File file;
 
-    private final Charset charset;
-
-    private final BufferedWriter writer;
+    private final boolean blockCompressed;
 
+    /**
+     * Creates a target, which is {@link HrrsBlockGzip block gzip} compressed if the file has a {@code .gz} extension.
+     */
     public HttpRequestRecordWriterFileTarget(File file, Charset charset) {
-        this.file = checkNotNull(file, "file");
-        this.charset = checkNotNull(charset, "charset");
-        this.writer = createWriter(file, charset);
-        LOGGER.trace("instantiated (file={}, charset={})", file, charset);
+        this(file, charset, HttpRequestRecordReaderFileSource.isGzipped(file));
     }
 
-    private static BufferedWriter createWriter(File file, Charset charset) {
-        try {
-            FileOutputStream fileOutputStream = new FileOutputStream(file, true);
-            OutputStreamWriter outputStreamWriter = new OutputStreamWriter(fileOutputStream, charset);
-            return new BufferedWriter(outputStreamWriter);
-        } catch (IOException error) {
-            String message = String.format("failed opening file (file=%s, charset=%s)", file, charset);
-            throw new RuntimeException(message, error);
-        }
+    public HttpRequestRecordWriterFileTarget(File file, Charset charset, boolean blockCompressed) {
+        this(file, charset, blockCompressed, DEFAULT_BUFFER_BYTE_COUNT);
     }
 
-    public File getFile() {
-        return file;
+    public HttpRequestRecordWriterFileTarget(File file, Charset charset, boolean blockCompressed, int bufferByteCount) {
+        this(file, charset, blockCompressed, bufferByteCount, null);
     }
 
-    public Charset getCharset() {
-        return charset;
+    /**
+     * @param limiter if not null, throttles writes and pauses capture on low disk space
+     */
+    public HttpRequestRecordWriterFileTarget(
+            File file,
+            Charset charset,
+            boolean blockCompressed,
+            int bufferByteCount,
+            @Nullable HttpRequestRecordWriteLimiter limiter) {
+        super(createChannel(file, charset, blockCompressed), charset, bufferByteCount, limiter);
+        this.file = file;
+        this.blockCompressed = blockCompressed;
+        LOGGER.trace(
+                "instantiated (file={}, charset={}, blockCompressed={}, bufferByteCount={}, limiter={})",
+                file, charset, blockCompressed, bufferByteCount, limiter);
     }
 
-    @Override
-    public void write(String value) {
+    private static GatheringByteChannel createChannel(File file, Charset charset, boolean blockCompressed) {
+        checkNotNull(file, "file");
         try {
-            writer.write(value);
+            if (!blockCompressed) {
+                return FileChannel.open(
+                        file.toPath(),
+                        StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE,
+                        StandardOpenOption.APPEND);
+            }
+            FileOutputStream fileOutputStream = new FileOutputStream(file, true);
+            return createChannel(new HrrsBlockGzipOutputStream(fileOutputStream));
         } catch (IOException error) {
-            String message = String.format("write failure (valueLength=%d)", value.length());
+            String message = String.format("failed opening file (file=%s, charset=%s)", file, charset);
             throw new RuntimeException(message, error);
         }
     }
 
-    @Override
-    public void flush() {
-        try {
-            writer.flush();
-        } catch (IOException error) {
-            throw new RuntimeException("flush failure", error);
-        }
+    public File getFile() {
+        return file;
     }
 
-    @Override
-    public void close() throws IOException {
-        LOGGER.trace("closing");
-        writer.close();
+    public boolean isBlockCompressed() {
+        return blockCompressed;
     }
 
     @Override
     public String toString() {
         return MoreObjects.toStringHelper(this)
                 .add("file", file)
-                .add("charset", charset)
+                .add("charset", getCharset())
+                .add("blockCompressed", blockCompressed)
+                .add("limiter", getLimiter())
                 .toString();
     }
 
@@ -1,88 +1,394 @@
 package com.vlkan.hrrs.serializer.file;
 
 import com.google.common.base.MoreObjects;
-import com.vlkan.hrrs.api.HttpRequestRecordWriterTarget;
+import com.vlkan.hrrs.api.HttpRequestRecordRotatingWriterTarget;
+import com.vlkan.hrrs.api.jfr.HrrsEvents;
+import com.vlkan.hrrs.serializer.gzip.HrrsBlockGzip;
+import com.vlkan.hrrs.serializer.gzip.HrrsBlockGzipOutputStream;
 import com.vlkan.rfos.RotatingFileOutputStream;
+import com.vlkan.rfos.RotationCallback;
 import com.vlkan.rfos.RotationConfig;
+import com.vlkan.rfos.policy.RotationPolicy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
 import javax.annotation.concurrent.NotThreadSafe;
-import java.io.BufferedWriter;
+import java.io.File;
 import java.io.IOException;
-import java.io.OutputStream;
-import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.time.Instant;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
+/**
+ * Target writing records to a {@link RotatingFileOutputStream rotating file}.
+ *
+ * Rotations triggered by the policies are deferred to the next write or
+ * flush, where they complete after the buffered records, including the ones
+ * in the current {@link HrrsBlockGzip block}, are written to the rotated file.
+ * Hence records never span files, and writers can tell the first record of
+ * every file by the {@link #getRotationCount() rotation count}.
+ */
 @NotThreadSafe
-public class HttpRequestRecordWriterRotatingFileTarget implements HttpRequestRecordWriterTarget<String> {
+public class HttpRequestRecordWriterRotatingFileTarget
+        extends HttpRequestRecordWriterChannelTarget
+        implements HttpRequestRecordRotatingWriterTarget {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(HttpRequestRecordWriterRotatingFileTarget.class);
 
     private final RotationConfig rotationConfig;
 
-    private final Charset charset;
+    private final DeferredRotatingFileOutputStream fileOutputStream;
 
-    private final BufferedWriter writer;
+    @Nullable
+    private final HrrsBlockGzipOutputStream blockOutputStream;
+
+    @Nullable
+    private final HttpRequestRecordHousekeeper housekeeper;
+
+    private long rotationCount = 0;
 
     public HttpRequestRecordWriterRotatingFileTarget(RotationConfig rotationConfig, Charset charset) {
-        this.rotationConfig = checkNotNull(rotationConfig, "rotationConfig");
-        this.charset = checkNotNull(charset, "charset");
-        this.writer = createWriter(rotationConfig, charset);
-        LOGGER.trace("instantiated (file={}, charset={})", rotationConfig.getFile(), charset);
+        this(rotationConfig, charset, false);
+    }
+
+    /**
+     * @param blockCompressed write {@link HrrsBlockGzip block gzip} compressed files, which
+     *                        is mutually exclusive with {@link RotationConfig#isCompress()}
+     */
+    public HttpRequestRecordWriterRotatingFileTarget(RotationConfig rotationConfig, Charset charset, boolean blockCompressed) {
+        this(rotationConfig, charset, blockCompressed, DEFAULT_BUFFER_BYTE_COUNT);
+    }
+
+    /**
+     * @param bufferByteCount size of the buffer, which is written to the rotating file at record
+     *                        boundaries, hence records never span files
+     */
+    public HttpRequestRecordWriterRotatingFileTarget(
+            RotationConfig rotationConfig,
+            Charset charset,
+            boolean blockCompressed,
+            int bufferByteCount) {
+        this(rotationConfig, charset, blockCompressed, bufferByteCount, null);
+    }
+
+    /**
+     * @param housekeeper if not null, compresses, indexes, and deletes the rotated files in the
+     *                    background, which is mutually exclusive with {@link RotationConfig#isCompress()};
+     *                    the {@link RotationConfig#getCallback() rotation callback} is notified of
+     *                    successful rotations once the housekeeping completes, and passed the housekept file;
+     *                    the housekeeper is closed along with the target
+     */
+    public HttpRequestRecordWriterRotatingFileTarget(
+            RotationConfig rotationConfig,
+            Charset charset,
+            boolean blockCompressed,
+            int bufferByteCount,
+            @Nullable HttpRequestRecordHousekeeper housekeeper) {
+        this(rotationConfig, charset, blockCompressed, bufferByteCount, housekeeper, null);
+    }
+
+    /**
+     * @param limiter if not null, throttles writes and pauses capture on low disk space
+     */
+    public HttpRequestRecordWriterRotatingFileTarget(
+            RotationConfig rotationConfig,
+            Charset charset,
+            boolean blockCompressed,
+            int bufferByteCount,
+            @Nullable HttpRequestRecordHousekeeper housekeeper,
+            @Nullable HttpRequestRecordWriteLimiter limiter) {
+        this(createFileOutputStream(rotationConfig, charset, blockCompressed, housekeeper),
+                rotationConfig, charset, blockCompressed, bufferByteCount, housekeeper, limiter);
     }
 
-    private static BufferedWriter createWriter(RotationConfig rotationConfig, Charset charset) {
+    private HttpRequestRecordWriterRotatingFileTarget(
+            DeferredRotatingFileOutputStream fileOutputStream,
+            RotationConfig rotationConfig,
+            Charset charset,
+            boolean blockCompressed,
+            int bufferByteCount,
+            @Nullable HttpRequestRecordHousekeeper housekeeper,
+            @Nullable HttpRequestRecordWriteLimiter limiter) {
+        this(fileOutputStream,
+                blockCompressed ? new HrrsBlockGzipOutputStream(fileOutputStream) : null,
+                rotationConfig, charset, bufferByteCount, housekeeper, limiter);
+    }
+
+    private HttpRequestRecordWriterRotatingFileTarget(
+            DeferredRotatingFileOutputStream fileOutputStream,
+            @Nullable HrrsBlockGzipOutputStream blockOutputStream,
+            RotationConfig rotationConfig,
+            Charset charset,
+            int bufferByteCount,
+            @Nullable HttpRequestRecordHousekeeper housekeeper,
+            @Nullable HttpRequestRecordWriteLimiter limiter) {
+        super(createChannel(blockOutputStream != null ? blockOutputStream : fileOutputStream), charset, bufferByteCount, limiter);
+        this.rotationConfig = rotationConfig;
+        this.fileOutputStream = fileOutputStream;
+        this.blockOutputStream = blockOutputStream;
+        this.housekeeper = housekeeper;
+        LOGGER.trace(
+                "instantiated (file={}, charset={}, blockCompressed={}, bufferByteCount={}, housekeeper={}, limiter={})",
+                rotationConfig.getFile(), charset, blockOutputStream != null, bufferByteCount, housekeeper, limiter);
+    }
+
+    private static DeferredRotatingFileOutputStream createFileOutputStream(
+            RotationConfig rotationConfig,
+            Charset charset,
+            boolean blockCompressed,
+            @Nullable HttpRequestRecordHousekeeper housekeeper) {
+        checkNotNull(rotationConfig, "rotationConfig");
+        checkArgument(
+                !blockCompressed || !rotationConfig.isCompress(),
+                "block compression cannot be combined with the compression of rotated files");
+        checkArgument(
+                housekeeper == null || !rotationConfig.isCompress(),
+                "housekeeping cannot be combined with the compression of rotated files");
+        if (housekeeper != null) {
+            HttpRequestRecordHousekeeper.checkRotationConfig(rotationConfig);
+        }
         try {
-            OutputStream outputStream = new RotatingFileOutputStream(rotationConfig);
-            OutputStreamWriter outputStreamWriter = new OutputStreamWriter(outputStream, charset);
-            return new BufferedWriter(outputStreamWriter);
+            RotationConfig eventEmittingRotationConfig = createEventEmittingRotationConfig(rotationConfig, housekeeper);
+            return new DeferredRotatingFileOutputStream(eventEmittingRotationConfig);
         } catch (Exception error) {
             String message = String.format("failed opening file (file=%s, charset=%s)", rotationConfig.getFile(), charset);
             throw new RuntimeException(message, error);
         }
     }
 
+    private static RotationConfig createEventEmittingRotationConfig(
+            RotationConfig rotationConfig,
+            @Nullable HttpRequestRecordHousekeeper housekeeper) {
+        RotationCallback delegate = housekeeper != null
+                ? new HousekeepingRotationCallback(rotationConfig, housekeeper)
+                : rotationConfig.getCallback();
+        RotationCallback callback = new EventEmittingRotationCallback(rotationConfig.getFile(), delegate);
+        return RotationConfig
+                .builder()
+                .file(rotationConfig.getFile())
+                .filePattern(rotationConfig.getFilePattern())
+                .timer(rotationConfig.getTimer())
+                .policies(rotationConfig.getPolicies())
+                .append(rotationConfig.isAppend())
+                .compress(rotationConfig.isCompress())
+                .clock(rotationConfig.getClock())
+                .callback(callback)
+                .build();
+    }
+
+    /**
+     * Rotating stream deferring the rotations triggered by the policies
+     * until the target {@link #completeRotation() completes} them.
+     */
+    private static final class DeferredRotatingFileOutputStream extends RotatingFileOutputStream {
+
+        /**
+         * The last rotation triggered, but not completed yet, if any.
+         * Set by the policies, possibly in the constructor of the superclass.
+         */
+        @Nullable
+        @GuardedBy("this")
+        private RotationPolicy triggeredPolicy;
+
+        @Nullable
+        @GuardedBy("this")
+        private Instant triggeredInstant;
+
+        private DeferredRotatingFileOutputStream(RotationConfig config) {
+            super(config);
+        }
+
+        @Override
+        public synchronized void rotate(RotationPolicy policy, Instant instant) {
+            triggeredPolicy = policy;
+            triggeredInstant = instant;
+        }
+
+        private synchronized boolean isRotationTriggered() {
+            return triggeredPolicy != null;
+        }
+
+        /**
+         * @return false, if no rotation is triggered
+         */
+        private boolean completeRotation() {
+            RotationPolicy policy;
+            Instant instant;
+            synchronized (this) {
+                policy = triggeredPolicy;
+                instant = triggeredInstant;
+                triggeredPolicy = null;
+                triggeredInstant = null;
+            }
+            if (policy == null) {
+                return false;
+            }
+            super.rotate(policy, instant);
+            return true;
+        }
+
+    }
+
+    /**
+     * Emits a {@link HrrsEvents#emitFileRotation(String, String, String, long, boolean) file rotation event}
+     * for each rotation before passing it to the user-provided callback.
+     */
+    private static final class EventEmittingRotationCallback implements RotationCallback {
+
+        private final String file;
+
+        private final RotationCallback delegate;
+
+        private volatile long triggerTimeNanos;
+
+        private EventEmittingRotationCallback(File file, RotationCallback delegate) {
+            this.file = file.getPath();
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void onTrigger(RotationPolicy policy, Instant instant) {
+            triggerTimeNanos = System.nanoTime();
+            delegate.onTrigger(policy, instant);
+        }
+
+        @Override
+        public void onSuccess(RotationPolicy policy, Instant instant, File file) {
+            long durationNanos = System.nanoTime() - triggerTimeNanos;
+            HrrsEvents.emitFileRotation(String.valueOf(policy), this.file, file.getPath(), durationNanos, true);
+            delegate.onSuccess(policy, instant, file);
+        }
+
+        @Override
+        public void onFailure(RotationPolicy policy, Instant instant, File file, Exception error) {
+            long durationNanos = System.nanoTime() - triggerTimeNanos;
+            String rotatedFile = file != null ? file.getPath() : null;
+            HrrsEvents.emitFileRotation(String.valueOf(policy), this.file, rotatedFile, durationNanos, false);
+            delegate.onFailure(policy, instant, file, error);
+        }
+
+    }
+
+    /**
+     * Hands rotated files over to the {@link HttpRequestRecordHousekeeper housekeeper}
+     * and passes the rotation to the user-provided callback once it is done.
+     */
+    private static final class HousekeepingRotationCallback implements RotationCallback {
+
+        private final RotationConfig rotationConfig;
+
+        private final HttpRequestRecordHousekeeper housekeeper;
+
+        private HousekeepingRotationCallback(RotationConfig rotationConfig, HttpRequestRecordHousekeeper housekeeper) {
+            this.rotationConfig = rotationConfig;
+            this.housekeeper = housekeeper;
+        }
+
+        @Override
+        public void onTrigger(RotationPolicy policy, Instant instant) {
+            rotationConfig.getCallback().onTrigger(policy, instant);
+        }
+
+        @Override
+        public void onSuccess(RotationPolicy policy, Instant instant, File file) {
+            housekeeper.submit(
+                    rotationConfig, file,
+                    housekeptFile -> rotationConfig.getCallback().onSuccess(policy, instant, housekeptFile));
+        }
+
+        @Override
+        public void onFailure(RotationPolicy policy, Instant instant, File file, Exception error) {
+            rotationConfig.getCallback().onFailure(policy, instant, file, error);
+        }
+
+    }
+
     public RotationConfig getRotationConfig() {
         return rotationConfig;
     }
 
-    public Charset getCharset() {
-        return charset;
+    public boolean isBlockCompressed() {
+        return blockOutputStream != null;
+    }
+
+    @Nullable
+    public HttpRequestRecordHousekeeper getHousekeeper() {
+        return housekeeper;
+    }
+
+    @Override
+    public long getRotationCount() {
+        return rotationCount;
     }
 
     @Override
     public void write(String value) {
-        try {
-            writer.write(value);
-        } catch (IOException error) {
-            String message = String.format("write failure (valueLength=%d)", value.length());
-            throw new RuntimeException(message, error);
-        }
+        super.write(value);
+        rotateIfTriggered();
+    }
+
+    @Override
+    public void write(ByteBuffer... buffers) {
+        super.write(buffers);
+        rotateIfTriggered();
     }
 
     @Override
     public void flush() {
-        try {
-            writer.flush();
-        } catch (IOException error) {
-            throw new RuntimeException("flush failure", error);
+        super.flush();
+        rotateIfTriggered();
+    }
+
+    /**
+     * Completes the rotation triggered since the last call, if any, after
+     * writing the buffered records to the file being rotated.
+     */
+    private void rotateIfTriggered() {
+        if (!fileOutputStream.isRotationTriggered()) {
+            return;
+        }
+        super.flush();
+        if (blockOutputStream != null) {
+            try {
+                blockOutputStream.flushBlocks();
+            } catch (IOException error) {
+                throw new RuntimeException("block flush failure", error);
+            }
+        }
+        if (fileOutputStream.completeRotation()) {
+            rotationCount++;
         }
     }
 
+    /**
+     * Closes the file, registers it in the manifest of its directory, if enabled by the
+     * housekeeper, and waits for the housekeeping of the rotated files to complete.
+     */
     @Override
     public void close() throws IOException {
-        LOGGER.trace("closing");
-        writer.close();
+        try {
+            super.close();
+        } finally {
+            if (housekeeper != null) {
+                housekeeper.register(rotationConfig.getFile());
+                housekeeper.close();
+            }
+        }
     }
 
     @Override
     public String toString() {
         return MoreObjects.toStringHelper(this)
                 .add("file", rotationConfig.getFile())
-                .add("charset", charset)
+                .add("charset", getCharset())
+                .add("blockCompressed", isBlockCompressed())
+                .add("housekeeper", housekeeper)
+                .add("limiter", getLimiter())
                 .toString();
     }
 
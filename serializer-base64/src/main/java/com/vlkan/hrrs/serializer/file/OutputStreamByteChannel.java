@@ -0,0 +1,105 @@
+package com.vlkan.hrrs.serializer.file;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.GatheringByteChannel;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Channel writing to an {@link OutputStream} using a single
+ * {@link OutputStream#write(byte[], int, int)} call per channel write.
+ *
+ * Unlike {@link java.nio.channels.Channels#newChannel(OutputStream)}, which
+ * writes in chunks, a gathering write is passed to the stream as a whole,
+ * hence streams rotating on write boundaries never split the written records.
+ */
+@NotThreadSafe
+class OutputStreamByteChannel implements GatheringByteChannel {
+
+    private final OutputStream outputStream;
+
+    private byte[] gatheringBytes = new byte[0];
+
+    private boolean open = true;
+
+    OutputStreamByteChannel(OutputStream outputStream) {
+        this.outputStream = checkNotNull(outputStream, "outputStream");
+    }
+
+    OutputStream getOutputStream() {
+        return outputStream;
+    }
+
+    @Override
+    public int write(ByteBuffer buffer) throws IOException {
+        ensureOpen();
+        int byteCount = buffer.remaining();
+        if (buffer.hasArray()) {
+            outputStream.write(buffer.array(), buffer.arrayOffset() + buffer.position(), byteCount);
+            buffer.position(buffer.limit());
+        } else {
+            byte[] bytes = reserveGatheringBytes(byteCount);
+            buffer.get(bytes, 0, byteCount);
+            outputStream.write(bytes, 0, byteCount);
+        }
+        return byteCount;
+    }
+
+    @Override
+    public long write(ByteBuffer[] buffers) throws IOException {
+        return write(buffers, 0, buffers.length);
+    }
+
+    @Override
+    public long write(ByteBuffer[] buffers, int offset, int length) throws IOException {
+        ensureOpen();
+        if (length == 1) {
+            return write(buffers[offset]);
+        }
+        int byteCount = 0;
+        for (int bufferIndex = offset; bufferIndex < offset + length; bufferIndex++) {
+            byteCount = Math.addExact(byteCount, buffers[bufferIndex].remaining());
+        }
+        byte[] bytes = reserveGatheringBytes(byteCount);
+        int position = 0;
+        for (int bufferIndex = offset; bufferIndex < offset + length; bufferIndex++) {
+            ByteBuffer buffer = buffers[bufferIndex];
+            int remaining = buffer.remaining();
+            buffer.get(bytes, position, remaining);
+            position += remaining;
+        }
+        outputStream.write(bytes, 0, byteCount);
+        return byteCount;
+    }
+
+    private byte[] reserveGatheringBytes(int byteCount) {
+        if (gatheringBytes.length < byteCount) {
+            gatheringBytes = new byte[byteCount];
+        }
+        return gatheringBytes;
+    }
+
+    private void ensureOpen() throws ClosedChannelException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (open) {
+            open = false;
+            outputStream.close();
+        }
+    }
+
+}
@@ -0,0 +1,247 @@
+package com.vlkan.hrrs.serializer.gzip;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Block gzip format shared by {@link HrrsBlockGzipOutputStream} and {@link HrrsBlockGzipInputStream}.
+ *
+ * A block gzip file is a multi-member gzip file, where every member
+ * compresses a single block independently. Hence it can be read by any gzip
+ * implementation (e.g., {@code zcat}). Similar to BGZF, every member header
+ * contains an {@code FEXTRA} subfield ({@code SI1='H'}, {@code SI2='B'})
+ * storing the length of the entire member. These lengths form the block
+ * index, which allows splitting the file into blocks without inflating and
+ * hence decompressing the blocks in parallel.
+ *
+ * <pre>
+ * header (20 bytes): 1f 8b 08 04 00000000 00 ff | XLEN=8 | 'H' 'B' LEN=4 | member length (4 bytes)
+ * deflated block
+ * trailer (8 bytes): CRC32 | block length
+ * </pre>
+ */
+public enum HrrsBlockGzip {;
+
+    public static final int DEFAULT_BLOCK_BYTE_COUNT = 1024 * 1024;
+
+    public static final int DEFAULT_COMPRESSION_LEVEL = Deflater.DEFAULT_COMPRESSION;
+
+    static final int HEADER_BYTE_COUNT = 20;
+
+    static final int TRAILER_BYTE_COUNT = 8;
+
+    private static final int ID1 = 0x1f;
+
+    private static final int ID2 = 0x8b;
+
+    private static final int CM_DEFLATE = 8;
+
+    private static final int FLG_FEXTRA = 4;
+
+    private static final int OS_UNKNOWN = 0xff;
+
+    private static final int SI1 = 'H';
+
+    private static final int SI2 = 'B';
+
+    private static final ThreadLocal<Deflater[]> DEFLATERS = ThreadLocal.withInitial(() -> new Deflater[11]);
+
+    private static final ThreadLocal<Inflater> INFLATERS = ThreadLocal.withInitial(() -> new Inflater(true));
+
+    private static final class ExecutorHolder {
+
+        private static final ExecutorService EXECUTOR = createExecutor();
+
+        private static ExecutorService createExecutor() {
+            AtomicInteger threadCounter = new AtomicInteger();
+            int threadCount = Runtime.getRuntime().availableProcessors();
+            return Executors.newFixedThreadPool(threadCount, runnable -> {
+                String threadName = String.format("HRRS Block Gzip-%d", threadCounter.getAndIncrement());
+                Thread thread = new Thread(runnable, threadName);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+    }
+
+    /**
+     * @return the shared executor of daemon threads, one per available processor, to (de)compress blocks
+     */
+    public static ExecutorService getDefaultExecutor() {
+        return ExecutorHolder.EXECUTOR;
+    }
+
+    public static int getDefaultParallelism() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    static byte[] compress(byte[] block, int blockByteCount, int compressionLevel) {
+        Deflater deflater = getDeflater(compressionLevel);
+        deflater.setInput(block, 0, blockByteCount);
+        deflater.finish();
+        byte[] member = new byte[HEADER_BYTE_COUNT + blockByteCount + blockByteCount / 64 + 64];
+        int memberByteCount = HEADER_BYTE_COUNT;
+        while (!deflater.finished()) {
+            if (memberByteCount == member.length) {
+                member = Arrays.copyOf(member, 2 * member.length);
+            }
+            memberByteCount += deflater.deflate(member, memberByteCount, member.length - memberByteCount);
+        }
+        deflater.reset();
+        if (member.length < memberByteCount + TRAILER_BYTE_COUNT) {
+            member = Arrays.copyOf(member, memberByteCount + TRAILER_BYTE_COUNT);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(block, 0, blockByteCount);
+        writeIntLE(member, memberByteCount, (int) crc.getValue());
+        writeIntLE(member, memberByteCount + 4, blockByteCount);
+        memberByteCount += TRAILER_BYTE_COUNT;
+        writeHeader(member, memberByteCount);
+        return member.length == memberByteCount ? member : Arrays.copyOf(member, memberByteCount);
+    }
+
+    private static Deflater getDeflater(int compressionLevel) {
+        Deflater[] deflaters = DEFLATERS.get();
+        int deflaterIndex = compressionLevel + 1;
+        Deflater deflater = deflaters[deflaterIndex];
+        if (deflater == null) {
+            deflater = new Deflater(compressionLevel, true);
+            deflaters[deflaterIndex] = deflater;
+        }
+        return deflater;
+    }
+
+    private static void writeHeader(byte[] member, int memberByteCount) {
+        member[0] = (byte) ID1;
+        member[1] = (byte) ID2;
+        member[2] = (byte) CM_DEFLATE;
+        member[3] = (byte) FLG_FEXTRA;
+        writeIntLE(member, 4, 0);           // MTIME
+        member[8] = 0;                      // XFL
+        member[9] = (byte) OS_UNKNOWN;
+        writeShortLE(member, 10, 8);        // XLEN
+        member[12] = (byte) SI1;
+        member[13] = (byte) SI2;
+        writeShortLE(member, 14, 4);        // LEN
+        writeIntLE(member, 16, memberByteCount);
+    }
+
+    static byte[] decompress(byte[] member, int memberByteCount) throws IOException {
+        int blockByteCount = readIntLE(member, memberByteCount - 4);
+        int expectedCrc = readIntLE(member, memberByteCount - TRAILER_BYTE_COUNT);
+        byte[] block = new byte[blockByteCount];
+        Inflater inflater = INFLATERS.get();
+        try {
+            inflater.setInput(member, HEADER_BYTE_COUNT, memberByteCount - HEADER_BYTE_COUNT - TRAILER_BYTE_COUNT);
+            int inflatedByteCount = 0;
+            while (inflatedByteCount < blockByteCount && !inflater.finished()) {
+                int byteCount = inflater.inflate(block, inflatedByteCount, blockByteCount - inflatedByteCount);
+                if (byteCount == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                inflatedByteCount += byteCount;
+            }
+            if (inflatedByteCount != blockByteCount) {
+                throw new IOException(String.format(
+                        "block length mismatch (expected=%d, actual=%d)", blockByteCount, inflatedByteCount));
+            }
+        } catch (DataFormatException error) {
+            throw new IOException("corrupt block", error);
+        } finally {
+            inflater.reset();
+        }
+        CRC32 crc = new CRC32();
+        crc.update(block, 0, blockByteCount);
+        if ((int) crc.getValue() != expectedCrc) {
+            throw new IOException("block CRC mismatch");
+        }
+        return block;
+    }
+
+    /**
+     * Reads the header of the next member from the given stream.
+     *
+     * @return the member length if the header denotes a block gzip member,
+     * 0 at the end of the stream, otherwise -1
+     */
+    static int readMemberByteCount(InputStream inputStream, byte[] header) throws IOException {
+        int headerByteCount = readFully(inputStream, header, 0, HEADER_BYTE_COUNT);
+        if (headerByteCount == 0) {
+            return 0;
+        }
+        boolean blockMember = headerByteCount == HEADER_BYTE_COUNT
+                && (header[0] & 0xff) == ID1
+                && (header[1] & 0xff) == ID2
+                && header[2] == CM_DEFLATE
+                && header[3] == FLG_FEXTRA
+                && readShortLE(header, 10) == 8
+                && header[12] == SI1
+                && header[13] == SI2
+                && readShortLE(header, 14) == 4;
+        if (!blockMember) {
+            return -1;
+        }
+        int memberByteCount = readIntLE(header, 16);
+        if (memberByteCount < HEADER_BYTE_COUNT + TRAILER_BYTE_COUNT) {
+            throw new IOException("invalid block gzip member length: " + memberByteCount);
+        }
+        return memberByteCount;
+    }
+
+    /**
+     * Checks if the given stream, which must support {@link InputStream#mark(int) marking}, is in block gzip format.
+     */
+    public static boolean isBlockGzipped(InputStream inputStream) throws IOException {
+        inputStream.mark(HEADER_BYTE_COUNT);
+        try {
+            return readMemberByteCount(inputStream, new byte[HEADER_BYTE_COUNT]) > 0;
+        } finally {
+            inputStream.reset();
+        }
+    }
+
+    static int readFully(InputStream inputStream, byte[] buffer, int offset, int length) throws IOException {
+        int totalByteCount = 0;
+        while (totalByteCount < length) {
+            int byteCount = inputStream.read(buffer, offset + totalByteCount, length - totalByteCount);
+            if (byteCount < 0) {
+                break;
+            }
+            totalByteCount += byteCount;
+        }
+        return totalByteCount;
+    }
+
+    private static void writeShortLE(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) value;
+        bytes[offset + 1] = (byte) (value >>> 8);
+    }
+
+    private static void writeIntLE(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) value;
+        bytes[offset + 1] = (byte) (value >>> 8);
+        bytes[offset + 2] = (byte) (value >>> 16);
+        bytes[offset + 3] = (byte) (value >>> 24);
+    }
+
+    private static int readShortLE(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xff) | (bytes[offset + 1] & 0xff) << 8;
+    }
+
+    private static int readIntLE(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xff)
+                | (bytes[offset + 1] & 0xff) << 8
+                | (bytes[offset + 2] & 0xff) << 16
+                | (bytes[offset + 3] & 0xff) << 24;
+    }
+
+}
@@ -0,0 +1,227 @@
+package com.vlkan.hrrs.serializer.gzip;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Reads {@link HrrsBlockGzip block gzip} compressed data.
+ *
+ * Members are split using the lengths in their headers and inflated on the
+ * given executor, keeping up to {@code parallelism} blocks ahead of the
+ * consumer. If a regular gzip member is encountered (e.g., a file rotated
+ * and compressed by other means is appended), the rest of the stream is
+ * read sequentially via {@link GZIPInputStream}.
+ */
+@NotThreadSafe
+public class HrrsBlockGzipInputStream extends InputStream {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HrrsBlockGzipInputStream.class);
+
+    private static final byte[] EMPTY_BLOCK = {};
+
+    private static final class PendingBlock {
+
+        private final long memberOffset;
+
+        private final Future<byte[]> block;
+
+        private PendingBlock(long memberOffset, Future<byte[]> block) {
+            this.memberOffset = memberOffset;
+            this.block = block;
+        }
+
+    }
+
+    private final InputStream inputStream;
+
+    private final ExecutorService executor;
+
+    private final int parallelism;
+
+    private final ArrayDeque<PendingBlock> pendingBlocks = new ArrayDeque<>();
+
+    private final byte[] header = new byte[HrrsBlockGzip.HEADER_BYTE_COUNT];
+
+    private byte[] block = EMPTY_BLOCK;
+
+    private int blockPosition = 0;
+
+    private long blockOffset = -1;
+
+    private long nextMemberOffset;
+
+    private boolean memberEndReached = false;
+
+    private boolean sequentialReadRequired = false;
+
+    private InputStream sequentialInputStream = null;
+
+    public HrrsBlockGzipInputStream(InputStream inputStream) {
+        this(inputStream, 0);
+    }
+
+    /**
+     * @param memberOffset offset of the first member in the file, used to report {@link #getBlockOffset() block offsets}
+     */
+    public HrrsBlockGzipInputStream(InputStream inputStream, long memberOffset) {
+        this(inputStream, memberOffset, HrrsBlockGzip.getDefaultExecutor(), HrrsBlockGzip.getDefaultParallelism());
+    }
+
+    public HrrsBlockGzipInputStream(InputStream inputStream, ExecutorService executor, int parallelism) {
+        this(inputStream, 0, executor, parallelism);
+    }
+
+    public HrrsBlockGzipInputStream(InputStream inputStream, long memberOffset, ExecutorService executor, int parallelism) {
+        checkNotNull(inputStream, "inputStream");
+        checkArgument(memberOffset >= 0, "expecting: memberOffset >= 0, found: %s", memberOffset);
+        this.nextMemberOffset = memberOffset;
+        this.inputStream = inputStream.markSupported() ? inputStream : new BufferedInputStream(inputStream);
+        this.executor = checkNotNull(executor, "executor");
+        checkArgument(parallelism > 0, "expecting: parallelism > 0, found: %s", parallelism);
+        this.parallelism = parallelism;
+        LOGGER.trace("instantiated (parallelism={})", parallelism);
+    }
+
+    @Override
+    public int read() throws IOException {
+        while (true) {
+            if (sequentialInputStream != null) {
+                return sequentialInputStream.read();
+            }
+            if (blockPosition < block.length) {
+                return block[blockPosition++] & 0xff;
+            }
+            if (!nextBlock()) {
+                return -1;
+            }
+        }
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        while (true) {
+            if (sequentialInputStream != null) {
+                return sequentialInputStream.read(bytes, offset, length);
+            }
+            int availableByteCount = block.length - blockPosition;
+            if (availableByteCount > 0) {
+                int byteCount = Math.min(length, availableByteCount);
+                System.arraycopy(block, blockPosition, bytes, offset, byteCount);
+                blockPosition += byteCount;
+                return byteCount;
+            }
+            if (!nextBlock()) {
+                return -1;
+            }
+        }
+    }
+
+    @Override
+    public int available() {
+        return block.length - blockPosition;
+    }
+
+    /**
+     * @return the file offset of the member containing the most recently
+     * read byte, or -1 if no byte is read yet or the stream has switched to
+     * reading regular gzip members
+     */
+    public long getBlockOffset() {
+        return sequentialInputStream != null ? -1 : blockOffset;
+    }
+
+    /**
+     * @return the offset of the next byte in the uncompressed block
+     */
+    public int getBlockPosition() {
+        return blockPosition;
+    }
+
+    /**
+     * Moves to the next block, if there is any, or to the sequential read mode, if required.
+     *
+     * @return true, if there is more to read
+     */
+    private boolean nextBlock() throws IOException {
+        readMembers();
+        PendingBlock pendingBlock = pendingBlocks.poll();
+        if (pendingBlock == null) {
+            block = EMPTY_BLOCK;
+            blockPosition = 0;
+            if (sequentialReadRequired) {
+                sequentialInputStream = new GZIPInputStream(inputStream);
+                return true;
+            }
+            return false;
+        }
+        try {
+            block = pendingBlock.block.get();
+        } catch (InterruptedException error) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("block decompression is interrupted");
+        } catch (ExecutionException error) {
+            throw new IOException("block decompression failure", error.getCause());
+        }
+        blockPosition = 0;
+        blockOffset = pendingBlock.memberOffset;
+        readMembers();
+        return true;
+    }
+
+    private void readMembers() throws IOException {
+        while (!memberEndReached && pendingBlocks.size() < parallelism) {
+            inputStream.mark(HrrsBlockGzip.HEADER_BYTE_COUNT);
+            int memberByteCount = HrrsBlockGzip.readMemberByteCount(inputStream, header);
+            if (memberByteCount <= 0) {
+                memberEndReached = true;
+                if (memberByteCount < 0) {
+                    inputStream.reset();
+                    sequentialReadRequired = true;
+                }
+                break;
+            }
+            byte[] member = new byte[memberByteCount];
+            System.arraycopy(header, 0, member, 0, HrrsBlockGzip.HEADER_BYTE_COUNT);
+            int remainingByteCount = memberByteCount - HrrsBlockGzip.HEADER_BYTE_COUNT;
+            int readByteCount = HrrsBlockGzip.readFully(inputStream, member, HrrsBlockGzip.HEADER_BYTE_COUNT, remainingByteCount);
+            if (readByteCount != remainingByteCount) {
+                // Last member is partially written, e.g., due to a crash.
+                LOGGER.warn("skipping truncated block gzip member (expected={}, actual={})",
+                        memberByteCount, HrrsBlockGzip.HEADER_BYTE_COUNT + readByteCount);
+                memberEndReached = true;
+                break;
+            }
+            Future<byte[]> block = executor.submit(() -> HrrsBlockGzip.decompress(member, memberByteCount));
+            pendingBlocks.add(new PendingBlock(nextMemberOffset, block));
+            nextMemberOffset += memberByteCount;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        LOGGER.trace("closing");
+        for (PendingBlock pendingBlock : pendingBlocks) {
+            pendingBlock.block.cancel(false);
+        }
+        pendingBlocks.clear();
+        inputStream.close();
+    }
+
+}
@@ -0,0 +1,218 @@
+package com.vlkan.hrrs.serializer.gzip;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Writes {@link HrrsBlockGzip block gzip} compressed data.
+ *
+ * Written bytes are collected into blocks, which are compressed on the
+ * given executor and written to the underlying stream in order. At most
+ * {@code parallelism} blocks are compressed concurrently, beyond that writes
+ * block until the oldest block is written.
+ *
+ * Since callers (e.g., the queue writer) might flush after every few
+ * records, {@link #flush()} only completes the current block if it is older
+ * than the flush period. This bounds both the compression ratio loss and
+ * the amount of data buffered in memory.
+ */
+@NotThreadSafe
+public class HrrsBlockGzipOutputStream extends OutputStream {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HrrsBlockGzipOutputStream.class);
+
+    public static final long DEFAULT_FLUSH_PERIOD_MILLIS = 1000;
+
+    private static final class PendingBlock {
+
+        private final byte[] block;
+
+        private final Future<byte[]> member;
+
+        private PendingBlock(byte[] block, Future<byte[]> member) {
+            this.block = block;
+            this.member = member;
+        }
+
+    }
+
+    private final OutputStream outputStream;
+
+    private final int blockByteCount;
+
+    private final int compressionLevel;
+
+    private final ExecutorService executor;
+
+    private final int parallelism;
+
+    private final long flushPeriodNanos;
+
+    private final ArrayDeque<PendingBlock> pendingBlocks = new ArrayDeque<>();
+
+    private final ArrayDeque<byte[]> freeBlocks = new ArrayDeque<>();
+
+    private byte[] block;
+
+    private int blockPosition = 0;
+
+    private long blockStartNanos;
+
+    private boolean closed = false;
+
+    public HrrsBlockGzipOutputStream(OutputStream outputStream) {
+        this(outputStream,
+                HrrsBlockGzip.DEFAULT_BLOCK_BYTE_COUNT,
+                HrrsBlockGzip.DEFAULT_COMPRESSION_LEVEL,
+                HrrsBlockGzip.getDefaultExecutor(),
+                HrrsBlockGzip.getDefaultParallelism(),
+                DEFAULT_FLUSH_PERIOD_MILLIS);
+    }
+
+    public HrrsBlockGzipOutputStream(OutputStream outputStream,
+                                     int blockByteCount,
+                                     int compressionLevel,
+                                     ExecutorService executor,
+                                     int parallelism,
+                                     long flushPeriodMillis) {
+        this.outputStream = checkNotNull(outputStream, "outputStream");
+        checkArgument(blockByteCount > 0, "expecting: blockByteCount > 0, found: %s", blockByteCount);
+        checkArgument(
+                compressionLevel >= -1 && compressionLevel <= 9,
+                "expecting: -1 <= compressionLevel <= 9, found: %s", compressionLevel);
+        checkArgument(parallelism > 0, "expecting: parallelism > 0, found: %s", parallelism);
+        checkArgument(flushPeriodMillis >= 0, "expecting: flushPeriodMillis >= 0, found: %s", flushPeriodMillis);
+        this.blockByteCount = blockByteCount;
+        this.compressionLevel = compressionLevel;
+        this.executor = checkNotNull(executor, "executor");
+        this.parallelism = parallelism;
+        this.flushPeriodNanos = TimeUnit.MILLISECONDS.toNanos(flushPeriodMillis);
+        this.block = new byte[blockByteCount];
+        LOGGER.trace(
+                "instantiated (blockByteCount={}, compressionLevel={}, parallelism={}, flushPeriodMillis={})",
+                blockByteCount, compressionLevel, parallelism, flushPeriodMillis);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        if (blockPosition == blockByteCount) {
+            completeBlock();
+        }
+        if (blockPosition == 0) {
+            blockStartNanos = System.nanoTime();
+        }
+        block[blockPosition++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        ensureOpen();
+        while (length > 0) {
+            if (blockPosition == blockByteCount) {
+                completeBlock();
+            }
+            if (blockPosition == 0) {
+                blockStartNanos = System.nanoTime();
+            }
+            int byteCount = Math.min(length, blockByteCount - blockPosition);
+            System.arraycopy(bytes, offset, block, blockPosition, byteCount);
+            blockPosition += byteCount;
+            offset += byteCount;
+            length -= byteCount;
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("stream is closed");
+        }
+    }
+
+    private void completeBlock() throws IOException {
+        if (blockPosition == 0) {
+            return;
+        }
+        byte[] completedBlock = block;
+        int completedBlockByteCount = blockPosition;
+        Future<byte[]> member = executor.submit(() ->
+                HrrsBlockGzip.compress(completedBlock, completedBlockByteCount, compressionLevel));
+        pendingBlocks.add(new PendingBlock(completedBlock, member));
+        block = freeBlocks.isEmpty() ? new byte[blockByteCount] : freeBlocks.poll();
+        blockPosition = 0;
+        while (pendingBlocks.size() > parallelism) {
+            writePendingBlock();
+        }
+    }
+
+    private void writePendingBlock() throws IOException {
+        PendingBlock pendingBlock = pendingBlocks.poll();
+        byte[] member;
+        try {
+            member = pendingBlock.member.get();
+        } catch (InterruptedException error) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("block compression is interrupted");
+        } catch (ExecutionException error) {
+            throw new IOException("block compression failure", error.getCause());
+        }
+        freeBlocks.add(pendingBlock.block);
+        outputStream.write(member);
+    }
+
+    private void writePendingBlocks() throws IOException {
+        while (!pendingBlocks.isEmpty()) {
+            writePendingBlock();
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        if (blockPosition > 0 && System.nanoTime() - blockStartNanos >= flushPeriodNanos) {
+            completeBlock();
+        }
+        writePendingBlocks();
+        outputStream.flush();
+    }
+
+    /**
+     * Completes the current block regardless of its age and writes all
+     * pending blocks, e.g., before the underlying stream switches files.
+     */
+    public void flushBlocks() throws IOException {
+        ensureOpen();
+        completeBlock();
+        writePendingBlocks();
+        outputStream.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        LOGGER.trace("closing");
+        try {
+            completeBlock();
+            writePendingBlocks();
+        } finally {
+            closed = true;
+            outputStream.close();
+        }
+    }
+
+}
@@ -0,0 +1,309 @@
+package com.vlkan.hrrs.serializer.index;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Sidecar hash index of the record ids of a capture file, stored in
+ * {@code <file>.id.idx}, allowing the lookup of a record by its id in a
+ * couple of seeks rather than a scan of the file.
+ *
+ * The index is an open addressing hash table with linear probing, where each
+ * slot holds the 64-bit Murmur3 hash of an id and the position to start
+ * reading the record from, i.e., the position of the record itself or, for
+ * {@link com.vlkan.hrrs.serializer.base64.Base64HttpRequestRecordDictionary
+ * dictionary-encoded} records, the position of its dictionary epoch start
+ * along with the number of records preceding it. Since distinct ids might
+ * share a hash (and ids are not guaranteed to be unique), the ids of the
+ * records read from the returned ranges still need to be compared. See
+ * {@link HttpRequestRecordIdLookup} for fetching records by id.
+ */
+@NotThreadSafe
+public class HttpRequestRecordIdIndex implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HttpRequestRecordIdIndex.class);
+
+    public static final String FILE_SUFFIX = ".id.idx";
+
+    private static final int MAGIC = 0x48524944;    // "HRID"
+
+    private static final int VERSION = 1;
+
+    private static final int HEADER_BYTE_COUNT = 4 + 4 + 8 + 8 + 4;
+
+    /**
+     * Slot layout: id hash (8), file offset (8), block offset (4), preceding record count (4).
+     */
+    private static final int SLOT_BYTE_COUNT = 8 + 8 + 4 + 4;
+
+    /**
+     * Number of slots read at once while probing.
+     */
+    private static final int PROBE_SLOT_COUNT = 8;
+
+    private static final long EMPTY_SLOT_HASH = 0;
+
+    private static final int MIN_SLOT_COUNT = 16;
+
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    private final File idIndexFile;
+
+    private final FileChannel channel;
+
+    private final long fileByteCount;
+
+    private final long entryCount;
+
+    private final int slotCount;
+
+    private final ByteBuffer probeBuffer = ByteBuffer.allocate(PROBE_SLOT_COUNT * SLOT_BYTE_COUNT);
+
+    private HttpRequestRecordIdIndex(File idIndexFile, FileChannel channel, long fileByteCount, long entryCount, int slotCount) {
+        this.idIndexFile = idIndexFile;
+        this.channel = channel;
+        this.fileByteCount = fileByteCount;
+        this.entryCount = entryCount;
+        this.slotCount = slotCount;
+    }
+
+    public static File getIdIndexFile(File file) {
+        return new File(file.getPath() + FILE_SUFFIX);
+    }
+
+    public File getIdIndexFile() {
+        return idIndexFile;
+    }
+
+    /**
+     * @return the size of the indexed file
+     */
+    public long getFileByteCount() {
+        return fileByteCount;
+    }
+
+    public long getEntryCount() {
+        return entryCount;
+    }
+
+    /**
+     * @return true, if the given file is not modified since it is indexed
+     */
+    public boolean isUpToDate(File file) {
+        return file.length() == fileByteCount;
+    }
+
+    static long hash(String id) {
+        long hash = HASH_FUNCTION.hashString(id, StandardCharsets.UTF_8).asLong();
+        return hash != EMPTY_SLOT_HASH ? hash : 1;
+    }
+
+    /**
+     * Finds the ranges to read to reach the records that might have the given
+     * id, where the record of interest is the last one of each range.
+     */
+    public List<HttpRequestRecordIndexRange> findRanges(String id) {
+        checkNotNull(id, "id");
+        long hash = hash(id);
+        int slotIndex = (int) (hash & (slotCount - 1));
+        List<HttpRequestRecordIndexRange> ranges = Collections.emptyList();
+        try {
+            for (int probedSlotCount = 0; probedSlotCount < slotCount; ) {
+                int readSlotCount = Math.min(PROBE_SLOT_COUNT, slotCount - slotIndex);
+                probeBuffer.clear();
+                probeBuffer.limit(readSlotCount * SLOT_BYTE_COUNT);
+                long probePosition = HEADER_BYTE_COUNT + (long) slotIndex * SLOT_BYTE_COUNT;
+                while (probeBuffer.hasRemaining()) {
+                    int readByteCount = channel.read(probeBuffer, probePosition + probeBuffer.position());
+                    checkArgument(readByteCount >= 0, "truncated id index (idIndexFile=%s)", idIndexFile);
+                }
+                probeBuffer.flip();
+                for (int bufferSlotIndex = 0; bufferSlotIndex < readSlotCount; bufferSlotIndex++, probedSlotCount++) {
+                    long slotHash = probeBuffer.getLong();
+                    if (slotHash == EMPTY_SLOT_HASH) {
+                        return ranges;
+                    }
+                    long fileOffset = probeBuffer.getLong();
+                    int blockOffset = probeBuffer.getInt();
+                    int precedingRecordCount = probeBuffer.getInt();
+                    if (slotHash == hash) {
+                        if (ranges.isEmpty()) {
+                            ranges = new ArrayList<>(1);
+                        }
+                        HttpRequestRecordIndexPosition position = new HttpRequestRecordIndexPosition(fileOffset, blockOffset);
+                        ranges.add(new HttpRequestRecordIndexRange(position, precedingRecordCount + 1, 0));
+                    }
+                }
+                slotIndex = (slotIndex + readSlotCount) & (slotCount - 1);
+            }
+            return ranges;
+        } catch (IOException error) {
+            String message = String.format("failed reading id index (idIndexFile=%s, id=%s)", idIndexFile, id);
+            throw new RuntimeException(message, error);
+        }
+    }
+
+    public static HttpRequestRecordIdIndex open(File idIndexFile) {
+        checkNotNull(idIndexFile, "idIndexFile");
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(idIndexFile.toPath(), StandardOpenOption.READ);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTE_COUNT);
+            while (header.hasRemaining()) {
+                int readByteCount = channel.read(header, header.position());
+                checkArgument(readByteCount >= 0, "truncated id index (idIndexFile=%s)", idIndexFile);
+            }
+            header.flip();
+            int magic = header.getInt();
+            checkArgument(magic == MAGIC, "invalid magic (idIndexFile=%s)", idIndexFile);
+            int version = header.getInt();
+            checkArgument(version == VERSION, "unsupported version (idIndexFile=%s, version=%s)", idIndexFile, version);
+            long fileByteCount = header.getLong();
+            long entryCount = header.getLong();
+            int slotCount = header.getInt();
+            checkArgument(
+                    Integer.bitCount(slotCount) == 1,
+                    "invalid slot count (idIndexFile=%s, slotCount=%s)", idIndexFile, slotCount);
+            checkArgument(
+                    channel.size() == HEADER_BYTE_COUNT + (long) slotCount * SLOT_BYTE_COUNT,
+                    "truncated id index (idIndexFile=%s)", idIndexFile);
+            return new HttpRequestRecordIdIndex(idIndexFile, channel, fileByteCount, entryCount, slotCount);
+        } catch (IOException | RuntimeException error) {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException closeError) {
+                    error.addSuppressed(closeError);
+                }
+            }
+            String message = String.format("failed opening id index (idIndexFile=%s)", idIndexFile);
+            throw new RuntimeException(message, error);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        LOGGER.trace("closing");
+        channel.close();
+    }
+
+    /**
+     * Collects the entries of an id index while a file is being scanned.
+     */
+    static final class Entries {
+
+        private long[] hashes = new long[1024];
+
+        private long[] fileOffsets = new long[1024];
+
+        private long[] blockOffsetsAndPrecedingRecordCounts = new long[1024];
+
+        private int count = 0;
+
+        void add(String id, HttpRequestRecordIndexPosition position, int precedingRecordCount) {
+            if (count == hashes.length) {
+                int capacity = 2 * count;
+                hashes = Arrays.copyOf(hashes, capacity);
+                fileOffsets = Arrays.copyOf(fileOffsets, capacity);
+                blockOffsetsAndPrecedingRecordCounts = Arrays.copyOf(blockOffsetsAndPrecedingRecordCounts, capacity);
+            }
+            hashes[count] = hash(id);
+            fileOffsets[count] = position.getFileOffset();
+            blockOffsetsAndPrecedingRecordCounts[count] =
+                    ((long) position.getBlockOffset() << 32) | (precedingRecordCount & 0xFFFFFFFFL);
+            count++;
+        }
+
+        int getCount() {
+            return count;
+        }
+
+        /**
+         * Writes the hash table, keeping it at most half full, to a temporary
+         * file first, which is then atomically moved to the given file.
+         */
+        void write(File idIndexFile, long fileByteCount) {
+            long minSlotCount = Math.max(MIN_SLOT_COUNT, 2L * count);
+            checkArgument(
+                    minSlotCount * SLOT_BYTE_COUNT <= Integer.MAX_VALUE - HEADER_BYTE_COUNT,
+                    "too many records to index (count=%s)", count);
+            int slotCount = Integer.highestOneBit((int) minSlotCount - 1) << 1;
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTE_COUNT + slotCount * SLOT_BYTE_COUNT);
+            buffer.putInt(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.putLong(fileByteCount);
+            buffer.putLong(count);
+            buffer.putInt(slotCount);
+            for (int entryIndex = 0; entryIndex < count; entryIndex++) {
+                int slotIndex = (int) (hashes[entryIndex] & (slotCount - 1));
+                while (buffer.getLong(getSlotPosition(slotIndex)) != EMPTY_SLOT_HASH) {
+                    slotIndex = (slotIndex + 1) & (slotCount - 1);
+                }
+                int slotPosition = getSlotPosition(slotIndex);
+                long blockOffsetAndPrecedingRecordCount = blockOffsetsAndPrecedingRecordCounts[entryIndex];
+                buffer.putLong(slotPosition, hashes[entryIndex]);
+                buffer.putLong(slotPosition + 8, fileOffsets[entryIndex]);
+                buffer.putInt(slotPosition + 16, (int) (blockOffsetAndPrecedingRecordCount >>> 32));
+                buffer.putInt(slotPosition + 20, (int) blockOffsetAndPrecedingRecordCount);
+            }
+            buffer.clear();
+            File temporaryFile = new File(idIndexFile.getPath() + ".tmp");
+            try {
+                try (FileChannel channel = FileChannel.open(
+                        temporaryFile.toPath(),
+                        StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING,
+                        StandardOpenOption.WRITE)) {
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                }
+                Files.move(
+                        temporaryFile.toPath(),
+                        idIndexFile.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+                LOGGER.debug("written id index (idIndexFile={}, entryCount={}, slotCount={})", idIndexFile, count, slotCount);
+            } catch (IOException error) {
+                String message = String.format("failed writing id index (idIndexFile=%s)", idIndexFile);
+                throw new RuntimeException(message, error);
+            }
+        }
+
+        private static int getSlotPosition(int slotIndex) {
+            return HEADER_BYTE_COUNT + slotIndex * SLOT_BYTE_COUNT;
+        }
+
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("idIndexFile", idIndexFile)
+                .add("fileByteCount", fileByteCount)
+                .add("entryCount", entryCount)
+                .toString();
+    }
+
+}
@@ -0,0 +1,175 @@
+package com.vlkan.hrrs.serializer.index;
+
+import com.google.common.base.MoreObjects;
+import com.vlkan.hrrs.api.HttpRequestRecord;
+import com.vlkan.hrrs.serializer.base64.Base64Decoder;
+import com.vlkan.hrrs.serializer.base64.Base64HttpRequestRecordReader;
+import com.vlkan.hrrs.serializer.file.HttpRequestRecordReaderFileSource;
+import com.vlkan.hrrs.serializer.payload.HttpRequestPayloadStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Fetches records by id from the given capture files using their
+ * {@link HttpRequestRecordIdIndex id indices}, which are opened once and kept
+ * open until the lookup is closed. Files without an up-to-date id index are
+ * skipped. Each candidate record costs a couple of index seeks and reading
+ * the records from its (dictionary epoch) start position up to itself.
+ */
+@NotThreadSafe
+public class HttpRequestRecordIdLookup implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HttpRequestRecordIdLookup.class);
+
+    private final List<File> files;
+
+    private final Charset charset;
+
+    private final Base64Decoder decoder;
+
+    @Nullable
+    private final HttpRequestPayloadStore payloadStore;
+
+    private final List<HttpRequestRecordIdIndex> idIndices;
+
+    public HttpRequestRecordIdLookup(
+            List<File> files,
+            Charset charset,
+            Base64Decoder decoder,
+            @Nullable HttpRequestPayloadStore payloadStore) {
+        checkNotNull(files, "files");
+        this.files = Collections.unmodifiableList(new ArrayList<>(files));
+        this.charset = checkNotNull(charset, "charset");
+        this.decoder = checkNotNull(decoder, "decoder");
+        this.payloadStore = payloadStore;
+        this.idIndices = openIdIndices(this.files);
+        LOGGER.trace("instantiated (fileCount={}, charset={})", files.size(), charset);
+    }
+
+    /**
+     * @return the id indices of the given files, where the elements of the files without an up-to-date one are null
+     */
+    private static List<HttpRequestRecordIdIndex> openIdIndices(List<File> files) {
+        List<HttpRequestRecordIdIndex> idIndices = new ArrayList<>(files.size());
+        for (File file : files) {
+            File idIndexFile = HttpRequestRecordIdIndex.getIdIndexFile(file);
+            HttpRequestRecordIdIndex idIndex = null;
+            if (idIndexFile.exists()) {
+                idIndex = HttpRequestRecordIdIndex.open(idIndexFile);
+                if (!idIndex.isUpToDate(file)) {
+                    closeIdIndex(idIndex);
+                    idIndex = null;
+                }
+            }
+            if (idIndex == null) {
+                LOGGER.warn("skipping file without an up-to-date id index (file={})", file);
+            }
+            idIndices.add(idIndex);
+        }
+        return idIndices;
+    }
+
+    private static void closeIdIndex(HttpRequestRecordIdIndex idIndex) {
+        try {
+            idIndex.close();
+        } catch (IOException error) {
+            LOGGER.error("failed closing id index (idIndexFile={})", idIndex.getIdIndexFile(), error);
+        }
+    }
+
+    public List<File> getFiles() {
+        return files;
+    }
+
+    public Charset getCharset() {
+        return charset;
+    }
+
+    /**
+     * @return the records with the given id, in the order of the files
+     */
+    public List<HttpRequestRecord> find(String id) {
+        checkNotNull(id, "id");
+        List<HttpRequestRecord> records = Collections.emptyList();
+        for (int fileIndex = 0; fileIndex < files.size(); fileIndex++) {
+            HttpRequestRecordIdIndex idIndex = idIndices.get(fileIndex);
+            if (idIndex == null) {
+                continue;
+            }
+            for (HttpRequestRecordIndexRange range : idIndex.findRanges(id)) {
+                HttpRequestRecord record = read(files.get(fileIndex), range, id);
+                if (record != null) {
+                    if (records.isEmpty()) {
+                        records = new ArrayList<>(1);
+                    }
+                    records.add(record);
+                }
+            }
+        }
+        return records;
+    }
+
+    /**
+     * @return the records with the given ids, in the order of the ids
+     */
+    public List<HttpRequestRecord> findAll(Collection<String> ids) {
+        checkNotNull(ids, "ids");
+        List<HttpRequestRecord> records = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            records.addAll(find(id));
+        }
+        return records;
+    }
+
+    /**
+     * @return the last record of the given range having the given id, if there is any, otherwise null
+     */
+    @Nullable
+    private HttpRequestRecord read(File file, HttpRequestRecordIndexRange range, String id) {
+        try (HttpRequestRecordReaderFileSource source = new HttpRequestRecordReaderFileSource(file, charset, range)) {
+            Base64HttpRequestRecordReader reader = new Base64HttpRequestRecordReader(source, decoder, payloadStore);
+            // Filtering by id spares the preceding records of the epoch from getting decoded.
+            HttpRequestRecord matchingRecord = null;
+            for (HttpRequestRecord record : reader.read(record -> id.equals(record.getId()))) {
+                matchingRecord = record;
+            }
+            // Decoding while the source is open, just like the reader does without a filter.
+            return matchingRecord != null ? matchingRecord.toBuilder().build() : null;
+        } catch (IOException error) {
+            String message = String.format("failed reading record (file=%s, range=%s, id=%s)", file, range, id);
+            throw new RuntimeException(message, error);
+        }
+    }
+
+    @Override
+    public void close() {
+        LOGGER.trace("closing");
+        for (HttpRequestRecordIdIndex idIndex : idIndices) {
+            if (idIndex != null) {
+                closeIdIndex(idIndex);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("fileCount", files.size())
+                .add("charset", charset)
+                .toString();
+    }
+
+}
@@ -0,0 +1,250 @@
+package com.vlkan.hrrs.serializer.index;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Sidecar index of a capture file, stored in {@code <file>.idx}.
+ *
+ * The index consists of checkpoints, each of which marks the position of
+ * every {@code checkpointRecordCount}th record and summarizes the records up
+ * to the next checkpoint: timestamp bounds and a bloom filter of group names.
+ * (Checkpoints of dictionary-encoded files are postponed to the next
+ * dictionary epoch start, where decoding can be resumed.)
+ * Checkpoints allow readers to seek to a time range, skip runs of records
+ * without any matching group names, and split a file into ranges to be
+ * read in parallel. See {@link HttpRequestRecordIndexer} for building an
+ * index.
+ */
+public class HttpRequestRecordIndex {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HttpRequestRecordIndex.class);
+
+    public static final String FILE_SUFFIX = ".idx";
+
+    private static final int MAGIC = 0x48524958;    // "HRIX"
+
+    private static final int VERSION = 1;
+
+    private final int checkpointRecordCount;
+
+    private final long fileByteCount;
+
+    private final List<HttpRequestRecordIndexCheckpoint> checkpoints;
+
+    public HttpRequestRecordIndex(int checkpointRecordCount, long fileByteCount, List<HttpRequestRecordIndexCheckpoint> checkpoints) {
+        checkArgument(checkpointRecordCount > 0, "expecting: checkpointRecordCount > 0, found: %s", checkpointRecordCount);
+        checkArgument(fileByteCount >= 0, "expecting: fileByteCount >= 0, found: %s", fileByteCount);
+        this.checkpointRecordCount = checkpointRecordCount;
+        this.fileByteCount = fileByteCount;
+        this.checkpoints = Collections.unmodifiableList(new ArrayList<>(checkNotNull(checkpoints, "checkpoints")));
+    }
+
+    public static File getIndexFile(File file) {
+        return new File(file.getPath() + FILE_SUFFIX);
+    }
+
+    public int getCheckpointRecordCount() {
+        return checkpointRecordCount;
+    }
+
+    /**
+     * @return the size of the indexed file
+     */
+    public long getFileByteCount() {
+        return fileByteCount;
+    }
+
+    public List<HttpRequestRecordIndexCheckpoint> getCheckpoints() {
+        return checkpoints;
+    }
+
+    public long getRecordCount() {
+        if (checkpoints.isEmpty()) {
+            return 0;
+        }
+        HttpRequestRecordIndexCheckpoint lastCheckpoint = checkpoints.get(checkpoints.size() - 1);
+        return lastCheckpoint.getRecordIndex() + lastCheckpoint.getRecordCount();
+    }
+
+    /**
+     * @return true, if the given file is not modified since it is indexed
+     */
+    public boolean isUpToDate(File file) {
+        return file.length() == fileByteCount;
+    }
+
+    /**
+     * Finds the ranges of records that might have a timestamp in
+     * {@code [fromTimestampMillis, toTimestampMillis)} and one of the given
+     * group names. Records in the returned ranges still need to be filtered.
+     *
+     * @param groupNames group names to look for, or null/empty to match all
+     */
+    public List<HttpRequestRecordIndexRange> findRanges(long fromTimestampMillis, long toTimestampMillis, Collection<String> groupNames) {
+        List<HttpRequestRecordIndexRange> ranges = new ArrayList<>();
+        int firstCheckpointIndex = -1;
+        for (int checkpointIndex = 0; checkpointIndex < checkpoints.size(); checkpointIndex++) {
+            HttpRequestRecordIndexCheckpoint checkpoint = checkpoints.get(checkpointIndex);
+            boolean matching = checkpoint.overlaps(fromTimestampMillis, toTimestampMillis)
+                    && mightContainAnyGroupName(checkpoint, groupNames);
+            if (matching && firstCheckpointIndex < 0) {
+                firstCheckpointIndex = checkpointIndex;
+            } else if (!matching && firstCheckpointIndex >= 0) {
+                ranges.add(createRange(firstCheckpointIndex, checkpointIndex));
+                firstCheckpointIndex = -1;
+            }
+        }
+        if (firstCheckpointIndex >= 0) {
+            ranges.add(createRange(firstCheckpointIndex, checkpoints.size()));
+        }
+        return ranges;
+    }
+
+    private static boolean mightContainAnyGroupName(HttpRequestRecordIndexCheckpoint checkpoint, Collection<String> groupNames) {
+        if (groupNames == null || groupNames.isEmpty()) {
+            return true;
+        }
+        for (String groupName : groupNames) {
+            if (checkpoint.mightContainGroupName(groupName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Splits the file into at most {@code rangeCount} ranges of roughly equal byte counts.
+     */
+    public List<HttpRequestRecordIndexRange> split(int rangeCount) {
+        checkArgument(rangeCount > 0, "expecting: rangeCount > 0, found: %s", rangeCount);
+        List<HttpRequestRecordIndexRange> ranges = new ArrayList<>(rangeCount);
+        if (checkpoints.isEmpty()) {
+            return ranges;
+        }
+        long firstFileOffset = checkpoints.get(0).getPosition().getFileOffset();
+        double rangeByteCount = (double) (fileByteCount - firstFileOffset) / rangeCount;
+        int firstCheckpointIndex = 0;
+        for (int checkpointIndex = 1; checkpointIndex < checkpoints.size(); checkpointIndex++) {
+            long fileOffset = checkpoints.get(checkpointIndex).getPosition().getFileOffset();
+            long rangeEndFileOffset = firstFileOffset + (long) ((ranges.size() + 1) * rangeByteCount);
+            if (ranges.size() + 1 < rangeCount && fileOffset >= rangeEndFileOffset) {
+                ranges.add(createRange(firstCheckpointIndex, checkpointIndex));
+                firstCheckpointIndex = checkpointIndex;
+            }
+        }
+        ranges.add(createRange(firstCheckpointIndex, checkpoints.size()));
+        return ranges;
+    }
+
+    private HttpRequestRecordIndexRange createRange(int firstCheckpointIndex, int lastCheckpointIndex) {
+        HttpRequestRecordIndexCheckpoint firstCheckpoint = checkpoints.get(firstCheckpointIndex);
+        long recordCount = 0;
+        for (int checkpointIndex = firstCheckpointIndex; checkpointIndex < lastCheckpointIndex; checkpointIndex++) {
+            recordCount += checkpoints.get(checkpointIndex).getRecordCount();
+        }
+        long endFileOffset = lastCheckpointIndex < checkpoints.size()
+                ? checkpoints.get(lastCheckpointIndex).getPosition().getFileOffset()
+                : fileByteCount;
+        long byteCount = endFileOffset - firstCheckpoint.getPosition().getFileOffset();
+        return new HttpRequestRecordIndexRange(firstCheckpoint.getPosition(), recordCount, byteCount);
+    }
+
+    public static HttpRequestRecordIndex read(File indexFile) {
+        checkNotNull(indexFile, "indexFile");
+        try (DataInputStream inputStream = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+            int magic = inputStream.readInt();
+            checkArgument(magic == MAGIC, "invalid magic (indexFile=%s)", indexFile);
+            int version = inputStream.readInt();
+            checkArgument(version == VERSION, "unsupported version (indexFile=%s, version=%s)", indexFile, version);
+            int checkpointRecordCount = inputStream.readInt();
+            long fileByteCount = inputStream.readLong();
+            int checkpointCount = inputStream.readInt();
+            List<HttpRequestRecordIndexCheckpoint> checkpoints = new ArrayList<>(checkpointCount);
+            for (int checkpointIndex = 0; checkpointIndex < checkpointCount; checkpointIndex++) {
+                HttpRequestRecordIndexPosition position =
+                        new HttpRequestRecordIndexPosition(inputStream.readLong(), inputStream.readInt());
+                long recordIndex = inputStream.readLong();
+                int recordCount = inputStream.readInt();
+                long minTimestampMillis = inputStream.readLong();
+                long maxTimestampMillis = inputStream.readLong();
+                BloomFilter<CharSequence> groupNames =
+                        BloomFilter.readFrom(inputStream, Funnels.stringFunnel(StandardCharsets.UTF_8));
+                HttpRequestRecordIndexCheckpoint checkpoint = new HttpRequestRecordIndexCheckpoint(
+                        position, recordIndex, recordCount, minTimestampMillis, maxTimestampMillis, groupNames);
+                checkpoints.add(checkpoint);
+            }
+            return new HttpRequestRecordIndex(checkpointRecordCount, fileByteCount, checkpoints);
+        } catch (IOException error) {
+            String message = String.format("failed reading index (indexFile=%s)", indexFile);
+            throw new RuntimeException(message, error);
+        }
+    }
+
+    /**
+     * Writes the index to a temporary file first, which is then atomically moved to the given file.
+     */
+    public void write(File indexFile) {
+        checkNotNull(indexFile, "indexFile");
+        File temporaryFile = new File(indexFile.getPath() + ".tmp");
+        try {
+            try (DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile)))) {
+                outputStream.writeInt(MAGIC);
+                outputStream.writeInt(VERSION);
+                outputStream.writeInt(checkpointRecordCount);
+                outputStream.writeLong(fileByteCount);
+                outputStream.writeInt(checkpoints.size());
+                for (HttpRequestRecordIndexCheckpoint checkpoint : checkpoints) {
+                    outputStream.writeLong(checkpoint.getPosition().getFileOffset());
+                    outputStream.writeInt(checkpoint.getPosition().getBlockOffset());
+                    outputStream.writeLong(checkpoint.getRecordIndex());
+                    outputStream.writeInt(checkpoint.getRecordCount());
+                    outputStream.writeLong(checkpoint.getMinTimestampMillis());
+                    outputStream.writeLong(checkpoint.getMaxTimestampMillis());
+                    checkpoint.getGroupNames().writeTo(outputStream);
+                }
+            }
+            Files.move(
+                    temporaryFile.toPath(),
+                    indexFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            LOGGER.debug("written index (indexFile={}, checkpointCount={})", indexFile, checkpoints.size());
+        } catch (IOException error) {
+            String message = String.format("failed writing index (indexFile=%s)", indexFile);
+            throw new RuntimeException(message, error);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("checkpointRecordCount", checkpointRecordCount)
+                .add("fileByteCount", fileByteCount)
+                .add("checkpointCount", checkpoints.size())
+                .toString();
+    }
+
+}
@@ -0,0 +1,88 @@
+package com.vlkan.hrrs.serializer.index;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.hash.BloomFilter;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Index entry describing a run of consecutive records starting at a known file position.
+ */
+public class HttpRequestRecordIndexCheckpoint {
+
+    private final HttpRequestRecordIndexPosition position;
+
+    private final long recordIndex;
+
+    private final int recordCount;
+
+    private final long minTimestampMillis;
+
+    private final long maxTimestampMillis;
+
+    private final BloomFilter<CharSequence> groupNames;
+
+    public HttpRequestRecordIndexCheckpoint(HttpRequestRecordIndexPosition position,
+                                            long recordIndex,
+                                            int recordCount,
+                                            long minTimestampMillis,
+                                            long maxTimestampMillis,
+                                            BloomFilter<CharSequence> groupNames) {
+        this.position = checkNotNull(position, "position");
+        this.recordIndex = recordIndex;
+        this.recordCount = recordCount;
+        this.minTimestampMillis = minTimestampMillis;
+        this.maxTimestampMillis = maxTimestampMillis;
+        this.groupNames = checkNotNull(groupNames, "groupNames");
+    }
+
+    public HttpRequestRecordIndexPosition getPosition() {
+        return position;
+    }
+
+    public long getRecordIndex() {
+        return recordIndex;
+    }
+
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    public long getMinTimestampMillis() {
+        return minTimestampMillis;
+    }
+
+    public long getMaxTimestampMillis() {
+        return maxTimestampMillis;
+    }
+
+    public BloomFilter<CharSequence> getGroupNames() {
+        return groupNames;
+    }
+
+    /**
+     * @return false, if none of the records has the given group name, true, if some records might have
+     */
+    public boolean mightContainGroupName(String groupName) {
+        return groupNames.mightContain(groupName);
+    }
+
+    /**
+     * @return true, if some records might have a timestamp in the given range
+     */
+    public boolean overlaps(long fromTimestampMillis, long toTimestampMillis) {
+        return maxTimestampMillis >= fromTimestampMillis && minTimestampMillis < toTimestampMillis;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("position", position)
+                .add("recordIndex", recordIndex)
+                .add("recordCount", recordCount)
+                .add("minTimestampMillis", minTimestampMillis)
+                .add("maxTimestampMillis", maxTimestampMillis)
+                .toString();
+    }
+
+}
@@ -0,0 +1,63 @@
+package com.vlkan.hrrs.serializer.index;
+
+import com.google.common.base.MoreObjects;
+
+import java.util.Objects;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Position of a record in a capture file.
+ *
+ * For uncompressed files, {@code fileOffset} is the offset of the record
+ * and {@code blockOffset} is 0. For block gzip files, {@code fileOffset} is
+ * the offset of the member containing the record and {@code blockOffset} is
+ * the offset of the record in the uncompressed block.
+ */
+public class HttpRequestRecordIndexPosition {
+
+    private final long fileOffset;
+
+    private final int blockOffset;
+
+    public HttpRequestRecordIndexPosition(long fileOffset, int blockOffset) {
+        checkArgument(fileOffset >= 0, "expecting: fileOffset >= 0, found: %s", fileOffset);
+        checkArgument(blockOffset >= 0, "expecting: blockOffset >= 0, found: %s", blockOffset);
+        this.fileOffset = fileOffset;
+        this.blockOffset = blockOffset;
+    }
+
+    public long getFileOffset() {
+        return fileOffset;
+    }
+
+    public int getBlockOffset() {
+        return blockOffset;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (this == object) {
+            return true;
+        }
+        if (object == null || getClass() != object.getClass()) {
+            return false;
+        }
+        HttpRequestRecordIndexPosition that = (HttpRequestRecordIndexPosition) object;
+        return fileOffset == that.fileOffset && blockOffset == that.blockOffset;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(fileOffset, blockOffset);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("fileOffset", fileOffset)
+                .add("blockOffset", blockOffset)
+                .toString();
+    }
+
+}
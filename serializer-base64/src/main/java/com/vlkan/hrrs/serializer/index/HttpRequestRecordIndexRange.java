@@ -0,0 +1,51 @@
+package com.vlkan.hrrs.serializer.index;
+
+import com.google.common.base.MoreObjects;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A run of consecutive records, which can be read independently via
+ * {@link com.vlkan.hrrs.serializer.file.HttpRequestRecordReaderFileSource}.
+ */
+public class HttpRequestRecordIndexRange {
+
+    private final HttpRequestRecordIndexPosition position;
+
+    private final long recordCount;
+
+    private final long byteCount;
+
+    public HttpRequestRecordIndexRange(HttpRequestRecordIndexPosition position, long recordCount, long byteCount) {
+        this.position = checkNotNull(position, "position");
+        checkArgument(recordCount >= 0, "expecting: recordCount >= 0, found: %s", recordCount);
+        this.recordCount = recordCount;
+        this.byteCount = byteCount;
+    }
+
+    public HttpRequestRecordIndexPosition getPosition() {
+        return position;
+    }
+
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * @return the approximate number of (compressed) file bytes spanned by the range
+     */
+    public long getByteCount() {
+        return byteCount;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("position", position)
+                .add("recordCount", recordCount)
+                .add("byteCount", byteCount)
+                .toString();
+    }
+
+}
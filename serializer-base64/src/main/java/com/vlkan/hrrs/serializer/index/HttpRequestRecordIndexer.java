@@ -0,0 +1,408 @@
+package com.vlkan.hrrs.serializer.index;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import com.google.common.io.CountingInputStream;
+import com.vlkan.hrrs.serializer.base64.Base64HttpRequestRecordDictionary;
+import com.vlkan.hrrs.serializer.base64.Base64HttpRequestRecordFrame;
+import com.vlkan.hrrs.serializer.file.HttpRequestRecordReaderFileSource;
+import com.vlkan.hrrs.serializer.gzip.HrrsBlockGzip;
+import com.vlkan.hrrs.serializer.gzip.HrrsBlockGzipInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Builds {@link HttpRequestRecordIndex}es (and optionally {@link HttpRequestRecordIdIndex}es)
+ * of uncompressed and block gzip compressed capture files.
+ */
+public enum HttpRequestRecordIndexer {;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HttpRequestRecordIndexer.class);
+
+    public static final int DEFAULT_CHECKPOINT_RECORD_COUNT = 1024;
+
+    private static final double GROUP_NAME_FALSE_POSITIVE_PROBABILITY = 0.01;
+
+    private static final int BUFFER_BYTE_COUNT = 64 * 1024;
+
+    public static HttpRequestRecordIndex index(File file, Charset charset) {
+        return index(file, charset, DEFAULT_CHECKPOINT_RECORD_COUNT);
+    }
+
+    public static HttpRequestRecordIndex index(File file, Charset charset, int checkpointRecordCount) {
+        return index(file, charset, checkpointRecordCount, null);
+    }
+
+    private static HttpRequestRecordIndex index(
+            File file,
+            Charset charset,
+            int checkpointRecordCount,
+            @Nullable HttpRequestRecordIdIndex.Entries idIndexEntries) {
+        checkNotNull(file, "file");
+        checkNotNull(charset, "charset");
+        checkArgument(checkpointRecordCount > 0, "expecting: checkpointRecordCount > 0, found: %s", checkpointRecordCount);
+        long startTimeMillis = System.currentTimeMillis();
+        long fileByteCount = file.length();
+        try (PositionedInputStream inputStream = PositionedInputStream.open(file)) {
+            CheckpointCollector collector = new CheckpointCollector(checkpointRecordCount);
+            LineParser parser = new LineParser(charset);
+            HttpRequestRecordIndexPosition resumePosition = null;
+            int resumePrecedingRecordCount = 0;
+            int firstByte;
+            while ((firstByte = inputStream.read()) >= 0) {
+                HttpRequestRecordIndexPosition position = inputStream.getLastReadBytePosition();
+                parser.parse(firstByte, inputStream, collector.recordIndex);
+                // Damaged lines are counted nevertheless, since ranges are read line by line.
+                collector.add(position, parser.damaged, parser.timestampMillis, parser.groupName, parser.resumable);
+                if (idIndexEntries != null) {
+                    if (parser.resumable || resumePosition == null) {
+                        resumePosition = position;
+                        resumePrecedingRecordCount = 0;
+                    } else {
+                        resumePrecedingRecordCount++;
+                    }
+                    if (!parser.damaged) {
+                        idIndexEntries.add(parser.parseId(), resumePosition, resumePrecedingRecordCount);
+                    }
+                }
+            }
+            HttpRequestRecordIndex index = new HttpRequestRecordIndex(checkpointRecordCount, fileByteCount, collector.complete());
+            LOGGER.debug(
+                    "indexed (file={}, recordCount={}, checkpointCount={}, durationMillis={})",
+                    file, index.getRecordCount(), index.getCheckpoints().size(),
+                    System.currentTimeMillis() - startTimeMillis);
+            return index;
+        } catch (IOException error) {
+            String message = String.format("failed indexing file (file=%s)", file);
+            throw new RuntimeException(message, error);
+        }
+    }
+
+    /**
+     * Indexes the given file and writes the index next to it.
+     */
+    public static HttpRequestRecordIndex indexAndWrite(File file, Charset charset, int checkpointRecordCount) {
+        return indexAndWrite(file, charset, checkpointRecordCount, false);
+    }
+
+    /**
+     * Indexes the given file and writes the index, and the id index if requested, next to it.
+     */
+    public static HttpRequestRecordIndex indexAndWrite(File file, Charset charset, int checkpointRecordCount, boolean idIndexed) {
+        HttpRequestRecordIdIndex.Entries idIndexEntries = idIndexed ? new HttpRequestRecordIdIndex.Entries() : null;
+        HttpRequestRecordIndex index = index(file, charset, checkpointRecordCount, idIndexEntries);
+        index.write(HttpRequestRecordIndex.getIndexFile(file));
+        if (idIndexEntries != null) {
+            idIndexEntries.write(HttpRequestRecordIdIndex.getIdIndexFile(file), index.getFileByteCount());
+        }
+        return index;
+    }
+
+    /**
+     * Writes only the {@link HttpRequestRecordIdIndex id index} of the given file next to it.
+     *
+     * @return the number of indexed records
+     */
+    public static long indexIdsAndWrite(File file, Charset charset) {
+        HttpRequestRecordIdIndex.Entries idIndexEntries = new HttpRequestRecordIdIndex.Entries();
+        HttpRequestRecordIndex index = index(file, charset, DEFAULT_CHECKPOINT_RECORD_COUNT, idIndexEntries);
+        idIndexEntries.write(HttpRequestRecordIdIndex.getIdIndexFile(file), index.getFileByteCount());
+        return idIndexEntries.getCount();
+    }
+
+    private static abstract class PositionedInputStream extends InputStream {
+
+        private static PositionedInputStream open(File file) throws IOException {
+            FileInputStream fileInputStream = new FileInputStream(file);
+            BufferedInputStream bufferedInputStream = new BufferedInputStream(fileInputStream, BUFFER_BYTE_COUNT);
+            try {
+                if (!HttpRequestRecordReaderFileSource.isGzipped(file)) {
+                    return new PlainInputStream(bufferedInputStream);
+                }
+                checkArgument(
+                        HrrsBlockGzip.isBlockGzipped(bufferedInputStream),
+                        "only uncompressed and block gzip compressed files can be indexed (file=%s)", file);
+                return new BlockGzipInputStream(new HrrsBlockGzipInputStream(bufferedInputStream));
+            } catch (IOException | RuntimeException error) {
+                bufferedInputStream.close();
+                throw error;
+            }
+        }
+
+        abstract HttpRequestRecordIndexPosition getLastReadBytePosition();
+
+    }
+
+    private static final class PlainInputStream extends PositionedInputStream {
+
+        private final CountingInputStream inputStream;
+
+        private PlainInputStream(InputStream inputStream) {
+            this.inputStream = new CountingInputStream(inputStream);
+        }
+
+        @Override
+        public int read() throws IOException {
+            return inputStream.read();
+        }
+
+        @Override
+        HttpRequestRecordIndexPosition getLastReadBytePosition() {
+            return new HttpRequestRecordIndexPosition(inputStream.getCount() - 1, 0);
+        }
+
+        @Override
+        public void close() throws IOException {
+            inputStream.close();
+        }
+
+    }
+
+    private static final class BlockGzipInputStream extends PositionedInputStream {
+
+        private final HrrsBlockGzipInputStream inputStream;
+
+        private BlockGzipInputStream(HrrsBlockGzipInputStream inputStream) {
+            this.inputStream = inputStream;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return inputStream.read();
+        }
+
+        @Override
+        HttpRequestRecordIndexPosition getLastReadBytePosition() {
+            long blockOffset = inputStream.getBlockOffset();
+            checkArgument(blockOffset >= 0, "cannot index regular gzip members");
+            return new HttpRequestRecordIndexPosition(blockOffset, inputStream.getBlockPosition() - 1);
+        }
+
+        @Override
+        public void close() throws IOException {
+            inputStream.close();
+        }
+
+    }
+
+    /**
+     * Extracts the timestamp and the group name from the leading fields of a
+     * record line, and checks whether reading can be resumed at the line,
+     * which is not the case for {@link Base64HttpRequestRecordDictionary
+     * dictionary-encoded} records succeeding their epoch start.
+     *
+     * {@link Base64HttpRequestRecordFrame Framed} lines are verified, where
+     * the fields are extracted from the first valid frame of the line, and
+     * lines without any are marked as damaged. Once a framed line is
+     * encountered, unframed lines failing to parse are marked as damaged too.
+     */
+    private static final class LineParser {
+
+        private static final int PREFIX_FIELD_COUNT = 3;
+
+        private final Charset charset;
+
+        private final DateFormat dateFormat = new SimpleDateFormat("yyyyMMdd-HHmmss.SSSZ");
+
+        private final int[] separatorIndices = new int[PREFIX_FIELD_COUNT];
+
+        private byte[] line = new byte[1024];
+
+        private int lineLength;
+
+        private int contentIndex;
+
+        private boolean framed = false;
+
+        private String lastTimestamp = null;
+
+        private long timestampMillis;
+
+        private String groupName;
+
+        private boolean resumable;
+
+        private boolean damaged;
+
+        private LineParser(Charset charset) {
+            this.charset = charset;
+        }
+
+        private void parse(int firstByte, InputStream inputStream, long recordIndex) throws IOException {
+            readLine(firstByte, inputStream);
+            contentIndex = 0;
+            int markerIndex = Base64HttpRequestRecordFrame.indexOfSyncMarker(line, 0, lineLength);
+            if (markerIndex >= 0) {
+                framed = true;
+                int frameIndex = Base64HttpRequestRecordFrame.findFrame(line, markerIndex, lineLength);
+                if (frameIndex < 0) {
+                    markDamaged(recordIndex);
+                    return;
+                }
+                contentIndex = frameIndex + Base64HttpRequestRecordFrame.PREFIX_LENGTH;
+            }
+            try {
+                parseContent(recordIndex);
+                damaged = false;
+            } catch (IllegalArgumentException error) {
+                if (!framed || markerIndex >= 0) {
+                    throw error;
+                }
+                markDamaged(recordIndex);
+            }
+        }
+
+        private void readLine(int firstByte, InputStream inputStream) throws IOException {
+            lineLength = 0;
+            for (int b = firstByte; b >= 0 && b != '\n'; b = inputStream.read()) {
+                if (lineLength == line.length) {
+                    line = Arrays.copyOf(line, 2 * line.length);
+                }
+                line[lineLength++] = (byte) b;
+            }
+        }
+
+        private void markDamaged(long recordIndex) {
+            LOGGER.warn("skipping damaged record (recordIndex={})", recordIndex);
+            damaged = true;
+            resumable = false;
+        }
+
+        private void parseContent(long recordIndex) {
+            int separatorCount = 0;
+            int marker = -1;
+            for (int index = contentIndex; index < lineLength; index++) {
+                if (line[index] == '\t') {
+                    if (separatorCount < PREFIX_FIELD_COUNT) {
+                        separatorIndices[separatorCount++] = index;
+                    } else {
+                        // Skip the method up to the leading byte of the encoded field.
+                        marker = index + 1 < lineLength ? line[index + 1] : -1;
+                        break;
+                    }
+                }
+            }
+            checkArgument(
+                    separatorCount >= PREFIX_FIELD_COUNT,
+                    "insufficient field count (recordIndex=%s)", recordIndex);
+            resumable = marker != Base64HttpRequestRecordDictionary.EPOCH_CONTINUATION_MARKER;
+            String timestamp = new String(line, separatorIndices[0] + 1, separatorIndices[1] - separatorIndices[0] - 1, charset);
+            if (!timestamp.equals(lastTimestamp)) {
+                try {
+                    timestampMillis = dateFormat.parse(timestamp).getTime();
+                } catch (ParseException error) {
+                    String message = String.format("invalid timestamp (recordIndex=%d, timestamp=%s)", recordIndex, timestamp);
+                    throw new IllegalArgumentException(message, error);
+                }
+                lastTimestamp = timestamp;
+            }
+            groupName = new String(line, separatorIndices[1] + 1, separatorIndices[2] - separatorIndices[1] - 1, charset);
+        }
+
+        /**
+         * @return the id of the last parsed line, which is extracted on demand, since plain indices do not need it
+         */
+        private String parseId() {
+            return new String(line, contentIndex, separatorIndices[0] - contentIndex, charset);
+        }
+
+    }
+
+    private static final class CheckpointCollector {
+
+        private final int checkpointRecordCount;
+
+        private final List<HttpRequestRecordIndexCheckpoint> checkpoints = new ArrayList<>();
+
+        private final Set<String> groupNames = new HashSet<>();
+
+        private long recordIndex = 0;
+
+        private HttpRequestRecordIndexPosition position;
+
+        private long firstRecordIndex;
+
+        private int recordCount = 0;
+
+        private long minTimestampMillis;
+
+        private long maxTimestampMillis;
+
+        private CheckpointCollector(int checkpointRecordCount) {
+            this.checkpointRecordCount = checkpointRecordCount;
+        }
+
+        /**
+         * Adds the given record, which starts a new checkpoint if the current
+         * one is full and reading can be resumed at the record. The timestamp
+         * and the group name of damaged records are ignored.
+         */
+        private void add(
+                HttpRequestRecordIndexPosition position,
+                boolean damaged,
+                long timestampMillis,
+                String groupName,
+                boolean resumable) {
+            if (recordCount >= checkpointRecordCount && resumable) {
+                completeCheckpoint();
+            }
+            if (recordCount == 0) {
+                this.position = position;
+                firstRecordIndex = recordIndex;
+                minTimestampMillis = Long.MAX_VALUE;
+                maxTimestampMillis = Long.MIN_VALUE;
+            }
+            if (!damaged) {
+                minTimestampMillis = Math.min(minTimestampMillis, timestampMillis);
+                maxTimestampMillis = Math.max(maxTimestampMillis, timestampMillis);
+                groupNames.add(groupName);
+            }
+            recordIndex++;
+            recordCount++;
+        }
+
+        private void completeCheckpoint() {
+            BloomFilter<CharSequence> bloomFilter = BloomFilter.create(
+                    Funnels.stringFunnel(StandardCharsets.UTF_8),
+                    Math.max(16, groupNames.size()),
+                    GROUP_NAME_FALSE_POSITIVE_PROBABILITY);
+            for (String groupName : groupNames) {
+                bloomFilter.put(groupName);
+            }
+            HttpRequestRecordIndexCheckpoint checkpoint = new HttpRequestRecordIndexCheckpoint(
+                    position, firstRecordIndex, recordCount, minTimestampMillis, maxTimestampMillis, bloomFilter);
+            checkpoints.add(checkpoint);
+            groupNames.clear();
+            recordCount = 0;
+        }
+
+        private List<HttpRequestRecordIndexCheckpoint> complete() {
+            if (recordCount > 0) {
+                completeCheckpoint();
+            }
+            return checkpoints;
+        }
+
+    }
+
+}
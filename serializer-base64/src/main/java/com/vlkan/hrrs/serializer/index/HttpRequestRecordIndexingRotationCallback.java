@@ -0,0 +1,77 @@
+package com.vlkan.hrrs.serializer.index;
+
+import com.vlkan.rfos.RotationCallback;
+import com.vlkan.rfos.policy.RotationPolicy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.time.Instant;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Rotation callback writing an {@link HttpRequestRecordIndex} next to every
+ * rotated file, before passing the rotation to the given callback. Indexing
+ * is carried out by a background thread, hence it never blocks writers.
+ *
+ * Since it indexes the rotated file as is, it cannot be combined with
+ * {@link com.vlkan.rfos.RotationConfig#isCompress()}, which replaces the
+ * rotated file with its compressed copy. Use block compression instead.
+ */
+public class HttpRequestRecordIndexingRotationCallback implements RotationCallback {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HttpRequestRecordIndexingRotationCallback.class);
+
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "HRRS Indexer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Charset charset;
+
+    private final int checkpointRecordCount;
+
+    private final RotationCallback delegate;
+
+    public HttpRequestRecordIndexingRotationCallback(Charset charset, RotationCallback delegate) {
+        this(charset, HttpRequestRecordIndexer.DEFAULT_CHECKPOINT_RECORD_COUNT, delegate);
+    }
+
+    public HttpRequestRecordIndexingRotationCallback(Charset charset, int checkpointRecordCount, RotationCallback delegate) {
+        this.charset = checkNotNull(charset, "charset");
+        checkArgument(checkpointRecordCount > 0, "expecting: checkpointRecordCount > 0, found: %s", checkpointRecordCount);
+        this.checkpointRecordCount = checkpointRecordCount;
+        this.delegate = checkNotNull(delegate, "delegate");
+    }
+
+    @Override
+    public void onTrigger(RotationPolicy policy, Instant instant) {
+        delegate.onTrigger(policy, instant);
+    }
+
+    @Override
+    public void onSuccess(RotationPolicy policy, Instant instant, File file) {
+        EXECUTOR.execute(() -> index(file));
+        delegate.onSuccess(policy, instant, file);
+    }
+
+    private void index(File file) {
+        try {
+            HttpRequestRecordIndexer.indexAndWrite(file, charset, checkpointRecordCount);
+        } catch (Exception error) {
+            LOGGER.error("failed indexing rotated file (file={})", file, error);
+        }
+    }
+
+    @Override
+    public void onFailure(RotationPolicy policy, Instant instant, File file, Exception error) {
+        delegate.onFailure(policy, instant, file, error);
+    }
+
+}
@@ -0,0 +1,303 @@
+package com.vlkan.hrrs.serializer.manifest;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import com.vlkan.hrrs.serializer.base64.Base64HttpRequestRecordFrame;
+import com.vlkan.hrrs.serializer.file.HttpRequestRecordReaderFileSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Manifest of the completed capture files of a directory, stored in
+ * {@code <directory>/.hrrs-manifest}. Each {@link HttpRequestRecordManifestEntry entry}
+ * summarizes a file, hence readers can prune whole files out of a time range
+ * or without any matching group names before opening them. Files without an
+ * up-to-date entry (e.g., the active file of a writer) are never pruned.
+ *
+ * Manifests are updated via {@link #register(File, Charset)} and
+ * {@link #unregister(Collection)}, which serialize the updates within the JVM
+ * and replace the manifest file atomically, hence readers never observe a
+ * partially written manifest.
+ */
+@NotThreadSafe
+public class HttpRequestRecordManifest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HttpRequestRecordManifest.class);
+
+    public static final String FILE_NAME = ".hrrs-manifest";
+
+    private static final int MAGIC = 0x48524d46;    // "HRMF"
+
+    private static final int VERSION = 1;
+
+    private static final double GROUP_NAME_FALSE_POSITIVE_PROBABILITY = 0.01;
+
+    private static final Object UPDATE_LOCK = new Object();
+
+    private final File directory;
+
+    private final Map<String, HttpRequestRecordManifestEntry> entryByFileName;
+
+    private HttpRequestRecordManifest(File directory, Map<String, HttpRequestRecordManifestEntry> entryByFileName) {
+        this.directory = directory;
+        this.entryByFileName = entryByFileName;
+    }
+
+    public static File getManifestFile(File directory) {
+        return new File(directory, FILE_NAME);
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    public Collection<HttpRequestRecordManifestEntry> getEntries() {
+        return Collections.unmodifiableCollection(entryByFileName.values());
+    }
+
+    /**
+     * @return the entry of the given file, or null, if there is none or the file is modified since it is registered
+     */
+    @Nullable
+    public HttpRequestRecordManifestEntry findUpToDateEntry(File file) {
+        HttpRequestRecordManifestEntry entry = entryByFileName.get(file.getName());
+        return entry != null && entry.isUpToDate(file) ? entry : null;
+    }
+
+    public void put(HttpRequestRecordManifestEntry entry) {
+        checkNotNull(entry, "entry");
+        entryByFileName.put(entry.getFileName(), entry);
+    }
+
+    public void remove(String fileName) {
+        entryByFileName.remove(fileName);
+    }
+
+    /**
+     * Summarizes the given file and adds (or replaces) its entry in the manifest of its directory.
+     */
+    public static HttpRequestRecordManifestEntry register(File file, Charset charset) {
+        checkNotNull(file, "file");
+        HttpRequestRecordManifestEntry entry = createEntry(file, charset);
+        update(getDirectory(file), manifest -> manifest.put(entry));
+        LOGGER.debug("registered (entry={})", entry);
+        return entry;
+    }
+
+    /**
+     * Removes the entries of the given files from the manifests of their directories, if there are any.
+     */
+    public static void unregister(Collection<File> files) {
+        checkNotNull(files, "files");
+        Map<File, List<String>> fileNamesByDirectory = new HashMap<>();
+        for (File file : files) {
+            fileNamesByDirectory
+                    .computeIfAbsent(getDirectory(file), ignored -> new ArrayList<>())
+                    .add(file.getName());
+        }
+        for (Map.Entry<File, List<String>> directoryFileNames : fileNamesByDirectory.entrySet()) {
+            File directory = directoryFileNames.getKey();
+            if (getManifestFile(directory).exists()) {
+                update(directory, manifest -> directoryFileNames.getValue().forEach(manifest::remove));
+            }
+        }
+    }
+
+    private static void update(File directory, Consumer<HttpRequestRecordManifest> updater) {
+        synchronized (UPDATE_LOCK) {
+            HttpRequestRecordManifest manifest = read(directory);
+            updater.accept(manifest);
+            manifest.write();
+        }
+    }
+
+    private static File getDirectory(File file) {
+        return file.getAbsoluteFile().getParentFile();
+    }
+
+    /**
+     * Excludes the files whose up-to-date manifest entries indicate no records
+     * in {@code [fromTimestampMillis, toTimestampMillis)} with one of the given
+     * group names. Since writers start a new
+     * {@link com.vlkan.hrrs.serializer.base64.Base64HttpRequestRecordDictionary dictionary}
+     * epoch with every rotated file, the retained files can be read on their own.
+     *
+     * @param files files in the order they are written
+     * @param groupNames group names to look for, or null/empty to match all
+     */
+    public static List<File> prune(
+            List<File> files,
+            long fromTimestampMillis,
+            long toTimestampMillis,
+            @Nullable Collection<String> groupNames) {
+        checkNotNull(files, "files");
+        Map<File, HttpRequestRecordManifest> manifestByDirectory = new HashMap<>();
+        List<File> matchingFiles = new ArrayList<>(files.size());
+        for (File file : files) {
+            HttpRequestRecordManifest manifest = manifestByDirectory.computeIfAbsent(
+                    getDirectory(file), HttpRequestRecordManifest::read);
+            HttpRequestRecordManifestEntry entry = manifest.findUpToDateEntry(file);
+            if (entry == null || entry.mightMatch(fromTimestampMillis, toTimestampMillis, groupNames)) {
+                matchingFiles.add(file);
+            }
+        }
+        LOGGER.debug("pruned {} file(s) out of {}", files.size() - matchingFiles.size(), files.size());
+        return matchingFiles;
+    }
+
+    /**
+     * Reads the leading fields of every record of the given (plain, gzip, or
+     * block gzip compressed) file, skipping the damaged framed records.
+     */
+    static HttpRequestRecordManifestEntry createEntry(File file, Charset charset) {
+        checkNotNull(file, "file");
+        checkNotNull(charset, "charset");
+        long fileByteCount = file.length();
+        DateFormat dateFormat = new SimpleDateFormat("yyyyMMdd-HHmmss.SSSZ");
+        Set<String> groupNames = new HashSet<>();
+        long recordCount = 0;
+        long minTimestampMillis = Long.MAX_VALUE;
+        long maxTimestampMillis = Long.MIN_VALUE;
+        String lastTimestamp = null;
+        long timestampMillis = 0;
+        try (HttpRequestRecordReaderFileSource source = new HttpRequestRecordReaderFileSource(file, charset)) {
+            String line;
+            while ((line = source.read()) != null) {
+                line = Base64HttpRequestRecordFrame.unframe(line);
+                if (line == null) {
+                    continue;
+                }
+                String[] fields = line.split("\t", 4);
+                checkArgument(fields.length >= 3, "insufficient field count (recordIndex=%s)", recordCount);
+                if (!fields[1].equals(lastTimestamp)) {
+                    timestampMillis = dateFormat.parse(fields[1]).getTime();
+                    lastTimestamp = fields[1];
+                }
+                minTimestampMillis = Math.min(minTimestampMillis, timestampMillis);
+                maxTimestampMillis = Math.max(maxTimestampMillis, timestampMillis);
+                groupNames.add(fields[2]);
+                recordCount++;
+            }
+        } catch (IOException | ParseException error) {
+            String message = String.format("failed reading file (file=%s)", file);
+            throw new RuntimeException(message, error);
+        }
+        BloomFilter<CharSequence> groupNameFilter = BloomFilter.create(
+                Funnels.stringFunnel(StandardCharsets.UTF_8),
+                Math.max(16, groupNames.size()),
+                GROUP_NAME_FALSE_POSITIVE_PROBABILITY);
+        for (String groupName : groupNames) {
+            groupNameFilter.put(groupName);
+        }
+        return new HttpRequestRecordManifestEntry(
+                file.getName(), fileByteCount, recordCount, minTimestampMillis, maxTimestampMillis, groupNameFilter);
+    }
+
+    /**
+     * @return the manifest of the given directory, which is empty, if there is none
+     */
+    public static HttpRequestRecordManifest read(File directory) {
+        checkNotNull(directory, "directory");
+        Map<String, HttpRequestRecordManifestEntry> entryByFileName = new TreeMap<>();
+        File manifestFile = getManifestFile(directory);
+        if (!manifestFile.exists()) {
+            return new HttpRequestRecordManifest(directory, entryByFileName);
+        }
+        try (DataInputStream inputStream = new DataInputStream(new BufferedInputStream(new FileInputStream(manifestFile)))) {
+            int magic = inputStream.readInt();
+            checkArgument(magic == MAGIC, "invalid magic (manifestFile=%s)", manifestFile);
+            int version = inputStream.readInt();
+            checkArgument(version == VERSION, "unsupported version (manifestFile=%s, version=%s)", manifestFile, version);
+            int entryCount = inputStream.readInt();
+            for (int entryIndex = 0; entryIndex < entryCount; entryIndex++) {
+                String fileName = inputStream.readUTF();
+                long fileByteCount = inputStream.readLong();
+                long recordCount = inputStream.readLong();
+                long minTimestampMillis = inputStream.readLong();
+                long maxTimestampMillis = inputStream.readLong();
+                BloomFilter<CharSequence> groupNames =
+                        BloomFilter.readFrom(inputStream, Funnels.stringFunnel(StandardCharsets.UTF_8));
+                HttpRequestRecordManifestEntry entry = new HttpRequestRecordManifestEntry(
+                        fileName, fileByteCount, recordCount, minTimestampMillis, maxTimestampMillis, groupNames);
+                entryByFileName.put(fileName, entry);
+            }
+            return new HttpRequestRecordManifest(directory, entryByFileName);
+        } catch (IOException error) {
+            String message = String.format("failed reading manifest (manifestFile=%s)", manifestFile);
+            throw new RuntimeException(message, error);
+        }
+    }
+
+    /**
+     * Writes the manifest to a temporary file first, which is then atomically moved to the manifest file.
+     */
+    public void write() {
+        File manifestFile = getManifestFile(directory);
+        File temporaryFile = new File(manifestFile.getPath() + ".tmp");
+        try {
+            try (DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile)))) {
+                outputStream.writeInt(MAGIC);
+                outputStream.writeInt(VERSION);
+                outputStream.writeInt(entryByFileName.size());
+                for (HttpRequestRecordManifestEntry entry : entryByFileName.values()) {
+                    outputStream.writeUTF(entry.getFileName());
+                    outputStream.writeLong(entry.getFileByteCount());
+                    outputStream.writeLong(entry.getRecordCount());
+                    outputStream.writeLong(entry.getMinTimestampMillis());
+                    outputStream.writeLong(entry.getMaxTimestampMillis());
+                    entry.getGroupNames().writeTo(outputStream);
+                }
+            }
+            Files.move(
+                    temporaryFile.toPath(),
+                    manifestFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            LOGGER.debug("written manifest (manifestFile={}, entryCount={})", manifestFile, entryByFileName.size());
+        } catch (IOException error) {
+            String message = String.format("failed writing manifest (manifestFile=%s)", manifestFile);
+            throw new RuntimeException(message, error);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("directory", directory)
+                .add("entryCount", entryByFileName.size())
+                .toString();
+    }
+
+}
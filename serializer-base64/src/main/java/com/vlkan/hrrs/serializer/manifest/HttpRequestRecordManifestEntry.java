@@ -0,0 +1,112 @@
+package com.vlkan.hrrs.serializer.manifest;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.hash.BloomFilter;
+
+import java.io.File;
+import java.util.Collection;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Summary of a completed capture file registered in a {@link HttpRequestRecordManifest}:
+ * its size, record count, timestamp bounds, and a bloom filter of its group names.
+ */
+public class HttpRequestRecordManifestEntry {
+
+    private final String fileName;
+
+    private final long fileByteCount;
+
+    private final long recordCount;
+
+    private final long minTimestampMillis;
+
+    private final long maxTimestampMillis;
+
+    private final BloomFilter<CharSequence> groupNames;
+
+    public HttpRequestRecordManifestEntry(
+            String fileName,
+            long fileByteCount,
+            long recordCount,
+            long minTimestampMillis,
+            long maxTimestampMillis,
+            BloomFilter<CharSequence> groupNames) {
+        this.fileName = checkNotNull(fileName, "fileName");
+        checkArgument(fileByteCount >= 0, "expecting: fileByteCount >= 0, found: %s", fileByteCount);
+        this.fileByteCount = fileByteCount;
+        checkArgument(recordCount >= 0, "expecting: recordCount >= 0, found: %s", recordCount);
+        this.recordCount = recordCount;
+        this.minTimestampMillis = minTimestampMillis;
+        this.maxTimestampMillis = maxTimestampMillis;
+        this.groupNames = checkNotNull(groupNames, "groupNames");
+    }
+
+    /**
+     * @return the name of the file within the directory of the manifest
+     */
+    public String getFileName() {
+        return fileName;
+    }
+
+    public long getFileByteCount() {
+        return fileByteCount;
+    }
+
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    public long getMinTimestampMillis() {
+        return minTimestampMillis;
+    }
+
+    public long getMaxTimestampMillis() {
+        return maxTimestampMillis;
+    }
+
+    public BloomFilter<CharSequence> getGroupNames() {
+        return groupNames;
+    }
+
+    /**
+     * @return true, if the given file is not modified since it is registered
+     */
+    public boolean isUpToDate(File file) {
+        return file.length() == fileByteCount;
+    }
+
+    /**
+     * @return true, if the file might contain a record with a timestamp in
+     * {@code [fromTimestampMillis, toTimestampMillis)} and one of the given
+     * group names (null/empty to match all)
+     */
+    public boolean mightMatch(long fromTimestampMillis, long toTimestampMillis, Collection<String> groupNames) {
+        if (recordCount == 0 || minTimestampMillis >= toTimestampMillis || maxTimestampMillis < fromTimestampMillis) {
+            return false;
+        }
+        if (groupNames == null || groupNames.isEmpty()) {
+            return true;
+        }
+        for (String groupName : groupNames) {
+            if (this.groupNames.mightContain(groupName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("fileName", fileName)
+                .add("fileByteCount", fileByteCount)
+                .add("recordCount", recordCount)
+                .add("minTimestampMillis", minTimestampMillis)
+                .add("maxTimestampMillis", maxTimestampMillis)
+                .toString();
+    }
+
+}
@@ -0,0 +1,235 @@
+package com.vlkan.hrrs.serializer.mmap;
+
+import com.google.common.base.MoreObjects;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.function.Consumer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Reads records appended by {@link HttpRequestRecordWriterMappedLogTarget}
+ * from another process.
+ *
+ * Each tailer owns a named cursor persisted in a memory-mapped
+ * {@code <file>.<cursorName>.cursor} file, hence a restarted tailer resumes
+ * from where it has left. (See {@link #commit()} for durability against
+ * operating system crashes.) A new cursor starts from the oldest intact
+ * record, if nothing is overwritten yet, otherwise from the most recent
+ * write position.
+ *
+ * Since the writer never waits for tailers, a tailer that falls behind by
+ * more than the capacity gets lapped. Such a tailer skips to the most recent
+ * write position and accumulates the skipped byte count, see
+ * {@link #getLostByteCount()}. Records that were overwritten while being
+ * copied are discarded in the same way.
+ */
+@NotThreadSafe
+public class HttpRequestRecordMappedLogTailer implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HttpRequestRecordMappedLogTailer.class);
+
+    private static final String CURSOR_FILE_SUFFIX = ".cursor";
+
+    private final File file;
+
+    private final String cursorName;
+
+    private final Charset charset;
+
+    private final int capacity;
+
+    private final int maxFrameByteCount;
+
+    private final MappedByteBuffer buffer;
+
+    private final ByteBuffer data;
+
+    private final MappedByteBuffer cursorBuffer;
+
+    private byte[] frameBytes = new byte[1024];
+
+    private long readPosition;
+
+    private long lostByteCount = 0;
+
+    public HttpRequestRecordMappedLogTailer(File file, String cursorName, Charset charset) {
+        this.file = checkNotNull(file, "file");
+        this.cursorName = checkNotNull(cursorName, "cursorName");
+        this.charset = checkNotNull(charset, "charset");
+        checkArgument(cursorName.matches("[A-Za-z0-9_.-]+"), "invalid cursor name: %s", cursorName);
+        try {
+            this.buffer = MappedLog.mapForRead(file);
+            this.capacity = (int) buffer.getLong(MappedLog.CAPACITY_OFFSET);
+            this.maxFrameByteCount = MappedLog.maxFrameByteCount(capacity);
+            this.data = MappedLog.slice(buffer, MappedLog.HEADER_BYTE_COUNT, capacity);
+            File cursorFile = getCursorFile(file, cursorName);
+            boolean cursorFound = cursorFile.exists();
+            this.cursorBuffer = mapCursor(cursorFile);
+            this.readPosition = cursorFound ? cursorBuffer.getLong(0) : findInitialReadPosition();
+            storeReadPosition();
+        } catch (IOException error) {
+            String message = String.format("failed opening tailer (file=%s, cursorName=%s)", file, cursorName);
+            throw new RuntimeException(message, error);
+        }
+        LOGGER.trace(
+                "instantiated (file={}, cursorName={}, charset={}, readPosition={})",
+                file, cursorName, charset, readPosition);
+    }
+
+    public static File getCursorFile(File file, String cursorName) {
+        return new File(file.getPath() + '.' + cursorName + CURSOR_FILE_SUFFIX);
+    }
+
+    private static MappedByteBuffer mapCursor(File cursorFile) throws IOException {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(cursorFile, "rw")) {
+            return randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, 8);
+        }
+    }
+
+    private long findInitialReadPosition() {
+        long writePosition = readWritePosition();
+        return writePosition + maxFrameByteCount <= capacity ? 0 : writePosition;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public String getCursorName() {
+        return cursorName;
+    }
+
+    public Charset getCharset() {
+        return charset;
+    }
+
+    public long getReadPosition() {
+        return readPosition;
+    }
+
+    public long getLostByteCount() {
+        return lostByteCount;
+    }
+
+    private long readWritePosition() {
+        return OrderedAccess.getAcquire(buffer, MappedLog.WRITE_POSITION_OFFSET);
+    }
+
+    /**
+     * Passes the available records to the given consumer and advances the cursor past them.
+     *
+     * @return the number of consumed records
+     */
+    public int poll(Consumer<String> consumer, int maxRecordCount) {
+        checkNotNull(consumer, "consumer");
+        checkArgument(maxRecordCount > 0, "expecting: maxRecordCount > 0, found: %s", maxRecordCount);
+        int recordCount = 0;
+        long writePosition = readWritePosition();
+        if (readPosition > writePosition) {
+            // The log is recreated by the writer.
+            LOGGER.warn("cursor is ahead of the writer (file={}, cursorName={}, readPosition={}, writePosition={})",
+                    file, cursorName, readPosition, writePosition);
+            readPosition = writePosition;
+        }
+        while (recordCount < maxRecordCount && readPosition < writePosition) {
+            if (isOverwritten(readPosition, writePosition)) {
+                skipTo(writePosition);
+                break;
+            }
+            int index = (int) (readPosition % capacity);
+            int length = data.getInt(index);
+            boolean padding = length == MappedLog.PADDING_LENGTH;
+            boolean lengthValid = length >= 0 && index + MappedLog.FRAME_HEADER_BYTE_COUNT + length <= capacity;
+            if (lengthValid) {
+                copyFrame(index, length);
+            }
+            // Verify that the frame is not overwritten while being copied.
+            OrderedAccess.acquireFence();
+            writePosition = readWritePosition();
+            if (isOverwritten(readPosition, writePosition)) {
+                skipTo(writePosition);
+                break;
+            }
+            if (padding) {
+                readPosition += capacity - index;
+                continue;
+            }
+            if (!lengthValid) {
+                String message = String.format(
+                        "invalid frame length (file=%s, readPosition=%d, length=%d)",
+                        file, readPosition, length);
+                throw new IllegalStateException(message);
+            }
+            readPosition += MappedLog.align(MappedLog.FRAME_HEADER_BYTE_COUNT + length);
+            consumer.accept(new String(frameBytes, 0, length, charset));
+            recordCount++;
+        }
+        storeReadPosition();
+        return recordCount;
+    }
+
+    /**
+     * Checks if the writer, which might be writing past the given write
+     * position by the maximum frame length, reached the given read position.
+     */
+    private boolean isOverwritten(long position, long writePosition) {
+        return position + capacity < writePosition + maxFrameByteCount;
+    }
+
+    private void skipTo(long writePosition) {
+        long skippedByteCount = writePosition - readPosition;
+        lostByteCount += skippedByteCount;
+        LOGGER.warn("tailer is lapped by the writer (file={}, cursorName={}, skippedByteCount={})",
+                file, cursorName, skippedByteCount);
+        readPosition = writePosition;
+    }
+
+    private void copyFrame(int index, int length) {
+        if (frameBytes.length < length) {
+            frameBytes = new byte[Math.max(length, 2 * frameBytes.length)];
+        }
+        ByteBuffer view = data.duplicate();
+        view.position(index + MappedLog.FRAME_HEADER_BYTE_COUNT);
+        view.get(frameBytes, 0, length);
+    }
+
+    private void storeReadPosition() {
+        cursorBuffer.putLong(0, readPosition);
+    }
+
+    /**
+     * Forces the cursor to the storage device. The cursor survives a crash of
+     * the tailer process even without a commit, since it is memory-mapped.
+     */
+    public void commit() {
+        cursorBuffer.force();
+    }
+
+    @Override
+    public void close() {
+        LOGGER.trace("closing");
+        commit();
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("file", file)
+                .add("cursorName", cursorName)
+                .add("charset", charset)
+                .toString();
+    }
+
+}
@@ -0,0 +1,209 @@
+package com.vlkan.hrrs.serializer.mmap;
+
+import com.google.common.base.MoreObjects;
+import com.vlkan.hrrs.api.HttpRequestRecordWriterTarget;
+import com.vlkan.hrrs.api.metric.HrrsDropReason;
+import com.vlkan.hrrs.api.metric.HrrsMetrics;
+import com.vlkan.hrrs.api.metric.HrrsRecordCountingTarget;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Target appending records to a fixed-size memory-mapped circular log,
+ * which is tailed by a separate local process via
+ * {@link HttpRequestRecordMappedLogTailer}.
+ *
+ * Records are encoded straight into the mapped region, the frame length is
+ * written next, and finally the write position is published with a
+ * release-store (see {@link OrderedAccess} for its lack of ordering
+ * guarantees on Java 8). The writer never looks at the tailer cursors: once the log
+ * is full, the oldest records are overwritten. Hence a slow or crashed
+ * shipper never blocks the application, it only loses records, which it
+ * detects on its own. Records longer than a quarter of the capacity are
+ * dropped (and counted as {@link HrrsDropReason#RECORD_TOO_LARGE}), hence
+ * the target counts the records it accepts as recorded itself.
+ *
+ * There can be only a single writer per file, which is enforced by an
+ * exclusive file lock.
+ */
+@NotThreadSafe
+public class HttpRequestRecordWriterMappedLogTarget implements HttpRequestRecordWriterTarget<String>, HrrsRecordCountingTarget {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HttpRequestRecordWriterMappedLogTarget.class);
+
+    public static final int DEFAULT_CAPACITY = 64 * 1024 * 1024;
+
+    private final File file;
+
+    private final int capacity;
+
+    private final int maxFrameByteCount;
+
+    private final Charset charset;
+
+    private final CharsetEncoder encoder;
+
+    private final HrrsMetrics metrics = HrrsMetrics.getInstance();
+
+    private final RandomAccessFile randomAccessFile;
+
+    private final FileLock lock;
+
+    private final MappedByteBuffer buffer;
+
+    private final ByteBuffer data;
+
+    private long writePosition;
+
+    public HttpRequestRecordWriterMappedLogTarget(File file, Charset charset) {
+        this(file, DEFAULT_CAPACITY, charset);
+    }
+
+    public HttpRequestRecordWriterMappedLogTarget(File file, int capacity, Charset charset) {
+        this.file = checkNotNull(file, "file");
+        this.capacity = capacity;
+        this.maxFrameByteCount = MappedLog.maxFrameByteCount(capacity);
+        this.charset = checkNotNull(charset, "charset");
+        this.encoder = charset.newEncoder();
+        try {
+            this.randomAccessFile = new RandomAccessFile(file, "rw");
+            FileChannel channel = randomAccessFile.getChannel();
+            this.lock = channel.tryLock(0, MappedLog.HEADER_BYTE_COUNT, false);
+            if (lock == null) {
+                randomAccessFile.close();
+                String message = String.format("file is locked by another writer (file=%s)", file);
+                throw new IllegalStateException(message);
+            }
+            this.buffer = MappedLog.mapForWrite(channel, capacity);
+        } catch (IOException error) {
+            String message = String.format("failed mapping file (file=%s, capacity=%d)", file, capacity);
+            throw new RuntimeException(message, error);
+        }
+        this.data = MappedLog.slice(buffer, MappedLog.HEADER_BYTE_COUNT, capacity);
+        this.writePosition = buffer.getLong(MappedLog.WRITE_POSITION_OFFSET);
+        LOGGER.trace(
+                "instantiated (file={}, capacity={}, charset={}, writePosition={})",
+                file, capacity, charset, writePosition);
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public Charset getCharset() {
+        return charset;
+    }
+
+    public long getWritePosition() {
+        return writePosition;
+    }
+
+    @Override
+    public void write(String value) {
+        int index = (int) (writePosition % capacity);
+        int frameByteCount = encode(value, index);
+        if (frameByteCount < 0 && index + maxFrameByteCount > capacity && isFrameable(value)) {
+            // Does not fit into the end of the ring, but into a frame, wrap around.
+            data.putInt(index, MappedLog.PADDING_LENGTH);
+            publish(writePosition + capacity - index);
+            index = 0;
+            frameByteCount = encode(value, index);
+        }
+        if (frameByteCount < 0) {
+            metrics.incrementDroppedCount(HrrsDropReason.RECORD_TOO_LARGE);
+            LOGGER.trace("dropping oversized record (file={}, valueLength={})", file, value.length());
+            return;
+        }
+        data.putInt(index, frameByteCount);
+        publish(writePosition + MappedLog.align(MappedLog.FRAME_HEADER_BYTE_COUNT + frameByteCount));
+        metrics.incrementRecordedCount();
+    }
+
+    /**
+     * Checks if the given value fits into a frame, without encoding it into
+     * the ring, hence the padding is not published for a value to be dropped.
+     */
+    private boolean isFrameable(String value) {
+        int maxByteCount = maxFrameByteCount - MappedLog.FRAME_HEADER_BYTE_COUNT;
+        return value.length() * (double) encoder.maxBytesPerChar() <= maxByteCount
+                || value.getBytes(charset).length <= maxByteCount;
+    }
+
+    /**
+     * Encodes the given value into the data region succeeding the frame header at the given index.
+     *
+     * @return the encoded byte count, or -1 if the value does not fit
+     */
+    private int encode(String value, int index) {
+        ByteBuffer view = data.duplicate();
+        int offset = index + MappedLog.FRAME_HEADER_BYTE_COUNT;
+        view.limit(Math.min(capacity, index + maxFrameByteCount));
+        view.position(offset);
+        encoder.reset();
+        CoderResult result = encoder.encode(CharBuffer.wrap(value), view, true);
+        if (!result.isOverflow()) {
+            result = encoder.flush(view);
+        }
+        if (result.isOverflow()) {
+            return -1;
+        }
+        if (result.isError()) {
+            String message = String.format("encoding failure (file=%s, charset=%s, result=%s)", file, charset, result);
+            throw new RuntimeException(message);
+        }
+        return view.position() - offset;
+    }
+
+    private void publish(long position) {
+        writePosition = position;
+        OrderedAccess.setRelease(buffer, MappedLog.WRITE_POSITION_OFFSET, position);
+    }
+
+    /**
+     * Written records are immediately visible to the tailers, hence there is nothing to flush.
+     */
+    @Override
+    public void flush() {
+        // Do nothing.
+    }
+
+    @Override
+    public void close() throws IOException {
+        LOGGER.trace("closing");
+        try {
+            buffer.force();
+        } finally {
+            lock.release();
+            randomAccessFile.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("file", file)
+                .add("capacity", capacity)
+                .add("charset", charset)
+                .toString();
+    }
+
+}
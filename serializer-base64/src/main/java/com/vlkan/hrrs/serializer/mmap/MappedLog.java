@@ -0,0 +1,97 @@
+package com.vlkan.hrrs.serializer.mmap;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Layout of the memory-mapped circular record log shared by
+ * {@link HttpRequestRecordWriterMappedLogTarget} and
+ * {@link HttpRequestRecordMappedLogTailer}.
+ *
+ * <pre>
+ * header (64 bytes): magic (int), version (int), capacity (long), write position (long)
+ * data (capacity bytes): frames of length (int) + record bytes, aligned to 8 bytes
+ * </pre>
+ *
+ * Positions are monotonically increasing offsets, which are mapped to the
+ * data region modulo capacity. A frame never wraps: if it does not fit into
+ * the end of the data region, a padding frame is written and the frame
+ * starts from the beginning of the data region.
+ */
+enum MappedLog {;
+
+    static final int MAGIC = 0x48525253;    // "HRRS"
+
+    static final int VERSION = 1;
+
+    static final int HEADER_BYTE_COUNT = 64;
+
+    static final int CAPACITY_OFFSET = 8;
+
+    static final int WRITE_POSITION_OFFSET = 16;
+
+    static final int FRAME_HEADER_BYTE_COUNT = 4;
+
+    static final int PADDING_LENGTH = -1;
+
+    static final int MIN_CAPACITY = 4 * 1024;
+
+    static long align(long byteCount) {
+        return (byteCount + 7) & ~7L;
+    }
+
+    /**
+     * @return the maximum frame length, bounding the region a writer might be
+     * overwriting beyond the published write position
+     */
+    static int maxFrameByteCount(int capacity) {
+        return capacity / 4;
+    }
+
+    static MappedByteBuffer mapForWrite(FileChannel channel, int capacity) throws IOException {
+        checkArgument(capacity >= MIN_CAPACITY && capacity % 8 == 0,
+                "expecting capacity >= %s and a multiple of 8, found: %s", MIN_CAPACITY, capacity);
+        long fileByteCount = HEADER_BYTE_COUNT + (long) capacity;
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileByteCount);
+        boolean reusable = buffer.getInt(0) == MAGIC
+                && buffer.getInt(4) == VERSION
+                && buffer.getLong(CAPACITY_OFFSET) == capacity;
+        if (!reusable) {
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putLong(CAPACITY_OFFSET, capacity);
+            buffer.putLong(WRITE_POSITION_OFFSET, 0);
+        }
+        return buffer;
+    }
+
+    static MappedByteBuffer mapForRead(File file) throws IOException {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+            FileChannel channel = randomAccessFile.getChannel();
+            checkArgument(channel.size() > HEADER_BYTE_COUNT, "invalid file size (file=%s)", file);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            checkArgument(buffer.getInt(0) == MAGIC, "invalid magic (file=%s)", file);
+            int version = buffer.getInt(4);
+            checkArgument(version == VERSION, "unsupported version (file=%s, version=%s)", file, version);
+            long capacity = buffer.getLong(CAPACITY_OFFSET);
+            checkArgument(
+                    HEADER_BYTE_COUNT + capacity == channel.size(),
+                    "capacity mismatch (file=%s, capacity=%s, size=%s)", file, capacity, channel.size());
+            return buffer;
+        }
+    }
+
+    static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position(offset);
+        duplicate.limit(offset + length);
+        return duplicate.slice();
+    }
+
+}
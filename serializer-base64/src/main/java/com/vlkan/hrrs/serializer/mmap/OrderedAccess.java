@@ -0,0 +1,100 @@
+package com.vlkan.hrrs.serializer.mmap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Release-store and acquire-load of {@code long}s in (memory-mapped) byte buffers.
+ *
+ * Uses a {@code VarHandle} byte buffer view on Java 9 and later, which is
+ * looked up reflectively to keep the Java 8 compatibility. On Java 8, it
+ * falls back to plain {@link ByteBuffer#putLong(int, long)} and
+ * {@link ByteBuffer#getLong(int)} accesses without fences, hence there is no
+ * ordering guarantee: neither the compiler nor the CPU is prevented from
+ * reordering the frame writes with the publication of the write position,
+ * and a tailer might read a frame before it is completely written.
+ */
+enum OrderedAccess {;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OrderedAccess.class);
+
+    private static final MethodHandle SET_RELEASE;
+
+    private static final MethodHandle GET_ACQUIRE;
+
+    private static final MethodHandle ACQUIRE_FENCE;
+
+    static {
+        MethodHandle setRelease = null;
+        MethodHandle getAcquire = null;
+        MethodHandle acquireFence = null;
+        try {
+            Method viewFactory = MethodHandles.class.getMethod("byteBufferViewVarHandle", Class.class, ByteOrder.class);
+            Object varHandle = viewFactory.invoke(null, long[].class, ByteOrder.BIG_ENDIAN);
+            @SuppressWarnings("unchecked")
+            Class<Enum> accessModeClass = (Class<Enum>) Class.forName("java.lang.invoke.VarHandle$AccessMode");
+            Method invokerFactory = MethodHandles.class.getMethod("varHandleInvoker", accessModeClass, MethodType.class);
+            @SuppressWarnings("unchecked")
+            Object setReleaseMode = Enum.valueOf(accessModeClass, "SET_RELEASE");
+            @SuppressWarnings("unchecked")
+            Object getAcquireMode = Enum.valueOf(accessModeClass, "GET_ACQUIRE");
+            MethodType setType = MethodType.methodType(void.class, ByteBuffer.class, int.class, long.class);
+            MethodType getType = MethodType.methodType(long.class, ByteBuffer.class, int.class);
+            setRelease = ((MethodHandle) invokerFactory.invoke(null, setReleaseMode, setType)).bindTo(varHandle);
+            getAcquire = ((MethodHandle) invokerFactory.invoke(null, getAcquireMode, getType)).bindTo(varHandle);
+            acquireFence = MethodHandles.publicLookup().findStatic(
+                    Class.forName("java.lang.invoke.VarHandle"),
+                    "acquireFence", MethodType.methodType(void.class));
+        } catch (Throwable error) {
+            LOGGER.trace("VarHandle is not available, falling back to plain accesses", error);
+        }
+        SET_RELEASE = setRelease;
+        GET_ACQUIRE = getAcquire;
+        ACQUIRE_FENCE = acquireFence;
+    }
+
+    static void setRelease(ByteBuffer buffer, int offset, long value) {
+        if (SET_RELEASE == null) {
+            buffer.putLong(offset, value);
+            return;
+        }
+        try {
+            SET_RELEASE.invokeExact(buffer, offset, value);
+        } catch (Throwable error) {
+            throw new RuntimeException("release-store failure", error);
+        }
+    }
+
+    static long getAcquire(ByteBuffer buffer, int offset) {
+        if (GET_ACQUIRE == null) {
+            return buffer.getLong(offset);
+        }
+        try {
+            return (long) GET_ACQUIRE.invokeExact(buffer, offset);
+        } catch (Throwable error) {
+            throw new RuntimeException("acquire-load failure", error);
+        }
+    }
+
+    /**
+     * Ensures that loads before the fence are not reordered with loads after the fence.
+     */
+    static void acquireFence() {
+        if (ACQUIRE_FENCE == null) {
+            return;
+        }
+        try {
+            ACQUIRE_FENCE.invokeExact();
+        } catch (Throwable error) {
+            throw new RuntimeException("acquire fence failure", error);
+        }
+    }
+
+}
@@ -0,0 +1,198 @@
+package com.vlkan.hrrs.serializer.payload;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Content-addressed store of request payloads, where each distinct payload is
+ * stored once in a file named after its 128-bit Murmur3 hash, e.g.,
+ * {@code <directory>/3f/a5...}, and records reference payloads by hash.
+ *
+ * Writers consult a bounded cache of recently stored hashes before touching
+ * the file system, hence repeated payloads (polling requests, retries, batch
+ * jobs, etc.) cost a hash computation only. Payloads shorter than
+ * {@link #getMinByteCount()} are not worth a reference and are expected to be
+ * stored inline. Readers cache recently loaded payloads up to a byte budget.
+ *
+ * The store can be shared by any number of writers and readers, including
+ * ones in different processes, since files are written to a temporary file
+ * first and then atomically moved to their final location.
+ */
+@ThreadSafe
+public class HttpRequestPayloadStore {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HttpRequestPayloadStore.class);
+
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    public static final int HASH_BYTE_COUNT = HASH_FUNCTION.bits() / 8;
+
+    public static final int DEFAULT_MIN_BYTE_COUNT = 128;
+
+    public static final int DEFAULT_RECENT_HASH_COUNT = 64 * 1024;
+
+    public static final long DEFAULT_MAX_CACHED_BYTE_COUNT = 64L * 1024 * 1024;
+
+    private final File directory;
+
+    private final int minByteCount;
+
+    private final Cache<HashCode, Boolean> recentHashes;
+
+    private final Cache<HashCode, byte[]> loadedPayloads;
+
+    private final LongAdder storedPayloadCount = new LongAdder();
+
+    private final LongAdder deduplicatedPayloadCount = new LongAdder();
+
+    private final LongAdder deduplicatedByteCount = new LongAdder();
+
+    public HttpRequestPayloadStore(File directory) {
+        this(directory, DEFAULT_MIN_BYTE_COUNT, DEFAULT_RECENT_HASH_COUNT, DEFAULT_MAX_CACHED_BYTE_COUNT);
+    }
+
+    public HttpRequestPayloadStore(File directory, int minByteCount, int recentHashCount, long maxCachedByteCount) {
+        this.directory = checkNotNull(directory, "directory");
+        checkArgument(minByteCount >= 0, "expecting: minByteCount >= 0, found: %s", minByteCount);
+        checkArgument(recentHashCount > 0, "expecting: recentHashCount > 0, found: %s", recentHashCount);
+        checkArgument(maxCachedByteCount >= 0, "expecting: maxCachedByteCount >= 0, found: %s", maxCachedByteCount);
+        this.minByteCount = minByteCount;
+        this.recentHashes = CacheBuilder.newBuilder().maximumSize(recentHashCount).build();
+        this.loadedPayloads = CacheBuilder
+                .newBuilder()
+                .maximumWeight(maxCachedByteCount)
+                .<HashCode, byte[]>weigher((hash, bytes) -> bytes.length)
+                .build();
+        if (!directory.isDirectory() && !directory.mkdirs() && !directory.isDirectory()) {
+            String message = String.format("failed creating directory (directory=%s)", directory);
+            throw new RuntimeException(message);
+        }
+        LOGGER.trace(
+                "instantiated (directory={}, minByteCount={}, recentHashCount={}, maxCachedByteCount={})",
+                directory, minByteCount, recentHashCount, maxCachedByteCount);
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    public int getMinByteCount() {
+        return minByteCount;
+    }
+
+    public long getStoredPayloadCount() {
+        return storedPayloadCount.sum();
+    }
+
+    public long getDeduplicatedPayloadCount() {
+        return deduplicatedPayloadCount.sum();
+    }
+
+    public long getDeduplicatedByteCount() {
+        return deduplicatedByteCount.sum();
+    }
+
+    public boolean isStorable(int byteCount) {
+        return byteCount >= minByteCount;
+    }
+
+    /**
+     * @return the {@link #HASH_BYTE_COUNT}-long hash the given payload is addressed by
+     */
+    public byte[] hash(byte[] bytes) {
+        return HASH_FUNCTION.hashBytes(bytes).asBytes();
+    }
+
+    /**
+     * Stores the given payload, unless it is either recently stored or already exists.
+     *
+     * @param hash hash of the payload, see {@link #hash(byte[])}
+     */
+    public void put(byte[] hash, byte[] bytes) {
+        HashCode hashCode = HashCode.fromBytes(hash);
+        if (recentHashes.getIfPresent(hashCode) != null) {
+            deduplicatedPayloadCount.increment();
+            deduplicatedByteCount.add(bytes.length);
+            return;
+        }
+        File file = getFile(hashCode);
+        if (file.exists()) {
+            deduplicatedPayloadCount.increment();
+            deduplicatedByteCount.add(bytes.length);
+        } else {
+            write(file, bytes);
+            storedPayloadCount.increment();
+        }
+        recentHashes.put(hashCode, Boolean.TRUE);
+    }
+
+    private static void write(File file, byte[] bytes) {
+        Path path = file.toPath();
+        Path temporaryPath = null;
+        try {
+            Path parentPath = path.getParent();
+            Files.createDirectories(parentPath);
+            temporaryPath = Files.createTempFile(parentPath, file.getName(), ".tmp");
+            Files.write(temporaryPath, bytes);
+            Files.move(temporaryPath, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException error) {
+            if (temporaryPath != null) {
+                temporaryPath.toFile().delete();
+            }
+            String message = String.format("failed writing payload (file=%s, byteCount=%d)", file, bytes.length);
+            throw new RuntimeException(message, error);
+        }
+    }
+
+    /**
+     * @param hash hash of the payload, see {@link #hash(byte[])}
+     * @return the payload addressed by the given hash
+     */
+    public byte[] get(byte[] hash) {
+        HashCode hashCode = HashCode.fromBytes(hash);
+        byte[] bytes = loadedPayloads.getIfPresent(hashCode);
+        if (bytes == null) {
+            File file = getFile(hashCode);
+            try {
+                bytes = Files.readAllBytes(file.toPath());
+            } catch (IOException error) {
+                String message = String.format("failed reading payload (file=%s)", file);
+                throw new RuntimeException(message, error);
+            }
+            loadedPayloads.put(hashCode, bytes);
+        }
+        return bytes;
+    }
+
+    private File getFile(HashCode hashCode) {
+        String hex = hashCode.toString();
+        File parentDirectory = new File(directory, hex.substring(0, 2));
+        return new File(parentDirectory, hex.substring(2));
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("directory", directory)
+                .add("minByteCount", minByteCount)
+                .toString();
+    }
+
+}
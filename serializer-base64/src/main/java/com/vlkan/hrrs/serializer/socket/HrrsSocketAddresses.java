@@ -0,0 +1,88 @@
+package com.vlkan.hrrs.serializer.socket;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Socket address helpers supporting Unix domain ({@code unix:/path/to/socket})
+ * and TCP ({@code tcp://host:port} or {@code host:port}) addresses.
+ *
+ * Unix domain sockets require Java 16 or later and are accessed reflectively
+ * to keep the Java 8 compatibility.
+ */
+public enum HrrsSocketAddresses {;
+
+    private static final String UNIX_PREFIX = "unix:";
+
+    private static final String TCP_PREFIX = "tcp://";
+
+    public static boolean isUnixDomain(String address) {
+        return checkNotNull(address, "address").startsWith(UNIX_PREFIX);
+    }
+
+    public static SocketAddress parse(String address) {
+        checkNotNull(address, "address");
+        if (isUnixDomain(address)) {
+            String path = address.substring(UNIX_PREFIX.length());
+            checkArgument(!path.isEmpty(), "blank Unix domain socket path (address=%s)", address);
+            return createUnixDomainSocketAddress(path);
+        }
+        String hostAndPort = address.startsWith(TCP_PREFIX) ? address.substring(TCP_PREFIX.length()) : address;
+        int separatorIndex = hostAndPort.lastIndexOf(':');
+        checkArgument(separatorIndex > 0, "expecting host:port (address=%s)", address);
+        String host = hostAndPort.substring(0, separatorIndex);
+        int port = Integer.parseInt(hostAndPort.substring(separatorIndex + 1));
+        return new InetSocketAddress(host, port);
+    }
+
+    private static SocketAddress createUnixDomainSocketAddress(String path) {
+        try {
+            Class<?> addressClass = Class.forName("java.net.UnixDomainSocketAddress");
+            Method factoryMethod = addressClass.getMethod("of", String.class);
+            return (SocketAddress) factoryMethod.invoke(null, path);
+        } catch (ClassNotFoundException error) {
+            String message = String.format("Unix domain sockets require Java 16 or later (path=%s)", path);
+            throw new UnsupportedOperationException(message, error);
+        } catch (Exception error) {
+            String message = String.format("failed creating Unix domain socket address (path=%s)", path);
+            throw new RuntimeException(message, error);
+        }
+    }
+
+    public static SocketChannel connect(String address) throws IOException {
+        SocketAddress socketAddress = parse(address);
+        // SocketChannel#open(SocketAddress) opens a Unix domain channel for Unix domain addresses in Java 16+.
+        return SocketChannel.open(socketAddress);
+    }
+
+    public static ServerSocketChannel bind(String address) throws IOException {
+        SocketAddress socketAddress = parse(address);
+        ServerSocketChannel serverChannel = isUnixDomain(address)
+                ? openUnixDomainServerChannel()
+                : ServerSocketChannel.open();
+        serverChannel.bind(socketAddress);
+        return serverChannel;
+    }
+
+    private static ServerSocketChannel openUnixDomainServerChannel() throws IOException {
+        try {
+            ProtocolFamily family = StandardProtocolFamily.valueOf("UNIX");
+            Method openMethod = ServerSocketChannel.class.getMethod("open", ProtocolFamily.class);
+            return (ServerSocketChannel) openMethod.invoke(null, family);
+        } catch (IllegalArgumentException | NoSuchMethodException error) {
+            throw new UnsupportedOperationException("Unix domain sockets require Java 16 or later", error);
+        } catch (Exception error) {
+            throw new IOException("failed opening Unix domain server socket", error);
+        }
+    }
+
+}
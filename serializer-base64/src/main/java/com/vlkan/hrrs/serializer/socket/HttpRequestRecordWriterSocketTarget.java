@@ -0,0 +1,281 @@
+package com.vlkan.hrrs.serializer.socket;
+
+import com.google.common.base.MoreObjects;
+import com.vlkan.hrrs.api.HttpRequestRecordWriterTarget;
+import com.vlkan.hrrs.api.metric.HrrsDropReason;
+import com.vlkan.hrrs.api.metric.HrrsMetrics;
+import com.vlkan.hrrs.api.metric.HrrsRecordCountingTarget;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Target shipping records to an {@code hrrs-collector} process over a Unix
+ * domain or TCP socket.
+ *
+ * Each record is sent as a frame of a 4-byte big-endian length followed by
+ * the encoded record. {@link #write(String)} only copies the frame into an
+ * in-memory buffer, which is shipped by a background sender thread. Records
+ * are dropped (and counted as {@link HrrsDropReason#TARGET_UNAVAILABLE}) while
+ * the collector is not connected or the buffer is full, hence the
+ * application never blocks on the collector. Records exceeding the buffer
+ * are dropped (and counted as {@link HrrsDropReason#RECORD_TOO_LARGE}). Records are counted as recorded
+ * once they are sent, and as dropped, if sending them fails.
+ */
+@ThreadSafe
+public class HttpRequestRecordWriterSocketTarget implements HttpRequestRecordWriterTarget<String>, HrrsRecordCountingTarget {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HttpRequestRecordWriterSocketTarget.class);
+
+    public static final int DEFAULT_BUFFER_BYTE_COUNT = 4 * 1024 * 1024;
+
+    public static final long DEFAULT_RECONNECT_PERIOD_MILLIS = 1000;
+
+    private static final long SEND_PERIOD_MILLIS = 100;
+
+    private static final int FRAME_HEADER_BYTE_COUNT = 4;
+
+    private final String address;
+
+    private final Charset charset;
+
+    private final int bufferByteCount;
+
+    private final long reconnectPeriodMillis;
+
+    private final HrrsMetrics metrics = HrrsMetrics.getInstance();
+
+    private final Object lock = new Object();
+
+    @GuardedBy("lock")
+    private ByteBuffer pendingBuffer;
+
+    @GuardedBy("lock")
+    private int pendingFrameCount = 0;
+
+    private ByteBuffer sendingBuffer;
+
+    private volatile boolean connected = false;
+
+    private volatile boolean closed = false;
+
+    private final Thread sender;
+
+    public HttpRequestRecordWriterSocketTarget(String address, Charset charset) {
+        this(address, charset, DEFAULT_BUFFER_BYTE_COUNT, DEFAULT_RECONNECT_PERIOD_MILLIS);
+    }
+
+    public HttpRequestRecordWriterSocketTarget(String address, Charset charset, int bufferByteCount, long reconnectPeriodMillis) {
+        this.address = checkNotNull(address, "address");
+        this.charset = checkNotNull(charset, "charset");
+        checkArgument(bufferByteCount > FRAME_HEADER_BYTE_COUNT, "too small bufferByteCount: %s", bufferByteCount);
+        checkArgument(reconnectPeriodMillis > 0, "expecting: reconnectPeriodMillis > 0, found: %s", reconnectPeriodMillis);
+        HrrsSocketAddresses.parse(address);
+        this.bufferByteCount = bufferByteCount;
+        this.reconnectPeriodMillis = reconnectPeriodMillis;
+        this.pendingBuffer = ByteBuffer.allocate(bufferByteCount);
+        this.sendingBuffer = ByteBuffer.allocate(bufferByteCount);
+        this.sender = new Thread(this::send, "HRRS Socket Sender");
+        this.sender.setDaemon(true);
+        this.sender.start();
+        LOGGER.trace(
+                "instantiated (address={}, charset={}, bufferByteCount={}, reconnectPeriodMillis={})",
+                address, charset, bufferByteCount, reconnectPeriodMillis);
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    public Charset getCharset() {
+        return charset;
+    }
+
+    public boolean isConnected() {
+        return connected;
+    }
+
+    @Override
+    public void write(String value) {
+        if (!connected) {
+            metrics.incrementDroppedCount(HrrsDropReason.TARGET_UNAVAILABLE);
+            return;
+        }
+        byte[] bytes = value.getBytes(charset);
+        int frameByteCount = FRAME_HEADER_BYTE_COUNT + bytes.length;
+        if (frameByteCount > bufferByteCount) {
+            metrics.incrementDroppedCount(HrrsDropReason.RECORD_TOO_LARGE);
+            LOGGER.trace("dropping oversized record (address={}, frameByteCount={})", address, frameByteCount);
+            return;
+        }
+        synchronized (lock) {
+            if (pendingBuffer.remaining() < frameByteCount) {
+                metrics.incrementDroppedCount(HrrsDropReason.TARGET_UNAVAILABLE);
+                return;
+            }
+            pendingBuffer.putInt(bytes.length).put(bytes);
+            pendingFrameCount++;
+            if (pendingBuffer.position() > pendingBuffer.capacity() / 2) {
+                lock.notifyAll();
+            }
+        }
+    }
+
+    private void send() {
+        SocketChannel channel = null;
+        while (!closed) {
+            if (channel == null) {
+                channel = connect();
+                if (channel == null) {
+                    awaitSignal(reconnectPeriodMillis);
+                    continue;
+                }
+            }
+            int frameCount = swapBuffers(SEND_PERIOD_MILLIS);
+            if (!sendBuffer(channel, frameCount)) {
+                channel = disconnect(channel);
+            }
+        }
+        if (channel != null) {
+            sendBuffer(channel, swapBuffers(0));
+            disconnect(channel);
+        }
+        LOGGER.trace("sender is stopped");
+    }
+
+    private SocketChannel connect() {
+        try {
+            SocketChannel channel = HrrsSocketAddresses.connect(address);
+            connected = true;
+            LOGGER.info("connected to collector (address={})", address);
+            return channel;
+        } catch (Exception error) {
+            LOGGER.trace("failed connecting to collector (address={})", address, error);
+            return null;
+        }
+    }
+
+    private SocketChannel disconnect(SocketChannel channel) {
+        connected = false;
+        try {
+            channel.close();
+        } catch (IOException error) {
+            LOGGER.trace("failed closing channel (address={})", address, error);
+        }
+        return null;
+    }
+
+    private void awaitSignal(long timeoutMillis) {
+        synchronized (lock) {
+            if (!closed) {
+                try {
+                    lock.wait(timeoutMillis);
+                } catch (InterruptedException ignored) {
+                    Thread.currentThread().interrupt();
+                    closed = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Swaps the pending and sending buffers, if there is anything pending.
+     *
+     * @return the number of frames in the sending buffer
+     */
+    private int swapBuffers(long timeoutMillis) {
+        synchronized (lock) {
+            if (pendingFrameCount == 0 && timeoutMillis > 0) {
+                awaitSignal(timeoutMillis);
+            }
+            int frameCount = pendingFrameCount;
+            ByteBuffer buffer = pendingBuffer;
+            pendingBuffer = sendingBuffer;
+            pendingFrameCount = 0;
+            sendingBuffer = buffer;
+            return frameCount;
+        }
+    }
+
+    private boolean sendBuffer(SocketChannel channel, int frameCount) {
+        sendingBuffer.flip();
+        try {
+            while (sendingBuffer.hasRemaining()) {
+                channel.write(sendingBuffer);
+            }
+            metrics.addRecordedCount(frameCount);
+            return true;
+        } catch (IOException error) {
+            int sentFrameCount = countSentFrames();
+            LOGGER.warn(
+                    "failed sending records to collector (address={}, frameCount={}, sentFrameCount={})",
+                    address, frameCount, sentFrameCount, error);
+            metrics.addRecordedCount(sentFrameCount);
+            metrics.addDroppedCount(HrrsDropReason.TARGET_UNAVAILABLE, frameCount - sentFrameCount);
+            return false;
+        } finally {
+            sendingBuffer.clear();
+        }
+    }
+
+    /**
+     * @return the number of frames completely written from the sending buffer
+     */
+    private int countSentFrames() {
+        int sentByteCount = sendingBuffer.position();
+        int sentFrameCount = 0;
+        int frameOffset = 0;
+        while (frameOffset + FRAME_HEADER_BYTE_COUNT <= sentByteCount) {
+            frameOffset += FRAME_HEADER_BYTE_COUNT + sendingBuffer.getInt(frameOffset);
+            if (frameOffset > sentByteCount) {
+                break;
+            }
+            sentFrameCount++;
+        }
+        return sentFrameCount;
+    }
+
+    /**
+     * Signals the sender thread to ship the pending records without blocking,
+     * hence records flushed might still be dropped, e.g., if sending them fails.
+     */
+    @Override
+    public void flush() {
+        synchronized (lock) {
+            lock.notifyAll();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        LOGGER.trace("closing");
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            sender.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException ignored) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("address", address)
+                .add("charset", charset)
+                .toString();
+    }
+
+}
@@ -0,0 +1,182 @@
+package com.vlkan.hrrs.serializer.stripe;
+
+import com.vlkan.hrrs.api.HttpRequestRecord;
+import com.vlkan.hrrs.api.HttpRequestRecordReader;
+import com.vlkan.hrrs.api.HttpRequestRecordReaderSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Reader k-way merging the records of the given readers, e.g., the segments
+ * written by {@link HttpRequestRecordStripedWriter}, in timestamp order.
+ * Records with equal timestamps are returned in the order of their readers.
+ *
+ * Every reader is assumed to be in timestamp order by itself. Each reader
+ * decodes its own records (hence segment-specific state, e.g., dictionaries,
+ * is retained) and is advanced only after its last returned record is
+ * consumed, hence at most a single record per reader is held at a time.
+ */
+@NotThreadSafe
+public class HttpRequestRecordMergingReader<T> implements HttpRequestRecordReader<T> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HttpRequestRecordMergingReader.class);
+
+    private final List<HttpRequestRecordReader<T>> readers;
+
+    private final MergingSource source;
+
+    public HttpRequestRecordMergingReader(List<? extends HttpRequestRecordReader<T>> readers) {
+        checkNotNull(readers, "readers");
+        checkArgument(!readers.isEmpty(), "expecting at least one reader");
+        this.readers = Collections.unmodifiableList(new ArrayList<>(readers));
+        this.source = new MergingSource();
+        LOGGER.trace("instantiated (readerCount={})", readers.size());
+    }
+
+    public List<HttpRequestRecordReader<T>> getReaders() {
+        return readers;
+    }
+
+    /**
+     * @return a source closing the sources of all readers, whereas reading
+     * raw values is not supported, since their decoding is reader-specific
+     */
+    @Override
+    public HttpRequestRecordReaderSource<T> getSource() {
+        return source;
+    }
+
+    @Override
+    public Iterable<HttpRequestRecord> read() {
+        return () -> new MergingIterator(HttpRequestRecordReader::read);
+    }
+
+    @Override
+    public Iterable<HttpRequestRecord> read(Predicate<? super HttpRequestRecord> filter) {
+        checkNotNull(filter, "filter");
+        return () -> new MergingIterator(reader -> reader.read(filter));
+    }
+
+    private static final class Head {
+
+        private final int readerIndex;
+
+        private final Iterator<HttpRequestRecord> iterator;
+
+        private HttpRequestRecord record;
+
+        private Head(int readerIndex, Iterator<HttpRequestRecord> iterator) {
+            this.readerIndex = readerIndex;
+            this.iterator = iterator;
+        }
+
+        private boolean advance() {
+            if (iterator.hasNext()) {
+                record = iterator.next();
+                return true;
+            }
+            record = null;
+            return false;
+        }
+
+        private int compareTo(Head that) {
+            int timestampComparison = record.getTimestamp().compareTo(that.record.getTimestamp());
+            return timestampComparison != 0
+                    ? timestampComparison
+                    : Integer.compare(readerIndex, that.readerIndex);
+        }
+
+    }
+
+    private final class MergingIterator implements Iterator<HttpRequestRecord> {
+
+        private final PriorityQueue<Head> heads = new PriorityQueue<>(readers.size(), Head::compareTo);
+
+        private final List<Head> pendingHeads = new ArrayList<>(readers.size());
+
+        /**
+         * Head of the last returned record, which is advanced on the next call.
+         */
+        @Nullable
+        private Head consumedHead = null;
+
+        private MergingIterator(Function<HttpRequestRecordReader<T>, Iterable<HttpRequestRecord>> reader) {
+            for (int readerIndex = 0; readerIndex < readers.size(); readerIndex++) {
+                Iterator<HttpRequestRecord> iterator = reader.apply(readers.get(readerIndex)).iterator();
+                pendingHeads.add(new Head(readerIndex, iterator));
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!pendingHeads.isEmpty()) {
+                for (Head head : pendingHeads) {
+                    if (head.advance()) {
+                        heads.add(head);
+                    }
+                }
+                pendingHeads.clear();
+            }
+            if (consumedHead != null) {
+                if (consumedHead.advance()) {
+                    heads.add(consumedHead);
+                }
+                consumedHead = null;
+            }
+            return !heads.isEmpty();
+        }
+
+        @Override
+        public HttpRequestRecord next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            consumedHead = heads.poll();
+            return consumedHead.record;
+        }
+
+    }
+
+    private final class MergingSource implements HttpRequestRecordReaderSource<T> {
+
+        @Nullable
+        @Override
+        public T read() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() throws IOException {
+            IOException firstError = null;
+            for (HttpRequestRecordReader<T> reader : readers) {
+                try {
+                    reader.getSource().close();
+                } catch (IOException error) {
+                    if (firstError == null) {
+                        firstError = error;
+                    }
+                }
+            }
+            if (firstError != null) {
+                throw firstError;
+            }
+        }
+
+    }
+
+}
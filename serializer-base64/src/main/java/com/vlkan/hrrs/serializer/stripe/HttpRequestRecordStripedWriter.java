@@ -0,0 +1,483 @@
+package com.vlkan.hrrs.serializer.stripe;
+
+import com.google.common.base.MoreObjects;
+import com.vlkan.hrrs.api.HttpRequestHeader;
+import com.vlkan.hrrs.api.HttpRequestMethod;
+import com.vlkan.hrrs.api.HttpRequestRecord;
+import com.vlkan.hrrs.api.HttpRequestRecordWriter;
+import com.vlkan.hrrs.api.HttpRequestRecordWriterTarget;
+import com.vlkan.hrrs.api.ImmutableHttpRequestPayload;
+import com.vlkan.hrrs.api.ImmutableHttpRequestRecord;
+import com.vlkan.hrrs.api.jfr.HrrsEvents;
+import com.vlkan.hrrs.api.metric.HrrsDropReason;
+import com.vlkan.hrrs.api.metric.HrrsMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Writer distributing records over a number of stripes, each consisting of a
+ * bounded queue, a writer thread, and a (synchronous) writer with its own
+ * target, i.e., segment file. The stripe of a record is selected by the
+ * thread writing it, hence capturing threads contend only with the ones
+ * sharing their stripe, and the serialization and I/O of records scale with
+ * the number of stripes.
+ *
+ * Every segment is in write order by itself. Segments can be merged back
+ * into timestamp order by {@link HttpRequestRecordMergingReader}.
+ *
+ * Records are dropped (and counted as {@link HrrsDropReason#QUEUE_OVERFLOW})
+ * if the queue of their stripe is full, and (counted as
+ * {@link HrrsDropReason#TARGET_UNAVAILABLE}) once the writer is closed.
+ *
+ * Asynchronous writes and flushes enqueue a barrier behind the records of
+ * the stripe, which completes once the stripe thread reaches it and flushes
+ * the target of the stripe.
+ */
+@ThreadSafe
+public class HttpRequestRecordStripedWriter<T> implements HttpRequestRecordWriter<T> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HttpRequestRecordStripedWriter.class);
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 1000;
+
+    private static final long POLL_PERIOD_MILLIS = 50;
+
+    /**
+     * Queue entry denoting a barrier, whose completion is kept in {@link Stripe#barrierCompletions}.
+     */
+    private static final HttpRequestRecord BARRIER = ImmutableHttpRequestRecord
+            .newBuilder()
+            .setId("barrier")
+            .setTimestamp(new Date(0))
+            .setGroupName("barrier")
+            .setUri("/")
+            .setMethod(HttpRequestMethod.GET)
+            .setHeaders(Collections.<HttpRequestHeader>emptyList())
+            .setPayload(ImmutableHttpRequestPayload
+                    .newBuilder()
+                    .setMissingByteCount(0)
+                    .setBytes(new byte[0])
+                    .build())
+            .build();
+
+    private final HrrsMetrics metrics = HrrsMetrics.getInstance();
+
+    private final List<Stripe> stripes;
+
+    private final int queueCapacity;
+
+    private final StripedTarget target;
+
+    private volatile boolean closed = false;
+
+    public HttpRequestRecordStripedWriter(List<? extends HttpRequestRecordWriter<T>> writers) {
+        this(writers, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * @param writers synchronous writers of the stripes, each writing to its own target
+     * @param queueCapacity capacity of the queue of each stripe
+     */
+    public HttpRequestRecordStripedWriter(List<? extends HttpRequestRecordWriter<T>> writers, int queueCapacity) {
+        checkNotNull(writers, "writers");
+        checkArgument(!writers.isEmpty(), "expecting at least one writer");
+        checkArgument(queueCapacity > 0, "expecting: queueCapacity > 0, found: %s", queueCapacity);
+        this.queueCapacity = queueCapacity;
+        List<Stripe> stripes = new ArrayList<>(writers.size());
+        List<HttpRequestRecordWriterTarget<T>> targets = new ArrayList<>(writers.size());
+        for (int stripeIndex = 0; stripeIndex < writers.size(); stripeIndex++) {
+            HttpRequestRecordWriter<T> writer = checkNotNull(writers.get(stripeIndex), "writer");
+            stripes.add(new Stripe(stripeIndex, writer));
+            targets.add(writer.getTarget());
+        }
+        this.stripes = Collections.unmodifiableList(stripes);
+        this.target = new StripedTarget(targets);
+        metrics.setQueue(this::getQueueDepth, queueCapacity * stripes.size());
+        for (Stripe stripe : stripes) {
+            stripe.thread.start();
+        }
+        LOGGER.trace("instantiated (stripeCount={}, queueCapacity={})", stripes.size(), queueCapacity);
+    }
+
+    private final class Stripe {
+
+        private final int index;
+
+        private final HttpRequestRecordWriter<T> writer;
+
+        private final BlockingQueue<HttpRequestRecord> queue;
+
+        private final Thread thread;
+
+        // Completions of the enqueued barriers in queue order, where barrierLock keeps both orders in sync.
+        private final Queue<CompletableFuture<Void>> barrierCompletions = new ConcurrentLinkedQueue<>();
+
+        private final Object barrierLock = new Object();
+
+        // Set under barrierLock once the writer is closed, where the stripe thread exits after draining the queue.
+        private volatile boolean stopped = false;
+
+        // Completions of the barriers reached since the last flush, accessed by the stripe thread only.
+        private final List<CompletableFuture<Void>> reachedCompletions = new ArrayList<>();
+
+        private Stripe(int index, HttpRequestRecordWriter<T> writer) {
+            this.index = index;
+            this.writer = writer;
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+            this.thread = new Thread(this::run, "HRRS Writer Stripe " + index);
+            this.thread.setDaemon(true);
+        }
+
+        private void run() {
+            List<HttpRequestRecord> batch = new ArrayList<>(queueCapacity);
+            while (!stopped || !queue.isEmpty()) {
+                try {
+                    HttpRequestRecord record = queue.poll(POLL_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+                    if (record == null) {
+                        continue;
+                    }
+                    batch.add(record);
+                    queue.drainTo(batch, queueCapacity - 1);
+                    writeBatch(batch);
+                    batch.clear();
+                } catch (InterruptedException error) {
+                    Thread.currentThread().interrupt();
+                    LOGGER.info("interrupted (stripeIndex={})", index);
+                    stop();
+                    rejectQueued(error);
+                    break;
+                }
+            }
+            LOGGER.trace("stopped (stripeIndex={})", index);
+        }
+
+        /**
+         * Drops the queued records and completes the queued barriers exceptionally.
+         */
+        private void rejectQueued(Exception error) {
+            List<HttpRequestRecord> records = new ArrayList<>();
+            queue.drainTo(records);
+            for (HttpRequestRecord record : records) {
+                if (record == BARRIER) {
+                    barrierCompletions.remove().completeExceptionally(error);
+                } else {
+                    metrics.incrementDroppedCount(HrrsDropReason.TARGET_UNAVAILABLE);
+                }
+            }
+        }
+
+        private synchronized void writeBatch(List<HttpRequestRecord> batch) {
+            long startTimeNanos = System.nanoTime();
+            for (HttpRequestRecord record : batch) {
+                if (record == BARRIER) {
+                    reachedCompletions.add(barrierCompletions.remove());
+                    continue;
+                }
+                try {
+                    writer.write(record);
+                } catch (Exception error) {
+                    metrics.incrementDroppedCount(HrrsDropReason.WRITE_FAILURE);
+                    LOGGER.error("record write failure (stripeIndex={}, id={})", index, record.getId(), error);
+                }
+            }
+            if (queue.isEmpty() || !reachedCompletions.isEmpty()) {
+                flushBarriers();
+            }
+            metrics.updateWriterBatchLatencyNanos(System.nanoTime() - startTimeNanos);
+        }
+
+        /**
+         * Flushes the target and completes the barriers reached so far.
+         */
+        private void flushBarriers() {
+            Exception flushError = null;
+            try {
+                writer.flush();
+            } catch (Exception error) {
+                flushError = error;
+                LOGGER.error("flush failure (stripeIndex={})", index, error);
+            }
+            for (CompletableFuture<Void> completion : reachedCompletions) {
+                if (flushError == null) {
+                    completion.complete(null);
+                } else {
+                    completion.completeExceptionally(flushError);
+                }
+            }
+            reachedCompletions.clear();
+        }
+
+        /**
+         * Enqueues a barrier behind the records enqueued so far, blocking while the queue is full.
+         *
+         * @return null, if the stripe is stopped
+         */
+        @Nullable
+        private CompletableFuture<Void> enqueueBarrier() throws InterruptedException {
+            CompletableFuture<Void> completion = new CompletableFuture<>();
+            synchronized (barrierLock) {
+                if (stopped) {
+                    return null;
+                }
+                barrierCompletions.add(completion);
+                queue.put(BARRIER);
+            }
+            return completion;
+        }
+
+        /**
+         * Lets the stripe thread exit once the queue is drained, where barriers are not accepted anymore.
+         */
+        private void stop() {
+            synchronized (barrierLock) {
+                stopped = true;
+            }
+        }
+
+        /**
+         * Takes the given record back from the queue, if the stripe is stopped
+         * and the record is not taken by the stripe thread.
+         *
+         * @return true, if the record is taken back
+         */
+        private boolean takeBackIfStopped(HttpRequestRecord record) {
+            return stopped && queue.remove(record);
+        }
+
+        private synchronized void flush() {
+            try {
+                writer.getTarget().flush();
+            } catch (Exception error) {
+                LOGGER.error("flush failure (stripeIndex={})", index, error);
+            }
+        }
+
+    }
+
+    /**
+     * Target of the stripes, which passes writes to the target of the stripe
+     * of the calling thread, and flushes and closes the targets of all stripes.
+     */
+    private final class StripedTarget implements HttpRequestRecordWriterTarget<T> {
+
+        private final List<HttpRequestRecordWriterTarget<T>> targets;
+
+        private StripedTarget(List<HttpRequestRecordWriterTarget<T>> targets) {
+            this.targets = targets;
+        }
+
+        @Override
+        public void write(T value) {
+            Stripe stripe = stripes.get(getStripeIndex());
+            synchronized (stripe) {
+                targets.get(stripe.index).write(value);
+            }
+        }
+
+        @Override
+        public void flush() {
+            for (Stripe stripe : stripes) {
+                stripe.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            IOException firstError = null;
+            for (HttpRequestRecordWriterTarget<T> target : targets) {
+                try {
+                    target.close();
+                } catch (IOException error) {
+                    if (firstError == null) {
+                        firstError = error;
+                    }
+                }
+            }
+            if (firstError != null) {
+                throw firstError;
+            }
+        }
+
+    }
+
+    /**
+     * @return the index of the stripe of the calling thread
+     */
+    int getStripeIndex() {
+        long threadId = Thread.currentThread().getId();
+        return (int) Math.floorMod(threadId, (long) stripes.size());
+    }
+
+    public int getStripeCount() {
+        return stripes.size();
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    private int getQueueDepth() {
+        int depth = 0;
+        for (Stripe stripe : stripes) {
+            depth += stripe.queue.size();
+        }
+        return depth;
+    }
+
+    /**
+     * @return the target of the stripes, which needs to be closed after the writer
+     */
+    @Override
+    public HttpRequestRecordWriterTarget<T> getTarget() {
+        return target;
+    }
+
+    @Override
+    public void write(HttpRequestRecord record) {
+        checkNotNull(record, "record");
+        Stripe stripe = stripes.get(getStripeIndex());
+        if (closed) {
+            metrics.incrementDroppedCount(HrrsDropReason.TARGET_UNAVAILABLE);
+        } else if (!stripe.queue.offer(record)) {
+            metrics.incrementDroppedCount(HrrsDropReason.QUEUE_OVERFLOW);
+            HrrsEvents.emitQueueOverflow(record.getId(), queueCapacity);
+        } else if (stripe.takeBackIfStopped(record)) {
+            metrics.incrementDroppedCount(HrrsDropReason.TARGET_UNAVAILABLE);
+        } else {
+            metrics.updateQueueWatermark(stripe.queue.size());
+        }
+    }
+
+    /**
+     * Enqueues the record and a barrier behind it, where the latter blocks
+     * while the queue of the stripe is full.
+     */
+    @Override
+    public CompletableFuture<Void> writeAsync(HttpRequestRecord record) {
+        checkNotNull(record, "record");
+        CompletableFuture<Void> completion;
+        Stripe stripe = stripes.get(getStripeIndex());
+        if (closed) {
+            return createClosedCompletion(record);
+        }
+        if (!stripe.queue.offer(record)) {
+            metrics.incrementDroppedCount(HrrsDropReason.QUEUE_OVERFLOW);
+            HrrsEvents.emitQueueOverflow(record.getId(), queueCapacity);
+            completion = new CompletableFuture<>();
+            String message = String.format("queue overflow (stripeIndex=%d, id=%s)", stripe.index, record.getId());
+            completion.completeExceptionally(new IOException(message));
+            return completion;
+        }
+        if (stripe.takeBackIfStopped(record)) {
+            return createClosedCompletion(record);
+        }
+        metrics.updateQueueWatermark(stripe.queue.size());
+        try {
+            completion = stripe.enqueueBarrier();
+        } catch (InterruptedException error) {
+            Thread.currentThread().interrupt();
+            completion = new CompletableFuture<>();
+            completion.completeExceptionally(error);
+            return completion;
+        }
+        if (completion == null) {
+            // The record is enqueued before the stripe is stopped, hence it is written, but its flush is not awaited.
+            completion = new CompletableFuture<>();
+            completion.completeExceptionally(new IOException("writer is closed"));
+        }
+        return completion;
+    }
+
+    private CompletableFuture<Void> createClosedCompletion(HttpRequestRecord record) {
+        metrics.incrementDroppedCount(HrrsDropReason.TARGET_UNAVAILABLE);
+        CompletableFuture<Void> completion = new CompletableFuture<>();
+        String message = String.format("writer is closed (id=%s)", record.getId());
+        completion.completeExceptionally(new IOException(message));
+        return completion;
+    }
+
+    /**
+     * Waits for the records enqueued so far to be written and the targets of all stripes to be flushed.
+     */
+    @Override
+    public void flush() throws InterruptedException {
+        if (closed) {
+            target.flush();
+            return;
+        }
+        List<CompletableFuture<Void>> completions = new ArrayList<>(stripes.size());
+        for (Stripe stripe : stripes) {
+            CompletableFuture<Void> completion = stripe.enqueueBarrier();
+            if (completion != null) {
+                completions.add(completion);
+            } else {
+                // Closed in the meantime, hence the stripe thread writes the queued records and exits.
+                stripe.thread.join();
+                stripe.flush();
+            }
+        }
+        for (CompletableFuture<Void> completion : completions) {
+            try {
+                completion.get();
+            } catch (ExecutionException error) {
+                throw new RuntimeException("flush failure", error.getCause());
+            }
+        }
+    }
+
+    @Override
+    public boolean isReady() {
+        for (Stripe stripe : stripes) {
+            if (!stripe.queue.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes the queued records and stops the stripe threads.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        LOGGER.trace("closing");
+        closed = true;
+        for (Stripe stripe : stripes) {
+            stripe.stop();
+        }
+        for (Stripe stripe : stripes) {
+            stripe.thread.join();
+        }
+        for (Stripe stripe : stripes) {
+            stripe.flush();
+            stripe.writer.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("stripeCount", stripes.size())
+                .add("queueCapacity", queueCapacity)
+                .toString();
+    }
+
+}
@@ -0,0 +1,89 @@
+package com.vlkan.hrrs.serializer.stripe;
+
+import com.vlkan.rfos.RotationConfig;
+import com.vlkan.rfos.policy.RotationPolicy;
+import com.vlkan.rfos.policy.SizeBasedRotationPolicy;
+
+import java.io.File;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Naming of the segment files of {@link HttpRequestRecordStripedWriter} stripes.
+ *
+ * The segment of a stripe is named after the file by inserting {@code -<stripeIndex>}
+ * before the extensions, e.g., {@code records.csv.gz} becomes {@code records-3.csv.gz},
+ * hence extension-based detections (e.g., compression) keep on working.
+ */
+public enum HttpRequestRecordStripes {;
+
+    public static File getStripeFile(File file, int stripeIndex) {
+        checkNotNull(file, "file");
+        return new File(file.getParentFile(), getStripeFileName(file.getName(), stripeIndex));
+    }
+
+    /**
+     * Works with {@link com.vlkan.rfos.RotatingFilePattern rotating file patterns} as well,
+     * where the dots within the directives (e.g., {@code %d{HHmmss.SSS}}) are skipped.
+     */
+    public static String getStripeFileName(String fileName, int stripeIndex) {
+        checkNotNull(fileName, "fileName");
+        checkArgument(stripeIndex >= 0, "expecting: stripeIndex >= 0, found: %s", stripeIndex);
+        int extensionIndex = fileName.length();
+        int braceDepth = 0;
+        // Start from the second character to leave the names of hidden files intact.
+        for (int charIndex = 1; charIndex < fileName.length(); charIndex++) {
+            char c = fileName.charAt(charIndex);
+            if (c == '{') {
+                braceDepth++;
+            } else if (c == '}') {
+                braceDepth = Math.max(0, braceDepth - 1);
+            } else if (c == '.' && braceDepth == 0) {
+                extensionIndex = charIndex;
+                break;
+            }
+        }
+        return fileName.substring(0, extensionIndex) + '-' + stripeIndex + fileName.substring(extensionIndex);
+    }
+
+    /**
+     * Creates a copy of the given configuration, where both the file and the
+     * file pattern are replaced with the ones of the given stripe. Size-based
+     * policies keep track of the stream they are started with, hence they are
+     * copied as well.
+     */
+    public static RotationConfig createStripeRotationConfig(RotationConfig rotationConfig, int stripeIndex) {
+        checkNotNull(rotationConfig, "rotationConfig");
+        File patternFile = new File(rotationConfig.getFilePattern().getPattern());
+        return RotationConfig
+                .builder()
+                .file(getStripeFile(rotationConfig.getFile(), stripeIndex))
+                .filePattern(getStripeFile(patternFile, stripeIndex).getPath())
+                .timer(rotationConfig.getTimer())
+                .policies(copyPolicies(rotationConfig.getPolicies()))
+                .append(rotationConfig.isAppend())
+                .compress(rotationConfig.isCompress())
+                .clock(rotationConfig.getClock())
+                .callback(rotationConfig.getCallback())
+                .build();
+    }
+
+    private static Set<RotationPolicy> copyPolicies(Set<RotationPolicy> policies) {
+        Set<RotationPolicy> copiedPolicies = new LinkedHashSet<>(policies.size());
+        for (RotationPolicy policy : policies) {
+            if (policy instanceof SizeBasedRotationPolicy) {
+                SizeBasedRotationPolicy sizeBasedPolicy = (SizeBasedRotationPolicy) policy;
+                copiedPolicies.add(new SizeBasedRotationPolicy(
+                        sizeBasedPolicy.getCheckIntervalMillis(),
+                        sizeBasedPolicy.getMaxByteCount()));
+            } else {
+                copiedPolicies.add(policy);
+            }
+        }
+        return copiedPolicies;
+    }
+
+}
@@ -0,0 +1,141 @@
+package com.vlkan.hrrs.serializer;
+
+import com.vlkan.hrrs.api.HttpRequestHeader;
+import com.vlkan.hrrs.api.HttpRequestMethod;
+import com.vlkan.hrrs.api.HttpRequestPayload;
+import com.vlkan.hrrs.api.HttpRequestRecord;
+import com.vlkan.hrrs.api.HttpRequestRecordWriter;
+import com.vlkan.hrrs.api.ImmutableHttpRequestHeader;
+import com.vlkan.hrrs.api.ImmutableHttpRequestPayload;
+import com.vlkan.hrrs.api.ImmutableHttpRequestRecord;
+import com.vlkan.hrrs.api.ResponseInfo;
+import com.vlkan.hrrs.serializer.base64.Base64HttpRequestRecord;
+import com.vlkan.hrrs.serializer.base64.Base64HttpRequestRecordWriter;
+import com.vlkan.hrrs.serializer.base64.Base64HttpRequestRecordWriterOptions;
+import com.vlkan.hrrs.serializer.base64.guava.GuavaBase64Encoder;
+import com.vlkan.hrrs.serializer.file.HttpRequestRecordWriterFileTarget;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Fixtures shared by the tests, where the fields of the created records are
+ * derived from the given index, e.g., {@code id-3} and {@code /path/3}.
+ */
+public enum HttpRequestRecordTestUtils {;
+
+    private static final String[] USER_AGENTS = {"curl/7.58.0", "Mozilla/5.0 (X11; Linux x86_64)", "okhttp/3.12.1"};
+
+    // Writes per flush, keeping the queue of the writer from overflowing.
+    private static final int FLUSH_PERIOD_RECORD_COUNT = 100;
+
+    public static HttpRequestRecord createRecord(int recordIndex) {
+        return createRecord(recordIndex, new ResponseInfo(200, 1));
+    }
+
+    public static HttpRequestRecord createRecord(int recordIndex, @Nullable ResponseInfo responseInfo) {
+        return ImmutableHttpRequestRecord
+                .newBuilder()
+                .setId("id-" + recordIndex)
+                .setTimestamp(new Date(1500000000000L + recordIndex))
+                .setGroupName("group")
+                .setUri("/path/" + recordIndex)
+                .setMethod(HttpRequestMethod.POST)
+                .setHeaders(Collections.singletonList(createHeader("Content-Type", "text/plain")))
+                .setPayload(createPayload("payload-" + recordIndex, 0))
+                .setResponseInfo(responseInfo)
+                .build();
+    }
+
+    /**
+     * Generates records sharing a few header names and values, e.g., for dictionary encoding.
+     */
+    public static List<HttpRequestRecord> generateRecords(int recordCount) {
+        List<HttpRequestRecord> records = new ArrayList<>(recordCount);
+        for (int recordIndex = 0; recordIndex < recordCount; recordIndex++) {
+            List<HttpRequestHeader> headers = Arrays.asList(
+                    createHeader("Host", "api.example.com"),
+                    createHeader("User-Agent", USER_AGENTS[recordIndex % USER_AGENTS.length]),
+                    createHeader("Accept", "application/json"),
+                    createHeader("X-Request-Id", "request-" + recordIndex));
+            HttpRequestRecord record = ImmutableHttpRequestRecord
+                    .newBuilder()
+                    .setId("id-" + recordIndex)
+                    .setTimestamp(new Date(1500000000000L + recordIndex))
+                    .setGroupName("group-" + recordIndex % 5)
+                    .setUri("/hello?id=" + recordIndex)
+                    .setMethod(HttpRequestMethod.POST)
+                    .setHeaders(headers)
+                    .setPayload(createPayload("{\"index\":" + recordIndex + "}", 0))
+                    .setResponseInfo(new ResponseInfo(200, 1))
+                    .build();
+            records.add(record);
+        }
+        return records;
+    }
+
+    /**
+     * Writes the given records to the given file, overwriting it.
+     */
+    public static File writeRecords(
+            File file,
+            List<HttpRequestRecord> records,
+            Base64HttpRequestRecordWriterOptions writerOptions) throws IOException {
+        try (HttpRequestRecordWriterFileTarget target = new HttpRequestRecordWriterFileTarget(file, Base64HttpRequestRecord.CHARSET)) {
+            HttpRequestRecordWriter<String> writer = Base64HttpRequestRecordWriter
+                    .createBase64HttpRequestRecordWriter(target, GuavaBase64Encoder.getInstance(), writerOptions);
+            for (int recordIndex = 0; recordIndex < records.size(); recordIndex++) {
+                writer.write(records.get(recordIndex));
+                if ((recordIndex + 1) % FLUSH_PERIOD_RECORD_COUNT == 0) {
+                    writer.flush();
+                }
+            }
+            writer.flush();
+        } catch (InterruptedException error) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("write is interrupted");
+        }
+        return file;
+    }
+
+    public static HttpRequestHeader createHeader(String name, String value) {
+        return ImmutableHttpRequestHeader
+                .builder()
+                .setName(name)
+                .setValue(value)
+                .build();
+    }
+
+    public static HttpRequestPayload createPayload(String text, int missingByteCount) {
+        return createPayload(text.getBytes(StandardCharsets.UTF_8), missingByteCount);
+    }
+
+    public static HttpRequestPayload createPayload(byte[] bytes, int missingByteCount) {
+        return ImmutableHttpRequestPayload
+                .newBuilder()
+                .setMissingByteCount(missingByteCount)
+                .setBytes(bytes)
+                .build();
+    }
+
+    /**
+     * @return a newline-terminated line of varying length, starting with the given index
+     */
+    public static String createLine(int lineIndex) {
+        StringBuilder builder = new StringBuilder();
+        builder.append(lineIndex).append('\t');
+        for (int charIndex = 0; charIndex < lineIndex % 97; charIndex++) {
+            builder.append((char) ('a' + charIndex % 26));
+        }
+        return builder.append('\n').toString();
+    }
+
+}
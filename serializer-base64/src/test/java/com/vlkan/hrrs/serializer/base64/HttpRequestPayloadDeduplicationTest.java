@@ -0,0 +1,110 @@
+package com.vlkan.hrrs.serializer.base64;
+
+import com.vlkan.hrrs.api.HttpRequestRecord;
+import com.vlkan.hrrs.api.HttpRequestRecordReader;
+import com.vlkan.hrrs.serializer.base64.guava.GuavaBase64Decoder;
+import com.vlkan.hrrs.serializer.file.HttpRequestRecordReaderFileSource;
+import com.vlkan.hrrs.serializer.payload.HttpRequestPayloadStore;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.vlkan.hrrs.serializer.HttpRequestRecordTestUtils.createPayload;
+import static com.vlkan.hrrs.serializer.HttpRequestRecordTestUtils.createRecord;
+import static com.vlkan.hrrs.serializer.HttpRequestRecordTestUtils.writeRecords;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class HttpRequestPayloadDeduplicationTest {
+
+    private static final int RECORD_COUNT = 100;
+
+    private static final int DISTINCT_PAYLOAD_COUNT = 4;
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void should_deduplicate_payloads() throws IOException {
+        test(false);
+    }
+
+    @Test
+    public void should_deduplicate_dictionary_encoded_payloads() throws IOException {
+        test(true);
+    }
+
+    private void test(boolean dictionaryEncoded) throws IOException {
+        List<HttpRequestRecord> records = generateRecords();
+        HttpRequestPayloadStore payloadStore = new HttpRequestPayloadStore(temporaryFolder.newFolder("payloads"));
+        File inlineFile = writeRecords(
+                temporaryFolder.newFile("inline.csv"), records, createWriterOptions(dictionaryEncoded, null));
+        File referencingFile = writeRecords(
+                temporaryFolder.newFile("referencing.csv"), records, createWriterOptions(dictionaryEncoded, payloadStore));
+        long storablePayloadCount = DISTINCT_PAYLOAD_COUNT - 1;
+        long storableRecordCount = RECORD_COUNT / DISTINCT_PAYLOAD_COUNT * storablePayloadCount;
+        assertThat(payloadStore.getStoredPayloadCount(), is(equalTo(storablePayloadCount)));
+        assertThat(payloadStore.getDeduplicatedPayloadCount(), is(equalTo(storableRecordCount - storablePayloadCount)));
+        assertThat(referencingFile.length() < inlineFile.length() / 4, is(true));
+        HttpRequestPayloadStore readerPayloadStore = new HttpRequestPayloadStore(payloadStore.getDirectory());
+        assertThat(readRecords(referencingFile, readerPayloadStore), is(equalTo(records)));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void should_fail_reading_references_without_store() throws IOException {
+        List<HttpRequestRecord> records = generateRecords();
+        HttpRequestPayloadStore payloadStore = new HttpRequestPayloadStore(temporaryFolder.newFolder("payloads"));
+        File file = writeRecords(temporaryFolder.newFile("referencing.csv"), records, createWriterOptions(false, payloadStore));
+        readRecords(file, null);
+    }
+
+    /**
+     * Generates records cycling through {@link #DISTINCT_PAYLOAD_COUNT}
+     * payloads, the last of which is too short to be stored.
+     */
+    private static List<HttpRequestRecord> generateRecords() {
+        List<HttpRequestRecord> records = new ArrayList<>(RECORD_COUNT);
+        for (int recordIndex = 0; recordIndex < RECORD_COUNT; recordIndex++) {
+            int payloadIndex = recordIndex % DISTINCT_PAYLOAD_COUNT;
+            int payloadLength = payloadIndex == DISTINCT_PAYLOAD_COUNT - 1
+                    ? HttpRequestPayloadStore.DEFAULT_MIN_BYTE_COUNT - 1
+                    : 1024;
+            byte[] payloadBytes = new byte[payloadLength];
+            byte[] payloadPrefix = ("payload-" + payloadIndex).getBytes(StandardCharsets.UTF_8);
+            System.arraycopy(payloadPrefix, 0, payloadBytes, 0, payloadPrefix.length);
+            records.add(createRecord(recordIndex).toBuilder().setPayload(createPayload(payloadBytes, 0)).build());
+        }
+        return records;
+    }
+
+    private static Base64HttpRequestRecordWriterOptions createWriterOptions(
+            boolean dictionaryEncoded,
+            @Nullable HttpRequestPayloadStore payloadStore) {
+        return Base64HttpRequestRecordWriterOptions
+                .newBuilder()
+                .setDictionaryEncoded(dictionaryEncoded)
+                .setPayloadStore(payloadStore)
+                .build();
+    }
+
+    private static List<HttpRequestRecord> readRecords(File file, HttpRequestPayloadStore payloadStore) throws IOException {
+        List<HttpRequestRecord> records = new ArrayList<>();
+        try (HttpRequestRecordReaderFileSource source = new HttpRequestRecordReaderFileSource(file, Base64HttpRequestRecord.CHARSET)) {
+            HttpRequestRecordReader<String> reader =
+                    new Base64HttpRequestRecordReader(source, GuavaBase64Decoder.getInstance(), payloadStore);
+            for (HttpRequestRecord record : reader.read()) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+}
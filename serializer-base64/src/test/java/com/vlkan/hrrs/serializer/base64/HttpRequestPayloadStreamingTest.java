@@ -0,0 +1,174 @@
+package com.vlkan.hrrs.serializer.base64;
+
+import com.google.common.io.ByteStreams;
+import com.vlkan.hrrs.api.ByteBufferHttpRequestPayload;
+import com.vlkan.hrrs.api.FileHttpRequestPayload;
+import com.vlkan.hrrs.api.HttpRequestMethod;
+import com.vlkan.hrrs.api.HttpRequestPayload;
+import com.vlkan.hrrs.api.HttpRequestRecord;
+import com.vlkan.hrrs.api.HttpRequestRecordWriter;
+import com.vlkan.hrrs.api.HttpRequestRecordWriterTarget;
+import com.vlkan.hrrs.api.ImmutableHttpRequestHeader;
+import com.vlkan.hrrs.api.ImmutableHttpRequestRecord;
+import com.vlkan.hrrs.api.ResponseInfo;
+import com.vlkan.hrrs.serializer.base64.guava.GuavaBase64Encoder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class HttpRequestPayloadStreamingTest {
+
+    private static final int BYTE_COUNT = 10_000;
+
+    private static final int OFFSET = 123;
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void should_stream_buffer_slices() throws IOException {
+        byte[] bytes = generateBytes();
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        buffer.position(OFFSET);
+        HttpRequestPayload payload = ByteBufferHttpRequestPayload.of(buffer, 7);
+        verifyPayload(payload, Arrays.copyOfRange(bytes, OFFSET, bytes.length), 7);
+    }
+
+    @Test
+    public void should_stream_mapped_regions() throws IOException {
+        byte[] bytes = generateBytes();
+        File file = temporaryFolder.newFile();
+        Files.write(file.toPath(), bytes);
+        HttpRequestPayload payload = ByteBufferHttpRequestPayload.map(file.toPath(), OFFSET, BYTE_COUNT / 2, 0);
+        verifyPayload(payload, Arrays.copyOfRange(bytes, OFFSET, OFFSET + BYTE_COUNT / 2), 0);
+    }
+
+    @Test
+    public void should_stream_file_regions() throws IOException {
+        byte[] bytes = generateBytes();
+        File file = temporaryFolder.newFile();
+        Files.write(file.toPath(), bytes);
+        HttpRequestPayload payload = new FileHttpRequestPayload(file.toPath(), OFFSET, BYTE_COUNT / 2, 3);
+        verifyPayload(payload, Arrays.copyOfRange(bytes, OFFSET, OFFSET + BYTE_COUNT / 2), 3);
+    }
+
+    @Test
+    public void should_write_streamed_payloads_as_materialized_ones() throws IOException {
+        byte[] bytes = generateBytes();
+        File file = temporaryFolder.newFile();
+        Files.write(file.toPath(), bytes);
+        List<HttpRequestPayload> payloads = Arrays.asList(
+                ByteBufferHttpRequestPayload.of(ByteBuffer.wrap(bytes), 0),
+                ByteBufferHttpRequestPayload.map(file.toPath(), 0, BYTE_COUNT, 0),
+                new FileHttpRequestPayload(file.toPath(), OFFSET, BYTE_COUNT - OFFSET, 1));
+        for (boolean dictionaryEncoded : new boolean[]{false, true}) {
+            for (HttpRequestPayload payload : payloads) {
+                HttpRequestPayload materializedPayload = payload.toBuilder().build();
+                assertThat(
+                        writeRecord(payload, dictionaryEncoded),
+                        is(equalTo(writeRecord(materializedPayload, dictionaryEncoded))));
+            }
+        }
+    }
+
+    private static void verifyPayload(HttpRequestPayload payload, byte[] expectedBytes, int expectedMissingByteCount) throws IOException {
+        assertThat(payload.getByteCount(), is(expectedBytes.length));
+        assertThat(payload.getMissingByteCount(), is(expectedMissingByteCount));
+        try (InputStream inputStream = payload.openStream()) {
+            assertThat(ByteStreams.toByteArray(inputStream), is(equalTo(expectedBytes)));
+        }
+        try (ReadableByteChannel channel = payload.openChannel()) {
+            assertThat(readChannel(channel, expectedBytes.length + 1), is(equalTo(expectedBytes)));
+        }
+        assertThat(payload.getBytes(), is(equalTo(expectedBytes)));
+        assertThat(payload.toBuilder().build().getBytes(), is(equalTo(expectedBytes)));
+    }
+
+    /**
+     * Reads the given channel using a small buffer to exercise partial reads.
+     */
+    private static byte[] readChannel(ReadableByteChannel channel, int maxByteCount) throws IOException {
+        ByteBuffer targetBuffer = ByteBuffer.allocate(maxByteCount);
+        ByteBuffer chunkBuffer = ByteBuffer.allocate(97);
+        while (channel.read(chunkBuffer) >= 0) {
+            chunkBuffer.flip();
+            targetBuffer.put(chunkBuffer);
+            chunkBuffer.clear();
+        }
+        return Arrays.copyOf(targetBuffer.array(), targetBuffer.position());
+    }
+
+    private static List<String> writeRecord(HttpRequestPayload payload, boolean dictionaryEncoded) throws IOException {
+        List<String> lines = new ArrayList<>();
+        Base64HttpRequestRecordWriterOptions writerOptions =
+                Base64HttpRequestRecordWriterOptions.newBuilder().setDictionaryEncoded(dictionaryEncoded).build();
+        HttpRequestRecordWriter<String> writer =
+                new Base64HttpRequestRecordWriter(new LineTarget(lines), GuavaBase64Encoder.getInstance(), writerOptions);
+        HttpRequestRecord record = ImmutableHttpRequestRecord
+                .newBuilder()
+                .setId("id")
+                .setTimestamp(new Date(1500000000000L))
+                .setGroupName("upload")
+                .setUri("/upload")
+                .setMethod(HttpRequestMethod.POST)
+                .setHeaders(Collections.singletonList(ImmutableHttpRequestHeader
+                        .builder()
+                        .setName("Content-Type")
+                        .setValue("application/octet-stream")
+                        .build()))
+                .setPayload(payload)
+                .setResponseInfo(new ResponseInfo(200, 1))
+                .build();
+        writer.write(record);
+        return lines;
+    }
+
+    private static byte[] generateBytes() {
+        byte[] bytes = new byte[BYTE_COUNT];
+        new Random(0).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static final class LineTarget implements HttpRequestRecordWriterTarget<String> {
+
+        private final List<String> lines;
+
+        private LineTarget(List<String> lines) {
+            this.lines = lines;
+        }
+
+        @Override
+        public void write(String line) {
+            lines.add(line);
+        }
+
+        @Override
+        public void flush() {
+            // Do nothing.
+        }
+
+        @Override
+        public void close() {
+            // Do nothing.
+        }
+
+    }
+
+}
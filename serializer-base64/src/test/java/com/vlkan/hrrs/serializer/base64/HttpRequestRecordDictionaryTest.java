@@ -0,0 +1,171 @@
+package com.vlkan.hrrs.serializer.base64;
+
+import com.vlkan.hrrs.api.HttpRequestRecord;
+import com.vlkan.hrrs.api.HttpRequestRecordReader;
+import com.vlkan.hrrs.api.HttpRequestRecordWriter;
+import com.vlkan.hrrs.serializer.base64.guava.GuavaBase64Decoder;
+import com.vlkan.hrrs.serializer.base64.guava.GuavaBase64Encoder;
+import com.vlkan.hrrs.serializer.file.HttpRequestRecordReaderFileSource;
+import com.vlkan.hrrs.serializer.file.HttpRequestRecordWriterRotatingFileTarget;
+import com.vlkan.hrrs.serializer.index.HttpRequestRecordIndex;
+import com.vlkan.hrrs.serializer.index.HttpRequestRecordIndexCheckpoint;
+import com.vlkan.hrrs.serializer.index.HttpRequestRecordIndexPosition;
+import com.vlkan.hrrs.serializer.index.HttpRequestRecordIndexRange;
+import com.vlkan.hrrs.serializer.index.HttpRequestRecordIndexer;
+import com.vlkan.rfos.Rotatable;
+import com.vlkan.rfos.RotationConfig;
+import com.vlkan.rfos.policy.RotationPolicy;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.vlkan.hrrs.serializer.HttpRequestRecordTestUtils.generateRecords;
+import static com.vlkan.hrrs.serializer.HttpRequestRecordTestUtils.writeRecords;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class HttpRequestRecordDictionaryTest {
+
+    private static final int RECORD_COUNT = 3000;
+
+    private static final Base64HttpRequestRecordWriterOptions DICTIONARY_ENCODED_WRITER_OPTIONS =
+            Base64HttpRequestRecordWriterOptions.newBuilder().setDictionaryEncoded(true).build();
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void should_write_and_read_dictionary_encoded_records() throws IOException {
+        List<HttpRequestRecord> records = generateRecords(RECORD_COUNT);
+        File plainFile = writeRecords(temporaryFolder.newFile("plain.csv"), records, Base64HttpRequestRecordWriterOptions.DEFAULT);
+        File dictionaryFile = writeRecords(temporaryFolder.newFile("dictionary.csv"), records, DICTIONARY_ENCODED_WRITER_OPTIONS);
+        assertThat(readRecords(dictionaryFile, null), is(equalTo(records)));
+        assertThat(dictionaryFile.length() < plainFile.length(), is(true));
+    }
+
+    @Test
+    public void should_align_index_checkpoints_to_epoch_starts() throws IOException {
+        List<HttpRequestRecord> records = generateRecords(RECORD_COUNT);
+        File file = writeRecords(temporaryFolder.newFile("dictionary.csv"), records, DICTIONARY_ENCODED_WRITER_OPTIONS);
+        HttpRequestRecordIndex index = HttpRequestRecordIndexer.index(file, Base64HttpRequestRecord.CHARSET, 1000);
+        List<Long> checkpointRecordIndices = new ArrayList<>();
+        for (HttpRequestRecordIndexCheckpoint checkpoint : index.getCheckpoints()) {
+            checkpointRecordIndices.add(checkpoint.getRecordIndex());
+        }
+        int epochRecordCount = Base64HttpRequestRecordDictionary.DEFAULT_EPOCH_RECORD_COUNT;
+        assertThat(checkpointRecordIndices, is(equalTo(Arrays.asList(0L, (long) epochRecordCount, 2L * epochRecordCount))));
+        List<HttpRequestRecord> readRecords = new ArrayList<>();
+        for (HttpRequestRecordIndexRange range : index.split(3)) {
+            readRecords.addAll(readRecords(file, range));
+        }
+        assertThat(readRecords, is(equalTo(records)));
+    }
+
+    @Test
+    public void should_skip_records_preceding_the_first_epoch_start() throws IOException {
+        List<HttpRequestRecord> records = generateRecords(RECORD_COUNT);
+        File file = writeRecords(temporaryFolder.newFile("dictionary.csv"), records, DICTIONARY_ENCODED_WRITER_OPTIONS);
+        int skippedRecordCount = 100;
+        HttpRequestRecordIndexRange range = findRange(file, skippedRecordCount);
+        int epochRecordCount = Base64HttpRequestRecordDictionary.DEFAULT_EPOCH_RECORD_COUNT;
+        List<HttpRequestRecord> expectedRecords = records.subList(epochRecordCount, records.size());
+        assertThat(readRecords(file, range), is(equalTo(expectedRecords)));
+    }
+
+    @Test
+    public void should_start_an_epoch_with_every_rotated_file() throws IOException {
+        List<HttpRequestRecord> records = generateRecords(RECORD_COUNT);
+        File directory = temporaryFolder.newFolder();
+        File file = new File(directory, "records.csv");
+        ManualRotationPolicy rotationPolicy = new ManualRotationPolicy();
+        RotationConfig rotationConfig = RotationConfig
+                .builder()
+                .file(file)
+                .filePattern(new File(directory, "records-%d{yyyyMMdd-HHmmss-SSS}.csv").getPath())
+                .policy(rotationPolicy)
+                .build();
+        int rotatedRecordCount = 100;
+        try (HttpRequestRecordWriterRotatingFileTarget target =
+                     new HttpRequestRecordWriterRotatingFileTarget(rotationConfig, Base64HttpRequestRecord.CHARSET)) {
+            HttpRequestRecordWriter<String> writer = new Base64HttpRequestRecordWriter(
+                    target, GuavaBase64Encoder.getInstance(), DICTIONARY_ENCODED_WRITER_OPTIONS);
+            for (int recordIndex = 0; recordIndex < records.size(); recordIndex++) {
+                // Rotations triggered in the middle of an epoch complete after the record being written.
+                if (recordIndex == rotatedRecordCount - 1) {
+                    rotationPolicy.rotate();
+                }
+                writer.write(records.get(recordIndex));
+            }
+            assertThat(target.getRotationCount(), is(equalTo(1L)));
+        }
+        File[] rotatedFiles = directory.listFiles((ignored, name) -> name.startsWith("records-"));
+        assertThat(rotatedFiles != null && rotatedFiles.length == 1, is(true));
+        assertThat(readRecords(rotatedFiles[0], null), is(equalTo(records.subList(0, rotatedRecordCount))));
+        assertThat(readRecords(file, null), is(equalTo(records.subList(rotatedRecordCount, records.size()))));
+    }
+
+    /**
+     * Policy rotating only on demand.
+     */
+    private static final class ManualRotationPolicy implements RotationPolicy {
+
+        private volatile Rotatable rotatable;
+
+        @Override
+        public void start(Rotatable rotatable) {
+            this.rotatable = rotatable;
+        }
+
+        @Override
+        public boolean isWriteSensitive() {
+            return false;
+        }
+
+        @Override
+        public void acceptWrite(long byteCount) {
+            // Do nothing.
+        }
+
+        private void rotate() {
+            Instant instant = Instant.now();
+            rotatable.getConfig().getCallback().onTrigger(this, instant);
+            rotatable.rotate(this, instant);
+        }
+
+    }
+
+    private static HttpRequestRecordIndexRange findRange(File file, int skippedRecordCount) throws IOException {
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        int offset = 0;
+        for (int recordIndex = 0; recordIndex < skippedRecordCount; recordIndex++) {
+            while (bytes[offset++] != '\n') {
+                // Do nothing.
+            }
+        }
+        return new HttpRequestRecordIndexRange(
+                new HttpRequestRecordIndexPosition(offset, 0),
+                RECORD_COUNT - skippedRecordCount,
+                bytes.length - offset);
+    }
+
+    private static List<HttpRequestRecord> readRecords(File file, HttpRequestRecordIndexRange range) throws IOException {
+        List<HttpRequestRecord> records = new ArrayList<>();
+        try (HttpRequestRecordReaderFileSource source = new HttpRequestRecordReaderFileSource(file, Base64HttpRequestRecord.CHARSET, range)) {
+            HttpRequestRecordReader<String> reader = new Base64HttpRequestRecordReader(source, GuavaBase64Decoder.getInstance());
+            for (HttpRequestRecord record : reader.read()) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+}
@@ -0,0 +1,203 @@
+package com.vlkan.hrrs.serializer.base64;
+
+import com.vlkan.hrrs.api.HttpRequestRecord;
+import com.vlkan.hrrs.api.HttpRequestRecordReaderSource;
+import com.vlkan.hrrs.serializer.base64.guava.GuavaBase64Decoder;
+import com.vlkan.hrrs.serializer.file.HttpRequestRecordReaderFileSource;
+import com.vlkan.hrrs.serializer.index.HttpRequestRecordIndex;
+import com.vlkan.hrrs.serializer.index.HttpRequestRecordIndexRange;
+import com.vlkan.hrrs.serializer.index.HttpRequestRecordIndexer;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.zip.Checksum;
+
+import static com.vlkan.hrrs.serializer.HttpRequestRecordTestUtils.createLine;
+import static com.vlkan.hrrs.serializer.HttpRequestRecordTestUtils.generateRecords;
+import static com.vlkan.hrrs.serializer.HttpRequestRecordTestUtils.writeRecords;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class HttpRequestRecordFrameTest {
+
+    private static final int RECORD_COUNT = 3000;
+
+    private static final int EPOCH_RECORD_COUNT = Base64HttpRequestRecordDictionary.DEFAULT_EPOCH_RECORD_COUNT;
+
+    // Truncated by a crash, succeeded by the record appended after the restart.
+    private static final int TRUNCATED_RECORD_INDEX = 100;
+
+    private static final int CORRUPTED_RECORD_INDEX = 1500;
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void should_compute_crc32c() {
+        byte[] bytes = "123456789".getBytes(StandardCharsets.US_ASCII);
+        assertThat(Base64HttpRequestRecordFrame.checksum(bytes, 0, bytes.length), is(0xE3069283L));
+        assertThat(Base64HttpRequestRecordFrame.checksum("0123456789", 1, 9), is(0xE3069283L));
+        Checksum checksum = new Base64HttpRequestRecordFrame.GuavaCrc32c();
+        checksum.update(bytes, 0, bytes.length);
+        assertThat(checksum.getValue(), is(0xE3069283L));
+    }
+
+    @Test
+    public void should_compute_crc32c_of_chars_spanning_multiple_chunks() {
+        StringBuilder builder = new StringBuilder();
+        for (int lineIndex = 0; builder.length() < 20_000; lineIndex++) {
+            builder.append(createLine(lineIndex));
+        }
+        String text = builder.toString();
+        byte[] bytes = text.getBytes(StandardCharsets.US_ASCII);
+        assertThat(
+                Base64HttpRequestRecordFrame.checksum(text, 3, text.length() - 3),
+                is(Base64HttpRequestRecordFrame.checksum(bytes, 3, bytes.length - 3)));
+    }
+
+    @Test
+    public void should_read_intact_framed_records() throws IOException {
+        for (boolean dictionaryEncoded : new boolean[]{false, true}) {
+            List<HttpRequestRecord> records = generateRecords(RECORD_COUNT);
+            File file = writeRecords(temporaryFolder.newFile("records-" + dictionaryEncoded + ".csv"), records, createWriterOptions(dictionaryEncoded));
+            assertThat(new String(Files.readAllBytes(file.toPath()), StandardCharsets.US_ASCII).charAt(0),
+                    is(Base64HttpRequestRecordFrame.SYNC_MARKER));
+            List<HttpRequestRecord> readRecords = new ArrayList<>();
+            Base64HttpRequestRecordReaderIterator iterator = readRecords(file, readRecords);
+            assertThat(readRecords, is(equalTo(records)));
+            assertThat(iterator.getDamagedRecordCount(), is(0L));
+        }
+    }
+
+    @Test
+    public void should_skip_damaged_plain_records() throws IOException {
+        List<HttpRequestRecord> records = generateRecords(RECORD_COUNT);
+        File file = writeRecords(temporaryFolder.newFile("records.csv"), records, createWriterOptions(false));
+        damage(file);
+        List<HttpRequestRecord> readRecords = new ArrayList<>();
+        Base64HttpRequestRecordReaderIterator iterator = readRecords(file, readRecords);
+        List<HttpRequestRecord> expectedRecords = new ArrayList<>(records);
+        expectedRecords.remove(CORRUPTED_RECORD_INDEX);
+        expectedRecords.remove(TRUNCATED_RECORD_INDEX);
+        assertThat(readRecords, is(equalTo(expectedRecords)));
+        assertThat(iterator.getDamagedRecordCount(), is(2L));
+    }
+
+    @Test
+    public void should_skip_damaged_dictionary_epochs() throws IOException {
+        List<HttpRequestRecord> records = generateRecords(RECORD_COUNT);
+        File file = writeRecords(temporaryFolder.newFile("records.csv"), records, createWriterOptions(true));
+        damage(file);
+        List<HttpRequestRecord> readRecords = new ArrayList<>();
+        Base64HttpRequestRecordReaderIterator iterator = readRecords(file, readRecords);
+        List<HttpRequestRecord> expectedRecords = new ArrayList<>();
+        expectedRecords.addAll(records.subList(0, TRUNCATED_RECORD_INDEX));
+        expectedRecords.addAll(records.subList(EPOCH_RECORD_COUNT, CORRUPTED_RECORD_INDEX));
+        expectedRecords.addAll(records.subList(2 * EPOCH_RECORD_COUNT, RECORD_COUNT));
+        assertThat(readRecords, is(equalTo(expectedRecords)));
+        assertThat(iterator.getDamagedRecordCount(), is(2L));
+    }
+
+    @Test
+    public void should_index_damaged_records() throws IOException {
+        List<HttpRequestRecord> records = generateRecords(RECORD_COUNT);
+        File file = writeRecords(temporaryFolder.newFile("records.csv"), records, createWriterOptions(false));
+        damage(file);
+        HttpRequestRecordIndex index = HttpRequestRecordIndexer.index(file, Base64HttpRequestRecord.CHARSET, 256);
+        // The truncated record and its successor share a line.
+        assertThat(index.getRecordCount(), is((long) RECORD_COUNT - 1));
+        List<HttpRequestRecord> readRecords = new ArrayList<>();
+        for (HttpRequestRecordIndexRange range : index.split(4)) {
+            try (HttpRequestRecordReaderFileSource source =
+                         new HttpRequestRecordReaderFileSource(file, Base64HttpRequestRecord.CHARSET, range)) {
+                readRecords.addAll(collect(readRecords(source)));
+            }
+        }
+        assertThat(readRecords.size(), is(RECORD_COUNT - 2));
+    }
+
+    @Test
+    public void should_read_arbitrary_byte_ranges() throws IOException {
+        for (boolean dictionaryEncoded : new boolean[]{false, true}) {
+            List<HttpRequestRecord> records = generateRecords(RECORD_COUNT);
+            File file = writeRecords(temporaryFolder.newFile("records-" + dictionaryEncoded + ".csv"), records, createWriterOptions(dictionaryEncoded));
+            long fileByteCount = file.length();
+            for (int rangeCount : new int[]{1, 2, 7}) {
+                List<HttpRequestRecord> readRecords = new ArrayList<>();
+                for (int rangeIndex = 0; rangeIndex < rangeCount; rangeIndex++) {
+                    long fromOffset = fileByteCount * rangeIndex / rangeCount;
+                    long toOffset = fileByteCount * (rangeIndex + 1) / rangeCount;
+                    try (HttpRequestRecordReaderFileSource source = HttpRequestRecordReaderFileSource.createByteRangeSource(
+                            file, Base64HttpRequestRecord.CHARSET, fromOffset, toOffset)) {
+                        readRecords.addAll(collect(readRecords(source)));
+                    }
+                }
+                assertThat(readRecords, is(equalTo(records)));
+            }
+        }
+    }
+
+    /**
+     * Truncates the line of {@link #TRUNCATED_RECORD_INDEX} in half (joining
+     * it with its successor) and flips a byte of the line of
+     * {@link #CORRUPTED_RECORD_INDEX}.
+     */
+    private static void damage(File file) throws IOException {
+        String content = new String(Files.readAllBytes(file.toPath()), StandardCharsets.US_ASCII);
+        List<String> lines = new ArrayList<>(Arrays.asList(content.split("\n")));
+        String corruptedLine = lines.get(CORRUPTED_RECORD_INDEX);
+        int corruptedIndex = corruptedLine.length() / 2;
+        char corruptedChar = corruptedLine.charAt(corruptedIndex) == 'A' ? 'B' : 'A';
+        lines.set(CORRUPTED_RECORD_INDEX, corruptedLine.substring(0, corruptedIndex) + corruptedChar + corruptedLine.substring(corruptedIndex + 1));
+        String truncatedLine = lines.get(TRUNCATED_RECORD_INDEX);
+        lines.set(TRUNCATED_RECORD_INDEX, truncatedLine.substring(0, truncatedLine.length() / 2) + lines.get(TRUNCATED_RECORD_INDEX + 1));
+        lines.remove(TRUNCATED_RECORD_INDEX + 1);
+        StringBuilder damagedContent = new StringBuilder(content.length());
+        for (String line : lines) {
+            damagedContent.append(line).append('\n');
+        }
+        Files.write(file.toPath(), damagedContent.toString().getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static Base64HttpRequestRecordWriterOptions createWriterOptions(boolean dictionaryEncoded) {
+        return Base64HttpRequestRecordWriterOptions
+                .newBuilder()
+                .setDictionaryEncoded(dictionaryEncoded)
+                .setFramed(true)
+                .build();
+    }
+
+    /**
+     * @return the iterator the given records are read by
+     */
+    private static Base64HttpRequestRecordReaderIterator readRecords(File file, List<HttpRequestRecord> records) throws IOException {
+        try (HttpRequestRecordReaderFileSource source = new HttpRequestRecordReaderFileSource(file, Base64HttpRequestRecord.CHARSET)) {
+            Base64HttpRequestRecordReaderIterator iterator = readRecords(source);
+            records.addAll(collect(iterator));
+            return iterator;
+        }
+    }
+
+    private static Base64HttpRequestRecordReaderIterator readRecords(HttpRequestRecordReaderSource<String> source) {
+        return new Base64HttpRequestRecordReaderIterator(source, GuavaBase64Decoder.getInstance());
+    }
+
+    private static List<HttpRequestRecord> collect(Iterator<HttpRequestRecord> iterator) {
+        List<HttpRequestRecord> records = new ArrayList<>();
+        while (iterator.hasNext()) {
+            records.add(iterator.next());
+        }
+        return records;
+    }
+
+}
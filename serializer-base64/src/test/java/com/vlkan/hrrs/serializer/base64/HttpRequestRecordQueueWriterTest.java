@@ -0,0 +1,83 @@
+package com.vlkan.hrrs.serializer.base64;
+
+import com.vlkan.hrrs.api.HttpRequestRecordWriterTarget;
+import com.vlkan.hrrs.serializer.base64.jdk.JdkBase64Encoder;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static com.vlkan.hrrs.serializer.HttpRequestRecordTestUtils.createRecord;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class HttpRequestRecordQueueWriterTest {
+
+    /**
+     * Target collecting the written values, where the flushed ones are copied to {@link #flushedValues}.
+     */
+    private static final class CollectingTarget implements HttpRequestRecordWriterTarget<String> {
+
+        private final List<String> values = new ArrayList<>();
+
+        private final List<String> flushedValues = new ArrayList<>();
+
+        @Override
+        public synchronized void write(String value) {
+            values.add(value);
+        }
+
+        @Override
+        public synchronized void flush() {
+            flushedValues.clear();
+            flushedValues.addAll(values);
+        }
+
+        private synchronized List<String> getFlushedValues() {
+            return new ArrayList<>(flushedValues);
+        }
+
+        @Override
+        public void close() {
+            // Do nothing.
+        }
+
+    }
+
+    @Test
+    public void should_write_and_flush_using_the_writer_of_the_record() throws Exception {
+
+        // Create writers sharing the writer thread, which is not closed, since it cannot be restarted.
+        CollectingTarget target1 = new CollectingTarget();
+        CollectingTarget target2 = new CollectingTarget();
+        QueueBase64HttpRequestRecordWriter writer1 = new QueueBase64HttpRequestRecordWriter(target1, JdkBase64Encoder.getInstance());
+        QueueBase64HttpRequestRecordWriter writer2 = new QueueBase64HttpRequestRecordWriter(target2, JdkBase64Encoder.getInstance());
+
+        // Write records interleaved.
+        CompletableFuture<Void> completion1 = writer1.writeAsync(createRecord(1));
+        CompletableFuture<Void> completion2 = writer2.writeAsync(createRecord(2));
+        writer1.write(createRecord(3));
+        writer1.flush();
+        completion1.get(10, TimeUnit.SECONDS);
+        completion2.get(10, TimeUnit.SECONDS);
+
+        // Verify every record is written to and flushed by the target of its writer.
+        assertThat(getIds(target1.getFlushedValues()), is(equalTo(Arrays.asList("id-1", "id-3"))));
+        assertThat(getIds(target2.getFlushedValues()), is(equalTo(Collections.singletonList("id-2"))));
+
+    }
+
+    private static List<String> getIds(List<String> values) {
+        List<String> ids = new ArrayList<>(values.size());
+        for (String value : values) {
+            ids.add(value.substring(0, value.indexOf(Base64HttpRequestRecord.FIELD_SEPARATOR)));
+        }
+        return ids;
+    }
+
+}
@@ -0,0 +1,185 @@
+package com.vlkan.hrrs.serializer.base64;
+
+import com.vlkan.hrrs.api.HttpRequestHeader;
+import com.vlkan.hrrs.api.HttpRequestPayload;
+import com.vlkan.hrrs.api.HttpRequestRecord;
+import com.vlkan.hrrs.api.HttpRequestRecordReaderSource;
+import com.vlkan.hrrs.api.HttpRequestRecordWriter;
+import com.vlkan.hrrs.api.HttpRequestRecordWriterTarget;
+import com.vlkan.hrrs.api.ResponseInfo;
+import com.vlkan.hrrs.serializer.base64.guava.GuavaBase64Decoder;
+import com.vlkan.hrrs.serializer.base64.guava.GuavaBase64Encoder;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import static com.vlkan.hrrs.serializer.HttpRequestRecordTestUtils.createHeader;
+import static com.vlkan.hrrs.serializer.HttpRequestRecordTestUtils.createPayload;
+import static com.vlkan.hrrs.serializer.HttpRequestRecordTestUtils.createRecord;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+
+public class HttpRequestRecordResponseTest {
+
+    @Test
+    public void should_encode_and_decode_responses() {
+        byte[] bodyHash = new byte[16];
+        Arrays.fill(bodyHash, (byte) 0x5A);
+        ResponseInfo[] responseInfos = {
+                createResponseInfo(Collections.<HttpRequestHeader>emptyList(), createPayload("", 0), null),
+                createResponseInfo(createHeaders(), null, null),
+                createResponseInfo(createHeaders(), createPayload("{\"ok\":true}", 0), null),
+                createResponseInfo(createHeaders(), createPayload("{\"ok\":", 1024), bodyHash)
+        };
+        for (ResponseInfo responseInfo : responseInfos) {
+            String encodedResponse = Base64HttpRequestRecordResponse.encode(responseInfo, GuavaBase64Encoder.getInstance());
+            ResponseInfo decodedResponseInfo = Base64HttpRequestRecordResponse.decode(
+                    responseInfo.getStatusCode(), responseInfo.getResponseTime(),
+                    encodedResponse, GuavaBase64Decoder.getInstance());
+            assertThat(decodedResponseInfo.getStatusCode(), is(responseInfo.getStatusCode()));
+            assertThat(decodedResponseInfo.getResponseTime(), is(responseInfo.getResponseTime()));
+            assertThat(decodedResponseInfo.getHeaders(), is(equalTo(responseInfo.getHeaders())));
+            assertThat(decodedResponseInfo.getBody(), is(equalTo(responseInfo.getBody())));
+            assertThat(decodedResponseInfo.getBodyHash(), is(equalTo(responseInfo.getBodyHash())));
+        }
+    }
+
+    @Test
+    public void should_not_encode_uncaptured_responses() {
+        ResponseInfo responseInfo = new ResponseInfo(200, 1);
+        assertThat(Base64HttpRequestRecordResponse.encode(responseInfo, GuavaBase64Encoder.getInstance()), is(nullValue()));
+    }
+
+    @Test
+    public void should_skip_response_sections_while_reading() {
+        for (boolean dictionaryEncoded : new boolean[]{false, true}) {
+            List<String> lines = new ArrayList<>();
+            Base64HttpRequestRecordWriterOptions writerOptions =
+                    Base64HttpRequestRecordWriterOptions.newBuilder().setDictionaryEncoded(dictionaryEncoded).build();
+            HttpRequestRecordWriter<String> writer =
+                    new Base64HttpRequestRecordWriter(new LineTarget(lines), GuavaBase64Encoder.getInstance(), writerOptions);
+            ResponseInfo responseInfo = createResponseInfo(createHeaders(), createPayload("{\"ok\":true}", 0), null);
+            HttpRequestRecord capturedRecord = createRecord(0, responseInfo);
+            HttpRequestRecord plainRecord = createRecord(1, new ResponseInfo(200, 1));
+            write(writer, capturedRecord);
+            write(writer, plainRecord);
+
+            // Verify the fields.
+            String[] capturedFields = lines.get(0).split(Base64HttpRequestRecord.FIELD_SEPARATOR, -1);
+            assertThat(capturedFields.length, is(8));
+            assertThat(capturedFields[5], is(equalTo("201")));
+            assertThat(capturedFields[6], is(equalTo("7")));
+            ResponseInfo decodedResponseInfo = Base64HttpRequestRecordResponse.decode(
+                    201, 7, capturedFields[7].trim(), GuavaBase64Decoder.getInstance());
+            assertThat(decodedResponseInfo.getHeaders(), is(equalTo(responseInfo.getHeaders())));
+            assertThat(decodedResponseInfo.getBody(), is(equalTo(responseInfo.getBody())));
+            assertThat(lines.get(1).split(Base64HttpRequestRecord.FIELD_SEPARATOR, -1).length, is(7));
+
+            // Verify the records.
+            Iterator<HttpRequestRecord> iterator =
+                    new Base64HttpRequestRecordReaderIterator(new LineSource(lines), GuavaBase64Decoder.getInstance());
+            List<HttpRequestRecord> readRecords = new ArrayList<>();
+            while (iterator.hasNext()) {
+                readRecords.add(iterator.next());
+            }
+            assertThat(readRecords, is(equalTo(Arrays.asList(capturedRecord, plainRecord))));
+            assertThat(readRecords.get(0).getResponseInfo(), is(equalTo(capturedRecord.getResponseInfo())));
+            assertThat(readRecords.get(1).getResponseInfo(), is(equalTo(plainRecord.getResponseInfo())));
+        }
+    }
+
+    @Test
+    public void should_read_response_info_lazily() {
+        List<String> lines = new ArrayList<>();
+        HttpRequestRecordWriter<String> writer =
+                new Base64HttpRequestRecordWriter(new LineTarget(lines), GuavaBase64Encoder.getInstance());
+        ResponseInfo responseInfo = createResponseInfo(createHeaders(), createPayload("{\"ok\":true}", 0), null);
+        write(writer, createRecord(0, responseInfo));
+        write(writer, createRecord(1, null));
+        assertThat(lines.get(1).split(Base64HttpRequestRecord.FIELD_SEPARATOR, -1).length, is(5));
+        Iterator<HttpRequestRecord> iterator = new Base64HttpRequestRecordReaderIterator(
+                new LineSource(lines), GuavaBase64Decoder.getInstance(), null, record -> true);
+        List<HttpRequestRecord> readRecords = new ArrayList<>();
+        while (iterator.hasNext()) {
+            readRecords.add(iterator.next());
+        }
+        assertThat(readRecords.size(), is(2));
+        LazyBase64HttpRequestRecord lazyRecord = (LazyBase64HttpRequestRecord) readRecords.get(0);
+        assertThat(lazyRecord.getResponseInfo(), is(equalTo(responseInfo)));
+        assertThat(lazyRecord.isDecoded(), is(false));
+        assertThat(lazyRecord.toBuilder().build().getResponseInfo(), is(equalTo(responseInfo)));
+        assertThat(readRecords.get(1).getResponseInfo(), is(nullValue()));
+    }
+
+    private static void write(HttpRequestRecordWriter<String> writer, HttpRequestRecord record) {
+        try {
+            writer.write(record);
+        } catch (IOException error) {
+            throw new RuntimeException(error);
+        }
+    }
+
+    private static ResponseInfo createResponseInfo(List<HttpRequestHeader> headers, HttpRequestPayload body, byte[] bodyHash) {
+        return new ResponseInfo(201, 7, headers, body, bodyHash);
+    }
+
+    private static List<HttpRequestHeader> createHeaders() {
+        return Arrays.asList(
+                createHeader("Content-Type", "application/json"),
+                createHeader("Set-Cookie", "a=1"),
+                createHeader("Set-Cookie", "b=2"));
+    }
+
+    private static final class LineTarget implements HttpRequestRecordWriterTarget<String> {
+
+        private final List<String> lines;
+
+        private LineTarget(List<String> lines) {
+            this.lines = lines;
+        }
+
+        @Override
+        public void write(String line) {
+            lines.add(line);
+        }
+
+        @Override
+        public void flush() {
+            // Do nothing.
+        }
+
+        @Override
+        public void close() {
+            // Do nothing.
+        }
+
+    }
+
+    private static final class LineSource implements HttpRequestRecordReaderSource<String> {
+
+        private final Iterator<String> lineIterator;
+
+        private LineSource(List<String> lines) {
+            this.lineIterator = lines.iterator();
+        }
+
+        @Override
+        public String read() {
+            return lineIterator.hasNext() ? lineIterator.next().replaceFirst("\n$", "") : null;
+        }
+
+        @Override
+        public void close() {
+            // Do nothing.
+        }
+
+    }
+
+}
@@ -4,12 +4,17 @@ import com.vlkan.hrrs.api.*;
 import com.vlkan.hrrs.serializer.HttpRequestRecordPipe;
 import com.vlkan.hrrs.serializer.base64.guava.GuavaBase64Decoder;
 import com.vlkan.hrrs.serializer.base64.guava.GuavaBase64Encoder;
+import com.vlkan.hrrs.serializer.file.HttpRequestRecordReaderFileSource;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.File;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.vlkan.hrrs.serializer.HttpRequestRecordTestUtils.writeRecords;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
@@ -24,6 +29,9 @@ public class HttpRequestSerializationTest {
 
     private static final int MAX_BYTE_COUNT = 1024 * 128;      // 128 KB
 
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @Test
     public void should_write_and_read() throws Exception {
         Random random = new Random(0);
@@ -51,6 +59,53 @@ public class HttpRequestSerializationTest {
         assertThat(iterator.hasNext(), is(true));
         HttpRequestRecord readRecord = iterator.next();
         assertThat(readRecord, is(equalTo(record)));
+        assertThat(readRecord.getResponseInfo(), is(equalTo(record.getResponseInfo())));
+    }
+
+    @Test
+    public void should_decode_only_filtered_records() throws Exception {
+
+        // Write records.
+        Random random = new Random(0);
+        List<HttpRequestRecord> records = new ArrayList<>();
+        for (int recordIndex = 0; recordIndex < RANDOM_RECORD_COUNT; recordIndex++) {
+            records.add(generateHttpRequestRecord(random));
+        }
+        File file = writeRecords(temporaryFolder.newFile("records.csv"), records, Base64HttpRequestRecordWriterOptions.DEFAULT);
+
+        // Read records matching the filter.
+        String groupName = records.get(0).getGroupName();
+        List<LazyBase64HttpRequestRecord> rejectedRecords = new ArrayList<>();
+        List<HttpRequestRecord> readRecords = new ArrayList<>();
+        try (HttpRequestRecordReaderFileSource source = new HttpRequestRecordReaderFileSource(file, Base64HttpRequestRecord.CHARSET)) {
+            HttpRequestRecordReader<String> reader = new Base64HttpRequestRecordReader(source, GuavaBase64Decoder.getInstance());
+            Iterable<HttpRequestRecord> iterable = reader.read(record -> {
+                boolean matched = groupName.equals(record.getGroupName());
+                if (!matched) {
+                    rejectedRecords.add((LazyBase64HttpRequestRecord) record);
+                }
+                return matched;
+            });
+            for (HttpRequestRecord readRecord : iterable) {
+                readRecords.add(readRecord.toBuilder().build());
+            }
+        }
+
+        // Verify read records.
+        List<HttpRequestRecord> expectedRecords = new ArrayList<>();
+        for (HttpRequestRecord record : records) {
+            if (groupName.equals(record.getGroupName())) {
+                expectedRecords.add(record);
+            }
+        }
+        assertThat(readRecords, is(equalTo(expectedRecords)));
+
+        // Verify rejected records.
+        assertThat(rejectedRecords.size(), is(records.size() - expectedRecords.size()));
+        for (LazyBase64HttpRequestRecord rejectedRecord : rejectedRecords) {
+            assertThat(rejectedRecord.isDecoded(), is(false));
+        }
+
     }
 
     private static HttpRequestRecord generateHttpRequestRecord(Random random) {
@@ -64,7 +119,7 @@ public class HttpRequestSerializationTest {
         HttpRequestMethod method = generateHttpRequestMethod(random);
         List<HttpRequestHeader> headers = generateHttpRequestHeaders(random);
         HttpRequestPayload payload = generateHttpRequestPayload(random);
-        ResponseInfo responseInfo = new ResponseInfo(null);
+        ResponseInfo responseInfo = new ResponseInfo(200, generateInt(random, 0, 1000));
 
         // Create the record.
         return ImmutableHttpRequestRecord
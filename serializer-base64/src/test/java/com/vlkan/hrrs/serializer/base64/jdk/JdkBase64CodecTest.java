@@ -0,0 +1,69 @@
+package com.vlkan.hrrs.serializer.base64.jdk;
+
+import com.vlkan.hrrs.serializer.base64.Base64Decoder;
+import com.vlkan.hrrs.serializer.base64.guava.GuavaBase64Decoder;
+import com.vlkan.hrrs.serializer.base64.guava.GuavaBase64Encoder;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class JdkBase64CodecTest {
+
+    private static final int MAX_BYTE_COUNT = 100;
+
+    @Test
+    public void should_match_guava() {
+        Random random = new Random(0);
+        for (int byteCount = 0; byteCount <= MAX_BYTE_COUNT; byteCount++) {
+            byte[] bytes = new byte[byteCount];
+            random.nextBytes(bytes);
+            String encodedBytes = GuavaBase64Encoder.getInstance().encode(bytes);
+            assertThat(JdkBase64Encoder.getInstance().encode(bytes), is(equalTo(encodedBytes)));
+            ByteBuffer encodedBuffer = JdkBase64Encoder.getInstance().encode(ByteBuffer.wrap(bytes));
+            assertThat(new String(encodedBuffer.array(), 0, encodedBuffer.remaining()), is(equalTo(encodedBytes)));
+            assertThat(JdkBase64Decoder.getInstance().decode(encodedBytes), is(equalTo(bytes)));
+            assertThat(GuavaBase64Decoder.getInstance().decode(encodedBytes), is(equalTo(bytes)));
+        }
+    }
+
+    @Test
+    public void should_decode_into_buffer() {
+        Random random = new Random(0);
+        for (int byteCount = 0; byteCount <= MAX_BYTE_COUNT; byteCount++) {
+            byte[] bytes = new byte[byteCount];
+            random.nextBytes(bytes);
+            String paddedEncodedBytes = JdkBase64Encoder.getInstance().encode(bytes);
+            String unpaddedEncodedBytes = paddedEncodedBytes.replace("=", "");
+            for (String encodedBytes : Arrays.asList(paddedEncodedBytes, unpaddedEncodedBytes)) {
+                int maxByteCount = Base64Decoder.getMaxDecodedByteCount(encodedBytes.length());
+                for (ByteBuffer buffer : Arrays.asList(ByteBuffer.allocate(maxByteCount + 2), ByteBuffer.allocateDirect(maxByteCount + 2))) {
+                    buffer.position(2);
+                    int decodedByteCount = JdkBase64Decoder.getInstance().decode(encodedBytes, buffer);
+                    assertThat(decodedByteCount, is(equalTo(byteCount)));
+                    assertThat(buffer.position(), is(equalTo(2 + byteCount)));
+                    byte[] decodedBytes = new byte[byteCount];
+                    buffer.position(2);
+                    buffer.get(decodedBytes);
+                    assertThat(decodedBytes, is(equalTo(bytes)));
+                }
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void should_reject_invalid_characters() {
+        JdkBase64Decoder.getInstance().decode("ab-d", ByteBuffer.allocate(3));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void should_reject_invalid_length() {
+        JdkBase64Decoder.getInstance().decode("abcde", ByteBuffer.allocate(6));
+    }
+
+}
@@ -0,0 +1,212 @@
+package com.vlkan.hrrs.serializer.file;
+
+import com.vlkan.hrrs.serializer.gzip.HrrsBlockGzip;
+import com.vlkan.hrrs.serializer.index.HttpRequestRecordIndex;
+import com.vlkan.hrrs.serializer.manifest.HttpRequestRecordManifest;
+import com.vlkan.hrrs.serializer.manifest.HttpRequestRecordManifestEntry;
+import com.vlkan.rfos.RotationConfig;
+import com.vlkan.rfos.policy.SizeBasedRotationPolicy;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class HttpRequestRecordHousekeeperTest {
+
+    private static final String RECORD = "id\t20240131-000000.000+0000\tgroup\tGET\tpayload\n";
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void should_compress_and_index_rotated_files() throws IOException {
+        File directory = temporaryFolder.getRoot();
+        RotationConfig rotationConfig = createRotationConfig(directory);
+        File rotatedFile = writeRotatedFile(directory, getRotatedFileName(0), 100, 0);
+        HttpRequestRecordHousekeeper housekeeper = HttpRequestRecordHousekeeper
+                .newBuilder(StandardCharsets.US_ASCII)
+                .setCompress(true)
+                .setIndex(true)
+                .build();
+        File housekeptFile = housekeeper.housekeep(rotationConfig, rotatedFile);
+        assertThat(housekeptFile, is(equalTo(new File(directory, getRotatedFileName(0) + ".gz"))));
+        assertThat(rotatedFile.exists(), is(false));
+        try (InputStream inputStream = new BufferedInputStream(new FileInputStream(housekeptFile))) {
+            assertThat(HrrsBlockGzip.isBlockGzipped(inputStream), is(true));
+        }
+        HttpRequestRecordIndex index = HttpRequestRecordIndex.read(HttpRequestRecordIndex.getIndexFile(housekeptFile));
+        assertThat(index.getRecordCount(), is(equalTo(100L)));
+    }
+
+    @Test
+    public void should_delete_oldest_files_exceeding_total_byte_count() throws IOException {
+        File directory = temporaryFolder.getRoot();
+        RotationConfig rotationConfig = createRotationConfig(directory);
+        long recordByteCount = RECORD.length();
+        for (int fileIndex = 0; fileIndex < 5; fileIndex++) {
+            writeRotatedFile(directory, getRotatedFileName(fileIndex), 10, 5 - fileIndex);
+        }
+        writeRotatedFile(directory, "records.csv", 100, 0);
+        writeRotatedFile(directory, "records-1.csv", 100, 10);
+        writeRotatedFile(directory, "records-20240131-000000-000-1.csv", 100, 10);
+        writeRotatedFile(directory, "unrelated.csv", 100, 10);
+        HttpRequestRecordHousekeeper housekeeper = HttpRequestRecordHousekeeper
+                .newBuilder(StandardCharsets.US_ASCII)
+                .setMaxTotalByteCount(3 * 10 * recordByteCount)
+                .build();
+        housekeeper.housekeep(rotationConfig, new File(directory, getRotatedFileName(4)));
+        assertThat(
+                listFileNames(directory),
+                is(equalTo(new String[]{
+                        "records-1.csv",
+                        "records-20240131-000000-000-1.csv",
+                        getRotatedFileName(2),
+                        getRotatedFileName(3),
+                        getRotatedFileName(4),
+                        "records.csv",
+                        "unrelated.csv"})));
+    }
+
+    @Test
+    public void should_delete_expired_files_along_with_indices() throws IOException {
+        File directory = temporaryFolder.getRoot();
+        RotationConfig rotationConfig = createRotationConfig(directory);
+        HttpRequestRecordHousekeeper housekeeper = HttpRequestRecordHousekeeper
+                .newBuilder(StandardCharsets.US_ASCII)
+                .setIndex(true)
+                .setMaxAge(Duration.ofMinutes(150))
+                .build();
+        for (int fileIndex = 0; fileIndex < 4; fileIndex++) {
+            File rotatedFile = writeRotatedFile(directory, getRotatedFileName(fileIndex), 10, 4 - fileIndex);
+            housekeeper.housekeep(rotationConfig, rotatedFile);
+        }
+        assertThat(
+                listFileNames(directory),
+                is(equalTo(new String[]{
+                        getRotatedFileName(2), getRotatedFileName(2) + ".idx",
+                        getRotatedFileName(3), getRotatedFileName(3) + ".idx"})));
+    }
+
+    @Test
+    public void should_register_rotated_files_in_manifest() throws IOException {
+        File directory = temporaryFolder.getRoot();
+        RotationConfig rotationConfig = createRotationConfig(directory);
+        HttpRequestRecordHousekeeper housekeeper = HttpRequestRecordHousekeeper
+                .newBuilder(StandardCharsets.US_ASCII)
+                .setManifest(true)
+                .setMaxAge(Duration.ofMinutes(150))
+                .build();
+        for (int fileIndex = 0; fileIndex < 4; fileIndex++) {
+            File rotatedFile = writeRotatedFile(directory, getRotatedFileName(fileIndex), 10, 4 - fileIndex);
+            housekeeper.housekeep(rotationConfig, rotatedFile);
+        }
+        HttpRequestRecordManifest manifest = HttpRequestRecordManifest.read(directory);
+        assertThat(manifest.getEntries().size(), is(equalTo(2)));
+        for (int fileIndex = 2; fileIndex < 4; fileIndex++) {
+            HttpRequestRecordManifestEntry entry =
+                    manifest.findUpToDateEntry(new File(directory, getRotatedFileName(fileIndex)));
+            assertThat(entry != null && entry.getRecordCount() == 10, is(true));
+        }
+    }
+
+    @Test
+    public void should_match_rotated_file_names() {
+        Pattern pattern = HttpRequestRecordHousekeeper.createFileNamePattern("records-%d{yyyyMMdd'T'HHmmssXXX}-%%.csv");
+        assertThat(pattern.matcher("records-20240131T000000+01:00-%.csv").matches(), is(true));
+        assertThat(pattern.matcher("records-20240131T000000Z-%.csv.gz").matches(), is(true));
+        assertThat(pattern.matcher("records-20240131T000000Z-%.csv.idx").matches(), is(false));
+        assertThat(pattern.matcher("records-20240131-000000Z-%.csv").matches(), is(false));
+        assertThat(pattern.matcher("records-%.csv").matches(), is(false));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void should_reject_file_patterns_without_static_prefix() {
+        File directory = temporaryFolder.getRoot();
+        RotationConfig rotationConfig = RotationConfig
+                .builder()
+                .file(new File(directory, "records.csv"))
+                .filePattern(new File(directory, "%d{yyyyMMdd}.csv").getPath())
+                .policy(new SizeBasedRotationPolicy(1000, 1024 * 1024))
+                .build();
+        HttpRequestRecordHousekeeper housekeeper = HttpRequestRecordHousekeeper
+                .newBuilder(StandardCharsets.US_ASCII)
+                .build();
+        new HttpRequestRecordWriterRotatingFileTarget(
+                rotationConfig, StandardCharsets.US_ASCII, false,
+                HttpRequestRecordWriterChannelTarget.DEFAULT_BUFFER_BYTE_COUNT, housekeeper);
+    }
+
+    @Test
+    public void should_complete_submitted_housekeeping_on_close() throws IOException {
+        File directory = temporaryFolder.getRoot();
+        RotationConfig rotationConfig = createRotationConfig(directory);
+        HttpRequestRecordHousekeeper housekeeper = HttpRequestRecordHousekeeper
+                .newBuilder(StandardCharsets.US_ASCII)
+                .setCompress(true)
+                .build();
+        List<File> housekeptFiles = new CopyOnWriteArrayList<>();
+        for (int fileIndex = 0; fileIndex < 4; fileIndex++) {
+            File rotatedFile = writeRotatedFile(directory, getRotatedFileName(fileIndex), 1000, 0);
+            housekeeper.submit(rotationConfig, rotatedFile, housekeptFiles::add);
+        }
+        housekeeper.close();
+        assertThat(housekeptFiles.size(), is(equalTo(4)));
+        File rotatedFile = writeRotatedFile(directory, getRotatedFileName(4), 10, 0);
+        housekeeper.submit(rotationConfig, rotatedFile, housekeptFiles::add);
+        assertThat(housekeptFiles.size(), is(equalTo(5)));
+        String[] expectedFileNames = new String[5];
+        for (int fileIndex = 0; fileIndex < 5; fileIndex++) {
+            expectedFileNames[fileIndex] = getRotatedFileName(fileIndex) + ".gz";
+        }
+        assertThat(listFileNames(directory), is(equalTo(expectedFileNames)));
+    }
+
+    private static String getRotatedFileName(int fileIndex) {
+        return String.format("records-20240131-0000%02d-000.csv", fileIndex);
+    }
+
+    private static RotationConfig createRotationConfig(File directory) {
+        return RotationConfig
+                .builder()
+                .file(new File(directory, "records.csv"))
+                .filePattern(new File(directory, "records-%d{yyyyMMdd-HHmmss-SSS}.csv").getPath())
+                .policy(new SizeBasedRotationPolicy(1000, 1024 * 1024))
+                .build();
+    }
+
+    private static File writeRotatedFile(File directory, String name, int recordCount, int ageHours) throws IOException {
+        File file = new File(directory, name);
+        StringBuilder content = new StringBuilder();
+        for (int recordIndex = 0; recordIndex < recordCount; recordIndex++) {
+            content.append(RECORD);
+        }
+        Files.write(file.toPath(), content.toString().getBytes(StandardCharsets.US_ASCII));
+        long lastModifiedMillis = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(ageHours);
+        assertThat(file.setLastModified(lastModifiedMillis), is(true));
+        return file;
+    }
+
+    private static String[] listFileNames(File directory) {
+        String[] fileNames = directory.list();
+        Arrays.sort(fileNames);
+        return fileNames;
+    }
+
+}
@@ -0,0 +1,120 @@
+package com.vlkan.hrrs.serializer.file;
+
+import com.vlkan.hrrs.serializer.gzip.HrrsBlockGzipOutputStream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class HttpRequestRecordReaderFileSetSourceTest {
+
+    private static final int RECORD_COUNT_PER_FILE = 1500;
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void should_find_files_of_directory_in_timestamp_order() throws IOException {
+        File directory = temporaryFolder.getRoot();
+        writeFiles(directory);
+        List<File> files = HttpRequestRecordReaderFileSetSource.findFiles(directory, StandardCharsets.US_ASCII);
+        assertThat(files, is(equalTo(Arrays.asList(
+                new File(directory, "records-c.csv.gz"),
+                new File(directory, "records-b.csv"),
+                new File(directory, "records-a.csv.gz")))));
+    }
+
+    @Test
+    public void should_find_files_of_glob() throws IOException {
+        File directory = temporaryFolder.getRoot();
+        writeFiles(directory);
+        File glob = new File(directory, "records-*.csv.gz");
+        List<File> files = HttpRequestRecordReaderFileSetSource.findFiles(glob, StandardCharsets.US_ASCII);
+        assertThat(files, is(equalTo(Arrays.asList(
+                new File(directory, "records-c.csv.gz"),
+                new File(directory, "records-a.csv.gz")))));
+    }
+
+    @Test
+    public void should_read_files_with_prefetch() throws IOException {
+        test(true);
+    }
+
+    @Test
+    public void should_read_files_without_prefetch() throws IOException {
+        test(false);
+    }
+
+    private void test(boolean prefetch) throws IOException {
+        File directory = temporaryFolder.getRoot();
+        writeFiles(directory);
+        List<File> files = HttpRequestRecordReaderFileSetSource.findFiles(directory, StandardCharsets.US_ASCII);
+        int lineCount = 0;
+        try (HttpRequestRecordReaderFileSetSource source =
+                     new HttpRequestRecordReaderFileSetSource(files, StandardCharsets.US_ASCII, prefetch)) {
+            String line;
+            while ((line = source.read()) != null) {
+                assertThat(line, is(equalTo(createLine(lineCount++))));
+            }
+            assertThat(source.read(), is(equalTo(null)));
+        }
+        assertThat(lineCount, is(equalTo(3 * RECORD_COUNT_PER_FILE)));
+    }
+
+    @Test
+    public void should_close_before_exhausted() throws IOException {
+        File directory = temporaryFolder.getRoot();
+        writeFiles(directory);
+        List<File> files = HttpRequestRecordReaderFileSetSource.findFiles(directory, StandardCharsets.US_ASCII);
+        HttpRequestRecordReaderFileSetSource source = new HttpRequestRecordReaderFileSetSource(files, StandardCharsets.US_ASCII);
+        assertThat(source.read(), is(equalTo(createLine(0))));
+        source.close();
+    }
+
+    /**
+     * Writes files, whose name order is the reverse of their timestamp order.
+     */
+    private static void writeFiles(File directory) throws IOException {
+        new File(directory, "records-a.csv.idx").createNewFile();
+        new File(directory, "records-d.csv.tmp").createNewFile();
+        writeFile(new GZIPOutputStream(new FileOutputStream(new File(directory, "records-a.csv.gz"))), 2);
+        writeFile(new FileOutputStream(new File(directory, "records-b.csv")), 1);
+        writeFile(new HrrsBlockGzipOutputStream(new FileOutputStream(new File(directory, "records-c.csv.gz"))), 0);
+    }
+
+    private static void writeFile(OutputStream outputStream, int fileIndex) throws IOException {
+        List<String> lines = new ArrayList<>(RECORD_COUNT_PER_FILE);
+        for (int recordIndex = 0; recordIndex < RECORD_COUNT_PER_FILE; recordIndex++) {
+            lines.add(createLine(fileIndex * RECORD_COUNT_PER_FILE + recordIndex));
+        }
+        try {
+            for (String line : lines) {
+                outputStream.write((line + '\n').getBytes(StandardCharsets.US_ASCII));
+            }
+        } finally {
+            outputStream.close();
+        }
+    }
+
+    private static String createLine(int lineIndex) {
+        int seconds = lineIndex / 1000;
+        int millis = lineIndex % 1000;
+        String timestamp = String.format(Locale.US, "20240131-00%02d%02d.%03d+0000", seconds / 60, seconds % 60, millis);
+        return "id-" + lineIndex + '\t' + timestamp + "\tgroup\tGET\tpayload";
+    }
+
+}
@@ -0,0 +1,74 @@
+package com.vlkan.hrrs.serializer.file;
+
+import com.vlkan.hrrs.api.metric.HrrsDropReason;
+import com.vlkan.hrrs.api.metric.HrrsMetrics;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class HttpRequestRecordWriteLimiterTest {
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void should_throttle_writes() {
+        long maxBytePerSecond = 1024 * 1024;
+        HttpRequestRecordWriteLimiter limiter = HttpRequestRecordWriteLimiter
+                .newBuilder(temporaryFolder.getRoot())
+                .setMaxBytePerSecond(maxBytePerSecond)
+                .build();
+        long startTimeNanos = System.nanoTime();
+        // The bucket is full initially, hence the first second worth of bytes goes through.
+        limiter.acquire(maxBytePerSecond);
+        limiter.acquire(maxBytePerSecond / 2);
+        long durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTimeNanos);
+        assertThat(durationMillis >= 400, is(true));
+    }
+
+    @Test
+    public void should_pause_and_resume_capture_on_free_space() throws IOException {
+        File file = temporaryFolder.newFile();
+        AtomicLong freeByteCount = new AtomicLong(100);
+        HttpRequestRecordWriteLimiter limiter = HttpRequestRecordWriteLimiter
+                .newBuilder(temporaryFolder.getRoot())
+                .setMinFreeByteCount(50)
+                .setFreeSpaceCheckPeriodMillis(0)
+                .setFreeByteCountSupplier(freeByteCount::get)
+                .build();
+        HrrsMetrics metrics = HrrsMetrics.getInstance();
+        long startDroppedCount = metrics.getDroppedCount(HrrsDropReason.DISK_SPACE_LOW);
+        long startRecordedCount = metrics.getRecordedCount();
+        try (HttpRequestRecordWriterFileTarget target = new HttpRequestRecordWriterFileTarget(
+                file, StandardCharsets.US_ASCII, false,
+                HttpRequestRecordWriterChannelTarget.DEFAULT_BUFFER_BYTE_COUNT, limiter)) {
+            target.write("a\n");
+            freeByteCount.set(10);
+            target.write("b\n");
+            target.write("c\n");
+            assertThat(limiter.isPaused(), is(true));
+            assertThat(metrics.isCapturePaused(), is(true));
+            freeByteCount.set(60);
+            target.write("d\n");
+            assertThat(metrics.isCapturePaused(), is(false));
+        }
+        String content = new String(Files.readAllBytes(file.toPath()), StandardCharsets.US_ASCII);
+        assertThat(content, is(equalTo("a\nd\n")));
+        long droppedCount = metrics.getDroppedCount(HrrsDropReason.DISK_SPACE_LOW) - startDroppedCount;
+        assertThat(droppedCount, is(equalTo(2L)));
+        long recordedCount = metrics.getRecordedCount() - startRecordedCount;
+        assertThat(recordedCount, is(equalTo(2L)));
+    }
+
+}
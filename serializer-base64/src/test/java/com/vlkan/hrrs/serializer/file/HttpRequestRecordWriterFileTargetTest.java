@@ -0,0 +1,86 @@
+package com.vlkan.hrrs.serializer.file;
+
+import com.vlkan.hrrs.serializer.gzip.HrrsBlockGzipInputStream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class HttpRequestRecordWriterFileTargetTest {
+
+    private static final int BUFFER_BYTE_COUNT = 16;
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void should_write_strings_and_buffers() throws IOException {
+        test(false);
+    }
+
+    @Test
+    public void should_write_strings_and_buffers_block_compressed() throws IOException {
+        test(true);
+    }
+
+    private void test(boolean blockCompressed) throws IOException {
+        File file = temporaryFolder.newFile();
+        StringBuilder expectedContent = new StringBuilder();
+        try (HttpRequestRecordWriterFileTarget target =
+                     new HttpRequestRecordWriterFileTarget(file, StandardCharsets.UTF_8, blockCompressed, BUFFER_BYTE_COUNT)) {
+            for (int recordIndex = 0; recordIndex < 100; recordIndex++) {
+                // Alternate between records fitting into the buffer and the ones exceeding it.
+                String record = recordIndex % 3 == 0
+                        ? "record-" + recordIndex + "-" + repeat('x', recordIndex) + "\n"
+                        : "r-" + recordIndex + "\n";
+                if (recordIndex % 2 == 0) {
+                    target.write(record);
+                } else {
+                    byte[] recordBytes = record.getBytes(StandardCharsets.UTF_8);
+                    int splitIndex = recordBytes.length / 2;
+                    target.write(
+                            ByteBuffer.wrap(recordBytes, 0, splitIndex),
+                            ByteBuffer.wrap(recordBytes, splitIndex, recordBytes.length - splitIndex));
+                }
+                expectedContent.append(record);
+                if (recordIndex % 10 == 0) {
+                    target.flush();
+                }
+            }
+        }
+        assertThat(read(file, blockCompressed), is(equalTo(expectedContent.toString())));
+    }
+
+    private static String repeat(char c, int count) {
+        StringBuilder builder = new StringBuilder(count);
+        for (int i = 0; i < count; i++) {
+            builder.append(c);
+        }
+        return builder.toString();
+    }
+
+    private static String read(File file, boolean blockCompressed) throws IOException {
+        try (InputStream fileInputStream = new FileInputStream(file);
+             InputStream inputStream = blockCompressed ? new HrrsBlockGzipInputStream(fileInputStream) : fileInputStream) {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            int readByteCount;
+            while ((readByteCount = inputStream.read(buffer)) > 0) {
+                outputStream.write(buffer, 0, readByteCount);
+            }
+            return new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+}
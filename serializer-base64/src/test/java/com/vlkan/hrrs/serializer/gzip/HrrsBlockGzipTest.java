@@ -0,0 +1,117 @@
+package com.vlkan.hrrs.serializer.gzip;
+
+import com.google.common.io.ByteStreams;
+import com.vlkan.hrrs.serializer.file.HttpRequestRecordReaderFileSource;
+import com.vlkan.hrrs.serializer.file.HttpRequestRecordWriterFileTarget;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class HrrsBlockGzipTest {
+
+    private static final int BLOCK_BYTE_COUNT = 1000;
+
+    private static final int PARALLELISM = 3;
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void should_compress_and_decompress_blocks() throws IOException {
+        byte[] bytes = generateBytes(10 * BLOCK_BYTE_COUNT + 123);
+        byte[] compressedBytes = compress(bytes);
+        assertThat(HrrsBlockGzip.isBlockGzipped(new ByteArrayInputStream(compressedBytes)), is(true));
+        try (InputStream inputStream = new HrrsBlockGzipInputStream(
+                new ByteArrayInputStream(compressedBytes), HrrsBlockGzip.getDefaultExecutor(), PARALLELISM)) {
+            assertThat(Arrays.equals(ByteStreams.toByteArray(inputStream), bytes), is(true));
+        }
+    }
+
+    @Test
+    public void should_be_readable_by_gzip() throws IOException {
+        byte[] bytes = generateBytes(5 * BLOCK_BYTE_COUNT);
+        try (InputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(compress(bytes)))) {
+            assertThat(Arrays.equals(ByteStreams.toByteArray(inputStream), bytes), is(true));
+        }
+    }
+
+    @Test
+    public void should_read_appended_regular_gzip_members() throws IOException {
+        byte[] blockBytes = generateBytes(3 * BLOCK_BYTE_COUNT);
+        byte[] regularBytes = generateBytes(BLOCK_BYTE_COUNT / 2);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        outputStream.write(compress(blockBytes));
+        try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream)) {
+            gzipOutputStream.write(regularBytes);
+        }
+        try (InputStream inputStream = new HrrsBlockGzipInputStream(new ByteArrayInputStream(outputStream.toByteArray()))) {
+            byte[] readBytes = ByteStreams.toByteArray(inputStream);
+            byte[] expectedBytes = Arrays.copyOf(blockBytes, blockBytes.length + regularBytes.length);
+            System.arraycopy(regularBytes, 0, expectedBytes, blockBytes.length, regularBytes.length);
+            assertThat(Arrays.equals(readBytes, expectedBytes), is(true));
+        }
+    }
+
+    @Test
+    public void should_write_and_read_block_gzipped_files() throws IOException {
+        File file = new File(temporaryFolder.getRoot(), "records.csv.gz");
+        int recordCount = 10_000;
+        try (HttpRequestRecordWriterFileTarget target = new HttpRequestRecordWriterFileTarget(file, StandardCharsets.US_ASCII)) {
+            assertThat(target.isBlockCompressed(), is(true));
+            for (int recordIndex = 0; recordIndex < recordCount; recordIndex++) {
+                target.write(String.format("record-%d%n", recordIndex));
+                target.flush();
+            }
+        }
+        try (HttpRequestRecordReaderFileSource source = new HttpRequestRecordReaderFileSource(file, StandardCharsets.US_ASCII)) {
+            for (int recordIndex = 0; recordIndex < recordCount; recordIndex++) {
+                assertThat(source.read(), is(String.format("record-%d", recordIndex)));
+            }
+            assertThat(source.read() == null, is(true));
+        }
+    }
+
+    private static byte[] compress(byte[] bytes) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (HrrsBlockGzipOutputStream blockOutputStream = new HrrsBlockGzipOutputStream(
+                outputStream,
+                BLOCK_BYTE_COUNT,
+                HrrsBlockGzip.DEFAULT_COMPRESSION_LEVEL,
+                HrrsBlockGzip.getDefaultExecutor(),
+                PARALLELISM,
+                HrrsBlockGzipOutputStream.DEFAULT_FLUSH_PERIOD_MILLIS)) {
+            int offset = 0;
+            Random random = new Random(0);
+            while (offset < bytes.length) {
+                int length = Math.min(bytes.length - offset, random.nextInt(BLOCK_BYTE_COUNT));
+                blockOutputStream.write(bytes, offset, length);
+                offset += length;
+            }
+        }
+        return outputStream.toByteArray();
+    }
+
+    private static byte[] generateBytes(int byteCount) {
+        Random random = new Random(byteCount);
+        byte[] bytes = new byte[byteCount];
+        for (int byteIndex = 0; byteIndex < byteCount; byteIndex++) {
+            bytes[byteIndex] = (byte) ('A' + random.nextInt(8));
+        }
+        return bytes;
+    }
+
+}
@@ -0,0 +1,105 @@
+package com.vlkan.hrrs.serializer.index;
+
+import com.vlkan.hrrs.api.HttpRequestRecord;
+import com.vlkan.hrrs.serializer.base64.Base64HttpRequestRecord;
+import com.vlkan.hrrs.serializer.base64.Base64HttpRequestRecordWriterOptions;
+import com.vlkan.hrrs.serializer.base64.guava.GuavaBase64Decoder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.vlkan.hrrs.serializer.HttpRequestRecordTestUtils.generateRecords;
+import static com.vlkan.hrrs.serializer.HttpRequestRecordTestUtils.writeRecords;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class HttpRequestRecordIdIndexTest {
+
+    private static final int RECORD_COUNT = 3000;
+
+    private static final int CHECKPOINT_RECORD_COUNT = 1000;
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void should_find_plain_records() throws IOException {
+        should_find_records("records.csv", false);
+    }
+
+    @Test
+    public void should_find_block_gzipped_records() throws IOException {
+        should_find_records("records.csv.gz", false);
+    }
+
+    @Test
+    public void should_find_dictionary_encoded_records() throws IOException {
+        should_find_records("records.csv", true);
+    }
+
+    @Test
+    public void should_find_block_gzipped_dictionary_encoded_records() throws IOException {
+        should_find_records("records.csv.gz", true);
+    }
+
+    private void should_find_records(String fileName, boolean dictionaryEncoded) throws IOException {
+
+        // Write and index records.
+        List<HttpRequestRecord> records = generateRecords(RECORD_COUNT);
+        Base64HttpRequestRecordWriterOptions writerOptions =
+                Base64HttpRequestRecordWriterOptions.newBuilder().setDictionaryEncoded(dictionaryEncoded).build();
+        File file = writeRecords(new File(temporaryFolder.getRoot(), fileName), records, writerOptions);
+        HttpRequestRecordIndexer.indexAndWrite(file, Base64HttpRequestRecord.CHARSET, CHECKPOINT_RECORD_COUNT, true);
+        File idIndexFile = HttpRequestRecordIdIndex.getIdIndexFile(file);
+        try (HttpRequestRecordIdIndex idIndex = HttpRequestRecordIdIndex.open(idIndexFile)) {
+            assertThat(idIndex.isUpToDate(file), is(true));
+            assertThat(idIndex.getEntryCount(), is((long) RECORD_COUNT));
+        }
+
+        try (HttpRequestRecordIdLookup lookup = new HttpRequestRecordIdLookup(
+                Collections.singletonList(file), Base64HttpRequestRecord.CHARSET, GuavaBase64Decoder.getInstance(), null)) {
+
+            // Find single records.
+            for (int recordIndex : new int[]{0, 1, 1023, 1024, 2047, RECORD_COUNT - 1}) {
+                HttpRequestRecord record = records.get(recordIndex);
+                assertThat(lookup.find(record.getId()), is(equalTo(Collections.singletonList(record))));
+            }
+
+            // Find a list of records.
+            List<HttpRequestRecord> expectedRecords = Arrays.asList(records.get(2999), records.get(7), records.get(1500));
+            List<String> ids = new ArrayList<>();
+            for (HttpRequestRecord expectedRecord : expectedRecords) {
+                ids.add(expectedRecord.getId());
+            }
+            ids.add("id-missing");
+            assertThat(lookup.findAll(ids), is(equalTo(expectedRecords)));
+
+            // Find nothing.
+            assertThat(lookup.find("id-missing"), is(equalTo(Collections.<HttpRequestRecord>emptyList())));
+
+        }
+
+    }
+
+    @Test
+    public void should_skip_stale_id_indices() throws IOException {
+        List<HttpRequestRecord> records = generateRecords(RECORD_COUNT);
+        File file = new File(temporaryFolder.getRoot(), "records.csv");
+        writeRecords(file, records.subList(0, 10), Base64HttpRequestRecordWriterOptions.DEFAULT);
+        HttpRequestRecordIndexer.indexIdsAndWrite(file, Base64HttpRequestRecord.CHARSET);
+        writeRecords(file, records, Base64HttpRequestRecordWriterOptions.DEFAULT);
+        try (HttpRequestRecordIdLookup lookup = new HttpRequestRecordIdLookup(
+                Collections.singletonList(file), Base64HttpRequestRecord.CHARSET, GuavaBase64Decoder.getInstance(), null)) {
+            assertThat(lookup.find(records.get(0).getId()), is(equalTo(Collections.<HttpRequestRecord>emptyList())));
+        }
+    }
+
+}
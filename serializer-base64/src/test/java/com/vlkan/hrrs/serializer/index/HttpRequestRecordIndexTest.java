@@ -0,0 +1,128 @@
+package com.vlkan.hrrs.serializer.index;
+
+import com.vlkan.hrrs.serializer.file.HttpRequestRecordReaderFileSource;
+import com.vlkan.hrrs.serializer.file.HttpRequestRecordWriterFileTarget;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class HttpRequestRecordIndexTest {
+
+    private static final Charset CHARSET = StandardCharsets.US_ASCII;
+
+    private static final int RECORD_COUNT = 10_000;
+
+    private static final int CHECKPOINT_RECORD_COUNT = 100;
+
+    private static final long START_TIMESTAMP_MILLIS = 1_700_000_000_000L;
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void should_index_uncompressed_files() throws IOException {
+        should_index(new File(temporaryFolder.getRoot(), "records.csv"));
+    }
+
+    @Test
+    public void should_index_block_gzipped_files() throws IOException {
+        should_index(new File(temporaryFolder.getRoot(), "records.csv.gz"));
+    }
+
+    private static void should_index(File file) throws IOException {
+
+        // Write records.
+        List<String> lines = writeRecords(file);
+
+        // Index records.
+        HttpRequestRecordIndexer.indexAndWrite(file, CHARSET, CHECKPOINT_RECORD_COUNT);
+        HttpRequestRecordIndex index = HttpRequestRecordIndex.read(HttpRequestRecordIndex.getIndexFile(file));
+        assertThat(index.isUpToDate(file), is(true));
+        assertThat(index.getRecordCount(), is((long) RECORD_COUNT));
+        assertThat(index.getCheckpoints().size(), is(RECORD_COUNT / CHECKPOINT_RECORD_COUNT));
+
+        // Search by time.
+        long fromTimestampMillis = getTimestampMillis(1234);
+        long toTimestampMillis = getTimestampMillis(2345);
+        List<HttpRequestRecordIndexRange> timeRanges = index.findRanges(fromTimestampMillis, toTimestampMillis, null);
+        assertThat(timeRanges.size(), is(1));
+        List<String> timeRangeLines = readRange(file, timeRanges.get(0));
+        assertThat(timeRangeLines.size(), is(1200));
+        assertThat(timeRangeLines, is(lines.subList(1200, 2400)));
+
+        // Search by group name.
+        List<HttpRequestRecordIndexRange> groupRanges =
+                index.findRanges(Long.MIN_VALUE, Long.MAX_VALUE, Collections.singletonList("group-3"));
+        assertThat(groupRanges.size() < RECORD_COUNT / CHECKPOINT_RECORD_COUNT, is(true));
+        for (HttpRequestRecordIndexRange groupRange : groupRanges) {
+            assertThat(readRange(file, groupRange).get(0), is(lines.get(getFirstRecordIndex(groupRange, lines, file))));
+        }
+
+        // Split. (Block gzip files can only be split at block boundaries.)
+        List<HttpRequestRecordIndexRange> splitRanges = index.split(3);
+        int expectedSplitRangeCount = HttpRequestRecordReaderFileSource.isGzipped(file) ? 1 : 3;
+        assertThat(splitRanges.size(), is(expectedSplitRangeCount));
+        List<String> splitLines = new ArrayList<>();
+        for (HttpRequestRecordIndexRange splitRange : splitRanges) {
+            splitLines.addAll(readRange(file, splitRange));
+        }
+        assertThat(splitLines, is(lines));
+
+    }
+
+    private static List<String> writeRecords(File file) throws IOException {
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyyMMdd-HHmmss.SSSZ");
+        List<String> lines = new ArrayList<>(RECORD_COUNT);
+        try (HttpRequestRecordWriterFileTarget target = new HttpRequestRecordWriterFileTarget(file, CHARSET)) {
+            for (int recordIndex = 0; recordIndex < RECORD_COUNT; recordIndex++) {
+                // Every checkpoint hosts a single group.
+                String groupName = "group-" + (recordIndex / CHECKPOINT_RECORD_COUNT) % 10;
+                String timestamp = dateFormat.format(new Date(getTimestampMillis(recordIndex)));
+                String line = String.format("id-%d\t%s\t%s\tGET\tcGF5bG9hZA==", recordIndex, timestamp, groupName);
+                target.write(line + '\n');
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+
+    private static long getTimestampMillis(int recordIndex) {
+        return START_TIMESTAMP_MILLIS + recordIndex * 10L;
+    }
+
+    private static List<String> readRange(File file, HttpRequestRecordIndexRange range) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (HttpRequestRecordReaderFileSource source = new HttpRequestRecordReaderFileSource(file, CHARSET, range)) {
+            String line;
+            while ((line = source.read()) != null) {
+                lines.add(line);
+            }
+        }
+        assertThat(lines.size(), is((int) range.getRecordCount()));
+        return lines;
+    }
+
+    private static int getFirstRecordIndex(HttpRequestRecordIndexRange range, List<String> lines, File file) {
+        HttpRequestRecordIndex index = HttpRequestRecordIndex.read(HttpRequestRecordIndex.getIndexFile(file));
+        for (HttpRequestRecordIndexCheckpoint checkpoint : index.getCheckpoints()) {
+            if (checkpoint.getPosition().equals(range.getPosition())) {
+                return (int) checkpoint.getRecordIndex();
+            }
+        }
+        throw new IllegalStateException("no checkpoint found for range: " + range);
+    }
+
+}
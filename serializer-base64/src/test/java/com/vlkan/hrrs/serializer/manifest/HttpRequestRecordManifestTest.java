@@ -0,0 +1,139 @@
+package com.vlkan.hrrs.serializer.manifest;
+
+import com.vlkan.hrrs.serializer.file.HttpRequestRecordReaderFileSetSource;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class HttpRequestRecordManifestTest {
+
+    // 2024-01-31T00:00:00Z
+    private static final long BASE_TIMESTAMP_MILLIS = 1706659200000L;
+
+    private static final long HOUR_MILLIS = 60L * 60L * 1000L;
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void should_register_files() throws IOException {
+        File directory = temporaryFolder.getRoot();
+        File file = writeFile(directory, "records-0.csv.gz", 0, "a", "b");
+        HttpRequestRecordManifest.register(file, StandardCharsets.US_ASCII);
+        HttpRequestRecordManifestEntry entry = HttpRequestRecordManifest.read(directory).findUpToDateEntry(file);
+        assertThat(entry != null, is(true));
+        assertThat(entry.getFileName(), is(equalTo("records-0.csv.gz")));
+        assertThat(entry.getFileByteCount(), is(equalTo(file.length())));
+        assertThat(entry.getRecordCount(), is(equalTo(20L)));
+        assertThat(entry.getMinTimestampMillis(), is(equalTo(BASE_TIMESTAMP_MILLIS)));
+        assertThat(entry.getMaxTimestampMillis(), is(equalTo(BASE_TIMESTAMP_MILLIS + 19)));
+        assertThat(entry.getGroupNames().mightContain("a"), is(true));
+        assertThat(entry.getGroupNames().mightContain("b"), is(true));
+    }
+
+    @Test
+    public void should_unregister_files() throws IOException {
+        File directory = temporaryFolder.getRoot();
+        File file0 = writeFile(directory, "records-0.csv", 0, "a");
+        File file1 = writeFile(directory, "records-1.csv", 1, "a");
+        HttpRequestRecordManifest.register(file0, StandardCharsets.US_ASCII);
+        HttpRequestRecordManifest.register(file1, StandardCharsets.US_ASCII);
+        HttpRequestRecordManifest.unregister(Collections.singletonList(file0));
+        HttpRequestRecordManifest manifest = HttpRequestRecordManifest.read(directory);
+        assertThat(manifest.getEntries().size(), is(equalTo(1)));
+        assertThat(manifest.findUpToDateEntry(file1) != null, is(true));
+    }
+
+    @Test
+    public void should_not_find_modified_files() throws IOException {
+        File directory = temporaryFolder.getRoot();
+        File file = writeFile(directory, "records.csv", 0, "a");
+        HttpRequestRecordManifest.register(file, StandardCharsets.US_ASCII);
+        writeFile(directory, "records.csv", 0, "a", "b");
+        assertThat(HttpRequestRecordManifest.read(directory).findUpToDateEntry(file) == null, is(true));
+    }
+
+    @Test
+    public void should_prune_files_without_matching_records() throws IOException {
+        File directory = temporaryFolder.getRoot();
+        List<File> files = Arrays.asList(
+                writeFile(directory, "records-0.csv", 0, "a"),
+                writeFile(directory, "records-1.csv", 1, "b"),
+                writeFile(directory, "records-2.csv", 2, "a"),
+                writeFile(directory, "records-3.csv", 3, "b"),
+                writeFile(directory, "records-4.csv", 4, "a"));
+        for (File file : files.subList(0, 4)) {
+            HttpRequestRecordManifest.register(file, StandardCharsets.US_ASCII);
+        }
+
+        // Prune by time.
+        assertThat(
+                HttpRequestRecordManifest.prune(
+                        files,
+                        BASE_TIMESTAMP_MILLIS + HOUR_MILLIS,
+                        BASE_TIMESTAMP_MILLIS + 3 * HOUR_MILLIS,
+                        null),
+                is(equalTo(Arrays.asList(files.get(1), files.get(2), files.get(4)))));
+
+        // Prune by group name, where the unregistered file is never pruned.
+        assertThat(
+                HttpRequestRecordManifest.prune(files, Long.MIN_VALUE, Long.MAX_VALUE, Collections.singletonList("b")),
+                is(equalTo(Arrays.asList(files.get(1), files.get(3), files.get(4)))));
+
+        // Prune everything.
+        assertThat(
+                HttpRequestRecordManifest.prune(files.subList(0, 4), Long.MIN_VALUE, Long.MAX_VALUE, Collections.singletonList("c")),
+                is(equalTo(Collections.<File>emptyList())));
+    }
+
+    @Test
+    public void should_find_files_of_manifest() throws IOException {
+        File directory = temporaryFolder.getRoot();
+        File file0 = writeFile(directory, "records-b.csv", 0, "a");
+        File file1 = writeFile(directory, "records-a.csv", 1, "a");
+        writeFile(directory, "records.csv", 2, "a");
+        HttpRequestRecordManifest.register(file1, StandardCharsets.US_ASCII);
+        HttpRequestRecordManifest.register(file0, StandardCharsets.US_ASCII);
+        List<File> files = HttpRequestRecordReaderFileSetSource.findFiles(
+                HttpRequestRecordManifest.getManifestFile(directory), StandardCharsets.US_ASCII);
+        assertThat(files, is(equalTo(Arrays.asList(file0, file1))));
+    }
+
+    /**
+     * Writes 10 records per group name, starting at the given hour.
+     */
+    private static File writeFile(File directory, String fileName, int hour, String... groupNames) throws IOException {
+        File file = new File(directory, fileName);
+        OutputStream fileOutputStream = new FileOutputStream(file);
+        try (OutputStream outputStream = fileName.endsWith(".gz") ? new GZIPOutputStream(fileOutputStream) : fileOutputStream) {
+            int recordIndex = 0;
+            for (String groupName : groupNames) {
+                for (int groupRecordIndex = 0; groupRecordIndex < 10; groupRecordIndex++) {
+                    int minute = recordIndex / 1000;
+                    int millis = recordIndex % 1000;
+                    String line = String.format(
+                            "id-%d\t20240131-%02d%02d00.%03d+0000\t%s\tGET\tpayload\n",
+                            recordIndex, hour, minute, millis, groupName);
+                    outputStream.write(line.getBytes(StandardCharsets.US_ASCII));
+                    recordIndex++;
+                }
+            }
+        }
+        return file;
+    }
+
+}
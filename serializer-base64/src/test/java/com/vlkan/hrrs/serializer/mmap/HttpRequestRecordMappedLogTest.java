@@ -0,0 +1,135 @@
+package com.vlkan.hrrs.serializer.mmap;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.vlkan.hrrs.serializer.HttpRequestRecordTestUtils.createLine;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class HttpRequestRecordMappedLogTest {
+
+    private static final Charset CHARSET = StandardCharsets.US_ASCII;
+
+    private static final int CAPACITY = MappedLog.MIN_CAPACITY;
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void should_tail_records_across_wraparounds() throws Exception {
+        File file = temporaryFolder.newFile();
+        try (HttpRequestRecordWriterMappedLogTarget target = new HttpRequestRecordWriterMappedLogTarget(file, CAPACITY, CHARSET);
+             HttpRequestRecordMappedLogTailer tailer = new HttpRequestRecordMappedLogTailer(file, "test", CHARSET)) {
+            List<String> records = new ArrayList<>();
+            for (int recordIndex = 0; recordIndex < 1000; recordIndex++) {
+                String record = createLine(recordIndex);
+                target.write(record);
+                tailer.poll(records::add, Integer.MAX_VALUE);
+                assertThat(records.size(), is(recordIndex + 1));
+                assertThat(records.get(recordIndex), is(record));
+            }
+            assertThat(target.getWritePosition() > 10 * CAPACITY, is(true));
+            assertThat(tailer.getLostByteCount(), is(0L));
+        }
+    }
+
+    @Test
+    public void should_skip_overwritten_records() throws Exception {
+        File file = temporaryFolder.newFile();
+        try (HttpRequestRecordWriterMappedLogTarget target = new HttpRequestRecordWriterMappedLogTarget(file, CAPACITY, CHARSET);
+             HttpRequestRecordMappedLogTailer tailer = new HttpRequestRecordMappedLogTailer(file, "test", CHARSET)) {
+            for (int recordIndex = 0; recordIndex < 1000; recordIndex++) {
+                target.write(createLine(recordIndex));
+            }
+            List<String> records = new ArrayList<>();
+            tailer.poll(records::add, Integer.MAX_VALUE);
+            assertThat(records.isEmpty(), is(true));
+            assertThat(tailer.getLostByteCount() > 0, is(true));
+            String record = createLine(1000);
+            target.write(record);
+            tailer.poll(records::add, Integer.MAX_VALUE);
+            assertThat(records.size(), is(1));
+            assertThat(records.get(0), is(record));
+        }
+    }
+
+    @Test
+    public void should_drop_oversized_records() throws Exception {
+        File file = temporaryFolder.newFile();
+        try (HttpRequestRecordWriterMappedLogTarget target = new HttpRequestRecordWriterMappedLogTarget(file, CAPACITY, CHARSET);
+             HttpRequestRecordMappedLogTailer tailer = new HttpRequestRecordMappedLogTailer(file, "test", CHARSET)) {
+            char[] chars = new char[CAPACITY / 2];
+            target.write(new String(chars));
+            assertThat(target.getWritePosition(), is(0L));
+            List<String> records = new ArrayList<>();
+            assertThat(tailer.poll(records::add, Integer.MAX_VALUE), is(0));
+        }
+    }
+
+    @Test
+    public void should_drop_oversized_records_without_wrapping_around() throws Exception {
+        File file = temporaryFolder.newFile();
+        try (HttpRequestRecordWriterMappedLogTarget target = new HttpRequestRecordWriterMappedLogTarget(file, CAPACITY, CHARSET);
+             HttpRequestRecordMappedLogTailer tailer = new HttpRequestRecordMappedLogTailer(file, "test", CHARSET)) {
+            // Fill the ring till a maximum-sized frame does not fit into its end.
+            List<String> records = new ArrayList<>();
+            int recordIndex = 0;
+            while (target.getWritePosition() + MappedLog.maxFrameByteCount(CAPACITY) <= CAPACITY) {
+                target.write(createLine(recordIndex++));
+                tailer.poll(records::add, Integer.MAX_VALUE);
+            }
+            assertThat(records.size(), is(recordIndex));
+            long writePosition = target.getWritePosition();
+            target.write(new String(new char[CAPACITY / 2]));
+            assertThat(target.getWritePosition(), is(writePosition));
+            assertThat(tailer.poll(records::add, Integer.MAX_VALUE), is(0));
+            assertThat(tailer.getLostByteCount(), is(0L));
+        }
+    }
+
+    @Test
+    public void should_resume_from_persisted_cursor() throws Exception {
+        File file = temporaryFolder.newFile();
+        List<String> records = new ArrayList<>();
+        long writePosition;
+        try (HttpRequestRecordWriterMappedLogTarget target = new HttpRequestRecordWriterMappedLogTarget(file, CAPACITY, CHARSET)) {
+            for (int recordIndex = 0; recordIndex < 3; recordIndex++) {
+                target.write(createLine(recordIndex));
+            }
+            try (HttpRequestRecordMappedLogTailer tailer = new HttpRequestRecordMappedLogTailer(file, "test", CHARSET)) {
+                assertThat(tailer.poll(records::add, 2), is(2));
+            }
+            target.write(createLine(3));
+            writePosition = target.getWritePosition();
+        }
+        try (HttpRequestRecordWriterMappedLogTarget target = new HttpRequestRecordWriterMappedLogTarget(file, CAPACITY, CHARSET);
+             HttpRequestRecordMappedLogTailer tailer = new HttpRequestRecordMappedLogTailer(file, "test", CHARSET)) {
+            assertThat(target.getWritePosition(), is(writePosition));
+            assertThat(tailer.poll(records::add, Integer.MAX_VALUE), is(2));
+        }
+        assertThat(records.size(), is(4));
+        for (int recordIndex = 0; recordIndex < 4; recordIndex++) {
+            assertThat(records.get(recordIndex), is(createLine(recordIndex)));
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void should_reject_second_writer() throws Exception {
+        File file = temporaryFolder.newFile();
+        HttpRequestRecordWriterMappedLogTarget target = new HttpRequestRecordWriterMappedLogTarget(file, CAPACITY, CHARSET);
+        try {
+            new HttpRequestRecordWriterMappedLogTarget(file, CAPACITY, CHARSET).close();
+        } finally {
+            target.close();
+        }
+    }
+
+}
@@ -0,0 +1,194 @@
+package com.vlkan.hrrs.serializer.stripe;
+
+import com.vlkan.hrrs.api.HttpRequestRecord;
+import com.vlkan.hrrs.api.HttpRequestRecordReader;
+import com.vlkan.hrrs.api.HttpRequestRecordWriterTarget;
+import com.vlkan.hrrs.serializer.base64.Base64HttpRequestRecord;
+import com.vlkan.hrrs.serializer.base64.Base64HttpRequestRecordReader;
+import com.vlkan.hrrs.serializer.base64.Base64HttpRequestRecordWriter;
+import com.vlkan.hrrs.serializer.base64.Base64HttpRequestRecordWriterOptions;
+import com.vlkan.hrrs.serializer.base64.jdk.JdkBase64Decoder;
+import com.vlkan.hrrs.serializer.base64.jdk.JdkBase64Encoder;
+import com.vlkan.hrrs.serializer.file.HttpRequestRecordReaderFileSource;
+import com.vlkan.hrrs.serializer.file.HttpRequestRecordWriterFileTarget;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static com.vlkan.hrrs.serializer.HttpRequestRecordTestUtils.createRecord;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class HttpRequestRecordStripedWriterTest {
+
+    private static final int STRIPE_COUNT = 3;
+
+    private static final int THREAD_COUNT = 8;
+
+    private static final int RECORD_COUNT_PER_THREAD = 250;
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void should_name_stripe_files() {
+        assertThat(HttpRequestRecordStripes.getStripeFileName("records.csv.gz", 3), is(equalTo("records-3.csv.gz")));
+        assertThat(HttpRequestRecordStripes.getStripeFileName("records", 0), is(equalTo("records-0")));
+        assertThat(
+                HttpRequestRecordStripes.getStripeFileName("records-%d{yyyyMMdd-HHmmss.SSS}.csv", 1),
+                is(equalTo("records-%d{yyyyMMdd-HHmmss.SSS}-1.csv")));
+    }
+
+    @Test
+    public void should_write_and_merge_stripes() throws Exception {
+        test(false);
+    }
+
+    @Test
+    public void should_write_and_merge_dictionary_encoded_stripes() throws Exception {
+        test(true);
+    }
+
+    @Test
+    public void should_complete_async_writes_once_flushed() throws Exception {
+
+        // Write records asynchronously from the current thread, hence to a single stripe.
+        File file = new File(temporaryFolder.getRoot(), "records.csv");
+        List<HttpRequestRecordWriterTarget<String>> targets = new ArrayList<>(STRIPE_COUNT);
+        for (int stripeIndex = 0; stripeIndex < STRIPE_COUNT; stripeIndex++) {
+            File stripeFile = HttpRequestRecordStripes.getStripeFile(file, stripeIndex);
+            targets.add(new HttpRequestRecordWriterFileTarget(stripeFile, Base64HttpRequestRecord.CHARSET));
+        }
+        HttpRequestRecordStripedWriter<String> writer = Base64HttpRequestRecordWriter
+                .createStripedBase64HttpRequestRecordWriter(targets, JdkBase64Encoder.getInstance(), Base64HttpRequestRecordWriterOptions.DEFAULT);
+        int recordCount = RECORD_COUNT_PER_THREAD;
+        List<CompletableFuture<Void>> completions = new ArrayList<>(recordCount);
+        for (int recordIndex = 0; recordIndex < recordCount / 2; recordIndex++) {
+            completions.add(writer.writeAsync(createRecord(recordIndex)));
+        }
+        HttpRequestRecord[] records = new HttpRequestRecord[recordCount - recordCount / 2];
+        for (int recordIndex = recordCount / 2; recordIndex < recordCount; recordIndex++) {
+            records[recordIndex - recordCount / 2] = createRecord(recordIndex);
+        }
+        writer.writeAll(records);
+        for (CompletableFuture<Void> completion : completions) {
+            completion.get(10, TimeUnit.SECONDS);
+        }
+
+        // Verify the records are flushed by the barrier, before closing the writer.
+        writer.flush();
+        File stripeFile = HttpRequestRecordStripes.getStripeFile(file, writer.getStripeIndex());
+        List<String> lines = Files.readAllLines(stripeFile.toPath(), Base64HttpRequestRecord.CHARSET);
+        assertThat(lines.size(), is(equalTo(recordCount)));
+        for (int recordIndex = 0; recordIndex < recordCount; recordIndex++) {
+            assertThat(lines.get(recordIndex).startsWith("id-" + recordIndex + Base64HttpRequestRecord.FIELD_SEPARATOR), is(true));
+        }
+        writer.close();
+        writer.getTarget().close();
+
+    }
+
+    @Test
+    public void should_complete_writes_and_flushes_racing_with_close() throws Exception {
+        for (int attemptIndex = 0; attemptIndex < 20; attemptIndex++) {
+
+            // Flush from another thread while closing the writer.
+            File file = new File(temporaryFolder.getRoot(), "records-" + attemptIndex + ".csv");
+            List<HttpRequestRecordWriterTarget<String>> targets = new ArrayList<>(STRIPE_COUNT);
+            for (int stripeIndex = 0; stripeIndex < STRIPE_COUNT; stripeIndex++) {
+                File stripeFile = HttpRequestRecordStripes.getStripeFile(file, stripeIndex);
+                targets.add(new HttpRequestRecordWriterFileTarget(stripeFile, Base64HttpRequestRecord.CHARSET));
+            }
+            HttpRequestRecordStripedWriter<String> writer = Base64HttpRequestRecordWriter
+                    .createStripedBase64HttpRequestRecordWriter(targets, JdkBase64Encoder.getInstance(), Base64HttpRequestRecordWriterOptions.DEFAULT);
+            writer.write(createRecord(0));
+            Thread flusher = new Thread(() -> {
+                try {
+                    writer.flush();
+                } catch (InterruptedException ignored) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            flusher.start();
+            writer.close();
+            flusher.join(TimeUnit.SECONDS.toMillis(10));
+            assertThat(flusher.isAlive(), is(false));
+
+            // Verify writes succeeding the close are rejected.
+            CompletableFuture<Void> completion = writer.writeAsync(createRecord(1));
+            assertThat(completion.isCompletedExceptionally(), is(true));
+            writer.getTarget().close();
+
+        }
+    }
+
+    private void test(boolean dictionaryEncoded) throws Exception {
+
+        // Write records from multiple threads.
+        File file = new File(temporaryFolder.getRoot(), "records.csv");
+        List<HttpRequestRecordWriterTarget<String>> targets = new ArrayList<>(STRIPE_COUNT);
+        for (int stripeIndex = 0; stripeIndex < STRIPE_COUNT; stripeIndex++) {
+            File stripeFile = HttpRequestRecordStripes.getStripeFile(file, stripeIndex);
+            targets.add(new HttpRequestRecordWriterFileTarget(stripeFile, Base64HttpRequestRecord.CHARSET));
+        }
+        Base64HttpRequestRecordWriterOptions writerOptions =
+                Base64HttpRequestRecordWriterOptions.newBuilder().setDictionaryEncoded(dictionaryEncoded).build();
+        HttpRequestRecordStripedWriter<String> writer = Base64HttpRequestRecordWriter
+                .createStripedBase64HttpRequestRecordWriter(targets, JdkBase64Encoder.getInstance(), writerOptions);
+        // Serialize timestamp assignment and queueing, hence every segment is in timestamp order.
+        Object lock = new Object();
+        int[] nextRecordIndex = {0};
+        List<Thread> threads = new ArrayList<>(THREAD_COUNT);
+        for (int threadIndex = 0; threadIndex < THREAD_COUNT; threadIndex++) {
+            Thread thread = new Thread(() -> {
+                for (int recordIndex = 0; recordIndex < RECORD_COUNT_PER_THREAD; recordIndex++) {
+                    synchronized (lock) {
+                        writer.write(createRecord(nextRecordIndex[0]++));
+                    }
+                    // Keep the queues from overflowing.
+                    while (!writer.isReady()) {
+                        Thread.yield();
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        writer.close();
+        writer.getTarget().close();
+
+        // Merge the segments.
+        List<HttpRequestRecordReader<String>> readers = new ArrayList<>(STRIPE_COUNT);
+        for (int stripeIndex = 0; stripeIndex < STRIPE_COUNT; stripeIndex++) {
+            File stripeFile = HttpRequestRecordStripes.getStripeFile(file, stripeIndex);
+            HttpRequestRecordReaderFileSource source = new HttpRequestRecordReaderFileSource(stripeFile, Base64HttpRequestRecord.CHARSET);
+            readers.add(new Base64HttpRequestRecordReader(source, JdkBase64Decoder.getInstance()));
+        }
+        HttpRequestRecordMergingReader<String> reader = new HttpRequestRecordMergingReader<>(readers);
+        int recordIndex = 0;
+        try {
+            for (HttpRequestRecord record : reader.read()) {
+                assertThat(record.getId(), is(equalTo("id-" + recordIndex)));
+                assertThat(record.getUri(), is(equalTo("/path/" + recordIndex)));
+                recordIndex++;
+            }
+        } finally {
+            reader.getSource().close();
+        }
+        assertThat(recordIndex, is(equalTo(THREAD_COUNT * RECORD_COUNT_PER_THREAD)));
+
+    }
+
+}
@@ -2,17 +2,14 @@ package com.vlkan.hrrs.servlet.base64;
 
 import com.vlkan.hrrs.api.HttpRequestRecordWriter;
 import com.vlkan.hrrs.api.HttpRequestRecordWriterTarget;
-import com.vlkan.hrrs.serializer.base64.Base64HttpRequestRecord;
 import com.vlkan.hrrs.serializer.base64.Base64HttpRequestRecordWriter;
-import com.vlkan.hrrs.serializer.base64.guava.GuavaBase64Encoder;
-import com.vlkan.hrrs.serializer.file.HttpRequestRecordWriterRotatingFileTarget;
+import com.vlkan.hrrs.serializer.base64.Base64HttpRequestRecordWriterOptions;
+import com.vlkan.hrrs.serializer.base64.jdk.JdkBase64Encoder;
 import com.vlkan.hrrs.servlet.HrrsFilter;
 import com.vlkan.rfos.RotationConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import static com.google.common.base.Preconditions.checkNotNull;
-
 public class Base64HrrsFilter extends HrrsFilter {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(Base64HrrsFilter.class);
@@ -22,9 +19,16 @@ public class Base64HrrsFilter extends HrrsFilter {
     private final HttpRequestRecordWriter<String> writer;
 
     public Base64HrrsFilter(RotationConfig rotationConfig) {
-        checkNotNull(rotationConfig, "rotationConfig");
-        this.writerTarget = new HttpRequestRecordWriterRotatingFileTarget(rotationConfig, Base64HttpRequestRecord.CHARSET);
-        this.writer = Base64HttpRequestRecordWriter.createBase64HttpRequestRecordWriter(writerTarget, GuavaBase64Encoder.getInstance());
+        this(rotationConfig, Base64HttpRequestRecordWriterOptions.DEFAULT);
+    }
+
+    /**
+     * @param writerOptions options of the writer, e.g., to encode, deduplicate, frame, or stripe the records
+     */
+    public Base64HrrsFilter(RotationConfig rotationConfig, Base64HttpRequestRecordWriterOptions writerOptions) {
+        this.writer = Base64HttpRequestRecordWriter.createRotatingFileBase64HttpRequestRecordWriter(
+                rotationConfig, JdkBase64Encoder.getInstance(), writerOptions);
+        this.writerTarget = writer.getTarget();
     }
 
     public HttpRequestRecordWriterTarget<String> getWriterTarget() {
@@ -43,6 +47,8 @@ public class Base64HrrsFilter extends HrrsFilter {
             writerTarget.close();
         } catch (Exception error) {
             LOGGER.error("failed closing writer", error);
+        } finally {
+            super.destroy();
         }
     }
 
@@ -1,15 +1,20 @@
 package com.vlkan.hrrs.servlet;
 
+import com.vlkan.hrrs.api.FlatHttpRequestHeaderList;
 import com.vlkan.hrrs.api.HttpRequestHeader;
 import com.vlkan.hrrs.api.HttpRequestMethod;
 import com.vlkan.hrrs.api.HttpRequestPayload;
 import com.vlkan.hrrs.api.HttpRequestRecord;
 import com.vlkan.hrrs.api.HttpRequestRecordWriter;
 import com.vlkan.hrrs.api.HttpRequestRecordWriterTarget;
-import com.vlkan.hrrs.api.ImmutableHttpRequestHeader;
 import com.vlkan.hrrs.api.ImmutableHttpRequestPayload;
-import com.vlkan.hrrs.api.ImmutableHttpRequestRecord;
 import com.vlkan.hrrs.api.ResponseInfo;
+import com.vlkan.hrrs.api.metric.HrrsMetrics;
+import com.vlkan.hrrs.capture.HrrsCapture;
+import com.vlkan.hrrs.capture.HrrsCaptureEngine;
+import com.vlkan.hrrs.capture.HrrsCaptureHelper;
+import com.vlkan.hrrs.capture.HrrsIdGenerator;
+import com.vlkan.hrrs.capture.HrrsPayloadBuffer;
 import com.vlkan.hrrs.serializer.base64.QueueBase64HttpRequestRecordWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -24,14 +29,12 @@ import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Date;
 import java.util.Enumeration;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -40,17 +43,20 @@ public abstract class HrrsFilter implements Filter {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(HrrsFilter.class);
 
+    // Header names are enumerated without a count, hence the initial capacity is a guess covering typical requests.
+    private static final int EXPECTED_HEADER_COUNT = 16;
+
     public static final String SERVLET_CONTEXT_ATTRIBUTE_KEY = HrrsFilter.class.getCanonicalName();
 
     public static final String DEFAULT_FORM_PARAMETER_ENCODING = StandardCharsets.US_ASCII.name();
 
-    public static final int DEFAULT_MAX_RECORDABLE_PAYLOAD_BYTE_COUNT = 10 * 1024 * 1024;
+    public static final int DEFAULT_MAX_RECORDABLE_PAYLOAD_BYTE_COUNT = HrrsCaptureEngine.DEFAULT_MAX_RECORDABLE_PAYLOAD_BYTE_COUNT;
 
-    private final HrrsIdGenerator idGenerator;
+    public static final int DEFAULT_MAX_RECORDABLE_RESPONSE_BYTE_COUNT = HrrsCaptureEngine.DEFAULT_MAX_RECORDABLE_RESPONSE_BYTE_COUNT;
 
-    private final HrrsUrlEncodedFormHelper urlEncodedFormHelper;
+    private final HrrsCaptureEngine engine;
 
-    private volatile boolean enabled = false;
+    private final HrrsUrlEncodedFormHelper urlEncodedFormHelper;
 
     private ServletContext servletContext = null;
 
@@ -59,55 +65,98 @@ public abstract class HrrsFilter implements Filter {
     }
 
     public HrrsFilter(HrrsIdGenerator idGenerator, HrrsUrlEncodedFormHelper urlEncodedFormHelper) {
-        this.idGenerator = idGenerator;
-        this.urlEncodedFormHelper = urlEncodedFormHelper;
+        this(new HrrsCaptureEngine(idGenerator), urlEncodedFormHelper);
+    }
+
+    /**
+     * @deprecated use {@link #HrrsFilter(HrrsIdGenerator, HrrsUrlEncodedFormHelper)} instead
+     */
+    @Deprecated
+    public HrrsFilter(com.vlkan.hrrs.servlet.HrrsIdGenerator idGenerator, HrrsUrlEncodedFormHelper urlEncodedFormHelper) {
+        this((HrrsIdGenerator) idGenerator, urlEncodedFormHelper);
+    }
+
+    public HrrsFilter(HrrsCaptureEngine engine, HrrsUrlEncodedFormHelper urlEncodedFormHelper) {
+        this.engine = checkNotNull(engine, "engine");
+        this.urlEncodedFormHelper = checkNotNull(urlEncodedFormHelper, "urlEncodedFormHelper");
     }
 
     @Override
     public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
-        HttpServletRequest httpRequest = (HttpServletRequest) request;
         if (!isRequestRecordable(request)) {
-            filterChain(chain, httpRequest, (HttpServletResponse) response, "Not recordable");
+            filterChain(chain, request, response, "Not recordable");
             return;
         }
-        HttpRequestPayload payload = createPayloadUsingFormParameters(httpRequest);
-        long time, spendTime;
+        HrrsCapture capture = engine.startCapture();
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        HrrsHttpServletResponseWrapper responseWrapper = isResponseCaptureEnabled()
+                ? new HrrsHttpServletResponseWrapper(
+                        (HttpServletResponse) response,
+                        engine.createResponseBuffer(getMaxRecordableResponseByteCount()))
+                : null;
+        ServletResponse chainResponse = responseWrapper != null ? responseWrapper : response;
+        HttpRequestPayload payload = null;
+        boolean urlEncodedForm = urlEncodedFormHelper.isUrlEncodedForm(httpRequest.getContentType());
+        if (urlEncodedForm && HrrsUrlEncodedFormCaptureMode.RAW.equals(getUrlEncodedFormCaptureMode())) {
+            HrrsUrlEncodedFormHttpServletRequestWrapper formRequest = urlEncodedFormHelper.captureRawForm(
+                    httpRequest, getDefaultFormParameterEncoding(), getMaxRecordablePayloadByteCount());
+            if (formRequest != null) {
+                payload = createPayloadUsingRawForm(formRequest);
+                httpRequest = formRequest;
+            }
+        }
+        if (urlEncodedForm && payload == null) {
+            payload = createPayloadUsingFormParameters(httpRequest);
+        }
         if (payload == null) {
-            ByteArrayOutputStream requestOutputStream = new ByteArrayOutputStream();
-            TeeServletInputStream inputStream = new TeeServletInputStream(
-                    httpRequest.getInputStream(),
-                    requestOutputStream,
-                    getMaxRecordablePayloadByteCount());
+            HrrsPayloadBuffer payloadBuffer = new HrrsPayloadBuffer(getMaxRecordablePayloadByteCount());
+            TeeServletInputStream inputStream = new TeeServletInputStream(httpRequest.getInputStream(), payloadBuffer);
             HttpServletRequest wrapper = new HrrsHttpServletRequestWrapper(httpRequest, inputStream);
-            time = System.currentTimeMillis();
-            filterChain(chain, wrapper, (HttpServletResponse) response, (enabled ? "logged, PL" : "PL"));
-            spendTime = System.currentTimeMillis() - time;
-            payload = createPayloadUsingInputStream(requestOutputStream, inputStream);
+            capture.handlerStarted();
+            filterChain(chain, wrapper, chainResponse, "logged, PL");
+            capture.handlerCompleted();
+            payload = payloadBuffer.toPayload();
         } else {
-            time = System.currentTimeMillis();
-            filterChain(chain, (HttpServletRequest) request, (HttpServletResponse) response, (enabled ? "logged" : ""));
-            spendTime = System.currentTimeMillis() - time;
+            capture.handlerStarted();
+            filterChain(chain, httpRequest, chainResponse, "logged");
+            capture.handlerCompleted();
         }
-        ResponseInfo responseInfo = new ResponseInfo((HttpServletResponse) response);
-        responseInfo.setResponseTime(spendTime);
+        long responseTimeMillis = TimeUnit.NANOSECONDS.toMillis(capture.getHandlerTimeNanos());
+        ResponseInfo responseInfo = createResponseInfo((HttpServletResponse) response, responseWrapper, responseTimeMillis);
         HttpRequestRecord record = createRecord(httpRequest, responseInfo, payload);
         HttpRequestRecord filteredRecord = filterRecord(record);
-        if (filteredRecord != null) {
-            getWriter().write(record);
+        engine.completeCapture(capture, record, filteredRecord, getWriter());
+    }
+
+    private ResponseInfo createResponseInfo(
+            HttpServletResponse response,
+            @Nullable HrrsHttpServletResponseWrapper responseWrapper,
+            long responseTimeMillis) throws IOException {
+        if (responseWrapper == null) {
+            return new ResponseInfo(response.getStatus(), responseTimeMillis);
         }
+        responseWrapper.completeCapture();
+        return engine.createResponseInfo(
+                response.getStatus(),
+                responseTimeMillis,
+                responseWrapper.createHeaders(),
+                responseWrapper.getPayloadBuffer());
     }
 
     private void filterChain(FilterChain chain,
-                             HttpServletRequest request,
-                             HttpServletResponse response,
+                             ServletRequest request,
+                             ServletResponse response,
                              String status) throws IOException, ServletException {
         chain.doFilter(request, response);
-        response.addHeader("X-HRRS", status);
-        response.addHeader("X-HRRS-Queue", QueueBase64HttpRequestRecordWriter.getStat());
+        if (isResponseHeaderEnabled() && response instanceof HttpServletResponse) {
+            HttpServletResponse httpResponse = (HttpServletResponse) response;
+            httpResponse.addHeader("X-HRRS", status);
+            httpResponse.addHeader("X-HRRS-Queue", QueueBase64HttpRequestRecordWriter.getStat());
+        }
     }
 
     private boolean isRequestRecordable(ServletRequest request) {
-        return enabled && request instanceof HttpServletRequest && isRequestRecordable((HttpServletRequest) request);
+        return engine.sample(request instanceof HttpServletRequest && isRequestRecordable((HttpServletRequest) request));
     }
 
     /**
@@ -117,81 +166,55 @@ public abstract class HrrsFilter implements Filter {
         return true;
     }
 
+    public HrrsCaptureEngine getEngine() {
+        return engine;
+    }
+
     public boolean isEnabled() {
-        return enabled;
+        return engine.isEnabled();
     }
 
     public void setEnabled(boolean enabled) {
-        this.enabled = enabled;
-        LOGGER.trace("switched state (enabled={})", enabled);
+        engine.setEnabled(enabled);
     }
 
     private HttpRequestRecord createRecord(HttpServletRequest request, ResponseInfo responseInfo, HttpRequestPayload payload) {
         String id = createRequestId(request);
-        Date timestamp = new Date();
         String groupName = createRequestGroupName(request);
         String uri = createRequestUri(request);
         HttpRequestMethod method = HttpRequestMethod.valueOf(request.getMethod());
         List<HttpRequestHeader> headers = createHeaders(request);
-        return ImmutableHttpRequestRecord
-                .newBuilder()
-                .setId(id)
-                .setTimestamp(timestamp)
-                .setGroupName(groupName)
-                .setUri(uri)
-                .setMethod(method)
-                .setHeaders(headers)
-                .setPayload(payload)
-                .setResponseInfo(responseInfo)
-                .build();
+        return engine.createRecord(id, groupName, uri, method, headers, payload, responseInfo);
     }
 
     protected String createRequestUri(HttpServletRequest request) {
-        String uri = request.getRequestURI();
-        String queryString = request.getQueryString();
-        boolean blankQueryString = HrrsHelper.isBlank(queryString);
-        return blankQueryString ? uri : String.format("%s?%s", uri, queryString);
+        return HrrsCaptureHelper.createRequestUri(request.getRequestURI(), request.getQueryString());
     }
 
     private List<HttpRequestHeader> createHeaders(HttpServletRequest request) {
-        List<HttpRequestHeader> headers = Collections.emptyList();
         Enumeration<String> names = request.getHeaderNames();
+        if (!names.hasMoreElements()) {
+            return Collections.emptyList();
+        }
+        FlatHttpRequestHeaderList.Builder headers = FlatHttpRequestHeaderList.builder(EXPECTED_HEADER_COUNT);
         while (names.hasMoreElements()) {
             String name = names.nextElement();
             String value = request.getHeader(name);
-            ImmutableHttpRequestHeader header = ImmutableHttpRequestHeader
-                    .builder()
-                    .setName(name)
-                    .setValue(value)
-                    .build();
-            if (headers.isEmpty()) {
-                headers = new ArrayList<>();
-            }
-            headers.add(header);
+            headers.add(name, value);
         }
-        return headers;
+        return headers.build();
     }
 
-    @Nullable
     private HttpRequestPayload createPayloadUsingFormParameters(HttpServletRequest request) {
-        boolean urlEncodedForm = urlEncodedFormHelper.isUrlEncodedForm(request.getContentType());
-        if (!urlEncodedForm) {
-            return null;
-        }
         String defaultFormParameterEncoding = getDefaultFormParameterEncoding();
         return urlEncodedFormHelper.extractUrlEncodedFormPayload(request, defaultFormParameterEncoding);
     }
 
-    private HttpRequestPayload createPayloadUsingInputStream(
-            ByteArrayOutputStream outputStream,
-            TeeServletInputStream teeServletInputStream) {
-        byte[] recordedPayloadBytes = outputStream.toByteArray();
-        int totalPayloadByteCount = teeServletInputStream.getByteCount();
-        int missingByteCount = totalPayloadByteCount - recordedPayloadBytes.length;
+    private static HttpRequestPayload createPayloadUsingRawForm(HrrsUrlEncodedFormHttpServletRequestWrapper request) {
         return ImmutableHttpRequestPayload
                 .newBuilder()
-                .setMissingByteCount(missingByteCount)
-                .setBytes(recordedPayloadBytes)
+                .setMissingByteCount(request.getMissingByteCount())
+                .setBytes(request.getBodyBytes())
                 .build();
     }
 
@@ -204,6 +227,23 @@ public abstract class HrrsFilter implements Filter {
         return DEFAULT_FORM_PARAMETER_ENCODING;
     }
 
+    /**
+     * Strategy to capture the payload of {@code application/x-www-form-urlencoded} requests.
+     * Defaults to {@link HrrsUrlEncodedFormCaptureMode#PARAMETERS}.
+     */
+    protected HrrsUrlEncodedFormCaptureMode getUrlEncodedFormCaptureMode() {
+        return HrrsUrlEncodedFormCaptureMode.PARAMETERS;
+    }
+
+    /**
+     * Adds {@code X-HRRS} and {@code X-HRRS-Queue} headers exposing the
+     * recorder state to every response. Defaults to false, see
+     * {@link HrrsMetrics} for the instrumentation of the recorder.
+     */
+    protected boolean isResponseHeaderEnabled() {
+        return false;
+    }
+
     /**
      * Maximum amount of bytes that can be recorded per request.
      * Defaults to {@link HrrsFilter#DEFAULT_MAX_RECORDABLE_PAYLOAD_BYTE_COUNT}.
@@ -212,6 +252,24 @@ public abstract class HrrsFilter implements Filter {
         return DEFAULT_MAX_RECORDABLE_PAYLOAD_BYTE_COUNT;
     }
 
+    /**
+     * Captures the response headers and body along with the status code, e.g.,
+     * to compare the responses of a replay against the recorded ones.
+     * Defaults to false.
+     */
+    protected boolean isResponseCaptureEnabled() {
+        return false;
+    }
+
+    /**
+     * Maximum amount of response body bytes that can be recorded per request,
+     * where the hash of the entire body is recorded for larger ones.
+     * Defaults to {@link HrrsFilter#DEFAULT_MAX_RECORDABLE_RESPONSE_BYTE_COUNT}.
+     */
+    protected int getMaxRecordableResponseByteCount() {
+        return DEFAULT_MAX_RECORDABLE_RESPONSE_BYTE_COUNT;
+    }
+
     /**
      * Create a group name for the given request.
      *
@@ -222,17 +280,14 @@ public abstract class HrrsFilter implements Filter {
      */
     protected String createRequestGroupName(HttpServletRequest request) {
         String requestUri = createRequestUri(request);
-        return requestUri
-                .replaceFirst("\\?.*", "")      // Replace query parameters.
-                .replaceFirst("^/", "")         // Replace the initial slash.
-                .replaceAll("/", ".");          // Replace all slashes with dots.
+        return HrrsCaptureHelper.createRequestGroupName(requestUri);
     }
 
     /**
      * Creates a unique identifier for the given request.
      */
     protected String createRequestId(HttpServletRequest ignored) {
-        return idGenerator.next();
+        return engine.createRequestId();
     }
 
     /**
@@ -258,6 +313,7 @@ public abstract class HrrsFilter implements Filter {
         Object prevAttribute = servletContext.getAttribute(SERVLET_CONTEXT_ATTRIBUTE_KEY);
         checkArgument(prevAttribute == null, "servlet context attribute is already initialized");
         servletContext.setAttribute(SERVLET_CONTEXT_ATTRIBUTE_KEY, this);
+        engine.getMetrics().registerMBean(getMBeanName());
         LOGGER.trace("initialized");
     }
 
@@ -265,7 +321,13 @@ public abstract class HrrsFilter implements Filter {
     public synchronized void destroy() {
         checkNotNull(servletContext, "servlet context is not initialized");
         servletContext.removeAttribute(SERVLET_CONTEXT_ATTRIBUTE_KEY);
+        engine.getMetrics().unregisterMBean(getMBeanName());
         LOGGER.trace("destroyed");
     }
 
+    private String getMBeanName() {
+        String contextPath = servletContext.getContextPath();
+        return HrrsHelper.isBlank(contextPath) ? "/" : contextPath;
+    }
+
 }
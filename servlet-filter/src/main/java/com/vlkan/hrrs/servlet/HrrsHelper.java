@@ -1,18 +1,11 @@
 package com.vlkan.hrrs.servlet;
 
+import com.vlkan.hrrs.capture.HrrsCaptureHelper;
+
 public enum HrrsHelper {;
 
     public static boolean isBlank(String text) {
-        if (text == null || text.isEmpty()) {
-            return true;
-        }
-        for (int charIndex = 0; charIndex < text.length(); charIndex++) {
-            char c = text.charAt(charIndex);
-            if (!Character.isWhitespace(c)) {
-                return false;
-            }
-        }
-        return true;
+        return HrrsCaptureHelper.isBlank(text);
     }
 
 }
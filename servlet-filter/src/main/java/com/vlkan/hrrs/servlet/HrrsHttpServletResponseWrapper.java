@@ -0,0 +1,101 @@
+package com.vlkan.hrrs.servlet;
+
+import com.vlkan.hrrs.api.FlatHttpRequestHeaderList;
+import com.vlkan.hrrs.api.HttpRequestHeader;
+import com.vlkan.hrrs.capture.HrrsPayloadBuffer;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Response wrapper copying the body written via either the output stream or
+ * the writer into a {@link HrrsPayloadBuffer}.
+ */
+public class HrrsHttpServletResponseWrapper extends HttpServletResponseWrapper {
+
+    private final HrrsPayloadBuffer payloadBuffer;
+
+    private TeeServletOutputStream outputStream;
+
+    private TeeWriter teeWriter;
+
+    private PrintWriter writer;
+
+    HrrsHttpServletResponseWrapper(HttpServletResponse response, HrrsPayloadBuffer payloadBuffer) {
+        super(response);
+        this.payloadBuffer = checkNotNull(payloadBuffer, "payloadBuffer");
+    }
+
+    public HrrsPayloadBuffer getPayloadBuffer() {
+        return payloadBuffer;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (outputStream == null) {
+            outputStream = new TeeServletOutputStream(super.getOutputStream(), payloadBuffer);
+        }
+        return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            // The character encoding is fixed once the writer is obtained.
+            String encoding = getCharacterEncoding();
+            Charset charset = encoding != null ? Charset.forName(encoding) : StandardCharsets.ISO_8859_1;
+            teeWriter = new TeeWriter(super.getWriter(), payloadBuffer, charset);
+            writer = new PrintWriter(teeWriter);
+        }
+        return writer;
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        super.flushBuffer();
+    }
+
+    /**
+     * Completes the capture of the body, i.e., copies the characters
+     * pending in the writer, if any, into the payload buffer.
+     */
+    void completeCapture() throws IOException {
+        if (writer != null) {
+            // PrintWriter buffers nothing itself, yet the copy encoder might.
+            teeWriter.flushCopy();
+        }
+    }
+
+    /**
+     * @return the response headers, where every value of a repeated header is a separate entry
+     */
+    List<HttpRequestHeader> createHeaders() {
+        Collection<String> names = getHeaderNames();
+        if (names == null || names.isEmpty()) {
+            return Collections.emptyList();
+        }
+        FlatHttpRequestHeaderList.Builder headers = FlatHttpRequestHeaderList.builder(names.size());
+        // Containers might repeat the names of repeated headers.
+        for (String name : new LinkedHashSet<>(names)) {
+            for (String value : getHeaders(name)) {
+                headers.add(name, value);
+            }
+        }
+        return headers.build();
+    }
+
+}
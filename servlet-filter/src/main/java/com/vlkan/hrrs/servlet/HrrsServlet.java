@@ -21,7 +21,11 @@ public class HrrsServlet extends HttpServlet {
 
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
-        String payload = String.format("{\"enabled\": %s}%n", getFilter().isEnabled());
+        HrrsFilter filter = getFilter();
+        String payload = String.format(
+                "{\"enabled\": %s, \"metrics\": %s}%n",
+                filter.isEnabled(),
+                filter.getEngine().getMetrics().toJson());
         response.setStatus(HttpServletResponse.SC_OK);
         response.setContentType("application/json");
         try (ServletOutputStream outputStream = response.getOutputStream()) {
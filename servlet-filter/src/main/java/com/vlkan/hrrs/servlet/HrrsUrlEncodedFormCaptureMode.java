@@ -0,0 +1,19 @@
+package com.vlkan.hrrs.servlet;
+
+/**
+ * Strategies to capture the payload of {@code application/x-www-form-urlencoded} requests.
+ */
+public enum HrrsUrlEncodedFormCaptureMode {
+
+    /**
+     * Re-encodes the form parameters parsed by the container.
+     */
+    PARAMETERS,
+
+    /**
+     * Captures the raw body bytes before the container parses them, and
+     * falls back to {@link #PARAMETERS} if the body is not available.
+     */
+    RAW
+
+}
@@ -0,0 +1,334 @@
+package com.vlkan.hrrs.servlet;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Single-pass {@code application/x-www-form-urlencoded} encoder.
+ *
+ * Parameters are URL-encoded character by character straight into a
+ * reusable byte buffer, producing the same output as
+ * {@link java.net.URLEncoder#encode(String, String)}. Values that are
+ * already present in the query string are excluded by decoding the query
+ * string in place, hence no intermediate strings, lists, or maps are
+ * created. Charset encoding of UTF-8, ISO-8859-1, and US-ASCII is
+ * performed inline; other charsets go through a cached {@link CharsetEncoder}.
+ */
+@NotThreadSafe
+public class HrrsUrlEncodedFormEncoder {
+
+    private static final byte[] HEX_DIGITS = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+
+    private static final int MAX_RETAINED_BUFFER_LENGTH = 64 * 1024;
+
+    private final Bytes output = new Bytes();
+
+    private final Bytes nameBytes = new Bytes();
+
+    private final Bytes valueBytes = new Bytes();
+
+    private final Bytes segmentBytes = new Bytes();
+
+    private final byte[] codePointBytes = new byte[16];
+
+    private final CharBuffer codePointChars = CharBuffer.allocate(2);
+
+    private final ByteBuffer codePointBuffer = ByteBuffer.wrap(codePointBytes);
+
+    private Charset charset = StandardCharsets.US_ASCII;
+
+    private CharsetEncoder charsetEncoder = null;
+
+    private int consumedCharCount;
+
+    public HrrsUrlEncodedFormEncoder() {
+        // Do nothing.
+    }
+
+    /**
+     * Discards the encoded content and prepares the encoder for a new form
+     * using the given charset.
+     */
+    public void reset(Charset charset) {
+        checkNotNull(charset, "charset");
+        if (!charset.equals(this.charset)) {
+            this.charset = charset;
+            this.charsetEncoder = null;
+        }
+        output.reset();
+    }
+
+    /**
+     * Appends the given parameter values, excluding the ones that already
+     * appear in the given query string.
+     */
+    public void append(String name, String[] values, @Nullable String queryString) {
+        checkNotNull(name, "name");
+        checkNotNull(values, "values");
+        boolean queryStringBlank = HrrsHelper.isBlank(queryString);
+        if (!queryStringBlank) {
+            writeCharsetBytes(name, nameBytes);
+        }
+        for (String value : values) {
+            if (!queryStringBlank && containsQueryParameter(queryString, value)) {
+                continue;
+            }
+            if (output.length > 0) {
+                output.append((byte) '&');
+            }
+            writeUrlEncoded(name);
+            output.append((byte) '=');
+            writeUrlEncoded(value);
+        }
+    }
+
+    public int getByteCount() {
+        return output.length;
+    }
+
+    /**
+     * Copies the encoded form into an exact-size array.
+     */
+    public byte[] toByteArray() {
+        byte[] bytes = Arrays.copyOf(output.bytes, output.length);
+        output.trim();
+        nameBytes.trim();
+        valueBytes.trim();
+        segmentBytes.trim();
+        return bytes;
+    }
+
+    private boolean containsQueryParameter(String queryString, String value) {
+        writeCharsetBytes(value, valueBytes);
+        int length = queryString.length();
+        int segmentStartIndex = 0;
+        while (segmentStartIndex <= length) {
+            int segmentEndIndex = queryString.indexOf('&', segmentStartIndex);
+            if (segmentEndIndex < 0) {
+                segmentEndIndex = length;
+            }
+            int splitterIndex = queryString.indexOf('=', segmentStartIndex);
+            if (splitterIndex >= 0 && splitterIndex < segmentEndIndex &&
+                    decodedEquals(queryString, segmentStartIndex, splitterIndex, nameBytes) &&
+                    decodedEquals(queryString, splitterIndex + 1, segmentEndIndex, valueBytes)) {
+                return true;
+            }
+            segmentStartIndex = segmentEndIndex + 1;
+        }
+        return false;
+    }
+
+    private boolean decodedEquals(String text, int startIndex, int endIndex, Bytes expectedBytes) {
+        if (!urlDecode(text, startIndex, endIndex, segmentBytes)) {
+            return false;
+        }
+        int length = segmentBytes.length;
+        if (length != expectedBytes.length) {
+            return false;
+        }
+        for (int byteIndex = 0; byteIndex < length; byteIndex++) {
+            if (segmentBytes.bytes[byteIndex] != expectedBytes.bytes[byteIndex]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean urlDecode(String text, int startIndex, int endIndex, Bytes target) {
+        target.reset();
+        int charIndex = startIndex;
+        while (charIndex < endIndex) {
+            char c = text.charAt(charIndex);
+            if (c == '+') {
+                target.append((byte) ' ');
+                charIndex++;
+            } else if (c == '%') {
+                if (charIndex + 2 >= endIndex) {
+                    return false;
+                }
+                int hi = Character.digit(text.charAt(charIndex + 1), 16);
+                int lo = Character.digit(text.charAt(charIndex + 2), 16);
+                if (hi < 0 || lo < 0) {
+                    return false;
+                }
+                target.append((byte) ((hi << 4) | lo));
+                charIndex += 3;
+            } else {
+                int byteCount = encodeCodePoint(text, charIndex, endIndex);
+                target.append(codePointBytes, byteCount);
+                charIndex += consumedCharCount;
+            }
+        }
+        return true;
+    }
+
+    private void writeCharsetBytes(String text, Bytes target) {
+        target.reset();
+        int length = text.length();
+        int charIndex = 0;
+        while (charIndex < length) {
+            int byteCount = encodeCodePoint(text, charIndex, length);
+            target.append(codePointBytes, byteCount);
+            charIndex += consumedCharCount;
+        }
+    }
+
+    private void writeUrlEncoded(String text) {
+        int length = text.length();
+        int charIndex = 0;
+        while (charIndex < length) {
+            char c = text.charAt(charIndex);
+            if (isUnreserved(c)) {
+                output.append((byte) c);
+                charIndex++;
+            } else if (c == ' ') {
+                output.append((byte) '+');
+                charIndex++;
+            } else {
+                int byteCount = encodeCodePoint(text, charIndex, length);
+                for (int byteIndex = 0; byteIndex < byteCount; byteIndex++) {
+                    int b = codePointBytes[byteIndex] & 0xFF;
+                    output.append((byte) '%');
+                    output.append(HEX_DIGITS[b >>> 4]);
+                    output.append(HEX_DIGITS[b & 0x0F]);
+                }
+                charIndex += consumedCharCount;
+            }
+        }
+    }
+
+    private static boolean isUnreserved(char c) {
+        return (c >= 'a' && c <= 'z') ||
+                (c >= 'A' && c <= 'Z') ||
+                (c >= '0' && c <= '9') ||
+                c == '.' || c == '-' || c == '*' || c == '_';
+    }
+
+    /**
+     * Encodes the code point at the given index into {@link #codePointBytes}
+     * using the active charset and sets {@link #consumedCharCount}.
+     *
+     * @return the number of produced bytes
+     */
+    private int encodeCodePoint(String text, int charIndex, int endIndex) {
+        char c = text.charAt(charIndex);
+        boolean surrogatePair = Character.isHighSurrogate(c) &&
+                charIndex + 1 < endIndex &&
+                Character.isLowSurrogate(text.charAt(charIndex + 1));
+        consumedCharCount = surrogatePair ? 2 : 1;
+        if (StandardCharsets.UTF_8.equals(charset)) {
+            return encodeUtf8(c, surrogatePair ? text.charAt(charIndex + 1) : 0, surrogatePair);
+        }
+        if (StandardCharsets.ISO_8859_1.equals(charset)) {
+            codePointBytes[0] = c <= 0xFF ? (byte) c : (byte) '?';
+            return 1;
+        }
+        if (StandardCharsets.US_ASCII.equals(charset)) {
+            codePointBytes[0] = c <= 0x7F ? (byte) c : (byte) '?';
+            return 1;
+        }
+        return encodeUsingCharsetEncoder(c, surrogatePair ? text.charAt(charIndex + 1) : 0, surrogatePair);
+    }
+
+    private int encodeUtf8(char c, char lowSurrogate, boolean surrogatePair) {
+        if (c < 0x80) {
+            codePointBytes[0] = (byte) c;
+            return 1;
+        }
+        if (c < 0x800) {
+            codePointBytes[0] = (byte) (0xC0 | (c >> 6));
+            codePointBytes[1] = (byte) (0x80 | (c & 0x3F));
+            return 2;
+        }
+        if (surrogatePair) {
+            int codePoint = Character.toCodePoint(c, lowSurrogate);
+            codePointBytes[0] = (byte) (0xF0 | (codePoint >> 18));
+            codePointBytes[1] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+            codePointBytes[2] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+            codePointBytes[3] = (byte) (0x80 | (codePoint & 0x3F));
+            return 4;
+        }
+        if (Character.isSurrogate(c)) {
+            // Malformed input is replaced the same way String#getBytes() does.
+            codePointBytes[0] = (byte) '?';
+            return 1;
+        }
+        codePointBytes[0] = (byte) (0xE0 | (c >> 12));
+        codePointBytes[1] = (byte) (0x80 | ((c >> 6) & 0x3F));
+        codePointBytes[2] = (byte) (0x80 | (c & 0x3F));
+        return 3;
+    }
+
+    private int encodeUsingCharsetEncoder(char c, char lowSurrogate, boolean surrogatePair) {
+        if (charsetEncoder == null) {
+            charsetEncoder = charset
+                    .newEncoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        }
+        codePointChars.clear();
+        codePointChars.put(c);
+        if (surrogatePair) {
+            codePointChars.put(lowSurrogate);
+        }
+        codePointChars.flip();
+        codePointBuffer.clear();
+        charsetEncoder.reset();
+        CoderResult result = charsetEncoder.encode(codePointChars, codePointBuffer, true);
+        if (!result.isOverflow()) {
+            charsetEncoder.flush(codePointBuffer);
+        }
+        return codePointBuffer.position();
+    }
+
+    private static final class Bytes {
+
+        private static final int INITIAL_LENGTH = 256;
+
+        private byte[] bytes = new byte[INITIAL_LENGTH];
+
+        private int length = 0;
+
+        private void reset() {
+            length = 0;
+        }
+
+        private void append(byte b) {
+            if (length == bytes.length) {
+                bytes = Arrays.copyOf(bytes, bytes.length << 1);
+            }
+            bytes[length++] = b;
+        }
+
+        private void append(byte[] source, int sourceLength) {
+            int requiredLength = length + sourceLength;
+            if (requiredLength > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(requiredLength, bytes.length << 1));
+            }
+            System.arraycopy(source, 0, bytes, length, sourceLength);
+            length = requiredLength;
+        }
+
+        /**
+         * Releases the buffer if it has grown too big to be retained.
+         */
+        private void trim() {
+            length = 0;
+            if (bytes.length > MAX_RETAINED_BUFFER_LENGTH) {
+                bytes = new byte[INITIAL_LENGTH];
+            }
+        }
+
+    }
+
+}
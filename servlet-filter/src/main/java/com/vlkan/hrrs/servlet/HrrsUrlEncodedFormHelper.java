@@ -5,23 +5,21 @@ import com.vlkan.hrrs.api.ImmutableHttpRequestPayload;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import javax.servlet.http.HttpServletRequest;
-import java.io.ByteArrayOutputStream;
-import java.io.OutputStreamWriter;
-import java.io.UnsupportedEncodingException;
-import java.net.URLDecoder;
-import java.net.URLEncoder;
-import java.util.Collections;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
 import java.util.Enumeration;
-import java.util.LinkedHashMap;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Map;
 
 public class HrrsUrlEncodedFormHelper {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(HrrsUrlEncodedFormHelper.class);
 
+    private static final ThreadLocal<HrrsUrlEncodedFormEncoder> ENCODER_REF =
+            ThreadLocal.withInitial(HrrsUrlEncodedFormEncoder::new);
+
     public HrrsUrlEncodedFormHelper() {
         // Do nothing.
     }
@@ -48,92 +46,89 @@ public class HrrsUrlEncodedFormHelper {
                 .build();
     }
 
-    private byte[] encodeFormParameters(HttpServletRequest request, String defaultEncoding) {
+    private static byte[] encodeFormParameters(HttpServletRequest request, String defaultEncoding) {
         try {
             String encoding = request.getCharacterEncoding();
             if (encoding == null) {
                 encoding = defaultEncoding;
             }
-            Map<String, List<String>> formParameters = parseFormParameters(request, encoding);
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            OutputStreamWriter writer = new OutputStreamWriter(outputStream, encoding);
-            boolean firstFormParameter = true;
-            for (Map.Entry<String, List<String>> formParameter : formParameters.entrySet()) {
-                String formParameterName = formParameter.getKey();
-                String encodedFormParameterName = URLEncoder.encode(formParameterName, encoding);
-                for (String formParameterValue : formParameter.getValue()) {
-                    String encodedFormParameterValue = URLEncoder.encode(formParameterValue, encoding);
-                    if (firstFormParameter) {
-                        firstFormParameter = false;
-                    } else {
-                        writer.write('&');
-                    }
-                    writer.write(encodedFormParameterName);
-                    writer.write('=');
-                    writer.write(encodedFormParameterValue);
+            Charset charset = Charset.forName(encoding);
+            String queryString = request.getQueryString();
+            HrrsUrlEncodedFormEncoder encoder = ENCODER_REF.get();
+            encoder.reset(charset);
+            Enumeration<String> names = request.getParameterNames();
+            while (names.hasMoreElements()) {
+                String name = names.nextElement();
+                String[] values = request.getParameterValues(name);
+                if (values != null) {
+                    encoder.append(name, values, queryString);
                 }
             }
-            writer.close();
-            return outputStream.toByteArray();
+            return encoder.toByteArray();
         } catch (Throwable error) {
             LOGGER.error("failed to encode form parameters", error);
             return new byte[0];
         }
     }
 
-    private Map<String, List<String>> parseFormParameters(HttpServletRequest request, String encoding) {
-        Map<String, List<String>> queryParameters = parseQueryParameters(request, encoding);
-        Map<String, List<String>> formParameters = Collections.emptyMap();
-        Enumeration<String> parametersEnum = request.getParameterNames();
-        while (parametersEnum.hasMoreElements()) {
-            String name = parametersEnum.nextElement();
-            List<String> queryParameterValues = queryParameters.get(name);
-            String[] parameterValues = request.getParameterValues(name);
-            List<String> formParameterValues = new LinkedList<>();
-            for (String parameterValue : parameterValues) {
-                if (queryParameterValues == null || !queryParameterValues.contains(parameterValue)) {
-                    formParameterValues.add(parameterValue);
-                }
+    /**
+     * Reads the raw form body of the given request before the container gets
+     * a chance to parse it.
+     *
+     * If the body ends prematurely, the wrapper replays the bytes read so far,
+     * since the container cannot read them anymore.
+     *
+     * @return a request wrapper serving both the body and the form parameters
+     * from the read bytes, or null if the body is not available (for instance,
+     * it is of unknown length, exceeds the given limit, or has already been
+     * consumed)
+     */
+    @Nullable
+    public HrrsUrlEncodedFormHttpServletRequestWrapper captureRawForm(
+            HttpServletRequest request,
+            String defaultEncoding,
+            int maxByteCount) {
+        int contentLength = request.getContentLength();
+        if (contentLength < 0 || contentLength > maxByteCount) {
+            return null;
+        }
+        try {
+            String encoding = request.getCharacterEncoding();
+            Charset charset = Charset.forName(encoding == null ? defaultEncoding : encoding);
+            byte[] bodyBytes = readFully(request.getInputStream(), contentLength);
+            if (bodyBytes.length == 0 && contentLength > 0) {
+                LOGGER.trace("form body is already consumed (contentLength={})", contentLength);
+                return null;
             }
-            if (formParameters.isEmpty()) {
-                formParameters = new LinkedHashMap<>();
+            int missingByteCount = contentLength - bodyBytes.length;
+            if (missingByteCount > 0) {
+                LOGGER.trace(
+                        "form body ended prematurely (contentLength={}, readByteCount={})",
+                        contentLength, bodyBytes.length);
             }
-            formParameters.put(name, formParameterValues);
+            return new HrrsUrlEncodedFormHttpServletRequestWrapper(request, bodyBytes, missingByteCount, charset);
+        } catch (Throwable error) {
+            LOGGER.error("failed to read raw form body", error);
+            return null;
         }
-        return formParameters;
     }
 
-    private Map<String, List<String>> parseQueryParameters(HttpServletRequest request, String encoding) {
-        String queryString = request.getQueryString();
-        if (HrrsHelper.isBlank(queryString)) {
-            return Collections.emptyMap();
-        }
-        String[] entries = queryString.split("&");
-        if (entries.length == 0) {
-            return Collections.emptyMap();
-        }
-        Map<String, List<String>> map = new LinkedHashMap<>();
-        for (String entry : entries) {
-            try {
-                int splitterIndex = entry.indexOf('=');
-                String key;
-                String value;
-                if (splitterIndex < 0) {
-                    key = URLDecoder.decode(entry, encoding);
-                    value = null;
-                } else {
-                    String encodedKey = entry.substring(0, splitterIndex);
-                    key = URLDecoder.decode(encodedKey, encoding);
-                    String encodedValue = entry.substring(splitterIndex + 1);
-                    value = URLDecoder.decode(encodedValue, encoding);
-                }
-                map.computeIfAbsent(key, ignored -> new LinkedList<>()).add(value);
-            } catch (UnsupportedEncodingException error) {
-                String message = String.format("failed to read query parameter (entry=%s)", entry);
-                LOGGER.error(message, error);
+    /**
+     * Reads the given number of bytes from the stream.
+     *
+     * @return the read bytes, which are fewer than requested, if the stream ends prematurely
+     */
+    public static byte[] readFully(InputStream inputStream, int byteCount) throws IOException {
+        byte[] bytes = new byte[byteCount];
+        int readByteCount = 0;
+        while (readByteCount < byteCount) {
+            int partialByteCount = inputStream.read(bytes, readByteCount, byteCount - readByteCount);
+            if (partialByteCount < 0) {
+                return Arrays.copyOf(bytes, readByteCount);
             }
+            readByteCount += partialByteCount;
         }
-        return map;
+        return bytes;
     }
 
 }
@@ -0,0 +1,215 @@
+package com.vlkan.hrrs.servlet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Request wrapper serving a raw {@code application/x-www-form-urlencoded}
+ * body that has been read by the filter before the container had a chance to
+ * parse it. Since the container considers the body consumed, form parameters
+ * are parsed from the captured bytes on first access, whereas query string
+ * parameters are still decoded by the container, i.e., using its URI encoding
+ * rather than the body charset.
+ */
+public class HrrsUrlEncodedFormHttpServletRequestWrapper extends HttpServletRequestWrapper {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HrrsUrlEncodedFormHttpServletRequestWrapper.class);
+
+    private final byte[] bodyBytes;
+
+    private final int missingByteCount;
+
+    private final Charset charset;
+
+    private Map<String, String[]> parameters = null;
+
+    HrrsUrlEncodedFormHttpServletRequestWrapper(
+            HttpServletRequest request,
+            byte[] bodyBytes,
+            int missingByteCount,
+            Charset charset) {
+        super(request);
+        this.bodyBytes = checkNotNull(bodyBytes, "bodyBytes");
+        checkArgument(missingByteCount >= 0, "expecting: missingByteCount >= 0, found: %s", missingByteCount);
+        this.missingByteCount = missingByteCount;
+        this.charset = checkNotNull(charset, "charset");
+    }
+
+    public byte[] getBodyBytes() {
+        return bodyBytes;
+    }
+
+    /**
+     * @return the number of bytes the body falls short of its content length, if it has ended prematurely
+     */
+    public int getMissingByteCount() {
+        return missingByteCount;
+    }
+
+    @Override
+    public ServletInputStream getInputStream() {
+        return new ByteArrayServletInputStream(bodyBytes);
+    }
+
+    @Override
+    public BufferedReader getReader() {
+        return new BufferedReader(new InputStreamReader(getInputStream(), charset));
+    }
+
+    @Override
+    public String getParameter(String name) {
+        String[] values = getParameterMap().get(name);
+        return values == null ? null : values[0];
+    }
+
+    @Override
+    public Enumeration<String> getParameterNames() {
+        return Collections.enumeration(getParameterMap().keySet());
+    }
+
+    @Override
+    public String[] getParameterValues(String name) {
+        String[] values = getParameterMap().get(name);
+        return values == null ? null : values.clone();
+    }
+
+    @Override
+    public synchronized Map<String, String[]> getParameterMap() {
+        if (parameters == null) {
+            parameters = parseParameters();
+        }
+        return parameters;
+    }
+
+    private Map<String, String[]> parseParameters() {
+        Map<String, List<String>> valuesByName = new LinkedHashMap<>();
+        // The body is consumed, hence the container only decodes the query string.
+        Map<String, String[]> queryParameters = super.getParameterMap();
+        if (queryParameters != null) {
+            for (Map.Entry<String, String[]> entry : queryParameters.entrySet()) {
+                List<String> values = valuesByName.computeIfAbsent(entry.getKey(), ignored -> new ArrayList<>(1));
+                Collections.addAll(values, entry.getValue());
+            }
+        }
+        parseParameters(new String(bodyBytes, StandardCharsets.ISO_8859_1), valuesByName);
+        if (valuesByName.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, String[]> parameters = new LinkedHashMap<>(valuesByName.size());
+        for (Map.Entry<String, List<String>> entry : valuesByName.entrySet()) {
+            List<String> values = entry.getValue();
+            parameters.put(entry.getKey(), values.toArray(new String[0]));
+        }
+        return Collections.unmodifiableMap(parameters);
+    }
+
+    private void parseParameters(String encodedParameters, Map<String, List<String>> valuesByName) {
+        if (HrrsHelper.isBlank(encodedParameters)) {
+            return;
+        }
+        String encoding = charset.name();
+        int length = encodedParameters.length();
+        int segmentStartIndex = 0;
+        while (segmentStartIndex < length) {
+            int segmentEndIndex = encodedParameters.indexOf('&', segmentStartIndex);
+            if (segmentEndIndex < 0) {
+                segmentEndIndex = length;
+            }
+            if (segmentEndIndex > segmentStartIndex) {
+                String segment = encodedParameters.substring(segmentStartIndex, segmentEndIndex);
+                try {
+                    int splitterIndex = segment.indexOf('=');
+                    String name = splitterIndex < 0 ? segment : segment.substring(0, splitterIndex);
+                    String value = splitterIndex < 0 ? "" : segment.substring(splitterIndex + 1);
+                    String decodedName = URLDecoder.decode(name, encoding);
+                    String decodedValue = URLDecoder.decode(value, encoding);
+                    valuesByName.computeIfAbsent(decodedName, ignored -> new ArrayList<>(1)).add(decodedValue);
+                } catch (UnsupportedEncodingException | IllegalArgumentException error) {
+                    String message = String.format("failed decoding form parameter (segment=%s)", segment);
+                    LOGGER.error(message, error);
+                }
+            }
+            segmentStartIndex = segmentEndIndex + 1;
+        }
+    }
+
+    private static final class ByteArrayServletInputStream extends ServletInputStream {
+
+        private final byte[] bytes;
+
+        private int position = 0;
+
+        private ByteArrayServletInputStream(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public boolean isFinished() {
+            return position >= bytes.length;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            checkNotNull(readListener, "readListener");
+            try {
+                readListener.onDataAvailable();
+                readListener.onAllDataRead();
+            } catch (IOException error) {
+                readListener.onError(error);
+            }
+        }
+
+        @Override
+        public int read() {
+            return position < bytes.length ? bytes[position++] & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            int availableByteCount = bytes.length - position;
+            if (availableByteCount <= 0) {
+                return -1;
+            }
+            int readByteCount = Math.min(length, availableByteCount);
+            System.arraycopy(bytes, position, buffer, offset, readByteCount);
+            position += readByteCount;
+            return readByteCount;
+        }
+
+        @Override
+        public int available() {
+            return bytes.length - position;
+        }
+
+    }
+
+}
@@ -1,9 +1,10 @@
 package com.vlkan.hrrs.servlet;
 
+import com.vlkan.hrrs.capture.HrrsPayloadBuffer;
+
 import javax.servlet.ReadListener;
 import javax.servlet.ServletInputStream;
 import java.io.IOException;
-import java.io.OutputStream;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -11,21 +12,19 @@ public class TeeServletInputStream extends ServletInputStream {
 
     private final ServletInputStream servletInputStream;
 
-    private final OutputStream outputStream;
-
-    private final int maxByteCount;
-
-    private volatile int byteCount;
+    private final HrrsPayloadBuffer payloadBuffer;
 
-    TeeServletInputStream(ServletInputStream servletInputStream, OutputStream outputStream, int maxByteCount) {
+    TeeServletInputStream(ServletInputStream servletInputStream, HrrsPayloadBuffer payloadBuffer) {
         this.servletInputStream = servletInputStream;
-        this.outputStream = outputStream;
-        this.maxByteCount = maxByteCount;
-        this.byteCount = 0;
+        this.payloadBuffer = payloadBuffer;
+    }
+
+    public HrrsPayloadBuffer getPayloadBuffer() {
+        return payloadBuffer;
     }
 
     public int getByteCount() {
-        return byteCount;
+        return payloadBuffer.getByteCount();
     }
 
     @Override
@@ -47,13 +46,19 @@ public class TeeServletInputStream extends ServletInputStream {
     @Override
     public int read() throws IOException {
         int value = servletInputStream.read();
-        int localByteCount = byteCount;
-        if (value != -1 && localByteCount < maxByteCount) {
-            outputStream.write(value);
-            localByteCount++;
+        if (value != -1) {
+            payloadBuffer.append(value);
         }
-        byteCount = localByteCount;
         return value;
     }
 
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        int readByteCount = servletInputStream.read(bytes, offset, length);
+        if (readByteCount > 0) {
+            payloadBuffer.append(bytes, offset, readByteCount);
+        }
+        return readByteCount;
+    }
+
 }
@@ -0,0 +1,59 @@
+package com.vlkan.hrrs.servlet;
+
+import com.vlkan.hrrs.capture.HrrsPayloadBuffer;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import java.io.IOException;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+public class TeeServletOutputStream extends ServletOutputStream {
+
+    private final ServletOutputStream servletOutputStream;
+
+    private final HrrsPayloadBuffer payloadBuffer;
+
+    TeeServletOutputStream(ServletOutputStream servletOutputStream, HrrsPayloadBuffer payloadBuffer) {
+        this.servletOutputStream = servletOutputStream;
+        this.payloadBuffer = payloadBuffer;
+    }
+
+    public HrrsPayloadBuffer getPayloadBuffer() {
+        return payloadBuffer;
+    }
+
+    @Override
+    public boolean isReady() {
+        return servletOutputStream.isReady();
+    }
+
+    @Override
+    public void setWriteListener(WriteListener writeListener) {
+        checkNotNull(writeListener, "writeListener");
+        servletOutputStream.setWriteListener(writeListener);
+    }
+
+    @Override
+    public void write(int value) throws IOException {
+        servletOutputStream.write(value);
+        payloadBuffer.append(value);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        servletOutputStream.write(bytes, offset, length);
+        payloadBuffer.append(bytes, offset, length);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        servletOutputStream.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        servletOutputStream.close();
+    }
+
+}
@@ -0,0 +1,75 @@
+package com.vlkan.hrrs.servlet;
+
+import com.vlkan.hrrs.capture.HrrsPayloadBuffer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * {@link Writer} copying the written characters, encoded in the given
+ * charset, into a {@link HrrsPayloadBuffer}.
+ *
+ * Characters are copied via an internal encoder, which is flushed by
+ * {@link #flushCopy()} rather than {@link #flush()}, hence capturing the
+ * characters does not commit the response.
+ */
+public class TeeWriter extends Writer {
+
+    private final Writer writer;
+
+    private final Writer copyWriter;
+
+    TeeWriter(Writer writer, HrrsPayloadBuffer payloadBuffer, Charset charset) {
+        this.writer = checkNotNull(writer, "writer");
+        checkNotNull(payloadBuffer, "payloadBuffer");
+        OutputStream copyOutputStream = new OutputStream() {
+
+            @Override
+            public void write(int value) {
+                payloadBuffer.append(value);
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) {
+                payloadBuffer.append(bytes, offset, length);
+            }
+
+        };
+        this.copyWriter = new OutputStreamWriter(copyOutputStream, checkNotNull(charset, "charset"));
+    }
+
+    @Override
+    public void write(char[] chars, int offset, int length) throws IOException {
+        writer.write(chars, offset, length);
+        copyWriter.write(chars, offset, length);
+    }
+
+    @Override
+    public void write(String text, int offset, int length) throws IOException {
+        writer.write(text, offset, length);
+        copyWriter.write(text, offset, length);
+    }
+
+    /**
+     * Flushes the characters pending in the encoder into the payload buffer.
+     */
+    void flushCopy() throws IOException {
+        copyWriter.flush();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+}
@@ -0,0 +1,126 @@
+package com.vlkan.hrrs.servlet;
+
+import com.vlkan.hrrs.api.HttpRequestHeader;
+import com.vlkan.hrrs.api.HttpRequestPayload;
+import com.vlkan.hrrs.api.ImmutableHttpRequestHeader;
+import com.vlkan.hrrs.capture.HrrsPayloadBuffer;
+import org.junit.Test;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class HrrsHttpServletResponseWrapperTest {
+
+    @Test
+    public void test_capture_via_output_stream() throws IOException {
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        ByteArrayOutputStream responseOutputStream = new ByteArrayOutputStream();
+        when(response.getOutputStream()).thenReturn(createServletOutputStream(responseOutputStream));
+        HrrsHttpServletResponseWrapper wrapper = new HrrsHttpServletResponseWrapper(response, new HrrsPayloadBuffer(1024, true));
+        byte[] body = "{\"ok\":true}".getBytes(StandardCharsets.US_ASCII);
+        wrapper.getOutputStream().write(body);
+        wrapper.completeCapture();
+        assertThat(responseOutputStream.toByteArray(), is(equalTo(body)));
+        HttpRequestPayload capturedBody = wrapper.getPayloadBuffer().toPayload();
+        assertThat(capturedBody.getBytes(), is(equalTo(body)));
+        assertThat(capturedBody.getMissingByteCount(), is(0));
+        assertThat(wrapper.getPayloadBuffer().getOverflowHash(), is(nullValue()));
+    }
+
+    @Test
+    public void test_capture_via_writer() throws IOException {
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        StringWriter responseWriter = new StringWriter();
+        when(response.getCharacterEncoding()).thenReturn("UTF-8");
+        when(response.getWriter()).thenReturn(new PrintWriter(responseWriter));
+        HrrsHttpServletResponseWrapper wrapper = new HrrsHttpServletResponseWrapper(response, new HrrsPayloadBuffer(1024, true));
+        String body = "{\"greeting\":\"merhaba dünya\"}";
+        wrapper.getWriter().print(body);
+        wrapper.getWriter().flush();
+        wrapper.completeCapture();
+        assertThat(responseWriter.toString(), is(equalTo(body)));
+        HttpRequestPayload capturedBody = wrapper.getPayloadBuffer().toPayload();
+        assertThat(new String(capturedBody.getBytes(), StandardCharsets.UTF_8), is(equalTo(body)));
+    }
+
+    @Test
+    public void test_capture_of_truncated_body() throws IOException {
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        ByteArrayOutputStream responseOutputStream = new ByteArrayOutputStream();
+        when(response.getOutputStream()).thenReturn(createServletOutputStream(responseOutputStream));
+        HrrsHttpServletResponseWrapper wrapper = new HrrsHttpServletResponseWrapper(response, new HrrsPayloadBuffer(4, true));
+        byte[] body = "0123456789".getBytes(StandardCharsets.US_ASCII);
+        ServletOutputStream outputStream = wrapper.getOutputStream();
+        outputStream.write(body, 0, 3);
+        outputStream.write(body[3]);
+        outputStream.write(body[4]);
+        outputStream.write(body, 5, 5);
+        wrapper.completeCapture();
+        assertThat(responseOutputStream.toByteArray(), is(equalTo(body)));
+        HttpRequestPayload capturedBody = wrapper.getPayloadBuffer().toPayload();
+        assertThat(capturedBody.getBytes(), is(equalTo(Arrays.copyOf(body, 4))));
+        assertThat(capturedBody.getMissingByteCount(), is(6));
+        byte[] expectedHash = HrrsPayloadBuffer.OVERFLOW_HASH_FUNCTION.hashBytes(body).asBytes();
+        assertThat(wrapper.getPayloadBuffer().getOverflowHash(), is(equalTo(expectedHash)));
+    }
+
+    @Test
+    public void test_createHeaders() {
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        when(response.getHeaderNames()).thenReturn(Arrays.asList("Content-Type", "Set-Cookie", "Set-Cookie"));
+        when(response.getHeaders("Content-Type")).thenReturn(Collections.singletonList("text/plain"));
+        when(response.getHeaders("Set-Cookie")).thenReturn(Arrays.asList("a=1", "b=2"));
+        HrrsHttpServletResponseWrapper wrapper = new HrrsHttpServletResponseWrapper(response, new HrrsPayloadBuffer(0, true));
+        List<HttpRequestHeader> expectedHeaders = Arrays.asList(
+                createHeader("Content-Type", "text/plain"),
+                createHeader("Set-Cookie", "a=1"),
+                createHeader("Set-Cookie", "b=2"));
+        assertThat(wrapper.createHeaders(), is(equalTo(expectedHeaders)));
+    }
+
+    private static HttpRequestHeader createHeader(String name, String value) {
+        return ImmutableHttpRequestHeader
+                .builder()
+                .setName(name)
+                .setValue(value)
+                .build();
+    }
+
+    private static ServletOutputStream createServletOutputStream(ByteArrayOutputStream outputStream) {
+        return new ServletOutputStream() {
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void write(int value) {
+                outputStream.write(value);
+            }
+
+        };
+    }
+
+}
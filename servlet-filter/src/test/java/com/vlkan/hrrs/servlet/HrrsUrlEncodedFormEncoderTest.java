@@ -0,0 +1,68 @@
+package com.vlkan.hrrs.servlet;
+
+import org.junit.Test;
+
+import java.net.URLEncoder;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+public class HrrsUrlEncodedFormEncoderTest {
+
+    private static final Charset[] CHARSETS = {
+            StandardCharsets.UTF_8,
+            StandardCharsets.ISO_8859_1,
+            StandardCharsets.US_ASCII,
+            Charset.forName("Shift_JIS")
+    };
+
+    private static final String ALPHABET = "aZ09.-*_ +&=%?/çü€あ😀";
+
+    @Test
+    public void test_encode_matching_URLEncoder() throws Exception {
+        Random random = new Random(0);
+        HrrsUrlEncodedFormEncoder encoder = new HrrsUrlEncodedFormEncoder();
+        for (int trialIndex = 0; trialIndex < 1000; trialIndex++) {
+            Charset charset = CHARSETS[random.nextInt(CHARSETS.length)];
+            String name = generateText(random);
+            String value = generateText(random);
+            encoder.reset(charset);
+            encoder.append(name, new String[]{value}, null);
+            String expectedForm = URLEncoder.encode(name, charset.name()) + '=' + URLEncoder.encode(value, charset.name());
+            String actualForm = new String(encoder.toByteArray(), StandardCharsets.US_ASCII);
+            assertThat(String.format("charset=%s, name=%s, value=%s", charset, name, value), actualForm, is(equalTo(expectedForm)));
+        }
+    }
+
+    @Test
+    public void test_encode_excluding_query_parameters() {
+        HrrsUrlEncodedFormEncoder encoder = new HrrsUrlEncodedFormEncoder();
+        encoder.reset(StandardCharsets.UTF_8);
+        String queryString = "a=1&b=%C3%A7+x&c&a=3";
+        encoder.append("a", new String[]{"1", "2", "3"}, queryString);
+        encoder.append("b", new String[]{"ç x", "y"}, queryString);
+        encoder.append("c", new String[]{""}, queryString);
+        String form = new String(encoder.toByteArray(), StandardCharsets.US_ASCII);
+        assertThat(form, is(equalTo("a=2&b=y&c=")));
+    }
+
+    private static String generateText(Random random) {
+        int length = random.nextInt(8);
+        StringBuilder builder = new StringBuilder();
+        while (builder.length() < length) {
+            int charIndex = random.nextInt(ALPHABET.length());
+            char c = ALPHABET.charAt(charIndex);
+            if (Character.isHighSurrogate(c)) {
+                builder.append(c).append(ALPHABET.charAt(charIndex + 1));
+            } else if (!Character.isLowSurrogate(c)) {
+                builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+
+}
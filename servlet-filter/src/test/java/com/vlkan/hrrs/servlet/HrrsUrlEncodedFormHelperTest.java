@@ -3,15 +3,22 @@ package com.vlkan.hrrs.servlet;
 import com.vlkan.hrrs.api.HttpRequestPayload;
 import org.junit.Test;
 
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
 import javax.servlet.http.HttpServletRequest;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Collections;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsNot.not;
+import static org.hamcrest.core.IsNull.nullValue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -47,4 +54,85 @@ public class HrrsUrlEncodedFormHelperTest {
         assertThat(new String(payload.getBytes(), Charset.forName(encoding)), is(equalTo("x=x1&x=x2&y=y2")));
     }
 
+    @Test
+    public void test_captureRawForm() throws IOException {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        byte[] body = "x=x1&x=x%202&z".getBytes(StandardCharsets.US_ASCII);
+        ServletInputStream inputStream = createServletInputStream(body);
+        when(request.getCharacterEncoding()).thenReturn("UTF-8");
+        when(request.getContentLength()).thenReturn(body.length);
+        when(request.getQueryString()).thenReturn("y=y%FC");
+        // The container decodes the query string using its URI encoding.
+        when(request.getParameterMap()).thenReturn(Collections.singletonMap("y", new String[] {"y\u00FC"}));
+        when(request.getInputStream()).thenReturn(inputStream);
+        HrrsUrlEncodedFormHttpServletRequestWrapper wrapper = urlEncodedFormHelper.captureRawForm(request, "ASCII", 1024);
+        assertThat(wrapper, is(not(nullValue())));
+        assertThat(wrapper.getBodyBytes(), is(equalTo(body)));
+        assertThat(wrapper.getMissingByteCount(), is(0));
+        assertThat(wrapper.getParameterValues("x"), is(equalTo(new String[] {"x1", "x 2"})));
+        assertThat(wrapper.getParameter("y"), is(equalTo("y\u00FC")));
+        assertThat(wrapper.getParameter("z"), is(equalTo("")));
+        byte[] replayedBody = new byte[body.length];
+        assertThat(wrapper.getInputStream().read(replayedBody), is(body.length));
+        assertThat(replayedBody, is(equalTo(body)));
+    }
+
+    @Test
+    public void test_captureRawForm_with_truncated_body() throws IOException {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        byte[] body = "x=x1&y=y".getBytes(StandardCharsets.US_ASCII);
+        when(request.getContentLength()).thenReturn(body.length + 3);
+        when(request.getInputStream()).thenReturn(createServletInputStream(body));
+        HrrsUrlEncodedFormHttpServletRequestWrapper wrapper = urlEncodedFormHelper.captureRawForm(request, "ASCII", 1024);
+        assertThat(wrapper, is(not(nullValue())));
+        assertThat(wrapper.getBodyBytes(), is(equalTo(body)));
+        assertThat(wrapper.getMissingByteCount(), is(3));
+        assertThat(wrapper.getParameter("x"), is(equalTo("x1")));
+        assertThat(wrapper.getParameter("y"), is(equalTo("y")));
+        byte[] replayedBody = new byte[body.length + 3];
+        assertThat(wrapper.getInputStream().read(replayedBody), is(body.length));
+    }
+
+    @Test
+    public void test_captureRawForm_with_consumed_body() throws IOException {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getContentLength()).thenReturn(10);
+        when(request.getInputStream()).thenReturn(createServletInputStream(new byte[0]));
+        assertThat(urlEncodedFormHelper.captureRawForm(request, "ASCII", 1024), is(nullValue()));
+    }
+
+    @Test
+    public void test_captureRawForm_exceeding_limit() {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getContentLength()).thenReturn(1025);
+        assertThat(urlEncodedFormHelper.captureRawForm(request, "ASCII", 1024), is(nullValue()));
+    }
+
+    private static ServletInputStream createServletInputStream(byte[] bytes) {
+        ByteArrayInputStream inputStream = new ByteArrayInputStream(bytes);
+        return new ServletInputStream() {
+
+            @Override
+            public boolean isFinished() {
+                return inputStream.available() == 0;
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setReadListener(ReadListener readListener) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public int read() {
+                return inputStream.read();
+            }
+
+        };
+    }
+
 }